@@ -0,0 +1,292 @@
+package cpu_scheduling_examples;
+
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * MulticoreSchedulingSimulator.java
+ * 
+ * SMP scheduling (5_CPU_Scheduling.md sections 6-10): every CPU has its own
+ * run queue and scheduler (one SchedulingSimulator per CPU), and a load
+ * balancer moves processes between them.
+ * 
+ * Topology: CPUs are grouped into NUMA nodes of cpusPerNode. Nodes sit on a
+ * ring; the distance between nodes follows the ACPI SLIT convention:
+ * 10 = local, +10 per hop.
+ * 
+ * Processor affinity: a process that runs on a different CPU than last time
+ * has a cold cache and needs extra CPU time:
+ * - same node: cachePenalty
+ * - other node: cachePenalty * distance / 10 (its memory is now remote too)
+ * 
+ * Simulation in epochs: all CPUs simulate [t, t + epoch) in PARALLEL
+ * (parallelStream, like ThrashingDemo), then they meet at a barrier where,
+ * single-threaded:
+ * - new arrivals of the next epoch are placed on random CPUs (wake-ups land
+ * wherever the waker ran),
+ * - pull migration: an idle CPU steals a ready process from the busiest CPU,
+ * preferring its own node,
+ * - push migration: every pushEvery epochs, CPUs more than one process above
+ * the average push their excess to the least loaded CPUs.
+ * Processes interact with other CPUs only at barriers, like a real kernel
+ * balancer that runs every few milliseconds.
+ * 
+ * Reported: turnaround / waiting, migrations (same node and cross node), CPU
+ * time lost to affinity penalties, and load imbalance: at every barrier
+ * (max load - average load) / average load, averaged over the run.
+ */
+public final class MulticoreSchedulingSimulator {
+
+    public enum Balancing {
+        NONE, PULL, PUSH_PULL, PUSH_PULL_NUMA
+    }
+
+    private final SchedulingSimulator[] cpus;
+    private final int cpusPerNode;
+    private final int nodes;
+    private final long epoch;
+    private final int pushEvery;
+    private final Balancing balancing;
+    private final long cachePenalty;
+    private final SplittableRandom random;
+
+    // Results
+    private long localMigrations = 0;
+    private long remoteMigrations = 0;
+    private double imbalanceSum = 0;
+    private long barriers = 0;
+
+    public MulticoreSchedulingSimulator(int cpuCount, int cpusPerNode, Supplier<Scheduler> schedulerPerCpu,
+            Balancing balancing, long epoch, int pushEvery, long cachePenalty, long seed) {
+        this.cpus = new SchedulingSimulator[cpuCount];
+        this.cpusPerNode = cpusPerNode;
+        this.nodes = (cpuCount + cpusPerNode - 1) / cpusPerNode;
+        this.epoch = epoch;
+        this.pushEvery = pushEvery;
+        this.balancing = balancing;
+        this.cachePenalty = cachePenalty;
+        this.random = new SplittableRandom(seed);
+        for (int c = 0; c < cpuCount; c++) {
+            cpus[c] = new SchedulingSimulator(schedulerPerCpu.get());
+            cpus[c].setCpu(c, this::affinityPenalty);
+        }
+    }
+
+    int nodeOf(int cpu) {
+        return cpu / cpusPerNode;
+    }
+
+    /** ACPI SLIT style: 10 for the local node, +10 per hop on the ring. */
+    int distance(int nodeA, int nodeB) {
+        int d = Math.abs(nodeA - nodeB);
+        int hops = Math.min(d, nodes - d);
+        return 10 + 10 * hops;
+    }
+
+    private long affinityPenalty(int from, int to) {
+        return cachePenalty * distance(nodeOf(from), nodeOf(to)) / 10;
+    }
+
+    /** Simulates until every process from 'source' (in arrival order) has finished. */
+    public SchedulingSimulator.Stats run(Iterator<SimProcess> source) {
+        SimProcess pending = source.hasNext() ? source.next() : null;
+        long start = 0;
+        int epochs = 0;
+        while (true) {
+            long end = start + epoch;
+            // Place the arrivals of this epoch
+            while (pending != null && pending.arrival < end) {
+                cpus[random.nextInt(cpus.length)].submit(pending);
+                pending = source.hasNext() ? source.next() : null;
+            }
+
+            // All CPUs simulate the epoch in parallel
+            long horizon = end - 1;
+            IntStream.range(0, cpus.length).parallel().forEach(c -> cpus[c].runUntil(horizon));
+
+            boolean busy = recordImbalance();
+            if (pending == null && !busy && allIdle()) {
+                break;
+            }
+            if (balancing != Balancing.PULL && balancing != Balancing.NONE && ++epochs % pushEvery == 0) {
+                push(); // periodic: spread the overloaded CPUs first
+            }
+            if (balancing != Balancing.NONE) {
+                pull(); // every barrier: idle CPUs help themselves
+            }
+            start = end;
+        }
+        SchedulingSimulator.Stats total = new SchedulingSimulator.Stats();
+        for (SchedulingSimulator cpu : cpus) {
+            total.add(cpu.getStats());
+        }
+        return total;
+    }
+
+    // Nothing running, ready or waiting for I/O anywhere
+    private boolean allIdle() {
+        for (SchedulingSimulator cpu : cpus) {
+            if (cpu.getLoad() > 0 || cpu.hasPendingEvents()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Records (max - avg) / avg of the loads; returns whether anything is runnable. */
+    private boolean recordImbalance() {
+        long sum = 0;
+        int max = 0;
+        for (SchedulingSimulator cpu : cpus) {
+            int load = cpu.getLoad();
+            sum += load;
+            max = Math.max(max, load);
+        }
+        if (sum == 0) {
+            return false;
+        }
+        double avg = (double) sum / cpus.length;
+        imbalanceSum += (max - avg) / avg;
+        barriers++;
+        return true;
+    }
+
+    /** Every idle CPU steals one ready process from the busiest CPU (own node first). */
+    private void pull() {
+        for (int c = 0; c < cpus.length; c++) {
+            if (cpus[c].getLoad() > 0) {
+                continue;
+            }
+            int victim = -1;
+            if (balancing == Balancing.PUSH_PULL_NUMA) {
+                victim = busiest(nodeOf(c) * cpusPerNode, Math.min(cpus.length, (nodeOf(c) + 1) * cpusPerNode), 2);
+                if (victim < 0) {
+                    victim = busiest(0, cpus.length, 3); // remote only if clearly worth it
+                }
+            } else {
+                victim = busiest(0, cpus.length, 2);
+            }
+            if (victim >= 0) {
+                move(victim, c);
+            }
+        }
+    }
+
+    /** CPUs above the average push their excess to the least loaded CPUs. */
+    private void push() {
+        long sum = 0;
+        for (SchedulingSimulator cpu : cpus) {
+            sum += cpu.getLoad();
+        }
+        double avg = (double) sum / cpus.length;
+        for (int c = 0; c < cpus.length; c++) {
+            int excess = (int) (cpus[c].getLoad() - Math.ceil(avg)) / 2;
+            for (int i = 0; i < excess; i++) {
+                int target = -1;
+                if (balancing == Balancing.PUSH_PULL_NUMA) {
+                    target = idlest(nodeOf(c) * cpusPerNode, Math.min(cpus.length, (nodeOf(c) + 1) * cpusPerNode));
+                }
+                if (target < 0 || cpus[target].getLoad() >= avg) {
+                    target = idlest(0, cpus.length);
+                }
+                if (cpus[target].getLoad() + 1 >= cpus[c].getLoad() || !move(c, target)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean move(int from, int to) {
+        SimProcess p = cpus[from].migrateOut();
+        if (p == null) {
+            return false;
+        }
+        cpus[to].migrateIn(p);
+        if (nodeOf(from) == nodeOf(to)) {
+            localMigrations++;
+        } else {
+            remoteMigrations++;
+        }
+        return true;
+    }
+
+    // Busiest CPU in [from, to) with at least minLoad processes, or -1
+    private int busiest(int from, int to, int minLoad) {
+        int best = -1;
+        int bestLoad = minLoad - 1;
+        for (int c = from; c < to; c++) {
+            int load = cpus[c].getLoad();
+            if (load > bestLoad) {
+                best = c;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    private int idlest(int from, int to) {
+        int best = from;
+        for (int c = from + 1; c < to; c++) {
+            if (cpus[c].getLoad() < cpus[best].getLoad()) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    public long getLocalMigrations() {
+        return localMigrations;
+    }
+
+    public long getRemoteMigrations() {
+        return remoteMigrations;
+    }
+
+    /** Average of (max load - average load) / average load over all barriers. */
+    public double getImbalance() {
+        return barriers == 0 ? 0 : imbalanceSum / barriers;
+    }
+
+    /** (busiest CPU time - average) / average over the whole run. */
+    public double getBusyImbalance() {
+        long sum = 0;
+        long max = 0;
+        for (SchedulingSimulator cpu : cpus) {
+            sum += cpu.getStats().getBusy();
+            max = Math.max(max, cpu.getStats().getBusy());
+        }
+        double avg = (double) sum / cpus.length;
+        return avg == 0 ? 0 : (max - avg) / avg;
+    }
+
+    public static void main(String[] args) {
+        int cpuCount = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        long tasks = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        int cpusPerNode = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        double load = args.length > 3 ? Double.parseDouble(args[3]) : 0.8;
+        long epoch = 10;
+        int pushEvery = 4;
+        long cachePenalty = 2;
+
+        System.out.println("CPUs: " + cpuCount + " (" + cpusPerNode + " per NUMA node), tasks: " + tasks
+                + ", load: " + load + ", epoch: " + epoch + ", cache penalty: " + cachePenalty);
+        System.out.println(String.format("%-15s | %10s | %9s | %10s | %10s | %9s | %9s | %9s | %8s | %10s",
+                "Balancing", "Turnaround", "Waiting", "Local mig", "Remote mig", "Penalty %", "Imbalance",
+                "Busy imb.", "Seconds", "Tasks/s"));
+        System.out.println("--------------------------------------------------------------------------------------------------------------------------");
+
+        for (Balancing balancing : Balancing.values()) {
+            MulticoreSchedulingSimulator sim = new MulticoreSchedulingSimulator(cpuCount, cpusPerNode,
+                    () -> Schedulers.roundRobin(10), balancing, epoch, pushEvery, cachePenalty, 7);
+            long start = System.nanoTime();
+            SchedulingSimulator.Stats stats = sim.run(new WorkloadGenerator(tasks, load * cpuCount, 42));
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.println(String.format("%-15s | %10.1f | %9.1f | %10d | %10d | %8.2f%% | %9.2f | %9.2f | %8.2f | %10.0f",
+                    balancing, stats.getAvgTurnaround(), stats.getAvgWaiting(), sim.getLocalMigrations(),
+                    sim.getRemoteMigrations(), 100.0 * stats.getAffinityPenalty() / Math.max(1, stats.getBusy()),
+                    sim.getImbalance(), sim.getBusyImbalance(), seconds, stats.getFinished() / seconds));
+        }
+    }
+}
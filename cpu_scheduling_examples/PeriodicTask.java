@@ -0,0 +1,172 @@
+package cpu_scheduling_examples;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * PeriodicTask.java
+ * 
+ * A hard real-time task. ThrashingDemo.ProcessSim runs a fixed amount of work
+ * once; a periodic task instead releases a JOB every 'period' time units,
+ * starting at 'phase':
+ * - job k is released at phase + k * period,
+ * - it needs at most 'wcet' units of CPU (worst-case execution time),
+ * - it must finish by its release + 'deadline' (deadline <= period).
+ * 
+ * Jobs are plain SimProcesses with one CPU burst and an absolute deadline,
+ * so SchedulingSimulator runs them like any other process (event by event,
+ * no per-tick loop) and counts the ones finishing after their deadline.
+ * 
+ * releases() merges the jobs of a task set in release order with a heap of
+ * tasks keyed by their next release: O(log n) per job, and nothing is
+ * generated ahead of time, so hyperperiods of millions of jobs are fine.
+ */
+public class PeriodicTask {
+
+    /** Rate-Monotonic order: shorter period first (ties: shorter deadline, then id). */
+    static final Comparator<PeriodicTask> RM_ORDER = Comparator.<PeriodicTask>comparingLong(t -> t.period)
+            .thenComparingLong(t -> t.deadline).thenComparingInt(t -> t.id);
+
+    final int id;
+    final long period;
+    final long wcet;
+    final long deadline; // relative to the release
+    final long phase;
+
+    public PeriodicTask(int id, long period, long wcet) {
+        this(id, period, wcet, period, 0);
+    }
+
+    public PeriodicTask(int id, long period, long wcet, long deadline, long phase) {
+        if (wcet <= 0 || wcet > deadline || deadline > period) {
+            throw new IllegalArgumentException("Need 0 < wcet <= deadline <= period: " + period + "/" + wcet + "/" + deadline);
+        }
+        this.id = id;
+        this.period = period;
+        this.wcet = wcet;
+        this.deadline = deadline;
+        this.phase = phase;
+    }
+
+    public double utilization() {
+        return (double) wcet / period;
+    }
+
+    public static double utilization(List<PeriodicTask> tasks) {
+        double u = 0;
+        for (PeriodicTask t : tasks) {
+            u += t.utilization();
+        }
+        return u;
+    }
+
+    /** Least common multiple of the periods, or Long.MAX_VALUE if it overflows. */
+    public static long hyperperiod(List<PeriodicTask> tasks) {
+        long h = 1;
+        for (PeriodicTask t : tasks) {
+            long g = gcd(h, t.period);
+            try {
+                h = Math.multiplyExact(h / g, t.period);
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return h;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /** The tasks sorted in Rate-Monotonic priority order (index = RM priority). */
+    public static List<PeriodicTask> byRateMonotonic(List<PeriodicTask> tasks) {
+        List<PeriodicTask> sorted = new ArrayList<>(tasks);
+        sorted.sort(RM_ORDER);
+        return sorted;
+    }
+
+    /**
+     * All jobs released before 'horizon', in release order. A job's priority
+     * is its task's index in byRateMonotonic(tasks), so RM and per-task
+     * statistics can find the task again.
+     */
+    public static Iterator<SimProcess> releases(List<PeriodicTask> tasks, long horizon) {
+        return new Releases(byRateMonotonic(tasks), horizon);
+    }
+
+    private static class Releases implements Iterator<SimProcess> {
+        private final List<PeriodicTask> tasks;
+        private final long[] nextRelease;
+        private final PriorityQueue<Integer> heap; // task ranks by next release
+        private final long horizon;
+        private int jobs = 0;
+
+        Releases(List<PeriodicTask> tasks, long horizon) {
+            this.tasks = tasks;
+            this.horizon = horizon;
+            this.nextRelease = new long[tasks.size()];
+            this.heap = new PriorityQueue<>(Math.max(1, tasks.size()), (a, b) -> nextRelease[a] != nextRelease[b]
+                    ? Long.compare(nextRelease[a], nextRelease[b])
+                    : Integer.compare(a, b));
+            for (int i = 0; i < tasks.size(); i++) {
+                nextRelease[i] = tasks.get(i).phase;
+                if (nextRelease[i] < horizon) {
+                    heap.add(i);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public SimProcess next() {
+            if (heap.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            int rank = heap.poll();
+            PeriodicTask t = tasks.get(rank);
+            long release = nextRelease[rank];
+            SimProcess job = new SimProcess(jobs++, release, rank, t.wcet);
+            job.deadline = release + t.deadline;
+            nextRelease[rank] = release + t.period;
+            if (nextRelease[rank] < horizon) {
+                heap.add(rank);
+            }
+            return job;
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getPeriod() {
+        return period;
+    }
+
+    public long getWcet() {
+        return wcet;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public String toString() {
+        return "T" + id + "(period=" + period + ", wcet=" + wcet
+                + (deadline != period ? ", deadline=" + deadline : "") + ")";
+    }
+}
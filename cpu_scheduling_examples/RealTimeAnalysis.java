@@ -0,0 +1,185 @@
+package cpu_scheduling_examples;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * RealTimeAnalysis.java
+ * 
+ * Schedulability tests for periodic tasks on one CPU (all tasks released
+ * together at time 0, the worst case; deadline <= period).
+ * 
+ * Rate-Monotonic (fixed priorities, shorter period = higher priority):
+ * - Liu & Layland bound: if every deadline equals the period and
+ * U <= n (2^(1/n) - 1), the set is schedulable. Sufficient, not necessary
+ * (U <= 69% is always safe, above that it may still be fine).
+ * - Hyperbolic bound: product of (U_i + 1) <= 2. Also sufficient, and
+ * accepts more sets than Liu & Layland at the same cost.
+ * - Response-time analysis (exact): the worst response of task i is the
+ * smallest R with R = C_i + sum over higher-priority j of ceil(R / T_j) * C_j.
+ * Schedulable iff R_i <= D_i for every task.
+ * rateMonotonicSchedulable() tries the bounds first and only iterates when
+ * they cannot decide.
+ * 
+ * EDF:
+ * - deadlines equal to periods: schedulable iff U <= 1.
+ * - otherwise, processor demand: for every absolute deadline t in the first
+ * busy period, the work due by t must fit: sum of C_i for jobs with deadline
+ * <= t must be <= t. The deadlines are walked in order with a heap of tasks
+ * (O(log n) each) instead of a loop over every time unit.
+ */
+public final class RealTimeAnalysis {
+
+    private RealTimeAnalysis() {
+    }
+
+    /** n (2^(1/n) - 1): about 0.83 for 2 tasks, tends to ln 2 = 0.69. */
+    public static double liuLaylandBound(int n) {
+        return n * (Math.pow(2, 1.0 / n) - 1);
+    }
+
+    public static boolean implicitDeadlines(List<PeriodicTask> tasks) {
+        for (PeriodicTask t : tasks) {
+            if (t.deadline != t.period) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Liu & Layland test (sufficient; only valid when deadlines equal periods). */
+    public static boolean liuLaylandTest(List<PeriodicTask> tasks) {
+        return implicitDeadlines(tasks) && PeriodicTask.utilization(tasks) <= liuLaylandBound(tasks.size());
+    }
+
+    /** Hyperbolic bound (sufficient; only valid when deadlines equal periods). */
+    public static boolean hyperbolicTest(List<PeriodicTask> tasks) {
+        if (!implicitDeadlines(tasks)) {
+            return false;
+        }
+        double product = 1;
+        for (PeriodicTask t : tasks) {
+            product *= t.utilization() + 1;
+        }
+        return product <= 2;
+    }
+
+    /**
+     * Worst-case response time of every task under RM, indexed in RM priority
+     * order (PeriodicTask.byRateMonotonic). A task whose response exceeds
+     * its deadline gets the first value found above it (iteration stops there).
+     */
+    public static long[] responseTimes(List<PeriodicTask> tasks) {
+        List<PeriodicTask> sorted = PeriodicTask.byRateMonotonic(tasks);
+        long[] response = new long[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            PeriodicTask task = sorted.get(i);
+            long r = task.wcet;
+            for (int j = 0; j < i; j++) {
+                r += sorted.get(j).wcet; // every higher-priority task interferes at least once
+            }
+            while (true) {
+                long next = task.wcet;
+                for (int j = 0; j < i; j++) {
+                    PeriodicTask hp = sorted.get(j);
+                    next += ceilDiv(r, hp.period) * hp.wcet;
+                }
+                if (next == r || next > task.deadline) {
+                    r = next;
+                    break;
+                }
+                r = next;
+            }
+            response[i] = r;
+        }
+        return response;
+    }
+
+    /** Exact RM test: response-time analysis. */
+    public static boolean responseTimeTest(List<PeriodicTask> tasks) {
+        List<PeriodicTask> sorted = PeriodicTask.byRateMonotonic(tasks);
+        long[] response = responseTimes(tasks);
+        for (int i = 0; i < sorted.size(); i++) {
+            if (response[i] > sorted.get(i).deadline) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** RM: the cheap utilization bounds first, response-time analysis only if they fail. */
+    public static boolean rateMonotonicSchedulable(List<PeriodicTask> tasks) {
+        if (PeriodicTask.utilization(tasks) > 1) {
+            return false;
+        }
+        return liuLaylandTest(tasks) || hyperbolicTest(tasks) || responseTimeTest(tasks);
+    }
+
+    /** Exact EDF test: utilization, then processor demand if deadlines are shorter than periods. */
+    public static boolean edfSchedulable(List<PeriodicTask> tasks) {
+        double u = PeriodicTask.utilization(tasks);
+        if (u > 1 + 1e-12) {
+            return false;
+        }
+        if (implicitDeadlines(tasks)) {
+            return true;
+        }
+        long limit = busyPeriod(tasks);
+
+        // Walk the absolute deadlines in order; demand = work due so far
+        long[] nextDeadline = new long[tasks.size()];
+        PriorityQueue<Integer> heap = new PriorityQueue<>(tasks.size(),
+                (a, b) -> Long.compare(nextDeadline[a], nextDeadline[b]));
+        for (int i = 0; i < tasks.size(); i++) {
+            nextDeadline[i] = tasks.get(i).deadline;
+            heap.add(i);
+        }
+        long demand = 0;
+        while (!heap.isEmpty() && nextDeadline[heap.peek()] <= limit) {
+            long t = nextDeadline[heap.peek()];
+            while (!heap.isEmpty() && nextDeadline[heap.peek()] == t) {
+                int i = heap.poll();
+                demand += tasks.get(i).wcet;
+                nextDeadline[i] += tasks.get(i).period;
+                heap.add(i);
+            }
+            if (demand > t) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Length of the first busy period after a synchronous release: the
+     * smallest L with L = sum of ceil(L / T_i) * C_i. No deadline miss can
+     * happen later than this under EDF. If U rounds to 1 but is slightly
+     * above, the iteration would not stop: it is capped at one hyperperiod
+     * plus the longest deadline, which is enough for a synchronous release.
+     */
+    static long busyPeriod(List<PeriodicTask> tasks) {
+        long l = 0;
+        long maxDeadline = 0;
+        for (PeriodicTask t : tasks) {
+            l += t.wcet;
+            maxDeadline = Math.max(maxDeadline, t.deadline);
+        }
+        long hyperperiod = PeriodicTask.hyperperiod(tasks);
+        long cap = hyperperiod == Long.MAX_VALUE ? Long.MAX_VALUE : hyperperiod + maxDeadline;
+        while (l < cap) {
+            long next = 0;
+            for (PeriodicTask t : tasks) {
+                next += ceilDiv(l, t.period) * t.wcet;
+            }
+            if (next == l) {
+                return l;
+            }
+            l = next;
+        }
+        return cap;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return (a + b - 1) / b;
+    }
+}
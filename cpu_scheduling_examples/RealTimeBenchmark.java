@@ -0,0 +1,188 @@
+package cpu_scheduling_examples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * RealTimeBenchmark.java
+ * 
+ * Rate-Monotonic vs EDF, analysis vs simulation.
+ * 
+ * 1. Textbook task sets: T1(50, 20) + T2(100, 35) is schedulable by RM;
+ * T1(50, 25) + T2(80, 35) (U = 0.94) is not: T2 misses its deadline at 80,
+ * while EDF meets every deadline. For each set the response-time analysis is
+ * printed next to the worst response seen in the simulation.
+ * 
+ * 2. Random task sets (UUniFast utilizations, periods dividing 50400 so the
+ * hyperperiod stays bounded) at growing total utilization: the share of sets
+ * each test accepts (Liu & Layland, hyperbolic, exact RTA, EDF). Every set is
+ * also simulated over its hyperperiod with RM and EDF; "Disagree" counts sets
+ * where the exact test and the simulation disagree (must be 0: with a
+ * synchronous release the first hyperperiod contains the worst case).
+ * 
+ * 3. A long run: prime periods, so the hyperperiod overflows a long; the
+ * simulator runs 'horizon' time units of it event by event and reports jobs
+ * simulated per second.
+ * 
+ * Usage: java cpu_scheduling_examples.RealTimeBenchmark [setsPerPoint] [tasksPerSet] [horizon] [seed]
+ */
+public class RealTimeBenchmark {
+
+    private static final long PERIOD_BASE = 50_400; // 2^5 * 3^2 * 5^2 * 7
+
+    public static void main(String[] args) {
+        int sets = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long horizon = args.length > 2 ? Long.parseLong(args[2]) : 100_000_000L;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+        textbook("RM-feasible", List.of(new PeriodicTask(1, 50, 20), new PeriodicTask(2, 100, 35)));
+        textbook("RM-infeasible", List.of(new PeriodicTask(1, 50, 25), new PeriodicTask(2, 80, 35)));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] periods = divisors(PERIOD_BASE, 10, 5_000);
+        for (boolean constrained : new boolean[] { false, true }) {
+            System.out.println();
+            System.out.println((constrained ? "Constrained deadlines (D <= T)" : "Implicit deadlines (D = T)")
+                    + ", " + sets + " sets of " + n + " tasks per point");
+            System.out.println(String.format("%5s | %6s | %6s | %6s | %6s | %8s | %8s | %10s | %12s",
+                    "U", "LL", "Hyper", "RTA", "EDF", "Disagree", "Analysis", "Jobs", "Sim jobs/s"));
+            System.out.println("------------------------------------------------------------------------------------------");
+            for (int step = 0; step <= 8; step++) {
+                randomSets(0.60 + 0.05 * step, sets, n, constrained, periods, random);
+            }
+        }
+
+        System.out.println();
+        longRun(horizon);
+    }
+
+    // --- 1. Textbook ---
+
+    private static void textbook(String label, List<PeriodicTask> tasks) {
+        List<PeriodicTask> sorted = PeriodicTask.byRateMonotonic(tasks);
+        double u = PeriodicTask.utilization(tasks);
+        System.out.println(label + ": " + tasks + String.format(", U = %.3f, Liu & Layland bound = %.3f",
+                u, RealTimeAnalysis.liuLaylandBound(tasks.size())));
+        long[] rta = RealTimeAnalysis.responseTimes(tasks);
+        for (Scheduler scheduler : new Scheduler[] { Schedulers.rateMonotonic(), Schedulers.earliestDeadlineFirst() }) {
+            long[] worst = new long[sorted.size()];
+            SchedulingSimulator.Stats stats = simulate(scheduler, tasks, PeriodicTask.hyperperiod(tasks), worst);
+            boolean rm = scheduler.name().equals("RM");
+            boolean predicted = rm ? RealTimeAnalysis.rateMonotonicSchedulable(tasks)
+                    : RealTimeAnalysis.edfSchedulable(tasks);
+            System.out.println(String.format("  %-3s analysis: %-13s simulation: %d jobs, %d missed (max lateness %d)",
+                    scheduler.name(), predicted ? "schedulable," : "NOT,", stats.getFinished(),
+                    stats.getDeadlineMisses(), stats.getMaxLateness()));
+            for (int i = 0; i < sorted.size(); i++) {
+                System.out.println(String.format("      %-30s worst response %4d%s", sorted.get(i), worst[i],
+                        rm ? " (RTA " + rta[i] + ")" : ""));
+            }
+        }
+        System.out.println();
+    }
+
+    // --- 2. Random sets ---
+
+    private static void randomSets(double u, int sets, int n, boolean constrained, long[] periods,
+            SplittableRandom random) {
+        int ll = 0, hyper = 0, rta = 0, edf = 0, disagree = 0;
+        long analysisNanos = 0, simNanos = 0, jobs = 0;
+        for (int s = 0; s < sets; s++) {
+            List<PeriodicTask> tasks = randomSet(u, n, constrained, periods, random);
+
+            long start = System.nanoTime();
+            boolean llOk = RealTimeAnalysis.liuLaylandTest(tasks);
+            boolean hyperOk = RealTimeAnalysis.hyperbolicTest(tasks);
+            boolean rmOk = RealTimeAnalysis.rateMonotonicSchedulable(tasks);
+            boolean edfOk = RealTimeAnalysis.edfSchedulable(tasks);
+            analysisNanos += System.nanoTime() - start;
+            ll += llOk ? 1 : 0;
+            hyper += hyperOk ? 1 : 0;
+            rta += rmOk ? 1 : 0;
+            edf += edfOk ? 1 : 0;
+
+            long h = PeriodicTask.hyperperiod(tasks);
+            start = System.nanoTime();
+            SchedulingSimulator.Stats rm = simulate(Schedulers.rateMonotonic(), tasks, h, null);
+            SchedulingSimulator.Stats ed = simulate(Schedulers.earliestDeadlineFirst(), tasks, h, null);
+            simNanos += System.nanoTime() - start;
+            jobs += rm.getFinished() + ed.getFinished();
+            if (rmOk != (rm.getDeadlineMisses() == 0)) {
+                disagree++;
+            }
+            if (edfOk != (ed.getDeadlineMisses() == 0)) {
+                disagree++;
+            }
+        }
+        System.out.println(String.format("%5.2f | %5.1f%% | %5.1f%% | %5.1f%% | %5.1f%% | %8d | %6.1f us | %10d | %12.0f",
+                u, 100.0 * ll / sets, 100.0 * hyper / sets, 100.0 * rta / sets, 100.0 * edf / sets, disagree,
+                analysisNanos / 1_000.0 / sets, jobs, jobs / (simNanos / 1_000_000_000.0)));
+    }
+
+    /** UUniFast (Bini & Buttazzo): n utilizations summing to u, uniformly distributed. */
+    private static List<PeriodicTask> randomSet(double u, int n, boolean constrained, long[] periods,
+            SplittableRandom random) {
+        List<PeriodicTask> tasks = new ArrayList<>();
+        double sum = u;
+        for (int i = 0; i < n; i++) {
+            double ui = sum;
+            if (i < n - 1) {
+                double next = sum * Math.pow(random.nextDouble(), 1.0 / (n - 1 - i));
+                ui = sum - next;
+                sum = next;
+            }
+            long period = periods[random.nextInt(periods.length)];
+            long wcet = Math.max(1, Math.min(period, Math.round(ui * period)));
+            long deadline = period;
+            if (constrained) {
+                deadline = wcet + (period - wcet) / 2 + random.nextLong((period - wcet) / 2 + 1);
+            }
+            tasks.add(new PeriodicTask(i + 1, period, wcet, deadline, 0));
+        }
+        return tasks;
+    }
+
+    private static long[] divisors(long value, long min, long max) {
+        return java.util.stream.LongStream.rangeClosed(min, max).filter(d -> value % d == 0).toArray();
+    }
+
+    // --- 3. Long run ---
+
+    private static void longRun(long horizon) {
+        long[] periods = { 97, 101, 211, 307, 401, 503, 601, 709 };
+        long[] wcets = { 20, 20, 30, 30, 30, 30, 30, 30 };
+        List<PeriodicTask> tasks = new ArrayList<>();
+        for (int i = 0; i < periods.length; i++) {
+            tasks.add(new PeriodicTask(i + 1, periods[i], wcets[i]));
+        }
+        long h = PeriodicTask.hyperperiod(tasks);
+        System.out.println(String.format("Long run: %d tasks, prime periods, U = %.3f, hyperperiod %s, simulating %d time units",
+                tasks.size(), PeriodicTask.utilization(tasks), h == Long.MAX_VALUE ? "> 2^63" : Long.toString(h),
+                horizon));
+        System.out.println(String.format("  analysis: RM %s (RTA %s), EDF %s",
+                RealTimeAnalysis.rateMonotonicSchedulable(tasks) ? "schedulable" : "NOT schedulable",
+                Arrays.toString(RealTimeAnalysis.responseTimes(tasks)),
+                RealTimeAnalysis.edfSchedulable(tasks) ? "schedulable" : "NOT schedulable"));
+        for (Scheduler scheduler : new Scheduler[] { Schedulers.rateMonotonic(), Schedulers.earliestDeadlineFirst() }) {
+            long start = System.nanoTime();
+            SchedulingSimulator.Stats stats = simulate(scheduler, tasks, horizon, null);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.println(String.format("  %-3s %10d jobs, %6d missed, %8d preemptions, %5.2f s, %10.0f jobs/s",
+                    scheduler.name(), stats.getFinished(), stats.getDeadlineMisses(), stats.getPreemptions(),
+                    seconds, stats.getFinished() / seconds));
+        }
+    }
+
+    /** Runs the jobs released before 'horizon'; worst[rank] gets each task's worst response (if not null). */
+    static SchedulingSimulator.Stats simulate(Scheduler scheduler, List<PeriodicTask> tasks, long horizon,
+            long[] worst) {
+        SchedulingSimulator sim = new SchedulingSimulator(scheduler, PeriodicTask.releases(tasks, horizon), 0);
+        if (worst != null) {
+            sim.onFinish(job -> worst[job.priority] = Math.max(worst[job.priority], job.getTurnaround()));
+        }
+        return sim.run();
+    }
+}
@@ -0,0 +1,65 @@
+package cpu_scheduling_examples;
+
+/**
+ * Scheduler.java
+ * 
+ * A CPU scheduling policy: it owns the ready queue and decides which ready
+ * process runs next, for how long, and whether a process that just became
+ * ready takes the CPU away from the running one (preemption).
+ * 
+ * SchedulingSimulator calls:
+ * - add() when a process becomes ready (arrival, I/O done, preempted or
+ * its quantum expired),
+ * - next() when the CPU is free,
+ * - quantum() to know how long the chosen process may run,
+ * - preempts() when a process becomes ready while another one runs,
+ * - steal() when a load balancer moves a ready process to another CPU.
+ * 
+ * Implementations are in Schedulers.
+ */
+public interface Scheduler {
+
+    String name();
+
+    /** p is ready at time 'now' (p.readySince == now). */
+    void add(SimProcess p, long now);
+
+    /** Removes and returns the process to run next, or null if none is ready. */
+    SimProcess next(long now);
+
+    boolean isEmpty();
+
+    /** Number of ready processes. */
+    int size();
+
+    /**
+     * Removes a ready process so another CPU can run it (load balancing),
+     * or returns null. By default the one that would run next.
+     */
+    default SimProcess steal(long now) {
+        return next(now);
+    }
+
+    /** Longest slice p may run before it goes back to the ready queue. */
+    default long quantum(SimProcess p) {
+        return Long.MAX_VALUE; // non-preemptive by time: run until the burst ends
+    }
+
+    /** Should 'ready', which just became ready, take the CPU from 'running'? */
+    default boolean preempts(SimProcess running, SimProcess ready, long now) {
+        return false;
+    }
+
+    /** p used its whole quantum and is going back to the ready queue (before add()). */
+    default void quantumExpired(SimProcess p) {
+    }
+
+    /** Time of the next scheduler timer (e.g. an MLFQ priority boost), or Long.MAX_VALUE. */
+    default long nextTimer() {
+        return Long.MAX_VALUE;
+    }
+
+    /** The timer returned by nextTimer() is due. */
+    default void timer(long now) {
+    }
+}
@@ -0,0 +1,381 @@
+package cpu_scheduling_examples;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Schedulers.java
+ * 
+ * The scheduling algorithms of 5_CPU_Scheduling.md section 5, as Scheduler
+ * implementations:
+ * - FCFS: one FIFO queue, non-preemptive.
+ * - SJF: the shortest next CPU burst first, non-preemptive.
+ * - SRTF: preemptive SJF, a new process preempts if its burst is shorter than
+ * what the running one has left.
+ * - RR: FIFO queue and a time quantum.
+ * - Priority with aging: smallest priority number first; a waiting process
+ * gains one priority level every agingInterval time units.
+ * - MLFQ: several RR queues with growing quanta, FCFS at the bottom. Using a
+ * whole quantum moves a process down; every boostInterval all processes
+ * move back to the top queue (aging, no starvation).
+ * 
+ * Real-time scheduling (jobs of PeriodicTask, see RealTimeAnalysis):
+ * - Rate-Monotonic: preemptive fixed priority, the shorter the period the
+ * higher the priority (PeriodicTask stores the RM rank in 'priority').
+ * - EDF: preemptive, the earliest absolute deadline first.
+ * 
+ * Queues that need ordering are binary heaps (PriorityQueue), so adding
+ * and removing a process costs O(log n) even with millions waiting.
+ * SJF / SRTF use the actual burst lengths (the textbook "known burst"
+ * assumption).
+ */
+public final class Schedulers {
+
+    private Schedulers() {
+    }
+
+    /** Orders by key, then by arrival in the queue. */
+    private static final Comparator<SimProcess> BY_KEY = (a, b) -> a.key != b.key
+            ? Long.compare(a.key, b.key)
+            : Long.compare(a.seq, b.seq);
+
+    public static Scheduler fcfs() {
+        return new Fcfs();
+    }
+
+    public static Scheduler sjf() {
+        return new ShortestJob(false);
+    }
+
+    public static Scheduler srtf() {
+        return new ShortestJob(true);
+    }
+
+    public static Scheduler roundRobin(long quantum) {
+        return new RoundRobin(quantum);
+    }
+
+    public static Scheduler priorityWithAging(long agingInterval, boolean preemptive) {
+        return new PriorityAging(agingInterval, preemptive);
+    }
+
+    public static Scheduler mlfq(long boostInterval, long... quanta) {
+        return new Mlfq(boostInterval, quanta);
+    }
+
+    public static Scheduler rateMonotonic() {
+        return new RateMonotonic();
+    }
+
+    public static Scheduler earliestDeadlineFirst() {
+        return new EarliestDeadline();
+    }
+
+    /** First-Come, First-Served. */
+    static class Fcfs implements Scheduler {
+        private final ArrayDeque<SimProcess> queue = new ArrayDeque<>();
+
+        public String name() {
+            return "FCFS";
+        }
+
+        public void add(SimProcess p, long now) {
+            queue.addLast(p);
+        }
+
+        public SimProcess next(long now) {
+            return queue.pollFirst();
+        }
+
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        public int size() {
+            return queue.size();
+        }
+
+        /** Takes the most recently queued process: it has waited least. */
+        public SimProcess steal(long now) {
+            return queue.pollLast();
+        }
+    }
+
+    /** Shortest Job First, or Shortest Remaining Time First when preemptive. */
+    static class ShortestJob implements Scheduler {
+        private final PriorityQueue<SimProcess> heap = new PriorityQueue<>(BY_KEY);
+        private final boolean preemptive;
+        private long seq = 0;
+
+        ShortestJob(boolean preemptive) {
+            this.preemptive = preemptive;
+        }
+
+        public String name() {
+            return preemptive ? "SRTF" : "SJF";
+        }
+
+        public void add(SimProcess p, long now) {
+            p.key = p.remaining;
+            p.seq = seq++;
+            heap.add(p);
+        }
+
+        public SimProcess next(long now) {
+            return heap.poll();
+        }
+
+        public boolean isEmpty() {
+            return heap.isEmpty();
+        }
+
+        public int size() {
+            return heap.size();
+        }
+
+        public boolean preempts(SimProcess running, SimProcess ready, long now) {
+            return preemptive && ready.remaining < running.remainingAt(now);
+        }
+    }
+
+    /** Round Robin. */
+    static class RoundRobin implements Scheduler {
+        private final ArrayDeque<SimProcess> queue = new ArrayDeque<>();
+        private final long quantum;
+
+        RoundRobin(long quantum) {
+            this.quantum = quantum;
+        }
+
+        public String name() {
+            return "RR(q=" + quantum + ")";
+        }
+
+        public void add(SimProcess p, long now) {
+            queue.addLast(p);
+        }
+
+        public SimProcess next(long now) {
+            return queue.pollFirst();
+        }
+
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        public int size() {
+            return queue.size();
+        }
+
+        /** Takes the most recently queued process: it has waited least. */
+        public SimProcess steal(long now) {
+            return queue.pollLast();
+        }
+
+        public long quantum(SimProcess p) {
+            return quantum;
+        }
+    }
+
+    /**
+     * Priority scheduling with aging.
+     * The effective priority at time t is priority - (t - readySince) / agingInterval.
+     * Comparing two waiting processes at the same t, the t cancels out, so
+     * ordering by priority * agingInterval + readySince gives the same order
+     * at every t: the heap key never has to be updated while a process waits.
+     * A running process keeps the aging it had earned when it was dispatched;
+     * a newly ready process preempts it only with a better effective priority.
+     */
+    static class PriorityAging implements Scheduler {
+        private final PriorityQueue<SimProcess> heap = new PriorityQueue<>(BY_KEY);
+        private final long agingInterval;
+        private final boolean preemptive;
+        private long seq = 0;
+
+        PriorityAging(long agingInterval, boolean preemptive) {
+            this.agingInterval = agingInterval;
+            this.preemptive = preemptive;
+        }
+
+        public String name() {
+            return (preemptive ? "Priority+aging(P" : "Priority+aging(") + agingInterval + ")";
+        }
+
+        public void add(SimProcess p, long now) {
+            p.key = p.priority * agingInterval + p.readySince;
+            p.seq = seq++;
+            heap.add(p);
+        }
+
+        public SimProcess next(long now) {
+            return heap.poll();
+        }
+
+        public boolean isEmpty() {
+            return heap.isEmpty();
+        }
+
+        public int size() {
+            return heap.size();
+        }
+
+        public boolean preempts(SimProcess running, SimProcess ready, long now) {
+            // Both sides scaled by agingInterval, like the heap key
+            long readyNow = ready.key - now;
+            long runningNow = running.key - running.dispatchedAt;
+            return preemptive && readyNow < runningNow;
+        }
+    }
+
+    /** Multilevel Feedback Queue. */
+    static class Mlfq implements Scheduler {
+        private final long[] quanta; // the last level may be Long.MAX_VALUE (FCFS)
+        private final ArrayDeque<SimProcess>[] queues;
+        private final long boostInterval;
+        private long nextBoost;
+        private int epoch = 0;
+        private int size = 0;
+
+        @SuppressWarnings("unchecked")
+        Mlfq(long boostInterval, long... quanta) {
+            this.quanta = quanta;
+            this.boostInterval = boostInterval;
+            this.nextBoost = boostInterval;
+            this.queues = (ArrayDeque<SimProcess>[]) new ArrayDeque<?>[quanta.length];
+            for (int i = 0; i < quanta.length; i++) {
+                queues[i] = new ArrayDeque<>();
+            }
+        }
+
+        public String name() {
+            return "MLFQ(" + quanta.length + " levels)";
+        }
+
+        private int levelOf(SimProcess p) {
+            if (p.levelEpoch != epoch) { // boosted since it was last queued
+                p.levelEpoch = epoch;
+                p.level = 0;
+            }
+            return p.level;
+        }
+
+        public void add(SimProcess p, long now) {
+            if (now >= nextBoost) {
+                timer(now); // boosts that fell due while the queues were idle, all at once
+            }
+            queues[levelOf(p)].addLast(p);
+            size++;
+        }
+
+        public SimProcess next(long now) {
+            for (ArrayDeque<SimProcess> queue : queues) {
+                SimProcess p = queue.pollFirst();
+                if (p != null) {
+                    size--;
+                    return p;
+                }
+            }
+            return null;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long quantum(SimProcess p) {
+            return quanta[levelOf(p)];
+        }
+
+        public void quantumExpired(SimProcess p) {
+            p.level = Math.min(levelOf(p) + 1, quanta.length - 1); // CPU-heavy: move down
+        }
+
+        public boolean preempts(SimProcess running, SimProcess ready, long now) {
+            return levelOf(ready) < levelOf(running);
+        }
+
+        /** No timer while nothing waits: a boost would move nobody. */
+        public long nextTimer() {
+            return size == 0 ? Long.MAX_VALUE : nextBoost;
+        }
+
+        /** Priority boost: everybody back to the top queue (levels reset lazily, see levelOf). */
+        public void timer(long now) {
+            epoch++;
+            for (int i = 1; i < queues.length; i++) {
+                queues[0].addAll(queues[i]);
+                queues[i].clear();
+            }
+            nextBoost = now + boostInterval;
+        }
+    }
+
+    /** Rate-Monotonic: preemptive, static priority by period (smaller priority number first). */
+    static class RateMonotonic implements Scheduler {
+        private final PriorityQueue<SimProcess> heap = new PriorityQueue<>(BY_KEY);
+        private long seq = 0;
+
+        public String name() {
+            return "RM";
+        }
+
+        public void add(SimProcess p, long now) {
+            p.key = p.priority;
+            p.seq = seq++;
+            heap.add(p);
+        }
+
+        public SimProcess next(long now) {
+            return heap.poll();
+        }
+
+        public boolean isEmpty() {
+            return heap.isEmpty();
+        }
+
+        public int size() {
+            return heap.size();
+        }
+
+        public boolean preempts(SimProcess running, SimProcess ready, long now) {
+            return ready.priority < running.priority;
+        }
+    }
+
+    /** Earliest Deadline First: dynamic priority, the job whose deadline is closest runs. */
+    static class EarliestDeadline implements Scheduler {
+        private final PriorityQueue<SimProcess> heap = new PriorityQueue<>(BY_KEY);
+        private long seq = 0;
+
+        public String name() {
+            return "EDF";
+        }
+
+        public void add(SimProcess p, long now) {
+            p.key = p.deadline;
+            p.seq = seq++;
+            heap.add(p);
+        }
+
+        public SimProcess next(long now) {
+            return heap.poll();
+        }
+
+        public boolean isEmpty() {
+            return heap.isEmpty();
+        }
+
+        public int size() {
+            return heap.size();
+        }
+
+        public boolean preempts(SimProcess running, SimProcess ready, long now) {
+            return ready.deadline < running.deadline;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package cpu_scheduling_examples;
+
+/**
+ * SchedulingBenchmark.java
+ * 
+ * Runs every scheduler of Schedulers on the same generated workload (same
+ * seed) and prints the criteria of 5_CPU_Scheduling.md section 4:
+ * average turnaround, waiting and response time, the worst waiting time
+ * (starvation shows up here), CPU utilization, context switches, and how
+ * fast the simulator itself ran (simulated processes per second of real time).
+ * 
+ * Time is in abstract units (think milliseconds). Every dispatch costs
+ * CONTEXT_SWITCH units.
+ * 
+ * Usage: java cpu_scheduling_examples.SchedulingBenchmark [processes] [utilization] [seed]
+ */
+public class SchedulingBenchmark {
+
+    private static final long CONTEXT_SWITCH = 0;
+
+    static Scheduler[] schedulers() {
+        return new Scheduler[] {
+                Schedulers.fcfs(),
+                Schedulers.sjf(),
+                Schedulers.srtf(),
+                Schedulers.roundRobin(10),
+                Schedulers.priorityWithAging(100, false),
+                Schedulers.priorityWithAging(100, true),
+                Schedulers.mlfq(1_000, 8, 16, Long.MAX_VALUE)
+        };
+    }
+
+    public static void main(String[] args) {
+        long processes = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        double utilization = args.length > 1 ? Double.parseDouble(args[1]) : 0.9;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        System.out.println("Processes: " + processes + ", target CPU load: " + utilization + ", seed: " + seed);
+        System.out.println(String.format("%-22s | %10s | %9s | %9s | %10s | %5s | %10s | %12s",
+                "Scheduler", "Turnaround", "Waiting", "Response", "Max wait", "CPU", "Switches", "Sim procs/s"));
+        System.out.println("-----------------------------------------------------------------------------------------------------------");
+
+        // Warm-up so the first scheduler is not measured in the interpreter
+        for (Scheduler s : schedulers()) {
+            new SchedulingSimulator(s, new WorkloadGenerator(20_000, utilization, seed), CONTEXT_SWITCH).run();
+        }
+
+        for (Scheduler scheduler : schedulers()) {
+            SchedulingSimulator sim = new SchedulingSimulator(scheduler,
+                    new WorkloadGenerator(processes, utilization, seed), CONTEXT_SWITCH);
+            long start = System.nanoTime();
+            SchedulingSimulator.Stats stats = sim.run();
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            System.out.println(String.format("%-22s | %10.1f | %9.1f | %9.1f | %10d | %4.0f%% | %10d | %12.0f",
+                    scheduler.name(), stats.getAvgTurnaround(), stats.getAvgWaiting(), stats.getAvgResponse(),
+                    stats.getMaxWaiting(), stats.getUtilization() * 100, stats.getContextSwitches(),
+                    stats.getFinished() / seconds));
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package cpu_scheduling_examples;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * SchedulingSimulator.java
+ * 
+ * A discrete-event simulation of one CPU and its scheduler. Instead of
+ * advancing a clock tick by tick, it jumps straight to the next event:
+ * - a process arrives (arrivals are read in order, one at a time, so a
+ * generator can stream millions of processes without storing them),
+ * - an I/O burst completes (a binary heap ordered by completion time),
+ * - the running process finishes its CPU burst or its quantum expires,
+ * - a scheduler timer fires (e.g. the MLFQ priority boost).
+ * 
+ * Each event costs O(log n), so the simulation speed does not depend on how
+ * long bursts are in simulated time. A dispatch can cost a context switch
+ * (dispatcher latency, 5_CPU_Scheduling.md section 3) during which the CPU
+ * does no useful work.
+ * 
+ * Processes are submitted with submit() (arrival times must not decrease)
+ * or come from a source iterator; run() / runUntil() simulate and the
+ * results are in getStats().
+ */
+public class SchedulingSimulator {
+
+    /** CPU time a process needs to warm up its cache after moving from another CPU. */
+    public interface AffinityCost {
+        long penalty(int fromCpu, int toCpu);
+    }
+
+    /** Aggregate results (finished processes only). */
+    public static class Stats {
+        long finished;
+        long turnaroundSum, waitingSum, responseSum;
+        long maxTurnaround, maxWaiting, maxResponse;
+        long busy; // CPU time spent running processes (including affinity penalties)
+        long switches; // dispatches
+        long preemptions;
+        long penalty; // CPU time lost to cache warm-up after migrations
+        long missed; // finished after their deadline
+        long maxLateness;
+        long endTime;
+
+        /** Adds another CPU's results (multicore simulation). */
+        void add(Stats o) {
+            finished += o.finished;
+            turnaroundSum += o.turnaroundSum;
+            waitingSum += o.waitingSum;
+            responseSum += o.responseSum;
+            maxTurnaround = Math.max(maxTurnaround, o.maxTurnaround);
+            maxWaiting = Math.max(maxWaiting, o.maxWaiting);
+            maxResponse = Math.max(maxResponse, o.maxResponse);
+            busy += o.busy;
+            switches += o.switches;
+            preemptions += o.preemptions;
+            penalty += o.penalty;
+            missed += o.missed;
+            maxLateness = Math.max(maxLateness, o.maxLateness);
+            endTime = Math.max(endTime, o.endTime);
+        }
+
+        void record(SimProcess p) {
+            finished++;
+            turnaroundSum += p.getTurnaround();
+            waitingSum += p.getWaiting();
+            responseSum += p.getResponse();
+            maxTurnaround = Math.max(maxTurnaround, p.getTurnaround());
+            maxWaiting = Math.max(maxWaiting, p.getWaiting());
+            maxResponse = Math.max(maxResponse, p.getResponse());
+            if (p.finish > p.deadline) {
+                missed++;
+                maxLateness = Math.max(maxLateness, p.finish - p.deadline);
+            }
+        }
+
+        public long getFinished() {
+            return finished;
+        }
+
+        public double getAvgTurnaround() {
+            return finished == 0 ? 0 : (double) turnaroundSum / finished;
+        }
+
+        public double getAvgWaiting() {
+            return finished == 0 ? 0 : (double) waitingSum / finished;
+        }
+
+        public double getAvgResponse() {
+            return finished == 0 ? 0 : (double) responseSum / finished;
+        }
+
+        public long getMaxWaiting() {
+            return maxWaiting;
+        }
+
+        public long getMaxResponse() {
+            return maxResponse;
+        }
+
+        public long getContextSwitches() {
+            return switches;
+        }
+
+        public long getPreemptions() {
+            return preemptions;
+        }
+
+        public double getUtilization() {
+            return endTime == 0 ? 0 : (double) busy / endTime;
+        }
+
+        public long getBusy() {
+            return busy;
+        }
+
+        public long getAffinityPenalty() {
+            return penalty;
+        }
+
+        public long getDeadlineMisses() {
+            return missed;
+        }
+
+        /** Worst finish - deadline among the jobs that missed. */
+        public long getMaxLateness() {
+            return maxLateness;
+        }
+
+        /** Finished processes per 1000 time units. */
+        public double getThroughput() {
+            return endTime == 0 ? 0 : 1000.0 * finished / endTime;
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final long contextSwitch;
+    private final Iterator<SimProcess> source;
+    private final ArrayDeque<SimProcess> arrivals = new ArrayDeque<>();
+    private final PriorityQueue<SimProcess> io = new PriorityQueue<>((a, b) -> Long.compare(a.wakeAt, b.wakeAt));
+    private final Stats stats = new Stats();
+
+    private long now = 0;
+    private long lastArrival = Long.MIN_VALUE;
+    private SimProcess running = null;
+    private long sliceEnd; // when the running process leaves the CPU if nothing happens
+    private int cpu = 0;
+    private AffinityCost affinityCost = null;
+    private Consumer<SimProcess> finishListener = null;
+
+    public SchedulingSimulator(Scheduler scheduler) {
+        this(scheduler, Collections.emptyIterator(), 0);
+    }
+
+    /**
+     * @param source        processes in non-decreasing arrival order, read lazily
+     * @param contextSwitch time a dispatch costs before the process runs
+     */
+    public SchedulingSimulator(Scheduler scheduler, Iterator<SimProcess> source, long contextSwitch) {
+        this.scheduler = scheduler;
+        this.source = source;
+        this.contextSwitch = contextSwitch;
+    }
+
+    /** Makes this simulator CPU 'cpu' of a multicore system. */
+    public void setCpu(int cpu, AffinityCost affinityCost) {
+        this.cpu = cpu;
+        this.affinityCost = affinityCost;
+    }
+
+    /** Called for every process when it finishes (e.g. per-task statistics). */
+    public void onFinish(Consumer<SimProcess> listener) {
+        this.finishListener = listener;
+    }
+
+    public void submit(SimProcess p) {
+        if (p.arrival < lastArrival) {
+            throw new IllegalArgumentException("Arrivals must not decrease: " + p + " after " + lastArrival);
+        }
+        if (p.arrival < now) {
+            throw new IllegalArgumentException("Arrival in the simulated past: " + p + ", now " + now);
+        }
+        lastArrival = p.arrival;
+        arrivals.addLast(p);
+    }
+
+    /** Simulates until every process has finished. */
+    public Stats run() {
+        return runUntil(Long.MAX_VALUE);
+    }
+
+    /** Simulates every event up to and including time 'horizon'. */
+    public Stats runUntil(long horizon) {
+        while (true) {
+            if (running == null) {
+                dispatch();
+            }
+            SimProcess arrival = peekArrival();
+            long t = Long.MAX_VALUE;
+            if (running != null) {
+                t = sliceEnd;
+            }
+            if (!io.isEmpty()) {
+                t = Math.min(t, io.peek().wakeAt);
+            }
+            if (arrival != null) {
+                t = Math.min(t, arrival.arrival);
+            }
+            if (t == Long.MAX_VALUE && scheduler.isEmpty()) {
+                if (horizon != Long.MAX_VALUE) {
+                    now = Math.max(now, horizon); // idle until the horizon
+                }
+                break; // nothing left to simulate (a pending timer alone changes nothing)
+            }
+            t = Math.min(t, scheduler.nextTimer());
+            if (t > horizon) {
+                now = horizon;
+                break;
+            }
+            now = t;
+
+            if (running != null && sliceEnd == now) {
+                endSlice();
+            }
+            while (!io.isEmpty() && io.peek().wakeAt == now) {
+                SimProcess p = io.poll();
+                p.endIo();
+                ready(p);
+            }
+            while ((arrival = peekArrival()) != null && arrival.arrival == now) {
+                arrivals.pollFirst();
+                ready(arrival);
+            }
+            if (scheduler.nextTimer() == now) {
+                scheduler.timer(now);
+            }
+        }
+        stats.endTime = Math.max(stats.endTime, now);
+        return stats;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    public long getTime() {
+        return now;
+    }
+
+    /** Whether arrivals or I/O completions are still to come on this CPU. */
+    public boolean hasPendingEvents() {
+        return !io.isEmpty() || peekArrival() != null;
+    }
+
+    /** Ready processes plus the running one. */
+    public int getLoad() {
+        return scheduler.size() + (running != null ? 1 : 0);
+    }
+
+    /** Takes a ready process away for another CPU (load balancing), or null. */
+    public SimProcess migrateOut() {
+        return scheduler.steal(now);
+    }
+
+    /** A process moved here from another CPU; its wait (readySince) carries over. */
+    public void migrateIn(SimProcess p) {
+        enqueue(p);
+    }
+
+    private SimProcess peekArrival() {
+        if (arrivals.isEmpty() && source.hasNext()) {
+            submit(source.next());
+        }
+        return arrivals.peekFirst();
+    }
+
+    private void dispatch() {
+        SimProcess p = scheduler.next(now);
+        if (p == null) {
+            return;
+        }
+        p.waiting += now - p.readySince;
+        if (affinityCost != null) {
+            if (p.lastCpu >= 0 && p.lastCpu != cpu) {
+                long penalty = affinityCost.penalty(p.lastCpu, cpu); // runs longer: cold cache
+                p.remaining += penalty;
+                stats.penalty += penalty;
+            }
+            p.lastCpu = cpu;
+        }
+        p.dispatchedAt = now + contextSwitch; // firstRun is set once it has really run from there
+        long quantum = scheduler.quantum(p);
+        sliceEnd = p.dispatchedAt + Math.min(quantum, p.remaining);
+        running = p;
+        stats.switches++;
+    }
+
+    /** The running process leaves the CPU at 'now' because its slice ended. */
+    private void endSlice() {
+        SimProcess p = running;
+        running = null;
+        long ran = now - p.dispatchedAt;
+        started(p);
+        p.remaining -= ran;
+        stats.busy += ran;
+        if (p.remaining > 0) {
+            scheduler.quantumExpired(p); // quantum used up: back to the ready queue
+            ready(p);
+        } else if (p.isLastBurst()) {
+            p.finish = now;
+            stats.record(p);
+            stats.endTime = now;
+            if (finishListener != null) {
+                finishListener.accept(p);
+            }
+        } else {
+            p.wakeAt = now + p.startIo();
+            io.add(p);
+        }
+    }
+
+    /** Response time counts to the first time the process ran, after its context switch. */
+    private static void started(SimProcess p) {
+        if (p.firstRun < 0) {
+            p.firstRun = p.dispatchedAt;
+        }
+    }
+
+    private void ready(SimProcess p) {
+        p.readySince = now;
+        enqueue(p);
+    }
+
+    private void enqueue(SimProcess p) {
+        scheduler.add(p, now);
+        if (running != null && scheduler.preempts(running, p, now)) {
+            SimProcess preempted = running;
+            running = null;
+            long ran = Math.max(0, now - preempted.dispatchedAt);
+            if (ran > 0) { // preempted during the context switch: it has not started yet
+                started(preempted);
+            }
+            preempted.remaining -= ran;
+            stats.busy += ran;
+            stats.preemptions++;
+            preempted.readySince = now;
+            scheduler.add(preempted, now);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package cpu_scheduling_examples;
+
+/**
+ * SimProcess.java
+ * 
+ * A process as the CPU scheduler sees it. ThrashingDemo.ProcessSim only has
+ * an id and a fixed amount of work, and every process starts at once; here a
+ * process also has:
+ * - an arrival time,
+ * - a sequence of bursts: CPU, I/O, CPU, I/O, ..., CPU (it alternates between
+ * using the CPU and waiting for I/O, see 5_CPU_Scheduling.md section 1),
+ * - a priority (smaller number = higher priority).
+ * 
+ * The scheduler keeps its bookkeeping (queue level, ready-since time, heap
+ * key) in the process itself, so no extra objects are needed per event.
+ * 
+ * Statistics, all in simulated time units:
+ * - turnaround = finish - arrival
+ * - waiting = total time spent in the ready queue
+ * - response = first time on the CPU - arrival
+ */
+public class SimProcess {
+
+    final int id;
+    final long arrival;
+    final int priority;
+    private final long[] bursts; // even index: CPU burst, odd index: I/O burst
+
+    // Execution state
+    private int burstIndex = 0;
+    long remaining; // left in the current CPU burst (as of dispatchedAt)
+    long dispatchedAt; // when the current slice started using the CPU
+    long wakeAt; // when the current I/O completes
+
+    // Scheduler bookkeeping
+    long readySince;
+    long key; // heap ordering, meaning depends on the scheduler
+    long seq; // FIFO tie-break among equal keys
+    int level; // MLFQ queue
+    int levelEpoch; // MLFQ boost generation the level belongs to
+    int lastCpu = -1; // CPU it last ran on (multicore simulation)
+    long deadline = Long.MAX_VALUE; // absolute deadline (real-time jobs, see PeriodicTask)
+
+    // Statistics
+    long firstRun = -1;
+    long finish = -1;
+    long waiting = 0;
+
+    /**
+     * @param bursts CPU, I/O, CPU, ... durations; must start and end with a CPU burst
+     */
+    public SimProcess(int id, long arrival, int priority, long... bursts) {
+        if (bursts.length == 0 || bursts.length % 2 == 0) {
+            throw new IllegalArgumentException("Bursts must be CPU, I/O, ..., CPU (odd length)");
+        }
+        this.id = id;
+        this.arrival = arrival;
+        this.priority = priority;
+        this.bursts = bursts;
+        this.remaining = bursts[0];
+    }
+
+    /** Remaining CPU time of the current burst at 'now', if it has been running since dispatchedAt. */
+    long remainingAt(long now) {
+        return remaining - Math.max(0, now - dispatchedAt);
+    }
+
+    /** Length of the current CPU burst (as a whole). */
+    long currentBurst() {
+        return bursts[burstIndex];
+    }
+
+    boolean isLastBurst() {
+        return burstIndex == bursts.length - 1;
+    }
+
+    /** Current CPU burst finished: returns the I/O burst that follows. */
+    long startIo() {
+        burstIndex++;
+        return bursts[burstIndex];
+    }
+
+    /** I/O finished: move on to the next CPU burst. */
+    void endIo() {
+        burstIndex++;
+        remaining = bursts[burstIndex];
+    }
+
+    public long totalCpu() {
+        long sum = 0;
+        for (int i = 0; i < bursts.length; i += 2) {
+            sum += bursts[i];
+        }
+        return sum;
+    }
+
+    public long totalIo() {
+        long sum = 0;
+        for (int i = 1; i < bursts.length; i += 2) {
+            sum += bursts[i];
+        }
+        return sum;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getArrival() {
+        return arrival;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getTurnaround() {
+        return finish - arrival;
+    }
+
+    public long getWaiting() {
+        return waiting;
+    }
+
+    public long getResponse() {
+        return firstRun - arrival;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public long getFinish() {
+        return finish;
+    }
+
+    @Override
+    public String toString() {
+        return "P" + id + "(arrival=" + arrival + ", priority=" + priority + ", cpu=" + totalCpu() + ")";
+    }
+}
@@ -0,0 +1,74 @@
+package cpu_scheduling_examples;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * WorkloadGenerator.java
+ * 
+ * Generates processes lazily, in arrival order, so the simulator can run
+ * millions of them without keeping them all in memory.
+ * 
+ * - Arrivals: a Poisson process (exponential gaps), with the mean gap chosen
+ * so that the CPU is loaded to 'utilization' on average.
+ * - Two kinds of processes (5_CPU_Scheduling.md section 1):
+ * - I/O-bound (interactive): many short CPU bursts with I/O in between,
+ * - CPU-bound (batch): a few long CPU bursts.
+ * - Burst lengths are exponential around their mean (at least 1).
+ * - Priority: 0 (highest) .. 9, uniform.
+ * 
+ * The same seed always gives the same workload, so schedulers can be
+ * compared on identical input.
+ */
+public class WorkloadGenerator implements Iterator<SimProcess> {
+
+    static final double IO_BOUND_FRACTION = 0.7;
+    static final double IO_BOUND_CPU_MEAN = 4, IO_BOUND_IO_MEAN = 30;
+    static final int IO_BOUND_BURSTS = 5; // CPU bursts
+    static final double CPU_BOUND_CPU_MEAN = 80, CPU_BOUND_IO_MEAN = 10;
+    static final int CPU_BOUND_BURSTS = 2;
+    static final int PRIORITIES = 10;
+
+    private final SplittableRandom random;
+    private final long count;
+    private final double meanGap;
+    private long generated = 0;
+    private double clock = 0;
+
+    public WorkloadGenerator(long count, double utilization, long seed) {
+        this.random = new SplittableRandom(seed);
+        this.count = count;
+        // Mean CPU demand per process, then the gap that gives the wanted load
+        double meanCpu = IO_BOUND_FRACTION * IO_BOUND_CPU_MEAN * IO_BOUND_BURSTS
+                + (1 - IO_BOUND_FRACTION) * CPU_BOUND_CPU_MEAN * CPU_BOUND_BURSTS;
+        this.meanGap = meanCpu / utilization;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return generated < count;
+    }
+
+    @Override
+    public SimProcess next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        clock += exponential(meanGap);
+        boolean ioBound = random.nextDouble() < IO_BOUND_FRACTION;
+        int cpuBursts = ioBound ? IO_BOUND_BURSTS : CPU_BOUND_BURSTS;
+        long[] bursts = new long[2 * cpuBursts - 1];
+        for (int i = 0; i < bursts.length; i++) {
+            boolean cpu = i % 2 == 0;
+            double mean = ioBound ? (cpu ? IO_BOUND_CPU_MEAN : IO_BOUND_IO_MEAN)
+                    : (cpu ? CPU_BOUND_CPU_MEAN : CPU_BOUND_IO_MEAN);
+            bursts[i] = Math.max(1, Math.round(exponential(mean)));
+        }
+        return new SimProcess((int) generated++, (long) clock, random.nextInt(PRIORITIES), bursts);
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+}
@@ -0,0 +1,51 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * AbstractDirectory.java
+ * 
+ * What every Directory shares: the FileLayout its files live in, block
+ * I/O on those files, and name encoding. Operations are synchronized
+ * (one directory, one lock, like a directory inode's lock).
+ */
+public abstract class AbstractDirectory implements Directory {
+
+    protected final FileLayout layout;
+
+    protected AbstractDirectory(FileLayout layout) {
+        this.layout = layout;
+    }
+
+    /** UTF-8 bytes of a name; IllegalArgumentException if it cannot be an entry. */
+    protected static byte[] encode(String entry) {
+        byte[] name = entry.getBytes(StandardCharsets.UTF_8);
+        if (name.length == 0 || name.length > DirectoryBlock.MAX_NAME) {
+            throw new IllegalArgumentException("Entry name must be 1.." + DirectoryBlock.MAX_NAME + " bytes: \""
+                    + entry + "\"");
+        }
+        return name;
+    }
+
+    protected static String decode(ByteBuffer block, int record) {
+        return new String(DirectoryBlock.name(block, record), StandardCharsets.UTF_8);
+    }
+
+    protected static ByteBuffer newBuffer() {
+        return ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+    }
+
+    protected void readBlock(int file, int index, ByteBuffer block) {
+        layout.read(file, index, 1, block);
+    }
+
+    /** Writes block 'index' of 'file'; index == size of the file appends. */
+    protected void writeBlock(int file, int index, ByteBuffer block) {
+        layout.write(file, index, 1, block);
+    }
+
+    protected static IllegalArgumentException exists(String entry) {
+        return new IllegalArgumentException("Entry exists: \"" + entry + "\"");
+    }
+}
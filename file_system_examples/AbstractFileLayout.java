@@ -0,0 +1,310 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * AbstractFileLayout.java
+ * 
+ * What every FileLayout shares:
+ * 
+ * On the device (formatted by the constructor):
+ * - block 0: superblock (magic, sizes and where the regions start),
+ * - the FCB table: maxFiles FCBs of FCB_SIZE bytes; bytes 0-3 in-use flag,
+ * 4-7 size in blocks, the rest belongs to the layout,
+ * - the layout's own metadata region (free-space bitmap, FAT...),
+ * - data blocks.
+ * 
+ * Every operation (create, read, write, delete, size) runs under the
+ * layout's lock. Metadata blocks it touches are read from the device once
+ * and kept for the rest of the operation; the ones it changed are written
+ * back, in block order, when it ends, followed by the changed free-space
+ * blocks. So the device counters show the metadata I/O of each operation
+ * without any caching between operations.
+ * An operation that fails (a write that runs out of space half way) writes
+ * nothing back: its metadata blocks are dropped and the layout reverts its
+ * in-memory free-space state, so the file is exactly as it was before.
+ * 
+ * Subclasses implement the allocation method: onCreate(), grow(),
+ * mapRun() (logical -> physical, as long a run as possible), release(),
+ * and the write-back / revert of their free-space state.
+ */
+public abstract class AbstractFileLayout implements FileLayout {
+
+    static final int MAGIC = 0x4F534653; // "OSFS"
+    static final int FCB_SIZE = 128;
+    static final int FCBS_PER_BLOCK = BlockDevice.BLOCK_SIZE / FCB_SIZE;
+    static final int FCB_IN_USE = 0, FCB_SIZE_BLOCKS = 4;
+    private static final int COPY_CHUNK = 256;
+
+    protected final BlockDevice device;
+    protected final int maxFiles;
+    protected final int fcbStart;
+    protected final int metaStart;
+    protected final int dataStart;
+    private final ArrayDeque<Integer> freeFcbs = new ArrayDeque<>();
+
+    // Metadata blocks of the current operation
+    private final Map<Integer, ByteBuffer> opBlocks = new HashMap<>();
+    private final TreeSet<Integer> opDirty = new TreeSet<>();
+    private final ArrayDeque<ByteBuffer> spareBuffers = new ArrayDeque<>();
+    private ByteBuffer copyBuffer;
+
+    protected AbstractFileLayout(BlockDevice device, int maxFiles, int layoutBlocks) {
+        this.device = device;
+        this.maxFiles = maxFiles;
+        this.fcbStart = 1;
+        this.metaStart = fcbStart + (maxFiles + FCBS_PER_BLOCK - 1) / FCBS_PER_BLOCK;
+        this.dataStart = metaStart + layoutBlocks;
+        if (dataStart >= device.blocks()) {
+            throw new IllegalArgumentException("Device of " + device.blocks() + " blocks too small for the metadata");
+        }
+        for (int f = 0; f < maxFiles; f++) {
+            freeFcbs.add(f);
+        }
+        // Format: superblock and an empty FCB table
+        ByteBuffer block = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+        block.putInt(0, MAGIC).putInt(4, device.blocks()).putInt(8, maxFiles).putInt(12, fcbStart)
+                .putInt(16, metaStart).putInt(20, dataStart);
+        device.write(0, block, BlockDevice.Kind.META);
+        ByteBuffer zeros = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+        for (int b = fcbStart; b < metaStart; b++) {
+            device.write(b, zeros, BlockDevice.Kind.META);
+        }
+    }
+
+    public BlockDevice device() {
+        return device;
+    }
+
+    // --- Allocation method ---
+
+    /** Fills the layout part of a new FCB (bytes 8..127 are zero). */
+    protected abstract void onCreate(int file, ByteBuffer fcb, int sizeHintBlocks);
+
+    /** Adds 'blocks' blocks at the end of the file (size is still the old one). */
+    protected abstract void grow(int file, ByteBuffer fcb, int blocks);
+
+    /**
+     * Physical block of logical block 'index', and how many of the next
+     * blocks (at most max) follow it on the device: start << 32 | length.
+     */
+    protected abstract long mapRun(int file, ByteBuffer fcb, int index, int max);
+
+    /** Frees everything the file holds. */
+    protected abstract void release(int file, ByteBuffer fcb);
+
+    /** Writes back the free-space blocks changed by this operation. */
+    protected abstract void writeBackFreeSpace();
+
+    /** Undoes the free-space changes of a failed operation (nothing of it reaches the device). */
+    protected abstract void revertFreeSpace();
+
+    // --- Operations ---
+
+    public synchronized int create(int sizeHintBlocks) {
+        Integer file = freeFcbs.poll();
+        if (file == null) {
+            throw new IllegalStateException("No free FCB (" + maxFiles + " files)");
+        }
+        boolean completed = false;
+        try {
+            ByteBuffer fcb = fcb(file);
+            for (int i = 0; i < FCB_SIZE; i += 4) {
+                fcb.putInt(i, 0);
+            }
+            fcb.putInt(FCB_IN_USE, 1);
+            onCreate(file, fcb, sizeHintBlocks);
+            fcbDirty(file);
+            completed = true;
+            return file;
+        } catch (RuntimeException e) {
+            freeFcbs.addFirst(file);
+            throw e;
+        } finally {
+            endOperation(completed);
+        }
+    }
+
+    public synchronized void write(int file, int index, int count, ByteBuffer buffer) {
+        boolean completed = false;
+        try {
+            ByteBuffer fcb = openFcb(file);
+            int size = fcb.getInt(FCB_SIZE_BLOCKS);
+            if (index < 0 || index > size) {
+                throw new IllegalArgumentException("Write at block " + index + " of a file of " + size + " blocks");
+            }
+            if (index + count > size) {
+                grow(file, fcb, index + count - size);
+                fcb.putInt(FCB_SIZE_BLOCKS, index + count);
+                fcbDirty(file);
+            }
+            transfer(file, fcb, index, count, buffer, true);
+            completed = true;
+        } finally {
+            endOperation(completed); // a failed grow() must not leave half an allocation behind
+        }
+    }
+
+    public synchronized void read(int file, int index, int count, ByteBuffer buffer) {
+        try {
+            ByteBuffer fcb = openFcb(file);
+            int size = fcb.getInt(FCB_SIZE_BLOCKS);
+            if (index < 0 || index + count > size) {
+                throw new IllegalArgumentException("Read of blocks " + index + ".." + (index + count - 1)
+                        + " of a file of " + size + " blocks");
+            }
+            transfer(file, fcb, index, count, buffer, false);
+        } finally {
+            endOperation(true); // read-only
+        }
+    }
+
+    public synchronized int size(int file) {
+        try {
+            return openFcb(file).getInt(FCB_SIZE_BLOCKS);
+        } finally {
+            endOperation(true); // read-only
+        }
+    }
+
+    public synchronized void delete(int file) {
+        boolean completed = false;
+        try {
+            ByteBuffer fcb = openFcb(file);
+            release(file, fcb);
+            for (int i = 0; i < FCB_SIZE; i += 4) {
+                fcb.putInt(i, 0);
+            }
+            fcbDirty(file);
+            freeFcbs.add(file);
+            completed = true;
+        } finally {
+            endOperation(completed);
+        }
+    }
+
+    public synchronized int fragments(int file) {
+        try {
+            ByteBuffer fcb = openFcb(file);
+            int size = fcb.getInt(FCB_SIZE_BLOCKS);
+            int runs = 0;
+            long previousEnd = -1;
+            for (int index = 0; index < size;) {
+                long run = mapRun(file, fcb, index, size - index);
+                int start = (int) (run >>> 32), length = (int) run;
+                if (start != previousEnd) {
+                    runs++;
+                }
+                previousEnd = (long) start + length;
+                index += length;
+            }
+            return runs;
+        } finally {
+            endOperation(true); // read-only
+        }
+    }
+
+    private void transfer(int file, ByteBuffer fcb, int index, int count, ByteBuffer buffer, boolean write) {
+        for (int done = 0; done < count;) {
+            long run = mapRun(file, fcb, index + done, count - done);
+            int start = (int) (run >>> 32), length = (int) run;
+            ByteBuffer part = buffer.slice(done * BlockDevice.BLOCK_SIZE, length * BlockDevice.BLOCK_SIZE);
+            if (write) {
+                device.write(start, length, part, BlockDevice.Kind.DATA);
+            } else {
+                device.read(start, length, part, BlockDevice.Kind.DATA);
+            }
+            done += length;
+        }
+    }
+
+    /** Copies 'count' data blocks on the device (used when a layout moves a file). */
+    protected void copyBlocks(int from, int to, int count) {
+        if (copyBuffer == null) {
+            copyBuffer = ByteBuffer.allocateDirect(COPY_CHUNK * BlockDevice.BLOCK_SIZE);
+        }
+        for (int done = 0; done < count; done += COPY_CHUNK) {
+            int n = Math.min(COPY_CHUNK, count - done);
+            device.read(from + done, n, copyBuffer, BlockDevice.Kind.DATA);
+            device.write(to + done, n, copyBuffer, BlockDevice.Kind.DATA);
+        }
+    }
+
+    // --- FCBs and metadata blocks of the current operation ---
+
+    private ByteBuffer openFcb(int file) {
+        if (file < 0 || file >= maxFiles) {
+            throw new IllegalArgumentException("No file " + file);
+        }
+        ByteBuffer fcb = fcb(file);
+        if (fcb.getInt(FCB_IN_USE) == 0) {
+            throw new IllegalArgumentException("File " + file + " does not exist");
+        }
+        return fcb;
+    }
+
+    /** The FCB of 'file', a view into its (cached) FCB table block. */
+    protected final ByteBuffer fcb(int file) {
+        return meta(fcbStart + file / FCBS_PER_BLOCK).slice((file % FCBS_PER_BLOCK) * FCB_SIZE, FCB_SIZE);
+    }
+
+    protected final void fcbDirty(int file) {
+        dirty(fcbStart + file / FCBS_PER_BLOCK);
+    }
+
+    /** A metadata block, read from the device the first time this operation needs it. */
+    protected final ByteBuffer meta(int block) {
+        ByteBuffer buffer = opBlocks.get(block);
+        if (buffer == null) {
+            buffer = buffer();
+            device.read(block, buffer, BlockDevice.Kind.META);
+            opBlocks.put(block, buffer);
+        }
+        return buffer;
+    }
+
+    /** A new metadata block (a fresh index block...): zeroed instead of read, already dirty. */
+    protected final ByteBuffer newMeta(int block) {
+        ByteBuffer buffer = opBlocks.get(block);
+        if (buffer == null) {
+            buffer = buffer();
+            opBlocks.put(block, buffer);
+        }
+        Arrays.fill(buffer.array(), (byte) 0);
+        dirty(block);
+        return buffer;
+    }
+
+    /** Whether the current operation already holds this metadata block. */
+    protected final boolean hasMeta(int block) {
+        return opBlocks.containsKey(block);
+    }
+
+    protected final void dirty(int block) {
+        opDirty.add(block);
+    }
+
+    private ByteBuffer buffer() {
+        ByteBuffer buffer = spareBuffers.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+    }
+
+    private void endOperation(boolean completed) {
+        if (completed) {
+            for (int block : opDirty) {
+                device.write(block, opBlocks.get(block), BlockDevice.Kind.META);
+            }
+            writeBackFreeSpace();
+        } else {
+            revertFreeSpace(); // and drop the changed blocks unwritten
+        }
+        opDirty.clear();
+        spareBuffers.addAll(opBlocks.values());
+        opBlocks.clear();
+    }
+}
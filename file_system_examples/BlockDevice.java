@@ -0,0 +1,192 @@
+package file_system_examples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * BlockDevice.java
+ * 
+ * Layer 1 of 11_File_System_Allocation.md ("retrieve block 123"): a disk of
+ * 'blocks' blocks of BLOCK_SIZE bytes, kept in a file that is memory-mapped
+ * (in windows of 1 GB, the most one mapping can hold).
+ * 
+ * Every read or write is ONE request for one or more consecutive blocks,
+ * tagged DATA (file contents) or META (superblock, FCBs, free-space map,
+ * index blocks...), so the layers above can be compared by how many
+ * requests and blocks they need.
+ * 
+ * A request that does not start where the previous one ended counts as a
+ * seek: on a hard disk it is a head movement ("Reading block b+1 after b
+ * usually needs no head movement"). hddMillis() turns the counters into the
+ * time a simple disk model would take; the real time of this device is
+ * only memory copies.
+ * 
+ * setRequestDelay() makes every request take that long (the calling thread
+ * parks, as it would wait for a real device), so caches in front of the
+ * device pay off in time as well as in counters.
+ * 
+ * Safe for concurrent use (requests to the same block are not ordered).
+ */
+public class BlockDevice implements AutoCloseable {
+
+    public static final int BLOCK_SIZE = 4096;
+    private static final int WINDOW_BLOCKS = (1 << 30) / BLOCK_SIZE;
+
+    // Disk model for hddMillis(): average seek + half a rotation, and the transfer rate
+    static final double SEEK_MILLIS = 8.0;
+    static final double MB_PER_SECOND = 150.0;
+
+    public enum Kind {
+        DATA, META
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+    private final int blocks;
+
+    private final LongAdder[] requests = adders(4);
+    private final LongAdder[] blocksMoved = adders(4);
+    private final LongAdder seeks = new LongAdder();
+    private final AtomicInteger nextSequential = new AtomicInteger(-1);
+    private volatile long requestDelayNanos = 0;
+
+    public BlockDevice(Path path, int blocks) throws IOException {
+        this.blocks = blocks;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int count = (blocks + WINDOW_BLOCKS - 1) / WINDOW_BLOCKS;
+        windows = new MappedByteBuffer[count];
+        for (int w = 0; w < count; w++) {
+            long first = (long) w * WINDOW_BLOCKS;
+            long size = Math.min(WINDOW_BLOCKS, blocks - first) * (long) BLOCK_SIZE;
+            windows[w] = channel.map(FileChannel.MapMode.READ_WRITE, first * BLOCK_SIZE, size);
+        }
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] a = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = new LongAdder();
+        }
+        return a;
+    }
+
+    public int blocks() {
+        return blocks;
+    }
+
+    /** Service time of every request from now on (0 = only the memory copy). */
+    public void setRequestDelay(long micros) {
+        requestDelayNanos = micros * 1_000;
+    }
+
+    /** Reads one block into 'buffer' (from index 0). */
+    public void read(int block, ByteBuffer buffer, Kind kind) {
+        read(block, 1, buffer, kind);
+    }
+
+    public void write(int block, ByteBuffer buffer, Kind kind) {
+        write(block, 1, buffer, kind);
+    }
+
+    /** Reads 'count' consecutive blocks with one request into 'buffer' (from index 0). */
+    public void read(int first, int count, ByteBuffer buffer, Kind kind) {
+        account(first, count, kind, 0);
+        transfer(first, count, buffer, false);
+    }
+
+    public void write(int first, int count, ByteBuffer buffer, Kind kind) {
+        account(first, count, kind, 2);
+        transfer(first, count, buffer, true);
+    }
+
+    private void account(int first, int count, Kind kind, int write) {
+        if (first < 0 || count < 1 || (long) first + count > blocks) {
+            throw new IllegalArgumentException("Blocks " + first + ".." + ((long) first + count - 1)
+                    + " outside the device (" + blocks + " blocks)");
+        }
+        int slot = write + kind.ordinal();
+        requests[slot].increment();
+        blocksMoved[slot].add(count);
+        if (nextSequential.getAndSet(first + count) != first) {
+            seeks.increment();
+        }
+        long delay = requestDelayNanos;
+        if (delay > 0) {
+            LockSupport.parkNanos(delay);
+        }
+    }
+
+    private void transfer(int first, int count, ByteBuffer buffer, boolean write) {
+        int done = 0;
+        while (done < count) {
+            int block = first + done;
+            MappedByteBuffer window = windows[block / WINDOW_BLOCKS];
+            int inWindow = Math.min(count - done, WINDOW_BLOCKS - block % WINDOW_BLOCKS);
+            int offset = (block % WINDOW_BLOCKS) * BLOCK_SIZE;
+            int length = inWindow * BLOCK_SIZE;
+            if (write) {
+                window.put(offset, buffer, done * BLOCK_SIZE, length);
+            } else {
+                buffer.put(done * BLOCK_SIZE, window, offset, length);
+            }
+            done += inWindow;
+        }
+    }
+
+    /** Forces the mapped contents to the file (msync). */
+    public void force() {
+        for (MappedByteBuffer window : windows) {
+            window.force();
+        }
+    }
+
+    // --- Metrics ---
+
+    public long requests(Kind kind, boolean write) {
+        return requests[(write ? 2 : 0) + kind.ordinal()].sum();
+    }
+
+    public long blocksMoved(Kind kind, boolean write) {
+        return blocksMoved[(write ? 2 : 0) + kind.ordinal()].sum();
+    }
+
+    public long seeks() {
+        return seeks.sum();
+    }
+
+    /** Time the disk model needs for everything so far: seeks plus transfers. */
+    public double hddMillis() {
+        long moved = 0;
+        for (LongAdder a : blocksMoved) {
+            moved += a.sum();
+        }
+        return seeks.sum() * SEEK_MILLIS + moved * (double) BLOCK_SIZE / (MB_PER_SECOND * 1_000_000) * 1000;
+    }
+
+    public void resetCounters() {
+        for (int i = 0; i < 4; i++) {
+            requests[i].reset();
+            blocksMoved[i].reset();
+        }
+        seeks.reset();
+        nextSequential.set(-1);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close(); // the mappings stay valid until they are garbage collected
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
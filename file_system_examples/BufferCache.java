@@ -0,0 +1,525 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import virtual_memory_examples.Monitors;
+import virtual_memory_examples.ReplacementPolicy;
+
+/**
+ * BufferCache.java
+ * 
+ * The "buffers" of the in-memory file-system structures: 'capacity' block
+ * buffers in front of a BlockDevice, shared by all threads.
+ * 
+ * - Lookup: a ConcurrentHashMap from block number to buffer, so hits from
+ * many threads do not take a common lock. A buffer's contents and state
+ * are guarded by the buffer's own monitor.
+ * - Replacement: a ReplacementPolicy from virtual_memory_examples (the
+ * FIFO / LRU of PageReplacementSim), guarded by one lock. A hit updates
+ * the policy only if that lock is free (tryLock): under contention some
+ * LRU updates are skipped (counted), instead of every reader queueing
+ * behind the lock.
+ * - Misses: the first thread to miss a block inserts a "loading" buffer
+ * and reads the block; other threads wanting it wait for that read
+ * instead of reading it again. If the read fails the buffers are taken
+ * out again and the waiters retry.
+ * - Sequential read-ahead: a miss on block b while b-1 is cached is taken
+ * as a sequential stream, and b and the next blocks are read with ONE
+ * request. The window starts at 4 blocks and doubles each time the stream
+ * continues past it, up to maxReadAhead.
+ * - Writes: a whole-block write only changes the buffer and marks it dirty.
+ * Every writeBackIntervalMillis a flusher thread writes the buffers dirty
+ * for longer than dirtyExpireMillis, sorted by block, each run of
+ * consecutive blocks with one request. Eviction passes over a dirty victim
+ * (it is put back and the flusher is woken to write it now) and takes the
+ * next one; only after MAX_DIRTY_SKIPS of them is a dirty buffer written on
+ * the spot (counted as a dirty eviction). The policy lock only covers
+ * picking the victim: that write, or waiting for a victim that is being
+ * read or written, happens after it is released.
+ * 
+ * Usage: read() / write() whole blocks, flush() to write everything, close().
+ */
+public class BufferCache implements AutoCloseable {
+
+    static final int BLOCK_SIZE = BlockDevice.BLOCK_SIZE;
+    private static final int FIRST_WINDOW = 4;
+    private static final int MAX_WRITE_RUN = 64;
+    private static final int MAX_DIRTY_SKIPS = 32;
+
+    /** One cached block; fields are guarded by the buffer's monitor. */
+    static final class Buffer {
+        int block = -1;
+        final ByteBuffer data = ByteBuffer.allocate(BLOCK_SIZE);
+        boolean loading;
+        boolean dirty;
+        long dirtySince;
+        long version; // counts writes, so write-back knows whether it wrote the latest contents
+        boolean writing; // a write-back has copied it and not finished yet
+        int window; // read-ahead window it was read with (0 = single read)
+        boolean readAhead; // brought in by read-ahead and not used yet
+    }
+
+    private final BlockDevice device;
+    private final int capacity;
+    private final ReplacementPolicy policy;
+    private final int maxReadAhead;
+    private final long dirtyExpireNanos;
+
+    private final ConcurrentHashMap<Integer, Buffer> index = new ConcurrentHashMap<>();
+    private final Set<Buffer> dirtyBuffers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final ArrayDeque<Buffer> freeBuffers = new ArrayDeque<>(); // guarded by policyLock
+    private int buffersInUse = 0; // guarded by policyLock
+    private final ThreadLocal<ByteBuffer> readScratch;
+    private final Object writeBackLock = new Object(); // one write-back at a time, sharing writeScratch
+    private ByteBuffer writeScratch; // guarded by writeBackLock
+
+    private final Thread flusher;
+    private volatile boolean closed = false;
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private final LongAdder readAheadBlocks = new LongAdder(), readAheadHits = new LongAdder();
+    private final LongAdder skippedUpdates = new LongAdder(), dirtyEvictions = new LongAdder();
+    private final LongAdder writeBackBlocks = new LongAdder(), writeBackRequests = new LongAdder();
+
+    /**
+     * maxReadAhead: largest read-ahead window in blocks (0 = no read-ahead);
+     * writeBackIntervalMillis: how often the flusher runs (0 = no flusher,
+     * dirty buffers are written when evicted or by flush()).
+     */
+    public BufferCache(BlockDevice device, int capacity, ReplacementPolicy policy, int maxReadAhead,
+            long writeBackIntervalMillis, long dirtyExpireMillis) {
+        this.device = device;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.maxReadAhead = maxReadAhead;
+        this.dirtyExpireNanos = dirtyExpireMillis * 1_000_000L;
+        int scratchBlocks = Math.max(1, maxReadAhead);
+        this.readScratch = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(scratchBlocks * BLOCK_SIZE));
+        if (writeBackIntervalMillis > 0) {
+            flusher = new Thread(() -> {
+                while (!closed) {
+                    LockSupport.parkNanos(writeBackIntervalMillis * 1_000_000L); // or until eviction needs it
+                    if (!closed) {
+                        writeBack(System.nanoTime() - dirtyExpireNanos);
+                    }
+                }
+            }, "buffer-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    public String policyName() {
+        return policy.name();
+    }
+
+    // --- Reads ---
+
+    /** Copies block 'block' into 'buffer' (from index 0). */
+    public void read(int block, ByteBuffer buffer) {
+        while (true) {
+            Buffer b = index.get(block);
+            boolean hit = b != null;
+            if (!hit) {
+                b = load(block);
+                if (b == null) {
+                    continue; // another thread inserted it meanwhile
+                }
+            }
+            synchronized (b) {
+                waitLoaded(b);
+                if (b.block != block) {
+                    continue; // evicted and reused since the lookup
+                }
+                buffer.put(0, b.data, 0, BLOCK_SIZE);
+                if (b.readAhead) {
+                    b.readAhead = false;
+                    readAheadHits.increment();
+                }
+            }
+            if (hit) {
+                hits.increment();
+                touch(block);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Reads 'block' (and, for a sequential stream, the blocks after it) into
+     * new buffers. Returns the buffer of 'block', or null if another thread
+     * inserted it first.
+     */
+    private Buffer load(int block) {
+        int window = 1;
+        Buffer previous = maxReadAhead > 0 && block > 0 ? index.get(block - 1) : null;
+        if (previous != null) {
+            window = Math.min(maxReadAhead, previous.window > 0 ? 2 * previous.window : FIRST_WINDOW);
+        }
+        window = Math.max(1, Math.min(window, device.blocks() - block));
+
+        // Claim consecutive blocks from 'block' on, up to the first one already cached
+        List<Buffer> claimed = new ArrayList<>(window);
+        for (int i = 0; i < window; i++) {
+            Buffer fresh = newBuffer();
+            synchronized (fresh) {
+                fresh.block = block + i;
+                fresh.loading = true;
+            }
+            if (index.putIfAbsent(block + i, fresh) != null) {
+                recycle(fresh);
+                break;
+            }
+            claimed.add(fresh);
+        }
+        if (claimed.isEmpty()) {
+            return null;
+        }
+        policyLock.lock();
+        try {
+            for (Buffer b : claimed) {
+                policy.inserted(b.block);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+
+        ByteBuffer scratch = readScratch.get();
+        boolean read = false;
+        try {
+            device.read(block, claimed.size(), scratch, BlockDevice.Kind.DATA);
+            read = true;
+        } finally {
+            if (!read) {
+                abandon(claimed);
+            }
+        }
+        for (int i = 0; i < claimed.size(); i++) {
+            Buffer b = claimed.get(i);
+            synchronized (b) {
+                b.data.put(0, scratch, i * BLOCK_SIZE, BLOCK_SIZE);
+                b.window = claimed.size() > 1 ? window : 0;
+                b.readAhead = i > 0;
+                b.loading = false;
+                b.notifyAll();
+            }
+        }
+        misses.increment();
+        readAheadBlocks.add(claimed.size() - 1);
+        return claimed.get(0);
+    }
+
+    // --- Writes ---
+
+    /** Replaces block 'block' with BLOCK_SIZE bytes of 'buffer' (from index 0); written back later. */
+    public void write(int block, ByteBuffer buffer) {
+        while (true) {
+            Buffer b = index.get(block);
+            if (b == null) {
+                Buffer fresh = newBuffer(); // a whole-block write needs no read
+                boolean inserted;
+                synchronized (fresh) {
+                    fresh.block = block;
+                    fresh.data.put(0, buffer, 0, BLOCK_SIZE);
+                    inserted = index.putIfAbsent(block, fresh) == null;
+                    if (inserted) {
+                        markDirty(fresh); // only once it is the block's buffer: a loser is never dirty
+                    }
+                }
+                if (!inserted) {
+                    recycle(fresh);
+                    continue;
+                }
+                policyLock.lock();
+                try {
+                    policy.inserted(block);
+                } finally {
+                    policyLock.unlock();
+                }
+                misses.increment();
+                return;
+            }
+            synchronized (b) {
+                waitLoaded(b);
+                if (b.block != block) {
+                    continue;
+                }
+                b.data.put(0, buffer, 0, BLOCK_SIZE);
+                b.readAhead = false;
+                markDirty(b);
+            }
+            hits.increment();
+            touch(block);
+            return;
+        }
+    }
+
+    private void markDirty(Buffer b) {
+        b.version++;
+        if (!b.dirty) {
+            b.dirty = true;
+            b.dirtySince = System.nanoTime();
+            dirtyBuffers.add(b);
+        }
+    }
+
+    /**
+     * Writes every dirty buffer back, including the ones being written by
+     * the flusher or an eviction right now and the ones dirtied again
+     * meanwhile: returns when nothing is dirty.
+     */
+    public void flush() {
+        while (!dirtyBuffers.isEmpty()) {
+            writeBack(Long.MAX_VALUE);
+            for (Buffer b : dirtyBuffers) { // skipped above: wait until they are written
+                synchronized (b) {
+                    while (b.writing) {
+                        Monitors.waitInterruptibly(b, "a buffer");
+                    }
+                }
+            }
+        }
+    }
+
+    /** Writes back the buffers dirty since 'dirtySince' or earlier, in block order, runs in one request. */
+    private void writeBack(long dirtySince) {
+        synchronized (writeBackLock) {
+            if (writeScratch == null) {
+                writeScratch = ByteBuffer.allocateDirect(MAX_WRITE_RUN * BLOCK_SIZE);
+            }
+            writeBack(dirtySince, writeScratch);
+        }
+    }
+
+    private void writeBack(long dirtySince, ByteBuffer scratch) {
+        List<long[]> due = new ArrayList<>(); // { block, identity index }
+        List<Buffer> buffers = new ArrayList<>();
+        for (Buffer b : dirtyBuffers) {
+            synchronized (b) {
+                if (b.dirty && !b.writing && !b.loading && b.dirtySince <= dirtySince) {
+                    b.writing = true; // ours until written: no other write-back, no eviction meanwhile
+                    due.add(new long[] { b.block, buffers.size() });
+                    buffers.add(b);
+                }
+            }
+        }
+        due.sort((x, y) -> Long.compare(x[0], y[0]));
+
+        long[] versions = new long[MAX_WRITE_RUN];
+        for (int i = 0; i < due.size();) {
+            int first = (int) due.get(i)[0];
+            int n = 0;
+            while (i + n < due.size() && n < MAX_WRITE_RUN && due.get(i + n)[0] == first + n) {
+                Buffer b = buffers.get((int) due.get(i + n)[1]);
+                synchronized (b) {
+                    scratch.put(n * BLOCK_SIZE, b.data, 0, BLOCK_SIZE);
+                    versions[n] = b.version;
+                }
+                n++;
+            }
+            device.write(first, n, scratch, BlockDevice.Kind.DATA);
+            writeBackRequests.increment();
+            writeBackBlocks.add(n);
+            for (int k = 0; k < n; k++) {
+                Buffer b = buffers.get((int) due.get(i + k)[1]);
+                synchronized (b) {
+                    if (b.version == versions[k]) { // not written again since the copy
+                        b.dirty = false;
+                        dirtyBuffers.remove(b);
+                    }
+                    b.writing = false;
+                    b.notifyAll();
+                }
+            }
+            i += n;
+        }
+    }
+
+    // --- Buffers and replacement ---
+
+    private void touch(int block) {
+        if (policyLock.tryLock()) {
+            try {
+                policy.accessed(block);
+            } finally {
+                policyLock.unlock();
+            }
+        } else {
+            skippedUpdates.increment();
+        }
+    }
+
+    /** A free buffer: a new one while below capacity, otherwise the policy's victim. */
+    private Buffer newBuffer() {
+        while (true) {
+            Buffer dirtyVictim = null; // claimed (writing = true), to be written back below
+            Buffer busy = null; // being read or written: wait for it below if nothing else is free
+            policyLock.lock();
+            try {
+                if (buffersInUse < capacity || policy.size() == 0) {
+                    buffersInUse++;
+                    return freeBuffers.isEmpty() ? new Buffer() : freeBuffers.poll();
+                }
+                int dirtySkipped = 0;
+                for (int tries = policy.size(); tries > 0 && dirtyVictim == null; tries--) {
+                    int victim = (int) policy.victim();
+                    Buffer b = index.get(victim);
+                    synchronized (b) {
+                        if (b.loading || b.writing) {
+                            policy.inserted(victim); // try the next one
+                            busy = b;
+                        } else if (!b.dirty) {
+                            detach(b);
+                            return b;
+                        } else if (flusher != null && dirtySkipped < MAX_DIRTY_SKIPS && tries > 1) {
+                            b.dirtySince = 0; // due now: the flusher writes it, we try the next one
+                            policy.inserted(victim);
+                            if (dirtySkipped++ == 0) {
+                                LockSupport.unpark(flusher);
+                            }
+                        } else {
+                            b.writing = true; // out of the policy and ours: nobody else writes or evicts it
+                            dirtyVictim = b;
+                        }
+                    }
+                }
+            } finally {
+                policyLock.unlock();
+            }
+
+            if (dirtyVictim != null) {
+                synchronized (dirtyVictim) { // readers and writers of this block wait for the write
+                    device.write(dirtyVictim.block, dirtyVictim.data, BlockDevice.Kind.DATA);
+                    dirtyEvictions.increment();
+                    dirtyVictim.dirty = false;
+                    dirtyBuffers.remove(dirtyVictim);
+                    dirtyVictim.writing = false;
+                    detach(dirtyVictim);
+                    dirtyVictim.notifyAll(); // they see block == -1 and look it up again
+                    return dirtyVictim;
+                }
+            }
+            if (busy != null) { // every candidate was busy: wait for one, then pick again
+                synchronized (busy) {
+                    while (busy.loading || busy.writing) {
+                        Monitors.waitInterruptibly(busy, "a buffer");
+                    }
+                }
+            }
+        }
+    }
+
+    /** Takes a victim (already out of the policy) out of the index, for reuse. Holds its monitor. */
+    private void detach(Buffer b) {
+        index.remove(b.block, b);
+        b.block = -1;
+        b.readAhead = false;
+        b.window = 0;
+    }
+
+    private void recycle(Buffer b) {
+        policyLock.lock();
+        try {
+            synchronized (b) {
+                b.block = -1;
+                b.loading = false;
+            }
+            buffersInUse--;
+            freeBuffers.add(b);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /** Takes buffers whose read failed out of the cache; threads waiting for them look the block up again. */
+    private void abandon(List<Buffer> claimed) {
+        policyLock.lock();
+        try {
+            for (Buffer b : claimed) {
+                policy.removed(b.block);
+                index.remove(b.block, b);
+                synchronized (b) {
+                    b.block = -1;
+                    b.loading = false;
+                    b.notifyAll();
+                }
+                buffersInUse--;
+                freeBuffers.add(b);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private static void waitLoaded(Buffer b) {
+        while (b.loading) {
+            Monitors.waitInterruptibly(b, "a buffer");
+        }
+    }
+
+    // --- Metrics ---
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getReadAheadBlocks() {
+        return readAheadBlocks.sum();
+    }
+
+    /** Read-ahead blocks that were used before being evicted. */
+    public long getReadAheadHits() {
+        return readAheadHits.sum();
+    }
+
+    /** Hits whose LRU update was skipped because the policy lock was busy. */
+    public long getSkippedUpdates() {
+        return skippedUpdates.sum();
+    }
+
+    public long getDirtyEvictions() {
+        return dirtyEvictions.sum();
+    }
+
+    public long getWriteBackBlocks() {
+        return writeBackBlocks.sum();
+    }
+
+    public long getWriteBackRequests() {
+        return writeBackRequests.sum();
+    }
+
+    public int dirtyCount() {
+        return dirtyBuffers.size();
+    }
+
+    /** Stops the flusher and writes back everything that is dirty. */
+    @Override
+    public void close() {
+        closed = true;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+}
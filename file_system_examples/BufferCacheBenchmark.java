@@ -0,0 +1,241 @@
+package file_system_examples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import virtual_memory_examples.ReplacementPolicies;
+
+/**
+ * BufferCacheBenchmark.java
+ * 
+ * Several threads work on one BlockDevice whose every request takes
+ * REQUEST_DELAY_MICROS (a fast SSD), either directly or through a
+ * BufferCache of CACHE_BLOCKS blocks (64 MB) with FIFO or LRU replacement,
+ * and LRU with sequential read-ahead.
+ * 
+ * Every thread repeats:
+ * - 98%: one block, in 80% of the cases from the hot 10% of the device;
+ * 20% of these are whole-block writes, the rest reads,
+ * - 2%: a sequential scan that reads SCAN_BLOCKS blocks one at a time
+ * from a random starting block.
+ * Every block carries its block number and a write stamp in its first
+ * bytes, and the rest of it is derived from both. Every read checks the
+ * whole block, so a block read from the wrong place, a lost write and a
+ * block mixing two writes all fail the run.
+ * 
+ * Per configuration and thread count (after reading the hot region once
+ * and a warm-up run on the same cache): block operations per second, hit rate, read-ahead blocks that
+ * were used, blocks read and written by the device, write-back requests
+ * (the flusher writes runs of consecutive dirty blocks with one request),
+ * dirty buffers written on eviction, and hits whose LRU update was skipped
+ * because the policy lock was busy.
+ * 
+ * Usage: java file_system_examples.BufferCacheBenchmark [deviceMB] [seconds] [maxThreads] [dir]
+ */
+public class BufferCacheBenchmark {
+
+    private static final int CACHE_BLOCKS = 16384;
+    private static final int SCAN_BLOCKS = 64;
+    private static final int MAX_READ_AHEAD = 32;
+    private static final long REQUEST_DELAY_MICROS = 100;
+    private static final long WRITE_BACK_INTERVAL_MILLIS = 100;
+    private static final long DIRTY_EXPIRE_MILLIS = 300;
+
+    /** Direct device access, or a cache in front of it. */
+    interface Blocks {
+        void read(int block, ByteBuffer buffer);
+
+        void write(int block, ByteBuffer buffer);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int deviceMb = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        Path dir = Paths.get(args.length > 3 ? args[3] : System.getProperty("java.io.tmpdir"));
+        int blocks = (int) ((long) deviceMb * 1024 * 1024 / BlockDevice.BLOCK_SIZE);
+
+        Path file = Files.createTempFile(dir, "blockdev", ".img");
+        try (BlockDevice device = new BlockDevice(file, blocks)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+            for (int b = 0; b < blocks; b++) {
+                fill(buffer, b, 0);
+                device.write(b, buffer, BlockDevice.Kind.DATA);
+            }
+            device.setRequestDelay(REQUEST_DELAY_MICROS);
+
+            System.out.println("Device: " + deviceMb + " MB (" + blocks + " blocks), " + REQUEST_DELAY_MICROS
+                    + " us per request, cache: " + CACHE_BLOCKS + " blocks, " + seconds + " s per run");
+            System.out.println(String.format("%-8s | %7s | %9s | %6s | %8s | %9s | %9s | %8s | %8s | %8s",
+                    "Cache", "Threads", "ops/s", "Hit %", "RA hits", "Dev reads", "Dev write", "WB reqs",
+                    "Dirty ev", "Skipped"));
+            System.out.println("---------------------------------------------------------------------------------------------------------");
+
+            for (String config : new String[] { "none", "FIFO", "LRU", "LRU+RA" }) {
+                for (int threads = 1; threads <= maxThreads; threads *= 4) {
+                    run(config, device, threads, seconds);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void run(String config, BlockDevice device, int threads, double seconds)
+            throws InterruptedException {
+        BufferCache cache = newCache(config, device);
+        Blocks blocks = cache == null ? direct(device) : cached(cache);
+
+        ByteBuffer buffer = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+        for (int b = 0; b < hotBlocks(device.blocks()); b++) { // start with the hot region cached
+            blocks.read(b, buffer);
+            check(buffer, b);
+        }
+        workload(blocks, device.blocks(), threads, 0.5); // warm-up
+        long[] before = cache == null ? new long[6] : snapshot(cache);
+        device.resetCounters();
+        long ops = workload(blocks, device.blocks(), threads, seconds);
+        double elapsed = seconds;
+        long[] after = cache == null ? new long[6] : snapshot(cache);
+        if (cache != null) {
+            cache.close();
+        }
+
+        long hits = after[0] - before[0], misses = after[1] - before[1];
+        String hitRate = cache == null ? "-" : String.format("%.1f", 100.0 * hits / Math.max(1, hits + misses));
+        System.out.println(String.format("%-8s | %7d | %9.0f | %6s | %8d | %9d | %9d | %8d | %8d | %8d",
+                config, threads, ops / elapsed, hitRate, after[2] - before[2],
+                device.blocksMoved(BlockDevice.Kind.DATA, false), device.blocksMoved(BlockDevice.Kind.DATA, true),
+                after[3] - before[3], after[4] - before[4], after[5] - before[5]));
+    }
+
+    private static BufferCache newCache(String config, BlockDevice device) {
+        switch (config) {
+            case "none":
+                return null;
+            case "FIFO":
+                return new BufferCache(device, CACHE_BLOCKS, ReplacementPolicies.fifo(), 0,
+                        WRITE_BACK_INTERVAL_MILLIS, DIRTY_EXPIRE_MILLIS);
+            case "LRU":
+                return new BufferCache(device, CACHE_BLOCKS, ReplacementPolicies.lru(), 0,
+                        WRITE_BACK_INTERVAL_MILLIS, DIRTY_EXPIRE_MILLIS);
+            case "LRU+RA":
+                return new BufferCache(device, CACHE_BLOCKS, ReplacementPolicies.lru(), MAX_READ_AHEAD,
+                        WRITE_BACK_INTERVAL_MILLIS, DIRTY_EXPIRE_MILLIS);
+            default:
+                throw new IllegalArgumentException("Unknown cache: " + config);
+        }
+    }
+
+    /** Runs the workload on 'threads' threads for 'seconds'; returns the block operations done. */
+    private static long workload(Blocks blocks, int deviceBlocks, int threads, double seconds)
+            throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        long[] done = new long[threads];
+        Thread[] workers = new Thread[threads];
+        int hot = hotBlocks(deviceBlocks);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(id * 7919L + System.nanoTime());
+                ByteBuffer buffer = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+                long count = 0;
+                while (!stop.get()) {
+                    if (random.nextInt(100) < 98) {
+                        int block = random.nextInt(100) < 80 ? random.nextInt(hot) : random.nextInt(deviceBlocks);
+                        if (random.nextInt(100) < 20) {
+                            fill(buffer, block, (long) (id + 1) << 40 | count); // unique per write
+                            blocks.write(block, buffer);
+                        } else {
+                            blocks.read(block, buffer);
+                            check(buffer, block);
+                        }
+                        count++;
+                    } else {
+                        int first = random.nextInt(deviceBlocks - SCAN_BLOCKS);
+                        for (int b = first; b < first + SCAN_BLOCKS; b++) {
+                            blocks.read(b, buffer);
+                            check(buffer, b);
+                        }
+                        count += SCAN_BLOCKS;
+                    }
+                }
+                done[id] = count;
+            });
+        }
+        for (Thread w : workers) {
+            w.start();
+        }
+        Thread.sleep((long) (seconds * 1000));
+        stop.set(true);
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total += done[t];
+        }
+        return total;
+    }
+
+    private static int hotBlocks(int deviceBlocks) {
+        return deviceBlocks / 10;
+    }
+
+    /** Block number, stamp, then words that depend on both and on their position. */
+    private static void fill(ByteBuffer buffer, int block, long stamp) {
+        buffer.putInt(0, block);
+        buffer.putLong(4, stamp);
+        for (int at = 16; at < BlockDevice.BLOCK_SIZE; at += 8) {
+            buffer.putLong(at, word(block, stamp, at));
+        }
+    }
+
+    private static long word(int block, long stamp, int at) {
+        return (block * 0x9E3779B97F4A7C15L + stamp) ^ ((long) at << 32 | at);
+    }
+
+    private static void check(ByteBuffer buffer, int block) {
+        if (buffer.getInt(0) != block) {
+            throw new IllegalStateException("Block " + block + " holds the contents of block " + buffer.getInt(0));
+        }
+        long stamp = buffer.getLong(4);
+        for (int at = 16; at < BlockDevice.BLOCK_SIZE; at += 8) {
+            if (buffer.getLong(at) != word(block, stamp, at)) {
+                throw new IllegalStateException("Block " + block + " is corrupt at byte " + at + " (stamp " + stamp + ")");
+            }
+        }
+    }
+
+    private static long[] snapshot(BufferCache cache) {
+        return new long[] { cache.getHits(), cache.getMisses(), cache.getReadAheadHits(),
+                cache.getWriteBackRequests(), cache.getDirtyEvictions(), cache.getSkippedUpdates() };
+    }
+
+    private static Blocks direct(BlockDevice device) {
+        return new Blocks() {
+            public void read(int block, ByteBuffer buffer) {
+                device.read(block, buffer, BlockDevice.Kind.DATA);
+            }
+
+            public void write(int block, ByteBuffer buffer) {
+                device.write(block, buffer, BlockDevice.Kind.DATA);
+            }
+        };
+    }
+
+    private static Blocks cached(BufferCache cache) {
+        return new Blocks() {
+            public void read(int block, ByteBuffer buffer) {
+                cache.read(block, buffer);
+            }
+
+            public void write(int block, ByteBuffer buffer) {
+                cache.write(block, buffer);
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ContiguousLayout.java
+ * 
+ * Contiguous allocation: a file is a start block and a length, block j is
+ * at start + j. The FCB holds the start and the number of blocks reserved.
+ * 
+ * The size problem of the lecture notes, handled the way it has to be:
+ * - create() reserves sizeHintBlocks consecutive blocks (first fit, starting
+ * after the previous allocation),
+ * - a file that outgrows its reservation first tries to extend in place
+ * (the blocks right after it are free), otherwise it is MOVED to a run
+ * twice as large and its blocks are copied (counted in getBlocksCopied()),
+ * - when no run is large enough, the write fails with an
+ * IllegalStateException although there may be plenty of free space
+ * (external fragmentation).
+ * 
+ * Free space: FreeSpaceBitmap.
+ */
+public class ContiguousLayout extends AbstractFileLayout {
+
+    private static final int START = 8, RESERVED = 12;
+
+    private final FreeSpaceBitmap bitmap;
+    private int nextGoal;
+    private long relocations = 0, blocksCopied = 0;
+
+    public ContiguousLayout(BlockDevice device, int maxFiles) {
+        super(device, maxFiles, FreeSpaceBitmap.blocksNeeded(device.blocks()));
+        bitmap = new FreeSpaceBitmap(device, metaStart, device.blocks());
+        bitmap.allocateAt(0, dataStart); // superblock, FCBs, bitmap
+        bitmap.writeBack();
+        nextGoal = dataStart;
+    }
+
+    public String name() {
+        return "Contiguous";
+    }
+
+    public int freeBlocks() {
+        return bitmap.freeBlocks();
+    }
+
+    public int largestFreeRun() {
+        return bitmap.largestFreeRun();
+    }
+
+    public long getRelocations() {
+        return relocations;
+    }
+
+    public long getBlocksCopied() {
+        return blocksCopied;
+    }
+
+    protected void onCreate(int file, ByteBuffer fcb, int sizeHintBlocks) {
+        fcb.putInt(START, -1);
+        if (sizeHintBlocks > 0) {
+            long run = reserve(sizeHintBlocks, sizeHintBlocks);
+            fcb.putInt(START, (int) (run >>> 32));
+            fcb.putInt(RESERVED, (int) run);
+        }
+    }
+
+    protected void grow(int file, ByteBuffer fcb, int blocks) {
+        int start = fcb.getInt(START);
+        int reserved = fcb.getInt(RESERVED);
+        int size = fcb.getInt(FCB_SIZE_BLOCKS);
+        int needed = size + blocks;
+        if (needed <= reserved) {
+            return;
+        }
+        int wanted = Math.max(needed, 2 * reserved);
+        if (start >= 0) {
+            for (int target : new int[] { wanted, needed }) { // extend in place if the next blocks are free
+                if (bitmap.allocateAt(start + reserved, target - reserved)) {
+                    fcb.putInt(RESERVED, target);
+                    return;
+                }
+            }
+        }
+        long run = reserve(wanted, needed);
+        int newStart = (int) (run >>> 32);
+        if (start >= 0) {
+            copyBlocks(start, newStart, size);
+            bitmap.free(start, reserved);
+            relocations++;
+            blocksCopied += size;
+        }
+        fcb.putInt(START, newStart);
+        fcb.putInt(RESERVED, (int) run);
+    }
+
+    /** 'wanted' consecutive blocks if there is such a run, else 'needed': start << 32 | length. */
+    private long reserve(int wanted, int needed) {
+        for (int count : new int[] { wanted, needed }) {
+            int start = bitmap.allocateContiguous(count, nextGoal);
+            if (start >= 0) {
+                nextGoal = start + count;
+                return (long) start << 32 | count;
+            }
+        }
+        throw new IllegalStateException("No run of " + needed + " free blocks (" + bitmap.freeBlocks()
+                + " free, largest run " + bitmap.largestFreeRun() + "): external fragmentation");
+    }
+
+    protected long mapRun(int file, ByteBuffer fcb, int index, int max) {
+        return (long) (fcb.getInt(START) + index) << 32 | max;
+    }
+
+    protected void release(int file, ByteBuffer fcb) {
+        if (fcb.getInt(START) >= 0) {
+            bitmap.free(fcb.getInt(START), fcb.getInt(RESERVED));
+        }
+    }
+
+    protected void writeBackFreeSpace() {
+        bitmap.writeBack();
+    }
+
+    protected void revertFreeSpace() {
+        bitmap.revert();
+    }
+}
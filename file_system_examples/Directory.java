@@ -0,0 +1,44 @@
+package file_system_examples;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Directory.java
+ * 
+ * The directory implementations of 11_File_System_Allocation.md, as real
+ * on-disk formats: a directory is stored in files of a FileLayout and maps
+ * names (up to 255 bytes of UTF-8) to FCB numbers. Entries are kept in
+ * DirectoryBlock format; the implementations differ in how they find the
+ * block an entry belongs in:
+ * - LinearDirectory: a linear list, every lookup and create scans the
+ * whole directory,
+ * - HashDirectory: a hash table that grows one bucket at a time (linear
+ * hashing), with overflow blocks for full buckets,
+ * - HTreeDirectory: a B+tree of name hashes (ext3/ext4's HTree) whose
+ * leaves hold the entries.
+ * 
+ * Nothing is cached between operations: every operation reads the
+ * directory blocks it needs from the layout.
+ */
+public interface Directory {
+
+    String name();
+
+    /** FCB number of 'entry', or -1 if there is no such entry. */
+    int lookup(String entry);
+
+    /**
+     * Adds 'entry' -> fcb. Throws IllegalArgumentException if the entry
+     * exists or its name is empty or too long.
+     */
+    void create(String entry, int fcb);
+
+    /** Removes 'entry'; returns false if there was no such entry. */
+    boolean remove(String entry);
+
+    /** readdir: passes every entry to 'visitor' and returns how many there were. */
+    long list(ObjIntConsumer<String> visitor);
+
+    /** Blocks the directory occupies. */
+    int blocks();
+}
@@ -0,0 +1,143 @@
+package file_system_examples;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * DirectoryBenchmark.java
+ * 
+ * Grows one directory of each format (LinearDirectory, HashDirectory,
+ * HTreeDirectory) from 10 entries to maxEntries, by factors of 10, each
+ * in an ExtentLayout on its own memory-mapped BlockDevice. At every size:
+ * - lookup: names that exist, picked at random,
+ * - miss: names that do not exist (the whole chain or list is searched),
+ * - create: new names, at most a tenth of the size (so the directory
+ * barely grows), removed again afterwards, untimed,
+ * - readdir: list() of the whole directory, checked against the size.
+ * Each operation runs for up to millisPerOp (at least once, at most
+ * MAX_OPS times); reported are microseconds per operation and directory
+ * blocks read + written per operation (metadata of the layout not counted).
+ * 
+ * The linear list is loaded with LinearDirectory.append() (no duplicate
+ * scan): building a million-entry list with create() takes O(n^2) block
+ * reads. The other formats are built with create().
+ * 
+ * Usage: java file_system_examples.DirectoryBenchmark [maxEntries] [millisPerOp] [dir]
+ */
+public class DirectoryBenchmark {
+
+    private static final int MAX_OPS = 20_000;
+    private static final int MAX_FILES = 16;
+
+    public static void main(String[] args) throws IOException {
+        int maxEntries = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        long millisPerOp = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        Path dir = Paths.get(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir"));
+        // ~20-byte records in half-full blocks at worst, plus room for the layout
+        int blocks = (int) Math.min(Integer.MAX_VALUE, 8192 + (long) maxEntries / 50);
+
+        System.out.println("Up to " + maxEntries + " entries, device: " + blocks + " blocks, " + millisPerOp
+                + " ms per operation and size");
+        System.out.println(String.format("%-13s | %9s | %10s | %7s | %10s | %7s | %10s | %7s | %9s | %8s",
+                "Directory", "Entries", "lookup us", "blk/op", "miss us", "blk/op", "create us", "blk/op",
+                "readdir ms", "Blocks"));
+        System.out.println("-------------------------------------------------------------------------------------------------------------------");
+
+        for (String format : new String[] { "Linear list", "Hash (linear)", "HTree" }) {
+            Path file = Files.createTempFile(dir, "blockdev", ".img");
+            try (BlockDevice device = new BlockDevice(file, blocks)) {
+                ExtentLayout layout = new ExtentLayout(device, MAX_FILES);
+                run(newDirectory(format, layout), device, maxEntries, millisPerOp);
+            } catch (IllegalStateException e) {
+                System.out.println(String.format("%-13s | FAILED: %s", format, e.getMessage()));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    static Directory newDirectory(String name, FileLayout layout) {
+        switch (name) {
+            case "Linear list":
+                return new LinearDirectory(layout);
+            case "Hash (linear)":
+                return new HashDirectory(layout);
+            case "HTree":
+                return new HTreeDirectory(layout);
+            default:
+                throw new IllegalArgumentException("Unknown directory: " + name);
+        }
+    }
+
+    private static String entryName(long i) {
+        return "file-" + i + ".dat";
+    }
+
+    private static void run(Directory directory, BlockDevice device, int maxEntries, long millisPerOp) {
+        SplittableRandom random = new SplittableRandom(42);
+        int built = 0;
+        for (long size = 10; size <= maxEntries; size *= 10) {
+            for (; built < size; built++) {
+                if (directory instanceof LinearDirectory) {
+                    ((LinearDirectory) directory).append(entryName(built), built);
+                } else {
+                    directory.create(entryName(built), built);
+                }
+            }
+            int entries = built;
+            long limit = millisPerOp * 1_000_000L;
+
+            double[] lookup = measure(device, limit, MAX_OPS, i -> {
+                int pick = random.nextInt(entries);
+                if (directory.lookup(entryName(pick)) != pick) {
+                    throw new IllegalStateException("Lookup of " + entryName(pick) + " failed");
+                }
+            });
+            double[] miss = measure(device, limit, MAX_OPS, i -> {
+                if (directory.lookup("missing-" + i) != -1) {
+                    throw new IllegalStateException("Found missing-" + i);
+                }
+            });
+            int[] created = new int[1];
+            double[] create = measure(device, limit, Math.max(1, entries / 10), i -> {
+                directory.create("new-" + i, entries + i);
+                created[0]++;
+            });
+            for (int i = 0; i < created[0]; i++) {
+                directory.remove("new-" + i);
+            }
+
+            long start = System.nanoTime();
+            long listed = directory.list((name, fcb) -> {
+            });
+            double readdirMs = (System.nanoTime() - start) / 1_000_000.0;
+            if (listed != entries) {
+                throw new IllegalStateException("readdir returned " + listed + " of " + entries + " entries");
+            }
+
+            System.out.println(String.format("%-13s | %9d | %10.2f | %7.1f | %10.2f | %7.1f | %10.2f | %7.1f | %10.1f | %8d",
+                    directory.name(), entries, lookup[0], lookup[1], miss[0], miss[1], create[0], create[1],
+                    readdirMs, directory.blocks()));
+        }
+    }
+
+    interface Operation {
+        void run(int i);
+    }
+
+    /** Runs 'op' for up to 'limitNanos' and 'maxOps' times; returns { microseconds per op, directory blocks per op }. */
+    private static double[] measure(BlockDevice device, long limitNanos, int maxOps, Operation op) {
+        device.resetCounters();
+        long start = System.nanoTime();
+        int ops = 0;
+        do {
+            op.run(ops++);
+        } while (ops < maxOps && System.nanoTime() - start < limitNanos);
+        double micros = (System.nanoTime() - start) / 1_000.0 / ops;
+        long blocks = device.blocksMoved(BlockDevice.Kind.DATA, false) + device.blocksMoved(BlockDevice.Kind.DATA, true);
+        return new double[] { micros, (double) blocks / ops };
+    }
+}
@@ -0,0 +1,157 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * DirectoryBlock.java
+ * 
+ * The block format every Directory stores its entries in (ext2's):
+ * - bytes 0-3: link to another block of the directory (-1 = none), its
+ * meaning depends on the directory (overflow chain, next leaf), 4-7 unused,
+ * - then records that tile the rest of the block: FCB number (4 bytes,
+ * -1 = free record), record length (2), name length (1), the name, padded
+ * to a multiple of 4 bytes.
+ * 
+ * A record may be longer than its name needs; new entries go into that
+ * slack (splitting the record) or into a free record. Removing an entry
+ * gives its space to the record before it.
+ */
+final class DirectoryBlock {
+
+    static final int NEXT = 0;
+    static final int HEADER = 8;
+    static final int NONE = -1;
+    static final int MAX_NAME = 255;
+    private static final int FCB = 0, REC_LEN = 4, NAME_LEN = 6, NAME = 7;
+    private static final int BLOCK_SIZE = BlockDevice.BLOCK_SIZE;
+
+    private DirectoryBlock() {
+    }
+
+    /** An empty block: one free record spanning all of it. */
+    static void init(ByteBuffer block) {
+        block.putInt(NEXT, NONE).putInt(4, 0);
+        block.putInt(HEADER + FCB, NONE).putShort(HEADER + REC_LEN, (short) (BLOCK_SIZE - HEADER))
+                .put(HEADER + NAME_LEN, (byte) 0);
+    }
+
+    static int next(ByteBuffer block) {
+        return block.getInt(NEXT);
+    }
+
+    static void setNext(ByteBuffer block, int next) {
+        block.putInt(NEXT, next);
+    }
+
+    /** Bytes a record for a name of 'nameLength' bytes needs. */
+    static int recordSize(int nameLength) {
+        return (NAME + nameLength + 3) & ~3;
+    }
+
+    /** Offset of the record of 'name', or -1. */
+    static int find(ByteBuffer block, byte[] name) {
+        for (int at = HEADER; at < BLOCK_SIZE; at += recLen(block, at)) {
+            if (block.getInt(at + FCB) != NONE && (block.get(at + NAME_LEN) & 0xFF) == name.length
+                    && sameName(block, at + NAME, name)) {
+                return at;
+            }
+        }
+        return -1;
+    }
+
+    static int fcb(ByteBuffer block, int record) {
+        return block.getInt(record + FCB);
+    }
+
+    static byte[] name(ByteBuffer block, int record) {
+        byte[] name = new byte[block.get(record + NAME_LEN) & 0xFF];
+        block.get(record + NAME, name);
+        return name;
+    }
+
+    /** Offsets of the entries in the block, in block order. */
+    static int[] records(ByteBuffer block) {
+        int[] records = new int[BLOCK_SIZE / 8];
+        int n = 0;
+        for (int at = HEADER; at < BLOCK_SIZE; at += recLen(block, at)) {
+            if (block.getInt(at + FCB) != NONE) {
+                records[n++] = at;
+            }
+        }
+        return Arrays.copyOf(records, n);
+    }
+
+    /** True if a record of 'need' bytes fits somewhere in the block. */
+    static boolean hasRoom(ByteBuffer block, int need) {
+        for (int at = HEADER; at < BLOCK_SIZE; at += recLen(block, at)) {
+            if (recLen(block, at) - used(block, at) >= need) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Adds the entry if it fits; returns false if the block is too full. Does not check for duplicates. */
+    static boolean insert(ByteBuffer block, byte[] name, int fcb) {
+        int need = recordSize(name.length);
+        for (int at = HEADER; at < BLOCK_SIZE; at += recLen(block, at)) {
+            int length = recLen(block, at);
+            int used = used(block, at);
+            if (length - used >= need) {
+                if (used > 0) { // split: the existing record keeps what it uses
+                    block.putShort(at + REC_LEN, (short) used);
+                    at += used;
+                    length -= used;
+                }
+                block.putInt(at + FCB, fcb).putShort(at + REC_LEN, (short) length)
+                        .put(at + NAME_LEN, (byte) name.length).put(at + NAME, name);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Removes the record at 'record' (an offset from find()). */
+    static void remove(ByteBuffer block, int record) {
+        int previous = -1;
+        for (int at = HEADER; at != record; at += recLen(block, at)) {
+            previous = at;
+        }
+        if (previous >= 0) {
+            block.putShort(previous + REC_LEN, (short) (recLen(block, previous) + recLen(block, record)));
+        } else {
+            block.putInt(record + FCB, NONE);
+        }
+    }
+
+    /** 32-bit hash of a name (FNV-1a, then MurmurHash3's finalizer to spread the bits). */
+    static int hash(byte[] name) {
+        int h = 0x811C9DC5;
+        for (byte b : name) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean sameName(ByteBuffer block, int at, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (block.get(at + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int recLen(ByteBuffer block, int at) {
+        return block.getShort(at + REC_LEN) & 0xFFFF;
+    }
+
+    private static int used(ByteBuffer block, int at) {
+        return block.getInt(at + FCB) == NONE ? 0 : recordSize(block.get(at + NAME_LEN) & 0xFF);
+    }
+}
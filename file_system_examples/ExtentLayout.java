@@ -0,0 +1,302 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ExtentLayout.java
+ * 
+ * Extent-based allocation (the "Optimization: Extent-Based" of the lecture
+ * notes, as ext4 does it): a file is a list of extents (logical block,
+ * physical block, length), each a run of up to MAX_EXTENT consecutive
+ * blocks, kept in an extent tree:
+ * - the first ROOT_ENTRIES entries live in the FCB itself,
+ * - when they are full, they move to a block and the FCB holds index
+ * entries (first logical block, child block); every level has the same
+ * format, leaves hold the extents. Lookups go down one block per level.
+ * 
+ * Node format (FCB from byte 8, tree blocks from byte 0): entry count,
+ * depth (0 = leaf), then entries of ENTRY_SIZE bytes.
+ * 
+ * Files only grow at the end, so a new extent always goes to the rightmost
+ * leaf; a full node gets a new sibling, and a full root pushes its entries
+ * down one level. Appending right after the last extent just makes it longer.
+ * 
+ * Free space: FreeSpaceBitmap; new blocks go right after the file's last block when free.
+ * With preallocateBlocks > 0 a file that grows takes up to that many blocks
+ * at once (no more than its current size, so small files stay small) and
+ * keeps the ones it does not need yet for its next appends (in memory, as
+ * ext4's preallocation; given back when the device runs full): files
+ * written side by side stay in
+ * long extents, at the price of reserved but unused blocks
+ * (internal fragmentation) while they grow.
+ */
+public class ExtentLayout extends AbstractFileLayout {
+
+    static final int MAX_EXTENT = 32768;
+    static final int ENTRY_SIZE = 12;
+    static final int ROOT_ENTRIES = 4;
+    static final int BLOCK_ENTRIES = (BlockDevice.BLOCK_SIZE - 8) / ENTRY_SIZE;
+    private static final int ROOT = 8; // node header offset in the FCB
+    private static final int COUNT = 0, DEPTH = 4, ENTRIES = 8;
+    private static final int LOGICAL = 0, PHYSICAL = 4, LENGTH = 8;
+
+    private final FreeSpaceBitmap bitmap;
+    private final int preallocateBlocks;
+    private final Map<Integer, Long> preallocated = new HashMap<>(); // file -> start << 32 | length
+    private final Map<Integer, Long> preallocatedBefore = new HashMap<>(); // entries changed by this operation
+
+    public ExtentLayout(BlockDevice device, int maxFiles) {
+        this(device, maxFiles, 0);
+    }
+
+    public ExtentLayout(BlockDevice device, int maxFiles, int preallocateBlocks) {
+        super(device, maxFiles, FreeSpaceBitmap.blocksNeeded(device.blocks()));
+        this.preallocateBlocks = preallocateBlocks;
+        bitmap = new FreeSpaceBitmap(device, metaStart, device.blocks());
+        bitmap.allocateAt(0, dataStart);
+        bitmap.writeBack();
+    }
+
+    public String name() {
+        return preallocateBlocks > 0 ? "Extent+prealloc" : "Extent";
+    }
+
+    public int freeBlocks() {
+        return bitmap.freeBlocks();
+    }
+
+    /** A node: the FCB root (block -1) or a tree block. */
+    private final class Node {
+        final ByteBuffer buffer;
+        final int base;
+        final int block;
+
+        Node(ByteBuffer buffer, int base, int block) {
+            this.buffer = buffer;
+            this.base = base;
+            this.block = block;
+        }
+
+        int count() {
+            return buffer.getInt(base + COUNT);
+        }
+
+        int depth() {
+            return buffer.getInt(base + DEPTH);
+        }
+
+        int capacity() {
+            return block < 0 ? ROOT_ENTRIES : BLOCK_ENTRIES;
+        }
+
+        int get(int entry, int field) {
+            return buffer.getInt(base + ENTRIES + entry * ENTRY_SIZE + field);
+        }
+
+        void set(int entry, int logical, int physical, int length) {
+            int at = base + ENTRIES + entry * ENTRY_SIZE;
+            buffer.putInt(at + LOGICAL, logical).putInt(at + PHYSICAL, physical).putInt(at + LENGTH, length);
+        }
+
+        void setHeader(int count, int depth) {
+            buffer.putInt(base + COUNT, count).putInt(base + DEPTH, depth);
+        }
+
+        /** Last entry whose logical block is <= index. */
+        int find(int index) {
+            int lo = 0, hi = count() - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (get(mid, LOGICAL) <= index) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private Node root(int file, ByteBuffer fcb) {
+        return new Node(fcb, ROOT, -1);
+    }
+
+    private Node child(Node node, int entry) {
+        int block = node.get(entry, PHYSICAL);
+        return new Node(meta(block), 0, block);
+    }
+
+    private void changed(int file, Node node) {
+        if (node.block < 0) {
+            fcbDirty(file);
+        } else {
+            dirty(node.block);
+        }
+    }
+
+    protected void onCreate(int file, ByteBuffer fcb, int sizeHintBlocks) {
+        root(file, fcb).setHeader(0, 0);
+    }
+
+    protected long mapRun(int file, ByteBuffer fcb, int index, int max) {
+        Node node = root(file, fcb);
+        while (node.depth() > 0) {
+            node = child(node, node.find(index));
+        }
+        int e = node.find(index);
+        int logical = node.get(e, LOGICAL), length = node.get(e, LENGTH);
+        if (node.count() == 0 || index >= logical + length) {
+            throw new IllegalStateException("Block " + index + " of file " + file + " is in no extent");
+        }
+        return (long) (node.get(e, PHYSICAL) + index - logical) << 32 | Math.min(max, logical + length - index);
+    }
+
+    protected void grow(int file, ByteBuffer fcb, int blocks) {
+        int logical = fcb.getInt(FCB_SIZE_BLOCKS);
+        while (blocks > 0) {
+            Node[] path = rightmostPath(file, fcb);
+            Node leaf = path[path.length - 1];
+            int last = leaf.count() - 1;
+            int goal = last < 0 ? dataStart : leaf.get(last, PHYSICAL) + leaf.get(last, LENGTH);
+            long run = take(file, goal, Math.min(blocks, MAX_EXTENT), logical);
+            int start = (int) (run >>> 32), length = (int) run;
+            if (last >= 0 && start == goal && leaf.get(last, LENGTH) + length <= MAX_EXTENT) {
+                leaf.set(last, leaf.get(last, LOGICAL), leaf.get(last, PHYSICAL), leaf.get(last, LENGTH) + length);
+                changed(file, leaf);
+            } else {
+                append(file, path, logical, start, length);
+            }
+            logical += length;
+            blocks -= length;
+        }
+    }
+
+    /** Up to 'blocks' blocks from the file's preallocation or the bitmap: start << 32 | length. */
+    private long take(int file, int goal, int blocks, int size) {
+        savePreallocation(file);
+        Long reserved = preallocated.remove(file);
+        if (reserved == null) {
+            int window = Math.min(Math.min(preallocateBlocks, size), MAX_EXTENT);
+            reserved = bitmap.allocateRun(goal, Math.max(blocks, window));
+            if (reserved < 0 && !preallocated.isEmpty()) { // give back what other files hold in reserve
+                for (Map.Entry<Integer, Long> r : preallocated.entrySet()) {
+                    savePreallocation(r.getKey());
+                    bitmap.free((int) (r.getValue() >>> 32), (int) (long) r.getValue());
+                }
+                preallocated.clear();
+                reserved = bitmap.allocateRun(goal, blocks);
+            }
+            if (reserved < 0) {
+                throw new IllegalStateException("Device full");
+            }
+        }
+        int start = (int) (reserved >>> 32), length = (int) (long) reserved;
+        if (length > blocks) {
+            preallocated.put(file, (long) (start + blocks) << 32 | (length - blocks));
+            length = blocks;
+        }
+        return (long) start << 32 | length;
+    }
+
+    private Node[] rightmostPath(int file, ByteBuffer fcb) {
+        Node node = root(file, fcb);
+        Node[] path = new Node[node.depth() + 1];
+        path[0] = node;
+        for (int level = 1; level < path.length; level++) {
+            node = child(node, node.count() - 1);
+            path[level] = node;
+        }
+        return path;
+    }
+
+    /** Adds an extent at the end of the tree whose rightmost path is 'path'. */
+    private void append(int file, Node[] path, int logical, int physical, int length) {
+        // Walk up until a node has room; below it, a new node per level holds the new entry
+        int level = path.length - 1;
+        int entryPhysical = physical, entryLength = length;
+        while (level >= 0 && path[level].count() == path[level].capacity()) {
+            int block = allocateNode(path[level].block >= 0 ? path[level].block : entryPhysical);
+            Node fresh = new Node(newMeta(block), 0, block);
+            fresh.setHeader(1, path[level].depth());
+            fresh.set(0, logical, entryPhysical, entryLength);
+            entryPhysical = block; // the parent gets an index entry for the new node
+            entryLength = 0;
+            level--;
+        }
+        if (level >= 0) {
+            Node node = path[level];
+            node.set(node.count(), logical, entryPhysical, entryLength);
+            node.setHeader(node.count() + 1, node.depth());
+            changed(file, node);
+            return;
+        }
+        // The root was full: its entries move to a new block, the root indexes both halves
+        Node root = path[0];
+        int block = allocateNode(entryPhysical);
+        Node moved = new Node(newMeta(block), 0, block);
+        moved.setHeader(root.count(), root.depth());
+        for (int e = 0; e < root.count(); e++) {
+            moved.set(e, root.get(e, LOGICAL), root.get(e, PHYSICAL), root.get(e, LENGTH));
+        }
+        int depth = root.depth() + 1;
+        root.setHeader(2, depth);
+        root.set(0, moved.get(0, LOGICAL), block, 0);
+        root.set(1, logical, entryPhysical, 0);
+        changed(file, root);
+    }
+
+    private int allocateNode(int goal) {
+        int block = bitmap.allocate(goal);
+        if (block < 0) {
+            throw new IllegalStateException("Device full");
+        }
+        return block;
+    }
+
+    /** Remembers the file's preallocation as it was before this operation. */
+    private void savePreallocation(int file) {
+        if (!preallocatedBefore.containsKey(file)) {
+            preallocatedBefore.put(file, preallocated.get(file));
+        }
+    }
+
+    protected void release(int file, ByteBuffer fcb) {
+        savePreallocation(file);
+        Long reserved = preallocated.remove(file);
+        if (reserved != null) {
+            bitmap.free((int) (reserved >>> 32), (int) (long) reserved);
+        }
+        release(root(file, fcb));
+    }
+
+    private void release(Node node) {
+        for (int e = 0; e < node.count(); e++) {
+            if (node.depth() > 0) {
+                Node child = child(node, e);
+                release(child);
+                bitmap.free(child.block, 1);
+            } else {
+                bitmap.free(node.get(e, PHYSICAL), node.get(e, LENGTH));
+            }
+        }
+    }
+
+    protected void writeBackFreeSpace() {
+        bitmap.writeBack();
+        preallocatedBefore.clear();
+    }
+
+    protected void revertFreeSpace() {
+        bitmap.revert();
+        for (Map.Entry<Integer, Long> saved : preallocatedBefore.entrySet()) {
+            if (saved.getValue() == null) {
+                preallocated.remove(saved.getKey());
+            } else {
+                preallocated.put(saved.getKey(), saved.getValue());
+            }
+        }
+        preallocatedBefore.clear();
+    }
+}
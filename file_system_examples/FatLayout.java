@@ -0,0 +1,191 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FatLayout.java
+ * 
+ * Linked allocation through a File Allocation Table (MS-DOS): a table at
+ * the beginning of the volume with one 4-byte entry per block, holding the
+ * next block of the file, END_OF_FILE, FREE (0), or RESERVED for the
+ * metadata blocks. The FCB (directory entry) holds the first and the last
+ * block; appending links a new block after the last one.
+ * 
+ * Free space is the FAT itself: allocation takes the first FREE entry
+ * after the file's last block.
+ * 
+ * To reach block j the chain is followed from the start, j steps. Like a
+ * real FAT driver, every file remembers where its last access ended, so
+ * sequential access continues from there instead of starting over.
+ * 
+ * cachedFat = true keeps the whole FAT in memory (as DOS and Windows do):
+ * following the chain costs only CPU. With false every chain step reads
+ * the FAT block it needs (once per operation), the lecture notes'
+ * "j-th block may require j block reads" with the pointers gathered in
+ * FAT blocks. Changed FAT blocks are written back either way.
+ */
+public class FatLayout extends AbstractFileLayout {
+
+    static final int FREE = 0, END_OF_FILE = -1, RESERVED = -2;
+    static final int ENTRIES_PER_BLOCK = BlockDevice.BLOCK_SIZE / 4;
+    private static final int FIRST = 8, LAST = 12;
+
+    private final boolean cachedFat;
+    private final int[] fat;
+    private int free;
+    private final Map<Integer, long[]> cursors = new HashMap<>(); // file -> { logical index, block }
+    // Undo log of this operation: FAT entries in the order they were changed, with their old values
+    private int[] undoBlocks = new int[64];
+    private int[] undoValues = new int[64];
+    private int undoCount = 0;
+
+    public FatLayout(BlockDevice device, int maxFiles, boolean cachedFat) {
+        super(device, maxFiles, (device.blocks() + ENTRIES_PER_BLOCK - 1) / ENTRIES_PER_BLOCK);
+        this.cachedFat = cachedFat;
+        this.fat = new int[device.blocks()];
+        for (int b = 0; b < dataStart; b++) {
+            fat[b] = RESERVED;
+        }
+        free = device.blocks() - dataStart;
+        ByteBuffer block = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE);
+        for (int b = metaStart; b < dataStart; b++) { // format the FAT
+            fill(block, b);
+            device.write(b, block, BlockDevice.Kind.META);
+        }
+    }
+
+    public String name() {
+        return cachedFat ? "FAT" : "FAT (uncached)";
+    }
+
+    public int freeBlocks() {
+        return free;
+    }
+
+    private void fill(ByteBuffer block, int fatBlock) {
+        int first = (fatBlock - metaStart) * ENTRIES_PER_BLOCK;
+        for (int i = 0; i < ENTRIES_PER_BLOCK; i++) {
+            block.putInt(i * 4, first + i < fat.length ? fat[first + i] : RESERVED);
+        }
+    }
+
+    private int fatBlock(int block) {
+        return metaStart + block / ENTRIES_PER_BLOCK;
+    }
+
+    private int next(int block) {
+        if (cachedFat) {
+            return fat[block];
+        }
+        return meta(fatBlock(block)).getInt((block % ENTRIES_PER_BLOCK) * 4);
+    }
+
+    private void setEntry(int block, int value) {
+        if (undoCount == undoBlocks.length) {
+            undoBlocks = Arrays.copyOf(undoBlocks, undoCount * 2);
+            undoValues = Arrays.copyOf(undoValues, undoCount * 2);
+        }
+        undoBlocks[undoCount] = block;
+        undoValues[undoCount++] = fat[block];
+        fat[block] = value;
+        int fatBlock = fatBlock(block);
+        ByteBuffer buffer;
+        if (cachedFat && !hasMeta(fatBlock)) {
+            buffer = newMeta(fatBlock); // rebuilt from memory, no need to read it
+            fill(buffer, fatBlock);
+        } else {
+            buffer = meta(fatBlock);
+        }
+        buffer.putInt((block % ENTRIES_PER_BLOCK) * 4, value);
+        dirty(fatBlock);
+    }
+
+    private int allocate(int goal) {
+        for (int pass = 0; pass < 2; pass++) {
+            int from = pass == 0 ? Math.max(goal, dataStart) : dataStart;
+            int to = pass == 0 ? fat.length : Math.min(fat.length, Math.max(goal, dataStart));
+            for (int b = from; b < to; b++) {
+                if (fat[b] == FREE) {
+                    free--;
+                    return b;
+                }
+            }
+        }
+        throw new IllegalStateException("Device full");
+    }
+
+    protected void onCreate(int file, ByteBuffer fcb, int sizeHintBlocks) {
+        fcb.putInt(FIRST, END_OF_FILE).putInt(LAST, END_OF_FILE);
+        cursors.remove(file);
+    }
+
+    protected void grow(int file, ByteBuffer fcb, int blocks) {
+        int last = fcb.getInt(LAST);
+        for (int i = 0; i < blocks; i++) {
+            int block = allocate(last >= 0 ? last + 1 : dataStart);
+            setEntry(block, END_OF_FILE);
+            if (last >= 0) {
+                setEntry(last, block);
+            } else {
+                fcb.putInt(FIRST, block);
+            }
+            last = block;
+        }
+        fcb.putInt(LAST, last);
+    }
+
+    protected long mapRun(int file, ByteBuffer fcb, int index, int max) {
+        long[] cursor = cursors.get(file);
+        int at = 0, block = fcb.getInt(FIRST);
+        if (cursor != null && cursor[0] <= index) {
+            at = (int) cursor[0];
+            block = (int) cursor[1];
+        }
+        for (; at < index; at++) {
+            block = next(block);
+        }
+        int start = block, length = 1;
+        while (length < max) {
+            int following = next(block);
+            if (following != block + 1) {
+                break;
+            }
+            block = following;
+            length++;
+        }
+        if (cursor == null) {
+            cursors.put(file, cursor = new long[2]);
+        }
+        cursor[0] = index + length - 1;
+        cursor[1] = block;
+        return (long) start << 32 | length;
+    }
+
+    protected void release(int file, ByteBuffer fcb) {
+        for (int block = fcb.getInt(FIRST); block != END_OF_FILE;) {
+            int following = next(block);
+            setEntry(block, FREE);
+            free++;
+            block = following;
+        }
+        cursors.remove(file);
+    }
+
+    protected void writeBackFreeSpace() {
+        // the FAT is the free-space map: its blocks were written with the operation's metadata
+        undoCount = 0;
+    }
+
+    protected void revertFreeSpace() {
+        for (int i = undoCount - 1; i >= 0; i--) { // newest first, so the oldest value wins
+            int block = undoBlocks[i];
+            free += (undoValues[i] == FREE ? 1 : 0) - (fat[block] == FREE ? 1 : 0);
+            fat[block] = undoValues[i];
+        }
+        undoCount = 0;
+        cursors.clear(); // they may point into the dropped chain
+    }
+}
@@ -0,0 +1,51 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+
+/**
+ * FileLayout.java
+ * 
+ * The file-organization module of 11_File_System_Allocation.md: it knows
+ * files and their logical blocks, translates logical to physical blocks
+ * and manages free space. Files are numbered by their FCB (inode) and
+ * addressed in whole blocks.
+ * 
+ * Implementations (one per allocation method):
+ * - ContiguousLayout: start + length, files that outgrow their space move,
+ * - ExtentLayout: extents of contiguous blocks in an extent tree,
+ * - FatLayout: linked allocation through a File Allocation Table,
+ * - IndexedLayout: UNIX inode, 12 direct + single / double / triple indirect.
+ */
+public interface FileLayout {
+
+    String name();
+
+    BlockDevice device();
+
+    /**
+     * Creates an empty file and returns its number. sizeHintBlocks is the
+     * expected size (0 = unknown); only layouts that reserve space up
+     * front use it.
+     */
+    int create(int sizeHintBlocks);
+
+    /**
+     * Writes 'count' blocks from 'buffer' (from index 0) to the file,
+     * starting at block 'index'. index may be at most size(file): writing
+     * past the end appends.
+     */
+    void write(int file, int index, int count, ByteBuffer buffer);
+
+    /** Reads 'count' blocks starting at block 'index' into 'buffer' (from index 0). */
+    void read(int file, int index, int count, ByteBuffer buffer);
+
+    /** Size in blocks. */
+    int size(int file);
+
+    void delete(int file);
+
+    int freeBlocks();
+
+    /** Number of runs of consecutive physical blocks the file is made of. */
+    int fragments(int file);
+}
@@ -0,0 +1,221 @@
+package file_system_examples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * FileSystemBenchmark.java
+ * 
+ * Runs the same workload on every allocation method of
+ * 11_File_System_Allocation.md, each on a fresh memory-mapped BlockDevice:
+ * 
+ * - write seq: 'files' files of 'fileBlocks' blocks, written by appending
+ * CHUNK blocks at a time to each file in turn (like several programs
+ * writing at once), with the final size unknown (sizeHint 0),
+ * - read seq: every file read from start to end, SEQ_REQUEST blocks per read,
+ * - read rand / write rand: single blocks at random positions of random files,
+ * - small files: create a file of 1-8 blocks, write it, and (once there
+ * are SMALL_LIVE of them) delete a random one.
+ * 
+ * A layout that runs out of space (or, contiguous, out of large enough
+ * runs) is reported as FAILED.
+ * 
+ * Every block carries (file, block index) in its first bytes and every read
+ * checks it.
+ * 
+ * Per phase: MB/s of this process (memory copies, the device is mmap),
+ * then per operation: data requests, metadata block reads and writes,
+ * seeks (requests that do not continue where the previous one ended), and
+ * the milliseconds a hard disk would need for them (BlockDevice.hddMillis).
+ * After the writes: the average number of fragments per file, and for the
+ * contiguous layout how often files had to move. Extent+prealloc is the
+ * extent layout with PREALLOCATE-block preallocation.
+ * 
+ * Usage: java file_system_examples.FileSystemBenchmark [deviceMB] [files] [fileBlocks] [randomOps] [dir]
+ */
+public class FileSystemBenchmark {
+
+    private static final int CHUNK = 16;
+    private static final int SEQ_REQUEST = 64;
+    private static final int SMALL_LIVE = 2000;
+    private static final int MAX_FILES = 8192;
+    private static final int PREALLOCATE = 256;
+
+    public static void main(String[] args) throws IOException {
+        int deviceMb = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int files = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int fileBlocks = args.length > 2 ? Integer.parseInt(args[2]) : 2048;
+        int randomOps = args.length > 3 ? Integer.parseInt(args[3]) : 50_000;
+        Path dir = Paths.get(args.length > 4 ? args[4] : System.getProperty("java.io.tmpdir"));
+        int blocks = (int) ((long) deviceMb * 1024 * 1024 / BlockDevice.BLOCK_SIZE);
+
+        System.out.println("Device: " + deviceMb + " MB (" + blocks + " blocks of " + BlockDevice.BLOCK_SIZE
+                + " B), " + files + " files of " + fileBlocks + " blocks, " + randomOps + " random operations");
+        System.out.println(String.format("%-15s | %-11s | %8s | %9s | %8s | %8s | %8s | %8s | %9s",
+                "Layout", "Phase", "Ops", "MB/s", "Data/op", "MetaR/op", "MetaW/op", "Seeks/op", "HDD ms/op"));
+        System.out.println("--------------------------------------------------------------------------------------------------------");
+
+        for (String layout : new String[] { "Contiguous", "Extent", "Extent+prealloc", "FAT", "FAT (uncached)",
+                "Indexed" }) {
+            Path file = Files.createTempFile(dir, "blockdev", ".img");
+            try (BlockDevice device = new BlockDevice(file, blocks)) {
+                run(newLayout(layout, device), files, fileBlocks, randomOps);
+            } catch (IllegalStateException e) { // out of space, or no run large enough
+                System.out.println(String.format("%-15s | FAILED: %s", layout, e.getMessage()));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    static FileLayout newLayout(String name, BlockDevice device) {
+        switch (name) {
+            case "Contiguous":
+                return new ContiguousLayout(device, MAX_FILES);
+            case "Extent":
+                return new ExtentLayout(device, MAX_FILES);
+            case "Extent+prealloc":
+                return new ExtentLayout(device, MAX_FILES, PREALLOCATE);
+            case "FAT":
+                return new FatLayout(device, MAX_FILES, true);
+            case "FAT (uncached)":
+                return new FatLayout(device, MAX_FILES, false);
+            case "Indexed":
+                return new IndexedLayout(device, MAX_FILES);
+            default:
+                throw new IllegalArgumentException("Unknown layout: " + name);
+        }
+    }
+
+    private static void run(FileLayout fs, int fileCount, int fileBlocks, int randomOps) {
+        SplittableRandom random = new SplittableRandom(42);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SEQ_REQUEST * BlockDevice.BLOCK_SIZE);
+        int[] files = new int[fileCount];
+
+        // write seq
+        begin(fs);
+        long ops = 0;
+        for (int f = 0; f < fileCount; f++) {
+            files[f] = fs.create(0);
+            ops++;
+        }
+        for (int at = 0; at < fileBlocks; at += CHUNK) {
+            int n = Math.min(CHUNK, fileBlocks - at);
+            for (int file : files) {
+                stamp(buffer, file, at, n);
+                fs.write(file, at, n, buffer);
+                ops++;
+            }
+        }
+        report(fs, "write seq", ops, (long) fileCount * fileBlocks);
+
+        long fragments = 0;
+        for (int file : files) {
+            fragments += fs.fragments(file);
+        }
+        String moves = fs instanceof ContiguousLayout
+                ? String.format(", %d moves copied %.1f MB", ((ContiguousLayout) fs).getRelocations(),
+                        ((ContiguousLayout) fs).getBlocksCopied() * BlockDevice.BLOCK_SIZE / (1024.0 * 1024.0))
+                : "";
+        System.out.println(String.format("%-15s | %.1f fragments per file%s", fs.name(),
+                (double) fragments / fileCount, moves));
+
+        // read seq
+        begin(fs);
+        ops = 0;
+        for (int file : files) {
+            for (int at = 0; at < fileBlocks; at += SEQ_REQUEST) {
+                int n = Math.min(SEQ_REQUEST, fileBlocks - at);
+                fs.read(file, at, n, buffer);
+                check(buffer, file, at, n);
+                ops++;
+            }
+        }
+        report(fs, "read seq", ops, (long) fileCount * fileBlocks);
+
+        // read rand
+        begin(fs);
+        for (int i = 0; i < randomOps; i++) {
+            int file = files[random.nextInt(fileCount)];
+            int at = random.nextInt(fileBlocks);
+            fs.read(file, at, 1, buffer);
+            check(buffer, file, at, 1);
+        }
+        report(fs, "read rand", randomOps, randomOps);
+
+        // write rand
+        begin(fs);
+        for (int i = 0; i < randomOps; i++) {
+            int file = files[random.nextInt(fileCount)];
+            int at = random.nextInt(fileBlocks);
+            stamp(buffer, file, at, 1);
+            fs.write(file, at, 1, buffer);
+        }
+        report(fs, "write rand", randomOps, randomOps);
+
+        // small files
+        begin(fs);
+        List<Integer> small = new ArrayList<>();
+        long blocksWritten = 0;
+        ops = 0;
+        for (int i = 0; i < randomOps; i++) {
+            int size = 1 + random.nextInt(8);
+            int file = fs.create(0);
+            stamp(buffer, file, 0, size);
+            fs.write(file, 0, size, buffer);
+            small.add(file);
+            blocksWritten += size;
+            ops += 2;
+            if (small.size() > SMALL_LIVE) {
+                int victim = small.size() - 1 - random.nextInt(small.size() - 1);
+                int last = small.size() - 1;
+                int gone = small.get(victim);
+                small.set(victim, small.get(last));
+                small.remove(last);
+                fs.delete(gone);
+                ops++;
+            }
+        }
+        report(fs, "small files", ops, blocksWritten);
+    }
+
+    private static long startNanos;
+
+    private static void begin(FileLayout fs) {
+        fs.device().resetCounters();
+        startNanos = System.nanoTime();
+    }
+
+    private static void report(FileLayout fs, String phase, long ops, long dataBlocks) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        BlockDevice d = fs.device();
+        long data = d.requests(BlockDevice.Kind.DATA, false) + d.requests(BlockDevice.Kind.DATA, true);
+        System.out.println(String.format("%-15s | %-11s | %8d | %9.1f | %8.2f | %8.2f | %8.2f | %8.2f | %9.2f",
+                fs.name(), phase, ops, dataBlocks * BlockDevice.BLOCK_SIZE / (1024.0 * 1024.0) / seconds,
+                (double) data / ops, (double) d.blocksMoved(BlockDevice.Kind.META, false) / ops,
+                (double) d.blocksMoved(BlockDevice.Kind.META, true) / ops, (double) d.seeks() / ops,
+                d.hddMillis() / ops));
+    }
+
+    private static void stamp(ByteBuffer buffer, int file, int first, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(i * BlockDevice.BLOCK_SIZE, file).putInt(i * BlockDevice.BLOCK_SIZE + 4, first + i);
+        }
+    }
+
+    private static void check(ByteBuffer buffer, int file, int first, int count) {
+        for (int i = 0; i < count; i++) {
+            int f = buffer.getInt(i * BlockDevice.BLOCK_SIZE), b = buffer.getInt(i * BlockDevice.BLOCK_SIZE + 4);
+            if (f != file || b != first + i) {
+                throw new IllegalStateException("Block " + (first + i) + " of file " + file
+                        + " holds block " + b + " of file " + f);
+            }
+        }
+    }
+}
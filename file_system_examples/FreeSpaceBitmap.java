@@ -0,0 +1,211 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+
+/**
+ * FreeSpaceBitmap.java
+ * 
+ * The bit vector of 11_File_System_Allocation.md: one bit per block,
+ * 1 = free, 0 = used, stored in its own blocks on the device.
+ * 
+ * The whole vector is kept in memory ("inefficient unless entire vector
+ * kept in main memory"), searched a 64-bit word at a time, and the bitmap
+ * blocks that changed are written back by writeBack() (the file layouts
+ * call it at the end of every operation), or read back by revert() when the
+ * operation failed.
+ * 
+ * Allocation takes a goal block: the search starts there and wraps around,
+ * so a file that grows gets blocks right after its previous ones when they
+ * are free.
+ */
+public class FreeSpaceBitmap {
+
+    static final int BITS_PER_BLOCK = BlockDevice.BLOCK_SIZE * 8;
+    private static final int WORDS_PER_BLOCK = BlockDevice.BLOCK_SIZE / 8;
+
+    private final BlockDevice device;
+    private final int firstBlock;
+    private final int blocks;
+    private final long[] words;
+    private final BitSet dirty = new BitSet();
+    private int free;
+
+    /** Blocks needed to map 'blocks' blocks. */
+    public static int blocksNeeded(int blocks) {
+        return (blocks + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK;
+    }
+
+    /** A bitmap for 'blocks' blocks, stored from firstBlock on, all blocks free. */
+    public FreeSpaceBitmap(BlockDevice device, int firstBlock, int blocks) {
+        this.device = device;
+        this.firstBlock = firstBlock;
+        this.blocks = blocks;
+        this.words = new long[blocksNeeded(blocks) * WORDS_PER_BLOCK];
+        for (int b = 0; b < blocks; b += 64) {
+            words[b >>> 6] = blocks - b >= 64 ? -1L : (1L << (blocks - b)) - 1;
+        }
+        free = blocks;
+        dirty.set(0, blocksNeeded(blocks));
+    }
+
+    public int regionBlocks() {
+        return blocksNeeded(blocks);
+    }
+
+    public synchronized int freeBlocks() {
+        return free;
+    }
+
+    public synchronized boolean isFree(int block) {
+        return (words[block >>> 6] & (1L << block)) != 0;
+    }
+
+    /** First free block at or after 'from', or -1. */
+    private int nextFree(int from) {
+        if (from >= blocks) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+        int block = (w << 6) + Long.numberOfTrailingZeros(word);
+        return block < blocks ? block : -1;
+    }
+
+    /** First used block at or after 'from', or 'blocks'. */
+    private int nextUsed(int from) {
+        if (from >= blocks) {
+            return blocks;
+        }
+        int w = from >>> 6;
+        long word = ~words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) {
+                return blocks;
+            }
+            word = ~words[w];
+        }
+        return Math.min(blocks, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /** One block: the first free one at or after goal (wrapping), or -1 if the device is full. */
+    public synchronized int allocate(int goal) {
+        long run = allocateRun(goal, 1);
+        return run < 0 ? -1 : (int) (run >>> 32);
+    }
+
+    /**
+     * Up to 'max' consecutive blocks starting at the first free block at or
+     * after goal (wrapping). Returns start << 32 | length, or -1 if the device is full.
+     */
+    public synchronized long allocateRun(int goal, int max) {
+        int start = nextFree(Math.max(0, goal));
+        if (start < 0) {
+            start = nextFree(0);
+            if (start < 0) {
+                return -1;
+            }
+        }
+        int length = Math.min(max, nextUsed(start) - start);
+        mark(start, length, false);
+        return (long) start << 32 | length;
+    }
+
+    /** Exactly 'count' consecutive free blocks, first fit from goal (wrapping), or -1. */
+    public synchronized int allocateContiguous(int count, int goal) {
+        for (int pass = 0; pass < 2; pass++) {
+            int from = pass == 0 ? Math.max(0, goal) : 0;
+            int to = pass == 0 ? blocks : Math.max(0, goal) + count;
+            int start = nextFree(from);
+            while (start >= 0 && start < to) {
+                int end = nextUsed(start);
+                if (end - start >= count) {
+                    mark(start, count, false);
+                    return start;
+                }
+                start = nextFree(end);
+            }
+        }
+        return -1;
+    }
+
+    /** Takes [start, start + count) if all of it is free. */
+    public synchronized boolean allocateAt(int start, int count) {
+        if (start < 0 || start + count > blocks || nextUsed(start) < start + count) {
+            return false;
+        }
+        mark(start, count, false);
+        return true;
+    }
+
+    public synchronized void free(int start, int count) {
+        for (int b = start; b < start + count; b++) {
+            if (isFree(b)) {
+                throw new IllegalStateException("Block " + b + " freed twice");
+            }
+        }
+        mark(start, count, true);
+    }
+
+    /** Longest run of free blocks (external fragmentation shows up here). */
+    public synchronized int largestFreeRun() {
+        int best = 0;
+        int start = nextFree(0);
+        while (start >= 0) {
+            int end = nextUsed(start);
+            best = Math.max(best, end - start);
+            start = nextFree(end);
+        }
+        return best;
+    }
+
+    private void mark(int start, int count, boolean toFree) {
+        for (int b = start; b < start + count;) {
+            int w = b >>> 6;
+            int n = Math.min(64 - (b & 63), start + count - b);
+            long mask = (n == 64 ? -1L : (1L << n) - 1) << b;
+            words[w] = toFree ? words[w] | mask : words[w] & ~mask;
+            dirty.set(w / WORDS_PER_BLOCK);
+            b += n;
+        }
+        free += toFree ? count : -count;
+    }
+
+    /** Drops the changes since the last writeBack(): the changed blocks are read back from the device. */
+    public synchronized void revert() {
+        ByteBuffer buffer = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int b = dirty.nextSetBit(0); b >= 0; b = dirty.nextSetBit(b + 1)) {
+            device.read(firstBlock + b, buffer.clear(), BlockDevice.Kind.META);
+            for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+                int w = b * WORDS_PER_BLOCK + i;
+                long saved = buffer.getLong(i * 8);
+                free += Long.bitCount(saved) - Long.bitCount(words[w]);
+                words[w] = saved;
+            }
+        }
+        dirty.clear();
+    }
+
+    /** Writes the bitmap blocks changed since the last call. Returns how many. */
+    public synchronized int writeBack() {
+        int written = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(BlockDevice.BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int b = dirty.nextSetBit(0); b >= 0; b = dirty.nextSetBit(b + 1)) {
+            buffer.clear();
+            for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+                buffer.putLong(i * 8, words[b * WORDS_PER_BLOCK + i]);
+            }
+            device.write(firstBlock + b, buffer, BlockDevice.Kind.META);
+            written++;
+        }
+        dirty.clear();
+        return written;
+    }
+}
@@ -0,0 +1,266 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * HTreeDirectory.java
+ * 
+ * ext3/ext4's HTree: a B+tree keyed by the 32-bit hash of the name, in one
+ * file.
+ * - Index nodes: level (1 = children are leaves), count, then sorted
+ * (hash, child block) pairs, INDEX_ENTRIES of them per block. Entry i
+ * covers the hashes from its own up to the next entry's. Block 0 is the
+ * root and stays there.
+ * - Leaves: DirectoryBlocks, entries unsorted inside, chained in hash order
+ * through DirectoryBlock.NEXT (readdir follows the chain).
+ * 
+ * A full leaf is split at the median hash into itself and a new leaf,
+ * never separating names with the same hash, and the new leaf's first
+ * hash goes into the parent (splitting full index nodes on the way up; a
+ * full root moves its halves to two new blocks and gains a level).
+ * 
+ * lookup reads one block per level: 2 blocks up to ~511 leaves, 3 blocks
+ * up to ~250k leaves (tens of millions of entries). remove does not merge
+ * leaves, as in ext4.
+ */
+public final class HTreeDirectory extends AbstractDirectory {
+
+    static final int INDEX_ENTRIES = (BlockDevice.BLOCK_SIZE - 8) / 8;
+    private static final int ROOT = 0, LEVEL = 0, COUNT = 4, ENTRY = 8;
+    private static final int MAX_DEPTH = 8;
+
+    private final int file;
+    // Index nodes on the path to the current leaf, from the root down
+    private final ByteBuffer[] path = new ByteBuffer[MAX_DEPTH];
+    private final int[] pathBlocks = new int[MAX_DEPTH];
+    private final int[] pathSlots = new int[MAX_DEPTH];
+    private int depth;
+    private final ByteBuffer leaf = newBuffer();
+    private int leafBlock;
+    private final ByteBuffer spare = newBuffer();
+
+    public HTreeDirectory(FileLayout layout) {
+        super(layout);
+        file = layout.create(0);
+        writeIndex(spare, 1, new int[] { 0 }, new int[] { 1 }, 1);
+        writeBlock(file, ROOT, spare);
+        DirectoryBlock.init(leaf);
+        writeBlock(file, 1, leaf);
+    }
+
+    public String name() {
+        return "HTree";
+    }
+
+    public synchronized int lookup(String entry) {
+        byte[] name = encode(entry);
+        descend(DirectoryBlock.hash(name));
+        int record = DirectoryBlock.find(leaf, name);
+        return record >= 0 ? DirectoryBlock.fcb(leaf, record) : -1;
+    }
+
+    public synchronized void create(String entry, int fcb) {
+        byte[] name = encode(entry);
+        int hash = DirectoryBlock.hash(name);
+        descend(hash);
+        if (DirectoryBlock.find(leaf, name) >= 0) {
+            throw exists(entry);
+        }
+        if (DirectoryBlock.insert(leaf, name, fcb)) {
+            writeBlock(file, leafBlock, leaf);
+        } else {
+            splitLeaf(name, fcb, hash);
+        }
+    }
+
+    public synchronized boolean remove(String entry) {
+        byte[] name = encode(entry);
+        descend(DirectoryBlock.hash(name));
+        int record = DirectoryBlock.find(leaf, name);
+        if (record < 0) {
+            return false;
+        }
+        DirectoryBlock.remove(leaf, record);
+        writeBlock(file, leafBlock, leaf);
+        return true;
+    }
+
+    public synchronized long list(ObjIntConsumer<String> visitor) {
+        int block = ROOT;
+        readBlock(file, block, spare);
+        while (spare.getInt(LEVEL) > 1) { // leftmost path down to the first leaf
+            readBlock(file, spare.getInt(ENTRY + 4), spare);
+        }
+        block = spare.getInt(ENTRY + 4);
+        long count = 0;
+        while (block != DirectoryBlock.NONE) {
+            readBlock(file, block, leaf);
+            for (int record : DirectoryBlock.records(leaf)) {
+                visitor.accept(decode(leaf, record), DirectoryBlock.fcb(leaf, record));
+                count++;
+            }
+            block = DirectoryBlock.next(leaf);
+        }
+        return count;
+    }
+
+    public synchronized int blocks() {
+        return layout.size(file);
+    }
+
+    // --- Tree ---
+
+    /** Reads the index nodes from the root down to the leaf of 'hash', and that leaf. */
+    private void descend(int hash) {
+        int block = ROOT;
+        depth = 0;
+        while (true) {
+            if (path[depth] == null) {
+                path[depth] = newBuffer();
+            }
+            ByteBuffer node = path[depth];
+            readBlock(file, block, node);
+            int slot = slotFor(node, hash);
+            pathBlocks[depth] = block;
+            pathSlots[depth] = slot;
+            depth++;
+            block = node.getInt(ENTRY + 8 * slot + 4);
+            if (node.getInt(LEVEL) == 1) {
+                leafBlock = block;
+                readBlock(file, block, leaf);
+                return;
+            }
+        }
+    }
+
+    /** Last entry whose hash is <= 'hash' (unsigned); entry 0 covers everything below entry 1. */
+    private static int slotFor(ByteBuffer node, int hash) {
+        int lo = 0, hi = node.getInt(COUNT) - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (Integer.compareUnsigned(node.getInt(ENTRY + 8 * mid), hash) <= 0) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /** The leaf on the path is full: splits it at the median hash and adds the entry. */
+    private void splitLeaf(byte[] name, int fcb, int hash) {
+        int[] records = DirectoryBlock.records(leaf);
+        int n = records.length + 1;
+        byte[][] names = new byte[n][];
+        int[] fcbs = new int[n];
+        long[] order = new long[n]; // hash << 32 | position, sorts by unsigned hash
+        for (int i = 0; i < records.length; i++) {
+            names[i] = DirectoryBlock.name(leaf, records[i]);
+            fcbs[i] = DirectoryBlock.fcb(leaf, records[i]);
+        }
+        names[n - 1] = name;
+        fcbs[n - 1] = fcb;
+        for (int i = 0; i < n; i++) {
+            int h = i == n - 1 ? hash : DirectoryBlock.hash(names[i]);
+            order[i] = ((long) (h ^ Integer.MIN_VALUE) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        // Split near the middle, but never between two names with the same hash
+        int lo = n / 2, hi = n / 2;
+        while (lo > 0 && hashOf(order[lo - 1]) == hashOf(order[lo])) {
+            lo--;
+        }
+        while (hi < n && hashOf(order[hi - 1]) == hashOf(order[hi])) {
+            hi++;
+        }
+        int split = lo > 0 && (n / 2 - lo <= hi - n / 2 || hi == n) ? lo : hi;
+        if (split == 0 || split == n) {
+            throw new IllegalStateException("More names with hash " + Integer.toHexString(hash)
+                    + " than fit in one block");
+        }
+
+        int right = layout.size(file);
+        DirectoryBlock.init(spare);
+        DirectoryBlock.setNext(spare, DirectoryBlock.next(leaf));
+        fill(spare, order, split, n, names, fcbs);
+        writeBlock(file, right, spare);
+
+        DirectoryBlock.init(leaf);
+        DirectoryBlock.setNext(leaf, right);
+        fill(leaf, order, 0, split, names, fcbs);
+        writeBlock(file, leafBlock, leaf);
+
+        insertIndex(depth - 1, hashOf(order[split]), right);
+    }
+
+    private static int hashOf(long order) {
+        return (int) (order >> 32) ^ Integer.MIN_VALUE;
+    }
+
+    private static void fill(ByteBuffer block, long[] order, int from, int to, byte[][] names, int[] fcbs) {
+        for (int i = from; i < to; i++) {
+            int at = (int) order[i];
+            if (!DirectoryBlock.insert(block, names[at], fcbs[at])) {
+                throw new IllegalStateException("Names with equal hashes do not fit in one block");
+            }
+        }
+    }
+
+    /** Adds (hash, child) right after the path's slot in the index node at path level d. */
+    private void insertIndex(int d, int hash, int child) {
+        ByteBuffer node = path[d];
+        int level = node.getInt(LEVEL);
+        int count = node.getInt(COUNT);
+        int slot = pathSlots[d] + 1;
+        int[] hashes = new int[count + 1], children = new int[count + 1];
+        for (int i = 0, j = 0; i <= count; i++) {
+            if (i == slot) {
+                hashes[i] = hash;
+                children[i] = child;
+            } else {
+                hashes[i] = node.getInt(ENTRY + 8 * j);
+                children[i] = node.getInt(ENTRY + 8 * j + 4);
+                j++;
+            }
+        }
+        count++;
+        if (count <= INDEX_ENTRIES) {
+            writeIndex(node, level, hashes, children, count);
+            writeBlock(file, pathBlocks[d], node);
+            return;
+        }
+
+        int half = count / 2;
+        int[] upperHashes = Arrays.copyOfRange(hashes, half, count);
+        int[] upperChildren = Arrays.copyOfRange(children, half, count);
+        if (d == 0) { // the root keeps block 0: both halves move out, one level more
+            if (depth == MAX_DEPTH) {
+                throw new IllegalStateException("HTree deeper than " + MAX_DEPTH + " levels");
+            }
+            int lower = layout.size(file);
+            writeIndex(spare, level, hashes, children, half);
+            writeBlock(file, lower, spare);
+            writeIndex(spare, level, upperHashes, upperChildren, count - half);
+            writeBlock(file, lower + 1, spare);
+            writeIndex(node, level + 1, new int[] { 0, hashes[half] }, new int[] { lower, lower + 1 }, 2);
+            writeBlock(file, ROOT, node);
+        } else {
+            int upper = layout.size(file);
+            writeIndex(spare, level, upperHashes, upperChildren, count - half);
+            writeBlock(file, upper, spare);
+            writeIndex(node, level, hashes, children, half);
+            writeBlock(file, pathBlocks[d], node);
+            insertIndex(d - 1, hashes[half], upper);
+        }
+    }
+
+    private static void writeIndex(ByteBuffer node, int level, int[] hashes, int[] children, int count) {
+        node.putInt(LEVEL, level).putInt(COUNT, count);
+        for (int i = 0; i < count; i++) {
+            node.putInt(ENTRY + 8 * i, hashes[i]).putInt(ENTRY + 8 * i + 4, children[i]);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * HashDirectory.java
+ * 
+ * Hash-table directory (11_File_System_Allocation.md) whose table grows
+ * without ever being rebuilt: linear hashing. Entries live in the buckets
+ * themselves, each bucket a DirectoryBlock plus a chain of overflow blocks
+ * (the "linked list in each hash bucket").
+ * 
+ * Two files:
+ * - bucket file: block 0 header (level, split pointer, entry count, bytes
+ * used by records, first free overflow block), block 1 + b = bucket b,
+ * - overflow file: overflow blocks, chained through DirectoryBlock.NEXT;
+ * free ones form a list of their own.
+ * 
+ * With n = INITIAL_BUCKETS * 2^level, a name with hash h belongs to bucket
+ * h mod n, or h mod 2n if that bucket has already been split this round.
+ * When the records fill more than MAX_FILL of the buckets' space, ONE
+ * bucket (the split pointer's) is split into itself and a new bucket at
+ * the end: resizing costs one bucket at a time, not a rehash of the table.
+ * 
+ * lookup: header + the bucket (+ its overflow blocks), independent of size.
+ * remove does not shrink the table.
+ */
+public final class HashDirectory extends AbstractDirectory {
+
+    static final int INITIAL_BUCKETS = 4;
+    static final double MAX_FILL = 0.75;
+    private static final int LEVEL = 0, SPLIT = 4, ENTRIES = 8, BYTES = 16, FREE_OVERFLOW = 24;
+    private static final int PRIMARY = -2; // chain position of the bucket's own block
+
+    private final int bucketFile;
+    private final int overflowFile;
+    private final ByteBuffer header = newBuffer();
+    private final ByteBuffer block = newBuffer();
+    private final ByteBuffer spare = newBuffer();
+    private final ByteBuffer freeBlock = newBuffer();
+
+    public HashDirectory(FileLayout layout) {
+        super(layout);
+        bucketFile = layout.create(0);
+        overflowFile = layout.create(0);
+        header.putInt(LEVEL, 0).putInt(SPLIT, 0).putLong(ENTRIES, 0).putLong(BYTES, 0)
+                .putInt(FREE_OVERFLOW, DirectoryBlock.NONE);
+        writeBlock(bucketFile, 0, header);
+        DirectoryBlock.init(block);
+        for (int b = 0; b < INITIAL_BUCKETS; b++) {
+            writeBlock(bucketFile, 1 + b, block);
+        }
+    }
+
+    public String name() {
+        return "Hash (linear)";
+    }
+
+    public synchronized int lookup(String entry) {
+        byte[] name = encode(entry);
+        readBlock(bucketFile, 0, header);
+        int bucket = bucketOf(DirectoryBlock.hash(name));
+        int at = PRIMARY;
+        do {
+            readChain(bucket, at, block);
+            int record = DirectoryBlock.find(block, name);
+            if (record >= 0) {
+                return DirectoryBlock.fcb(block, record);
+            }
+            at = DirectoryBlock.next(block);
+        } while (at != DirectoryBlock.NONE);
+        return -1;
+    }
+
+    public synchronized void create(String entry, int fcb) {
+        byte[] name = encode(entry);
+        int need = DirectoryBlock.recordSize(name.length);
+        readBlock(bucketFile, 0, header);
+        int bucket = bucketOf(DirectoryBlock.hash(name));
+
+        // One pass over the chain: no duplicate, and where there is room
+        int at = PRIMARY;
+        int withRoom = PRIMARY;
+        boolean room = false;
+        while (true) {
+            readChain(bucket, at, block);
+            if (DirectoryBlock.find(block, name) >= 0) {
+                throw exists(entry);
+            }
+            if (!room && DirectoryBlock.hasRoom(block, need)) {
+                withRoom = at;
+                room = true;
+            }
+            int next = DirectoryBlock.next(block);
+            if (next == DirectoryBlock.NONE) {
+                break;
+            }
+            at = next;
+        }
+        if (room) {
+            if (withRoom != at) {
+                readChain(bucket, withRoom, block);
+            }
+            DirectoryBlock.insert(block, name, fcb);
+            writeChain(bucket, withRoom, block);
+        } else { // chain full: a new overflow block at its end
+            int fresh = allocateOverflow();
+            DirectoryBlock.init(spare);
+            DirectoryBlock.insert(spare, name, fcb);
+            writeBlock(overflowFile, fresh, spare);
+            DirectoryBlock.setNext(block, fresh);
+            writeChain(bucket, at, block);
+        }
+        header.putLong(ENTRIES, header.getLong(ENTRIES) + 1).putLong(BYTES, header.getLong(BYTES) + need);
+
+        long capacity = (long) buckets() * (BlockDevice.BLOCK_SIZE - DirectoryBlock.HEADER);
+        if (header.getLong(BYTES) > capacity * MAX_FILL) {
+            split();
+        }
+        writeBlock(bucketFile, 0, header);
+    }
+
+    public synchronized boolean remove(String entry) {
+        byte[] name = encode(entry);
+        readBlock(bucketFile, 0, header);
+        int bucket = bucketOf(DirectoryBlock.hash(name));
+        int at = PRIMARY;
+        do {
+            readChain(bucket, at, block);
+            int record = DirectoryBlock.find(block, name);
+            if (record >= 0) {
+                DirectoryBlock.remove(block, record);
+                writeChain(bucket, at, block);
+                header.putLong(ENTRIES, header.getLong(ENTRIES) - 1)
+                        .putLong(BYTES, header.getLong(BYTES) - DirectoryBlock.recordSize(name.length));
+                writeBlock(bucketFile, 0, header);
+                return true;
+            }
+            at = DirectoryBlock.next(block);
+        } while (at != DirectoryBlock.NONE);
+        return false;
+    }
+
+    public synchronized long list(ObjIntConsumer<String> visitor) {
+        readBlock(bucketFile, 0, header);
+        long count = 0;
+        for (int bucket = 0, buckets = buckets(); bucket < buckets; bucket++) {
+            int at = PRIMARY;
+            do {
+                readChain(bucket, at, block);
+                for (int record : DirectoryBlock.records(block)) {
+                    visitor.accept(decode(block, record), DirectoryBlock.fcb(block, record));
+                    count++;
+                }
+                at = DirectoryBlock.next(block);
+            } while (at != DirectoryBlock.NONE);
+        }
+        return count;
+    }
+
+    public synchronized int blocks() {
+        return layout.size(bucketFile) + layout.size(overflowFile);
+    }
+
+    // --- Linear hashing ---
+
+    private int buckets() {
+        return (INITIAL_BUCKETS << header.getInt(LEVEL)) + header.getInt(SPLIT);
+    }
+
+    private int bucketOf(int hash) {
+        int n = INITIAL_BUCKETS << header.getInt(LEVEL);
+        int bucket = hash & (n - 1);
+        return bucket < header.getInt(SPLIT) ? hash & (2 * n - 1) : bucket;
+    }
+
+    /** Splits the split pointer's bucket s into s and s + n (a new bucket at the end). */
+    private void split() {
+        int n = INITIAL_BUCKETS << header.getInt(LEVEL);
+        int bucket = header.getInt(SPLIT);
+        List<byte[]> stay = new ArrayList<>(), move = new ArrayList<>();
+        List<Integer> stayFcbs = new ArrayList<>(), moveFcbs = new ArrayList<>();
+
+        int at = PRIMARY;
+        do {
+            readChain(bucket, at, block);
+            for (int record : DirectoryBlock.records(block)) {
+                byte[] name = DirectoryBlock.name(block, record);
+                boolean moves = (DirectoryBlock.hash(name) & n) != 0;
+                (moves ? move : stay).add(name);
+                (moves ? moveFcbs : stayFcbs).add(DirectoryBlock.fcb(block, record));
+            }
+            int next = DirectoryBlock.next(block);
+            if (at != PRIMARY) {
+                freeOverflow(at, block);
+            }
+            at = next;
+        } while (at != DirectoryBlock.NONE);
+
+        header.putInt(SPLIT, bucket + 1);
+        writeBucket(bucket, stay, stayFcbs);
+        writeBucket(bucket + n, move, moveFcbs);
+        if (bucket + 1 == n) {
+            header.putInt(LEVEL, header.getInt(LEVEL) + 1).putInt(SPLIT, 0);
+        }
+    }
+
+    /** Writes a whole bucket (its block and as many overflow blocks as needed). */
+    private void writeBucket(int bucket, List<byte[]> names, List<Integer> fcbs) {
+        int at = PRIMARY;
+        DirectoryBlock.init(spare);
+        for (int i = 0; i < names.size(); i++) {
+            if (!DirectoryBlock.insert(spare, names.get(i), fcbs.get(i))) {
+                int fresh = allocateOverflow();
+                DirectoryBlock.setNext(spare, fresh);
+                writeChain(bucket, at, spare);
+                at = fresh;
+                DirectoryBlock.init(spare);
+                DirectoryBlock.insert(spare, names.get(i), fcbs.get(i));
+            }
+        }
+        writeChain(bucket, at, spare);
+    }
+
+    private int allocateOverflow() {
+        int free = header.getInt(FREE_OVERFLOW);
+        if (free == DirectoryBlock.NONE) {
+            return layout.size(overflowFile); // appended when written
+        }
+        readBlock(overflowFile, free, freeBlock);
+        header.putInt(FREE_OVERFLOW, DirectoryBlock.next(freeBlock));
+        return free;
+    }
+
+    private void freeOverflow(int index, ByteBuffer contents) {
+        DirectoryBlock.setNext(contents, header.getInt(FREE_OVERFLOW));
+        writeBlock(overflowFile, index, contents);
+        header.putInt(FREE_OVERFLOW, index);
+    }
+
+    private void readChain(int bucket, int at, ByteBuffer into) {
+        if (at == PRIMARY) {
+            readBlock(bucketFile, 1 + bucket, into);
+        } else {
+            readBlock(overflowFile, at, into);
+        }
+    }
+
+    private void writeChain(int bucket, int at, ByteBuffer from) {
+        if (at == PRIMARY) {
+            writeBlock(bucketFile, 1 + bucket, from);
+        } else {
+            writeBlock(overflowFile, at, from);
+        }
+    }
+}
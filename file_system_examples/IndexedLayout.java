@@ -0,0 +1,194 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+
+/**
+ * IndexedLayout.java
+ * 
+ * Indexed allocation with the UNIX combined scheme: the FCB (inode) holds
+ * 12 direct block pointers, then one single, one double and one triple
+ * indirect pointer. An index block holds POINTERS_PER_BLOCK (1024) 4-byte
+ * block numbers, 0 = none (block 0 is the superblock, never a data block).
+ * 
+ * Block j of a file:
+ * - j < 12: pointer j of the inode, no index block,
+ * - j < 12 + 1024: through the single indirect block (1 index read),
+ * - j < 12 + 1024 + 1024^2: double indirect (2 index reads),
+ * - beyond: triple indirect (3 index reads).
+ * Index blocks are allocated when the first pointer in them is needed,
+ * next to the data they point to.
+ * 
+ * Free space: FreeSpaceBitmap; new blocks go right after the file's last block when free.
+ */
+public class IndexedLayout extends AbstractFileLayout {
+
+    static final int DIRECT = 12;
+    static final int POINTERS_PER_BLOCK = BlockDevice.BLOCK_SIZE / 4;
+    private static final int DIRECT_AT = 8;
+    private static final int INDIRECT_AT = DIRECT_AT + DIRECT * 4; // single, double, triple
+
+    private final FreeSpaceBitmap bitmap;
+
+    public IndexedLayout(BlockDevice device, int maxFiles) {
+        super(device, maxFiles, FreeSpaceBitmap.blocksNeeded(device.blocks()));
+        bitmap = new FreeSpaceBitmap(device, metaStart, device.blocks());
+        bitmap.allocateAt(0, dataStart);
+        bitmap.writeBack();
+    }
+
+    public String name() {
+        return "Indexed";
+    }
+
+    public int freeBlocks() {
+        return bitmap.freeBlocks();
+    }
+
+    protected void onCreate(int file, ByteBuffer fcb, int sizeHintBlocks) {
+        // all pointers 0: no blocks yet
+    }
+
+    /** Levels of index blocks above block j (0 = direct), and j's position below that level's pointer. */
+    private static long[] locate(long j) {
+        if (j < DIRECT) {
+            return new long[] { 0, j };
+        }
+        j -= DIRECT;
+        long span = POINTERS_PER_BLOCK;
+        for (int levels = 1; levels <= 3; levels++, span *= POINTERS_PER_BLOCK) {
+            if (j < span) {
+                return new long[] { levels, j };
+            }
+            j -= span;
+        }
+        throw new IllegalArgumentException("Block " + j + " beyond the triple indirect range");
+    }
+
+    /**
+     * The pointer to block j: returns the metadata block holding it (-1 for
+     * the inode) << 32 | byte offset in it. With allocate, missing index
+     * blocks are created on the way (goal: where to put them).
+     */
+    private long pointer(int file, ByteBuffer fcb, int j, boolean allocate, int goal) {
+        long[] where = locate(j);
+        int levels = (int) where[0];
+        long rest = where[1];
+        if (levels == 0) {
+            return -1L << 32 | (DIRECT_AT + j * 4);
+        }
+        int holder = -1; // the inode
+        int offset = INDIRECT_AT + (levels - 1) * 4;
+        long span = 1;
+        for (int l = 1; l < levels; l++) {
+            span *= POINTERS_PER_BLOCK;
+        }
+        for (int l = 0; l < levels; l++) {
+            ByteBuffer buffer = holder < 0 ? fcb : meta(holder);
+            int index = buffer.getInt(offset);
+            if (index == 0) {
+                if (!allocate) {
+                    return Long.MIN_VALUE;
+                }
+                index = bitmap.allocate(goal);
+                if (index < 0) {
+                    throw new IllegalStateException("Device full");
+                }
+                newMeta(index);
+                buffer.putInt(offset, index);
+                if (holder < 0) {
+                    fcbDirty(file);
+                } else {
+                    dirty(holder);
+                }
+            }
+            holder = index;
+            offset = (int) (rest / span) * 4;
+            rest %= span;
+            span /= POINTERS_PER_BLOCK;
+        }
+        return (long) holder << 32 | offset;
+    }
+
+    private int get(int file, ByteBuffer fcb, int j) {
+        long p = pointer(file, fcb, j, false, 0);
+        if (p == Long.MIN_VALUE) {
+            return 0;
+        }
+        int holder = (int) (p >> 32);
+        return (holder < 0 ? fcb : meta(holder)).getInt((int) p);
+    }
+
+    protected long mapRun(int file, ByteBuffer fcb, int index, int max) {
+        int start = get(file, fcb, index);
+        if (start == 0) {
+            throw new IllegalStateException("Block " + index + " of file " + file + " has no pointer");
+        }
+        int length = 1;
+        while (length < max && get(file, fcb, index + length) == start + length) {
+            length++;
+        }
+        return (long) start << 32 | length;
+    }
+
+    protected void grow(int file, ByteBuffer fcb, int blocks) {
+        int size = fcb.getInt(FCB_SIZE_BLOCKS);
+        int goal = size == 0 ? dataStart : get(file, fcb, size - 1) + 1;
+        for (int j = size; j < size + blocks;) {
+            long run = bitmap.allocateRun(goal, size + blocks - j);
+            if (run < 0) {
+                throw new IllegalStateException("Device full");
+            }
+            int start = (int) (run >>> 32), length = (int) run;
+            for (int k = 0; k < length; k++, j++) {
+                long p = pointer(file, fcb, j, true, start + length);
+                int holder = (int) (p >> 32);
+                (holder < 0 ? fcb : meta(holder)).putInt((int) p, start + k);
+                if (holder < 0) {
+                    fcbDirty(file);
+                } else {
+                    dirty(holder);
+                }
+            }
+            goal = start + length;
+        }
+    }
+
+    protected void release(int file, ByteBuffer fcb) {
+        for (int j = 0; j < DIRECT; j++) {
+            freeBlock(fcb.getInt(DIRECT_AT + j * 4));
+        }
+        for (int levels = 1; levels <= 3; levels++) {
+            freeTree(fcb.getInt(INDIRECT_AT + (levels - 1) * 4), levels);
+        }
+    }
+
+    private void freeTree(int index, int levels) {
+        if (index == 0) {
+            return;
+        }
+        ByteBuffer buffer = meta(index);
+        for (int i = 0; i < POINTERS_PER_BLOCK; i++) {
+            int pointer = buffer.getInt(i * 4);
+            if (levels == 1) {
+                freeBlock(pointer);
+            } else {
+                freeTree(pointer, levels - 1);
+            }
+        }
+        freeBlock(index);
+    }
+
+    private void freeBlock(int block) {
+        if (block != 0) {
+            bitmap.free(block, 1);
+        }
+    }
+
+    protected void writeBackFreeSpace() {
+        bitmap.writeBack();
+    }
+
+    protected void revertFreeSpace() {
+        bitmap.revert();
+    }
+}
@@ -0,0 +1,227 @@
+package file_system_examples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JournalBenchmark.java
+ * 
+ * File creation as in 11_File_System_Allocation.md, with its three
+ * metadata updates made atomic and durable by a MetadataJournal. Every
+ * create, in one Handle:
+ * - takes the next FCB and marks it in use in its FCB table block,
+ * - adds "file-<fcb>" to one of DIRECTORIES directories (DirectoryBlock
+ * format, a directory's blocks are filled one after another),
+ * - marks the file's data block used in the free-space bitmap,
+ * then commits (returns once the create is durable).
+ * 
+ * 1, 2, 4, ... maxThreads threads create files for 'seconds', with
+ * fsync per operation and with group commit, each run on a fresh device
+ * and journal. Reported: creates per second, creates per force, journal
+ * blocks written per create, mean and p99 latency of a create, and
+ * checkpoints.
+ * 
+ * Each run ends in a simulated crash (MetadataJournal.crash(): no final
+ * checkpoint), then recover() replays the journal and the device is
+ * checked: every FCB created is in use, its bitmap bit is set, and the
+ * directories hold exactly the files created.
+ * 
+ * Usage: java file_system_examples.JournalBenchmark [maxThreads] [seconds] [journalMB] [dir]
+ */
+public class JournalBenchmark {
+
+    private static final int BLOCK_SIZE = BlockDevice.BLOCK_SIZE;
+    private static final int MAX_FILES = 1 << 20;
+    private static final int FCB_SIZE = 128, FCBS_PER_BLOCK = BLOCK_SIZE / FCB_SIZE;
+    private static final int BITS_PER_BLOCK = BLOCK_SIZE * 8;
+    private static final int DIRECTORIES = 16, DIR_BLOCKS = 2048;
+    private static final int FCB_START = 1;
+    private static final int BITMAP_START = FCB_START + MAX_FILES / FCBS_PER_BLOCK;
+    private static final int DIR_START = BITMAP_START + MAX_FILES / BITS_PER_BLOCK;
+    private static final int DEVICE_BLOCKS = DIR_START + DIRECTORIES * DIR_BLOCKS;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 500;
+    private static final int MAX_SAMPLES = 1 << 16;
+
+    /** A directory being filled: its first block and the block entries go to now. */
+    static class Dir {
+        final int first;
+        int current = -1;
+
+        Dir(int first) {
+            this.first = first;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        int journalMb = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        Path dir = Paths.get(args.length > 3 ? args[3] : System.getProperty("java.io.tmpdir"));
+        int journalBlocks = (int) ((long) journalMb * 1024 * 1024 / BLOCK_SIZE);
+
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", journal: " + journalMb
+                + " MB, " + seconds + " s per run, checkpoint every " + CHECKPOINT_INTERVAL_MILLIS + " ms");
+        System.out.println(String.format("%-19s | %7s | %9s | %9s | %9s | %8s | %8s | %5s | %8s | %s",
+                "Mode", "Threads", "creates/s", "ops/force", "jblk/op", "mean ms", "p99 ms", "Ckpts", "Replayed",
+                "Check"));
+        System.out.println("---------------------------------------------------------------------------------------------------------------");
+
+        for (MetadataJournal.Mode mode : MetadataJournal.Mode.values()) {
+            run(mode, 4, 1, journalBlocks, dir, false); // warm-up
+        }
+        for (MetadataJournal.Mode mode : MetadataJournal.Mode.values()) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                run(mode, threads, seconds, journalBlocks, dir, true);
+            }
+        }
+    }
+
+    private static void run(MetadataJournal.Mode mode, int threads, double seconds, int journalBlocks, Path dir,
+            boolean report) throws IOException, InterruptedException {
+        Path deviceFile = Files.createTempFile(dir, "blockdev", ".img");
+        Path journalFile = Files.createTempFile(dir, "journal", ".log");
+        try (BlockDevice device = new BlockDevice(deviceFile, DEVICE_BLOCKS)) {
+            MetadataJournal journal = new MetadataJournal(device, journalFile, journalBlocks, mode,
+                    CHECKPOINT_INTERVAL_MILLIS);
+            Dir[] dirs = new Dir[DIRECTORIES];
+            for (int d = 0; d < DIRECTORIES; d++) {
+                dirs[d] = new Dir(DIR_START + d * DIR_BLOCKS);
+            }
+            AtomicInteger nextFcb = new AtomicInteger();
+            AtomicBoolean stop = new AtomicBoolean();
+            long[] created = new long[threads];
+            long[][] samples = new long[threads][MAX_SAMPLES];
+
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                workers[t] = new Thread(() -> {
+                    long count = 0;
+                    while (!stop.get()) {
+                        int fcb = nextFcb.getAndIncrement();
+                        if (fcb >= MAX_FILES) {
+                            break;
+                        }
+                        long start = System.nanoTime();
+                        create(journal, dirs[fcb % DIRECTORIES], fcb);
+                        if (count < MAX_SAMPLES) {
+                            samples[id][(int) count] = System.nanoTime() - start;
+                        }
+                        count++;
+                    }
+                    created[id] = count;
+                });
+            }
+            long start = System.nanoTime();
+            for (Thread w : workers) {
+                w.start();
+            }
+            Thread.sleep((long) (seconds * 1000));
+            stop.set(true);
+            for (Thread w : workers) {
+                w.join();
+            }
+            double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            journal.crash();
+            long replayed = MetadataJournal.recover(device, journalFile);
+            long total = Arrays.stream(created).sum();
+            String check = verify(device, dirs, (int) Math.min(total, MAX_FILES));
+
+            if (!report) {
+                return; // warm-up round
+            }
+            int n = 0;
+            long[] all = new long[(int) Math.min(total, (long) threads * MAX_SAMPLES)];
+            for (int t = 0; t < threads; t++) {
+                int k = (int) Math.min(created[t], MAX_SAMPLES);
+                System.arraycopy(samples[t], 0, all, n, k);
+                n += k;
+            }
+            Arrays.sort(all);
+            double mean = Arrays.stream(all).average().orElse(0) / 1_000_000.0;
+            double p99 = all.length == 0 ? 0 : all[(int) Math.min(all.length - 1, all.length * 0.99)] / 1_000_000.0;
+            System.out.println(String.format("%-19s | %7d | %9.0f | %9.1f | %9.2f | %8.3f | %8.3f | %5d | %8d | %s",
+                    mode, threads, total / elapsed, (double) journal.getOperations() / Math.max(1, journal.getForces()),
+                    (double) journal.getJournalBlocksWritten() / Math.max(1, total), mean, p99,
+                    journal.getCheckpoints(), replayed, check));
+        } finally {
+            Files.deleteIfExists(deviceFile);
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    /** One file creation: FCB, directory entry and bitmap bit in one handle, then commit. */
+    private static void create(MetadataJournal journal, Dir dir, int fcb) {
+        byte[] name = ("file-" + fcb).getBytes(StandardCharsets.UTF_8);
+        MetadataJournal.Handle handle = journal.begin();
+        int fcbAt = (fcb % FCBS_PER_BLOCK) * FCB_SIZE;
+        handle.update(FCB_START + fcb / FCBS_PER_BLOCK, b -> b.putInt(fcbAt, 1).putInt(fcbAt + 4, 1)
+                .putInt(fcbAt + 8, fcb));
+        synchronized (dir) {
+            boolean[] added = { false };
+            if (dir.current >= 0) {
+                handle.update(dir.first + dir.current, b -> added[0] = DirectoryBlock.insert(b, name, fcb));
+            }
+            if (!added[0]) { // current block full: start the next one
+                if (++dir.current == DIR_BLOCKS) {
+                    throw new IllegalStateException("Directory full");
+                }
+                handle.update(dir.first + dir.current, b -> {
+                    DirectoryBlock.init(b);
+                    DirectoryBlock.insert(b, name, fcb);
+                });
+            }
+        }
+        int bit = fcb % BITS_PER_BLOCK;
+        handle.update(BITMAP_START + fcb / BITS_PER_BLOCK, b -> b.put(bit >> 3, (byte) (b.get(bit >> 3) | 1 << (bit & 7))));
+        journal.commit(handle.stop());
+    }
+
+    /** Checks the device after recovery against the 'files' creates that returned. */
+    private static String verify(BlockDevice device, Dir[] dirs, int files) {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        for (int fcb = 0; fcb < files; fcb++) {
+            if (fcb % FCBS_PER_BLOCK == 0) {
+                device.read(FCB_START + fcb / FCBS_PER_BLOCK, block, BlockDevice.Kind.META);
+            }
+            if (block.getInt((fcb % FCBS_PER_BLOCK) * FCB_SIZE) != 1) {
+                return "FCB " + fcb + " not in use";
+            }
+        }
+        for (int fcb = 0; fcb < files; fcb++) {
+            if (fcb % BITS_PER_BLOCK == 0) {
+                device.read(BITMAP_START + fcb / BITS_PER_BLOCK, block, BlockDevice.Kind.META);
+            }
+            int bit = fcb % BITS_PER_BLOCK;
+            if ((block.get(bit >> 3) & 1 << (bit & 7)) == 0) {
+                return "bitmap bit " + fcb + " not set";
+            }
+        }
+        long entries = 0;
+        for (Dir dir : dirs) {
+            for (int b = 0; b <= dir.current; b++) {
+                device.read(dir.first + b, block, BlockDevice.Kind.META);
+                if (DirectoryBlock.next(block) != DirectoryBlock.NONE) {
+                    return "directory block " + (dir.first + b) + " not initialized";
+                }
+                for (int record : DirectoryBlock.records(block)) {
+                    int fcb = DirectoryBlock.fcb(block, record);
+                    String name = new String(DirectoryBlock.name(block, record), StandardCharsets.UTF_8);
+                    if (fcb >= files || !name.equals("file-" + fcb)) {
+                        return "bad entry " + name + " -> " + fcb;
+                    }
+                    entries++;
+                }
+            }
+        }
+        return entries == files ? "ok" : entries + " entries for " + files + " files";
+    }
+}
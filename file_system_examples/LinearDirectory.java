@@ -0,0 +1,124 @@
+package file_system_examples;
+
+import java.nio.ByteBuffer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * LinearDirectory.java
+ * 
+ * Linear list (11_File_System_Allocation.md): one file of DirectoryBlocks
+ * in no particular order.
+ * - lookup: reads blocks from the first until the name turns up (all of
+ * them for a name that is not there),
+ * - create: scans the whole directory for a duplicate, then puts the entry
+ * into the first block with room (space freed by removes is reused) or
+ * into a new block at the end,
+ * - remove: scans until the entry, gives its space to its neighbour.
+ * 
+ * Both lookup and create are O(n) block reads.
+ */
+public class LinearDirectory extends AbstractDirectory {
+
+    private final int file;
+    private final ByteBuffer block = newBuffer();
+
+    public LinearDirectory(FileLayout layout) {
+        super(layout);
+        this.file = layout.create(0);
+    }
+
+    public String name() {
+        return "Linear list";
+    }
+
+    public synchronized int lookup(String entry) {
+        byte[] name = encode(entry);
+        int blocks = layout.size(file);
+        for (int i = 0; i < blocks; i++) {
+            readBlock(file, i, block);
+            int record = DirectoryBlock.find(block, name);
+            if (record >= 0) {
+                return DirectoryBlock.fcb(block, record);
+            }
+        }
+        return -1;
+    }
+
+    public synchronized void create(String entry, int fcb) {
+        byte[] name = encode(entry);
+        int need = DirectoryBlock.recordSize(name.length);
+        int blocks = layout.size(file);
+        int withRoom = -1;
+        for (int i = 0; i < blocks; i++) {
+            readBlock(file, i, block);
+            if (DirectoryBlock.find(block, name) >= 0) {
+                throw exists(entry);
+            }
+            if (withRoom < 0 && DirectoryBlock.hasRoom(block, need)) {
+                withRoom = i;
+            }
+        }
+        add(name, fcb, withRoom, blocks);
+    }
+
+    /**
+     * create() without the duplicate scan, for loading a directory with
+     * names known to be new (like restoring a backup): only the last block
+     * is tried before a new one is added.
+     */
+    synchronized void append(String entry, int fcb) {
+        byte[] name = encode(entry);
+        int blocks = layout.size(file);
+        if (blocks > 0) {
+            readBlock(file, blocks - 1, block);
+            if (DirectoryBlock.insert(block, name, fcb)) {
+                writeBlock(file, blocks - 1, block);
+                return;
+            }
+        }
+        add(name, fcb, -1, blocks);
+    }
+
+    private void add(byte[] name, int fcb, int withRoom, int blocks) {
+        if (withRoom >= 0) {
+            readBlock(file, withRoom, block);
+        } else {
+            DirectoryBlock.init(block);
+            withRoom = blocks;
+        }
+        DirectoryBlock.insert(block, name, fcb);
+        writeBlock(file, withRoom, block);
+    }
+
+    public synchronized boolean remove(String entry) {
+        byte[] name = encode(entry);
+        int blocks = layout.size(file);
+        for (int i = 0; i < blocks; i++) {
+            readBlock(file, i, block);
+            int record = DirectoryBlock.find(block, name);
+            if (record >= 0) {
+                DirectoryBlock.remove(block, record);
+                writeBlock(file, i, block);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized long list(ObjIntConsumer<String> visitor) {
+        long count = 0;
+        int blocks = layout.size(file);
+        for (int i = 0; i < blocks; i++) {
+            readBlock(file, i, block);
+            for (int record : DirectoryBlock.records(block)) {
+                visitor.accept(decode(block, record), DirectoryBlock.fcb(block, record));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized int blocks() {
+        return layout.size(file);
+    }
+}
@@ -0,0 +1,597 @@
+package file_system_examples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * MetadataJournal.java
+ * 
+ * Write-ahead journal for metadata blocks of a BlockDevice (like ext4's
+ * jbd2 in data=ordered mode, metadata only). Creating a file changes an
+ * FCB block, a directory block and a free-space block; without a journal a
+ * crash between those writes leaves them inconsistent. With it:
+ * 
+ * 1. An operation runs inside a Handle: begin(), update(block, change) for
+ * every block it changes, stop(). Changes go to the journal's in-memory
+ * copy of the block (the buffer cache, kept in memory), the device is not
+ * written. Handles must be stopped before commit(). begin() reserves room
+ * for HANDLE_BLOCKS blocks in the running transaction; if it has none left
+ * the transaction is committed first, so it never outgrows one record.
+ * 2. commit(seq) returns once the operation's transaction is durable: its
+ * blocks are written to the journal file as one record (descriptor block
+ * with the home block numbers, the block images, commit block with a
+ * CRC32C) and the file is forced with FileChannel.force.
+ * 3. In the background, the checkpointer writes the latest committed image
+ * of every block to its home location on the device, forces the device,
+ * and moves the journal's tail past the records that are now redundant.
+ * 4. After a crash, recover() replays every complete record from the tail
+ * on; a torn last record fails its checksum and is ignored.
+ * 
+ * If writing a transaction or a checkpoint fails, the journal is aborted
+ * (as jbd2 does): that transaction is not durable, and its commit, every
+ * later one and any wait for journal space throw.
+ * 
+ * Mode:
+ * - FSYNC_PER_OPERATION: each operation is a transaction of its own,
+ * written and forced before the next one starts.
+ * - GROUP_COMMIT: all operations that stopped since the last commit form
+ * ONE running transaction. The first committer to find no commit in
+ * progress becomes the leader, closes the running transaction (waiting
+ * only for handles still inside it) and writes and forces it; the others
+ * wait for it. While one force is in flight the next transaction fills
+ * up, so N concurrent committers share one force, and a block changed by
+ * several of them is journaled once.
+ * 
+ * Journal file: block 0 superblock (magic, size, tail block, tail sequence
+ * number), the rest a circular log; a record that does not fit before the
+ * end starts again at block 1. Records are numbered apart from transactions:
+ * an empty transaction writes nothing and takes no record sequence number.
+ */
+public final class MetadataJournal implements AutoCloseable {
+
+    public static final int BLOCK_SIZE = BlockDevice.BLOCK_SIZE;
+    static final int MAGIC = 0x4A524E4C; // "JRNL"
+    private static final int DESCRIPTOR = 0x44455343; // "DESC"
+    private static final int COMMIT = 0x434F4D54; // "COMT"
+    private static final int SB_MAGIC = 0, SB_BLOCKS = 4, SB_TAIL = 8, SB_TAIL_SEQ = 16;
+    private static final int REC_MAGIC = 0, REC_SEQ = 4, DESC_COUNT = 12, DESC_BLOCKS = 16, COMMIT_CRC = 12;
+    /** Most blocks one transaction can change. */
+    public static final int MAX_TX_BLOCKS = (BLOCK_SIZE - DESC_BLOCKS) / 4;
+    /** Most blocks one handle can change. */
+    public static final int HANDLE_BLOCKS = 16;
+
+    public enum Mode {
+        FSYNC_PER_OPERATION, GROUP_COMMIT
+    }
+
+    private final BlockDevice device;
+    private final FileChannel channel;
+    private final int journalBlocks;
+    private final Mode mode;
+
+    // Current contents of every block changed through the journal; each guarded by its own monitor
+    private final ConcurrentHashMap<Integer, ByteBuffer> images = new ConcurrentHashMap<>();
+
+    // Running transaction: handles hold the read lock while inside it, closing it takes the write lock
+    private final ReentrantReadWriteLock txLock = new ReentrantReadWriteLock();
+    private Set<Integer> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger runningHandles = new AtomicInteger();
+    private final AtomicInteger runningCredits = new AtomicInteger(); // blocks in it + reserved by open handles
+    private long runningSeq = 1;
+    private final ReentrantLock serial = new ReentrantLock(); // FSYNC_PER_OPERATION: one operation at a time
+
+    // Commit: one leader writes and forces, the others wait for it
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition committedCondition = commitLock.newCondition();
+    private boolean committing = false;
+    private long durableSeq = 0;
+    private volatile RuntimeException failure; // set once a commit or checkpoint failed: the journal is aborted
+
+    // Journal space and checkpointing, guarded by 'this'
+    private int head = 1; // where the next record goes
+    private long reserved = 0; // journal blocks taken so far, including the ones skipped at a wrap
+    private long durable = 0; // ... of which belong to durable records
+    private long freed = 0; // ... of which are behind the tail
+    private int nextRecord = 1; // block and record sequence number after the last durable record
+    private long nextSeq = 1;
+    private Map<Integer, ByteBuffer> toCheckpoint = new HashMap<>();
+
+    private final Thread checkpointer;
+    private final long checkpointIntervalNanos;
+    private volatile boolean closed = false;
+
+    private final LongAdder operations = new LongAdder(), transactions = new LongAdder();
+    private final LongAdder forces = new LongAdder(), journalBlocksWritten = new LongAdder();
+    private final LongAdder checkpoints = new LongAdder(), checkpointedBlocks = new LongAdder();
+    private final LongAdder spaceWaits = new LongAdder();
+
+    /** One operation's changes; all of them end up in the same transaction. */
+    public final class Handle {
+        private final long seq;
+        private boolean open = true;
+        private int added; // blocks this handle added to the transaction, out of HANDLE_BLOCKS
+
+        private Handle(long seq) {
+            this.seq = seq;
+        }
+
+        /** Applies 'change' to the current contents of 'block' (from index 0, BLOCK_SIZE bytes). */
+        public void update(int block, Consumer<ByteBuffer> change) {
+            if (!open) {
+                throw new IllegalStateException("Handle already stopped");
+            }
+            if (added == HANDLE_BLOCKS && !running.contains(block)) {
+                throw new IllegalStateException("Handle changes more than " + HANDLE_BLOCKS + " blocks");
+            }
+            ByteBuffer image = image(block);
+            synchronized (image) {
+                change.accept(image);
+            }
+            if (running.add(block)) {
+                added++;
+            }
+        }
+
+        /** Ends the operation; returns the sequence number of its transaction, for commit(). */
+        public long stop() {
+            if (open) {
+                open = false;
+                runningHandles.incrementAndGet();
+                runningCredits.addAndGet(added - HANDLE_BLOCKS); // give back what it did not use
+                txLock.readLock().unlock();
+            }
+            return seq;
+        }
+    }
+
+    /** Creates an empty journal of 'journalBlocks' blocks in 'journalFile' for 'device'. */
+    public MetadataJournal(BlockDevice device, Path journalFile, int journalBlocks, Mode mode,
+            long checkpointIntervalMillis) throws IOException {
+        if (checkpointIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        if (journalBlocks < MAX_TX_BLOCKS + 3) {
+            throw new IllegalArgumentException("Journal of " + journalBlocks + " blocks cannot hold a full transaction");
+        }
+        this.device = device;
+        this.journalBlocks = journalBlocks;
+        this.mode = mode;
+        this.checkpointIntervalNanos = checkpointIntervalMillis * 1_000_000L;
+        this.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        channel.write(ByteBuffer.allocate(1), (long) journalBlocks * BLOCK_SIZE - 1);
+        writeSuperblock(1, 1);
+        channel.force(true);
+
+        checkpointer = new Thread(() -> {
+            while (!closed) {
+                LockSupport.parkNanos(checkpointIntervalNanos); // or until the journal fills up
+                if (!closed) {
+                    try {
+                        checkpoint();
+                    } catch (RuntimeException e) {
+                        failure = e; // commits waiting for space must not wait for a dead checkpointer
+                        synchronized (this) {
+                            notifyAll();
+                        }
+                        return;
+                    }
+                }
+            }
+        }, "journal-checkpointer");
+        checkpointer.setDaemon(true);
+        checkpointer.start();
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /** Starts an operation that changes at most HANDLE_BLOCKS blocks. */
+    public Handle begin() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        checkFailure();
+        if (mode == Mode.FSYNC_PER_OPERATION) {
+            serial.lock(); // released by commit()
+        }
+        try {
+            while (true) {
+                txLock.readLock().lock();
+                long seq = runningSeq;
+                int credits = runningCredits.get();
+                while (credits + HANDLE_BLOCKS <= MAX_TX_BLOCKS) {
+                    if (runningCredits.compareAndSet(credits, credits + HANDLE_BLOCKS)) {
+                        return new Handle(seq);
+                    }
+                    credits = runningCredits.get();
+                }
+                txLock.readLock().unlock();
+                awaitDurable(seq); // the running transaction is full: commit it first
+            }
+        } catch (RuntimeException e) {
+            if (serial.isHeldByCurrentThread()) {
+                serial.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /** Returns once transaction 'seq' (from Handle.stop()) is durable in the journal. */
+    public void commit(long seq) {
+        try {
+            awaitDurable(seq);
+        } finally {
+            if (serial.isHeldByCurrentThread()) {
+                serial.unlock();
+            }
+        }
+    }
+
+    private void awaitDurable(long seq) {
+        commitLock.lock();
+        try {
+            while (durableSeq < seq) {
+                checkFailure();
+                if (committing) {
+                    committedCondition.awaitUninterruptibly(); // the leader's force covers us
+                    continue;
+                }
+                committing = true;
+                commitLock.unlock();
+                long done = 0;
+                RuntimeException failed = null;
+                try {
+                    done = writeTransaction();
+                } catch (RuntimeException e) {
+                    failed = e;
+                    throw e;
+                } finally {
+                    commitLock.lock();
+                    committing = false;
+                    if (failed != null) {
+                        failure = failed; // never durable: fails its waiters and every later commit
+                    } else {
+                        durableSeq = Math.max(durableSeq, done);
+                    }
+                    committedCondition.signalAll();
+                }
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Journal aborted by an earlier failure", failure);
+        }
+    }
+
+    /** Closes the running transaction, writes it as one record and forces it. Returns its transaction number. */
+    private long writeTransaction() {
+        long seq;
+        int ops;
+        Integer[] blocks;
+        ByteBuffer record;
+        txLock.writeLock().lock(); // waits for handles still inside the transaction
+        try {
+            seq = runningSeq;
+            blocks = running.toArray(new Integer[0]);
+            ops = runningHandles.getAndSet(0);
+            running = ConcurrentHashMap.newKeySet();
+            runningSeq = seq + 1;
+            runningCredits.set(0); // every handle has stopped
+            if (blocks.length > MAX_TX_BLOCKS) {
+                throw new IllegalStateException("Transaction changes " + blocks.length + " blocks, at most "
+                        + MAX_TX_BLOCKS + " fit in one record");
+            }
+            Arrays.sort(blocks);
+            record = ByteBuffer.allocate((blocks.length + 2) * BLOCK_SIZE);
+            for (int i = 0; i < blocks.length; i++) {
+                ByteBuffer image = images.get(blocks[i]);
+                synchronized (image) {
+                    record.put((i + 1) * BLOCK_SIZE, image, 0, BLOCK_SIZE);
+                }
+            }
+        } finally {
+            txLock.writeLock().unlock();
+        }
+        if (blocks.length == 0) {
+            return seq; // nothing to write, and no record sequence number used up
+        }
+        long recordSeq;
+        synchronized (this) {
+            recordSeq = nextSeq; // only the commit leader writes records
+        }
+
+        // Descriptor and commit block; the checksum lets recovery spot a torn record
+        record.putInt(REC_MAGIC, DESCRIPTOR).putLong(REC_SEQ, recordSeq).putInt(DESC_COUNT, blocks.length);
+        for (int i = 0; i < blocks.length; i++) {
+            record.putInt(DESC_BLOCKS + 4 * i, blocks[i]);
+        }
+        int commitAt = (blocks.length + 1) * BLOCK_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(0, commitAt));
+        record.putInt(commitAt + REC_MAGIC, COMMIT).putLong(commitAt + REC_SEQ, recordSeq)
+                .putInt(commitAt + COMMIT_CRC, (int) crc.getValue());
+
+        int length = blocks.length + 2;
+        int at = reserve(length);
+        try {
+            record.clear();
+            long position = (long) at * BLOCK_SIZE;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        forces.increment();
+        transactions.increment();
+        operations.add(ops);
+        journalBlocksWritten.add(length);
+
+        synchronized (this) {
+            for (int i = 0; i < blocks.length; i++) {
+                toCheckpoint.put(blocks[i], record.slice((i + 1) * BLOCK_SIZE, BLOCK_SIZE));
+            }
+            durable = reserved;
+            nextRecord = at + length;
+            nextSeq = recordSeq + 1;
+        }
+        return seq;
+    }
+
+    /** Journal space for a record of 'length' blocks; waits for the checkpointer if the journal is full. */
+    private synchronized int reserve(int length) {
+        int capacity = journalBlocks - 1;
+        while (true) {
+            boolean wrap = head + length > journalBlocks;
+            int skip = wrap ? journalBlocks - head : 0; // blocks left unused at the end
+            if (reserved - freed + skip + length <= capacity) {
+                reserved += skip + length;
+                int at = wrap ? 1 : head;
+                head = at + length;
+                if (reserved - freed > capacity / 2) {
+                    LockSupport.unpark(checkpointer); // more than half full: free some space soon
+                }
+                return at;
+            }
+            checkFailure();
+            spaceWaits.increment();
+            LockSupport.unpark(checkpointer);
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for journal space", e);
+            }
+        }
+    }
+
+    /**
+     * Writes every committed block image to its home location, forces the
+     * device, then moves the journal's tail past those records. Only the
+     * checkpointer calls it, and close() once the checkpointer has stopped:
+     * two at once could write older images over newer ones and move the
+     * tail backwards.
+     */
+    private void checkpoint() {
+        Map<Integer, ByteBuffer> blocks;
+        long upTo;
+        int tail;
+        long tailSeq;
+        synchronized (this) {
+            if (toCheckpoint.isEmpty()) {
+                return;
+            }
+            blocks = toCheckpoint;
+            toCheckpoint = new HashMap<>();
+            upTo = durable;
+            tail = nextRecord;
+            tailSeq = nextSeq;
+        }
+        List<Integer> order = new ArrayList<>(blocks.keySet());
+        order.sort(null);
+        for (int block : order) {
+            device.write(block, blocks.get(block), BlockDevice.Kind.META);
+        }
+        device.force();
+        try {
+            writeSuperblock(tail, tailSeq);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkpoints.increment();
+        checkpointedBlocks.add(order.size());
+        synchronized (this) {
+            freed = upTo;
+            notifyAll();
+        }
+    }
+
+    private ByteBuffer image(int block) {
+        return images.computeIfAbsent(block, b -> {
+            ByteBuffer image = ByteBuffer.allocate(BLOCK_SIZE);
+            device.read(b, image, BlockDevice.Kind.META);
+            return image;
+        });
+    }
+
+    private void writeSuperblock(int tail, long tailSeq) throws IOException {
+        ByteBuffer sb = ByteBuffer.allocate(BLOCK_SIZE);
+        sb.putInt(SB_MAGIC, MAGIC).putInt(SB_BLOCKS, journalBlocks).putInt(SB_TAIL, tail).putLong(SB_TAIL_SEQ, tailSeq);
+        channel.write(sb, 0);
+    }
+
+    // --- Recovery ---
+
+    /**
+     * Replays the journal in 'journalFile' onto 'device': every complete
+     * record from the tail on, in order, stopping at the first missing or
+     * torn one. Record numbers have no gaps, so a record numbered past the
+     * expected one means the expected one was lost: replay stops there too,
+     * rather than apply a transaction without the one before it. Returns the
+     * number of transactions replayed.
+     */
+    public static long recover(BlockDevice device, Path journalFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            ByteBuffer sb = readBlocks(channel, 0, 1);
+            if (sb.getInt(SB_MAGIC) != MAGIC) {
+                throw new IllegalStateException("Not a journal: " + journalFile);
+            }
+            int journalBlocks = sb.getInt(SB_BLOCKS);
+            int at = sb.getInt(SB_TAIL);
+            long seq = sb.getLong(SB_TAIL_SEQ);
+            long replayed = 0;
+            while (true) {
+                ByteBuffer record = readRecord(channel, journalBlocks, at, seq);
+                if (record == null && at != 1) {
+                    at = 1; // the record may have wrapped around
+                    record = readRecord(channel, journalBlocks, at, seq);
+                }
+                if (record == null) {
+                    break;
+                }
+                int count = record.getInt(DESC_COUNT);
+                for (int i = 0; i < count; i++) {
+                    device.write(record.getInt(DESC_BLOCKS + 4 * i), record.slice((i + 1) * BLOCK_SIZE, BLOCK_SIZE),
+                            BlockDevice.Kind.META);
+                }
+                at += count + 2;
+                seq++;
+                replayed++;
+            }
+            device.force();
+            return replayed;
+        }
+    }
+
+    /** The record with sequence number 'seq' at block 'at', or null if there is no intact one. */
+    private static ByteBuffer readRecord(FileChannel channel, int journalBlocks, int at, long seq) throws IOException {
+        if (at + 2 > journalBlocks) {
+            return null;
+        }
+        ByteBuffer descriptor = readBlocks(channel, at, 1);
+        int count = descriptor.getInt(DESC_COUNT);
+        if (descriptor.getInt(REC_MAGIC) != DESCRIPTOR || descriptor.getLong(REC_SEQ) != seq || count < 1
+                || count > MAX_TX_BLOCKS || at + count + 2 > journalBlocks) {
+            return null;
+        }
+        ByteBuffer record = readBlocks(channel, at, count + 2);
+        int commitAt = (count + 1) * BLOCK_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(0, commitAt));
+        if (record.getInt(commitAt + REC_MAGIC) != COMMIT || record.getLong(commitAt + REC_SEQ) != seq
+                || record.getInt(commitAt + COMMIT_CRC) != (int) crc.getValue()) {
+            return null; // torn: the crash hit while it was being written
+        }
+        return record;
+    }
+
+    private static ByteBuffer readBlocks(FileChannel channel, int first, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count * BLOCK_SIZE);
+        long position = (long) first * BLOCK_SIZE;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            position += n;
+        }
+        return buffer;
+    }
+
+    // --- Metrics ---
+
+    /** Operations (handles) whose transactions were committed. */
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    public long getTransactions() {
+        return transactions.sum();
+    }
+
+    /** FileChannel.force calls for commits. */
+    public long getForces() {
+        return forces.sum();
+    }
+
+    public long getJournalBlocksWritten() {
+        return journalBlocksWritten.sum();
+    }
+
+    public long getCheckpoints() {
+        return checkpoints.sum();
+    }
+
+    public long getCheckpointedBlocks() {
+        return checkpointedBlocks.sum();
+    }
+
+    /** Times a commit had to wait for a checkpoint to free journal space. */
+    public long getSpaceWaits() {
+        return spaceWaits.sum();
+    }
+
+    // --- Lifecycle ---
+
+    /** Stops the checkpointer and checkpoints everything: the journal is empty afterwards. */
+    @Override
+    public void close() {
+        stop();
+        try {
+            checkpoint();
+        } finally {
+            closeChannel();
+        }
+    }
+
+    /** Stops without a final checkpoint, as if the machine went down here: recover() has work to do. */
+    public void crash() {
+        stop();
+        closeChannel();
+    }
+
+    private void stop() {
+        closed = true;
+        LockSupport.unpark(checkpointer);
+        try {
+            checkpointer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
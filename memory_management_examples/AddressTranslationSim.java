@@ -0,0 +1,271 @@
+package memory_management_examples;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * AddressTranslationSim.java
+ * 
+ * Simulates what the MMU does for every memory access
+ * (8_Memory_Management.md, "Address Translation" and "TLB"):
+ * 1. split the virtual address into page number and offset,
+ * 2. look the page up in the TLB,
+ * 3. on a TLB miss, walk the page table (counting its memory references)
+ * and cache the result in the TLB,
+ * 4. if the page is not mapped, take a page fault: the "OS" hands out the
+ * next free frame and maps it (demand paging, no eviction),
+ * 5. physical address = (frame << 12) | offset.
+ * 
+ * Traces are virtual addresses generated up front, for one or several
+ * processes. Processes take turns every 'quantum' accesses; a context
+ * switch flushes a TLB without ASIDs. Before a trace is timed, prefault()
+ * maps every page it touches, so the timed run measures translation
+ * alone: the faults are counted, but their cost (allocating table levels
+ * and entries) stays out of the translations per second.
+ * 
+ * Reported per run: TLB hit rate, page-walk memory references per access,
+ * page faults, page table size, translations per second, and the effective
+ * access time, the notes' formula generalized to a walk of any length:
+ * EAT = M * (1 + walk references per access), with M = 10 ns.
+ * (1 reference per miss gives the notes' R * M + (1 - R) * 2M.)
+ * 
+ * Workloads (4 KB pages; every access also has a 5% chance of going to
+ * the code pages and 5% to the stack at the top of the address space):
+ * - sequential: a 256 MB array read in 64-byte steps (64 accesses per page)
+ * - hot/cold: 90% of accesses in a 128 KB hot region, 10% anywhere in 1 GB
+ * - random: uniform over 1 GB (far more pages than any TLB covers)
+ * 
+ * Usage: java memory_management_examples.AddressTranslationSim [accessesPerRun] [processes] [quantum]
+ */
+public class AddressTranslationSim {
+
+    static final int PAGE_BITS = 12;
+    static final long OFFSET_MASK = (1L << PAGE_BITS) - 1;
+    static final double MEMORY_NS = 10;
+
+    static final long CODE_BASE = 0x0040_0000L, CODE_SIZE = 64L << 10;
+    static final long HEAP_BASE = 0x1000_0000L, HEAP_SIZE = 1L << 30;
+    static final long STACK_SIZE = 64L << 10;
+    static final long HOT_SIZE = 128L << 10, ARRAY_SIZE = 256L << 20;
+
+    static volatile long sink;
+
+    private final Tlb tlb;
+    private final PageTable table;
+    private final long frames;
+    private long nextFrame = 0;
+    private long faults = 0;
+    private long translations = 0;
+    private long prefaultReferences = 0; // page-walk references made by prefault(), not by translations
+
+    public AddressTranslationSim(Tlb tlb, PageTable table, long frames) {
+        this.tlb = tlb;
+        this.table = table;
+        this.frames = frames;
+    }
+
+    /** Virtual to physical address for process 'asid'. */
+    public long translate(int asid, long va) {
+        translations++;
+        long vpn = va >>> PAGE_BITS;
+        long frame = tlb.lookup(asid, vpn);
+        if (frame < 0) {
+            frame = table.lookup(asid, vpn);
+            if (frame < 0) {
+                frame = pageFault(asid, vpn);
+            }
+            tlb.insert(asid, vpn, frame);
+        }
+        return (frame << PAGE_BITS) | (va & OFFSET_MASK);
+    }
+
+    private long pageFault(int asid, long vpn) {
+        if (nextFrame == frames) {
+            throw new IllegalStateException("Out of physical frames (" + frames + "); eviction is not modeled");
+        }
+        faults++;
+        long frame = nextFrame++;
+        table.map(asid, vpn, frame);
+        return frame;
+    }
+
+    /** Maps every page 'trace' touches, as run() would on its faults, without using the TLB. */
+    public void prefault(long[] trace, int processes, int quantum) {
+        long before = table.getReferences();
+        int asid = 0;
+        for (int start = 0; start < trace.length; start += quantum) {
+            int end = Math.min(trace.length, start + quantum);
+            for (int i = start; i < end; i++) {
+                long vpn = trace[i] >>> PAGE_BITS;
+                if (table.lookup(asid, vpn) < 0) {
+                    pageFault(asid, vpn);
+                }
+            }
+            asid = asid + 1 == processes ? 0 : asid + 1;
+        }
+        prefaultReferences += table.getReferences() - before;
+    }
+
+    /** Runs the trace; the processes take turns every 'quantum' accesses. */
+    public void run(long[] trace, int processes, int quantum) {
+        long checksum = 0;
+        int asid = 0;
+        for (int start = 0; start < trace.length; start += quantum) {
+            tlb.contextSwitch(asid);
+            int end = Math.min(trace.length, start + quantum);
+            for (int i = start; i < end; i++) {
+                checksum += translate(asid, trace[i]);
+            }
+            asid = asid + 1 == processes ? 0 : asid + 1;
+        }
+        sink = checksum;
+    }
+
+    public long getFaults() {
+        return faults;
+    }
+
+    public double walkReferencesPerAccess() {
+        return translations == 0 ? 0 : (double) (table.getReferences() - prefaultReferences) / translations;
+    }
+
+    public double effectiveAccessTime() {
+        return MEMORY_NS * (1 + walkReferencesPerAccess());
+    }
+
+    // --- Traces ---
+
+    static long[] trace(String workload, int length, int vaBits, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long stackTop = 1L << vaBits;
+        long[] trace = new long[length];
+        long cursor = 0;
+        for (int i = 0; i < length; i++) {
+            double r = random.nextDouble();
+            if (r < 0.05) {
+                trace[i] = CODE_BASE + random.nextLong(CODE_SIZE);
+            } else if (r < 0.10) {
+                trace[i] = stackTop - 1 - random.nextLong(STACK_SIZE);
+            } else {
+                switch (workload) {
+                    case "sequential":
+                        trace[i] = HEAP_BASE + cursor;
+                        cursor = (cursor + 64) % ARRAY_SIZE;
+                        break;
+                    case "hot/cold":
+                        trace[i] = HEAP_BASE + (random.nextDouble() < 0.9 ? random.nextLong(HOT_SIZE)
+                                : random.nextLong(HEAP_SIZE));
+                        break;
+                    case "random":
+                        trace[i] = HEAP_BASE + random.nextLong(HEAP_SIZE);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown workload: " + workload);
+                }
+            }
+        }
+        return trace;
+    }
+
+    // --- Benchmark ---
+
+    private static final long FRAMES = 1L << 22; // 16 GB of 4 KB frames
+
+    interface TableFactory {
+        PageTable create();
+    }
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        int processes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int quantum = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        textbookExample();
+
+        // Warm-up so the first row is not measured in the interpreter
+        long[] warm = trace("hot/cold", 2_000_000, 48, 1);
+        for (int i = 0; i < 3; i++) {
+            for (PageTable table : new PageTable[] { new HierarchicalPageTable(4, 48, PAGE_BITS),
+                    new HashedPageTable(1024), new InvertedPageTable((int) FRAMES) }) {
+                AddressTranslationSim sim = new AddressTranslationSim(new Tlb(16, 4, Tlb.Replacement.LRU, true),
+                        table, FRAMES);
+                sim.prefault(warm, 2, 1000);
+                sim.run(warm, 2, 1000);
+            }
+        }
+
+        System.out.println();
+        System.out.println("1. Page table structures, one process, TLB 64 entries 4-way LRU, " + length + " accesses per run");
+        header();
+        String[] workloads = { "sequential", "hot/cold", "random" };
+        int[] vaBits = { 32, 39, 48, 48, 48 };
+        TableFactory[] tables = {
+                () -> new HierarchicalPageTable(2, 32, PAGE_BITS),
+                () -> new HierarchicalPageTable(3, 39, PAGE_BITS),
+                () -> new HierarchicalPageTable(4, 48, PAGE_BITS),
+                () -> new HashedPageTable(1024),
+                () -> new InvertedPageTable((int) FRAMES)
+        };
+        for (String workload : workloads) {
+            Map<Integer, long[]> traces = new HashMap<>(); // one per address size
+            for (int t = 0; t < tables.length; t++) {
+                int bits = vaBits[t];
+                row(workload, traces.computeIfAbsent(bits, b -> trace(workload, length, b, 42)), 1, length,
+                        new Tlb(16, 4, Tlb.Replacement.LRU, true), tables[t].create());
+            }
+        }
+
+        System.out.println();
+        System.out.println("2. TLB designs, 4-level table, " + processes + " processes switching every " + quantum + " accesses");
+        header();
+        for (String workload : new String[] { "hot/cold", "random" }) {
+            long[] trace = trace(workload, length, 48, 42);
+            Tlb[] tlbs = {
+                    new Tlb(1, 16, Tlb.Replacement.LRU, true),
+                    new Tlb(1, 64, Tlb.Replacement.LRU, true),
+                    new Tlb(16, 4, Tlb.Replacement.LRU, true),
+                    new Tlb(16, 4, Tlb.Replacement.FIFO, true),
+                    new Tlb(16, 4, Tlb.Replacement.RANDOM, true),
+                    new Tlb(16, 4, Tlb.Replacement.LRU, false),
+                    new Tlb(128, 12, Tlb.Replacement.LRU, true),
+                    new Tlb(128, 12, Tlb.Replacement.LRU, false)
+            };
+            for (Tlb tlb : tlbs) {
+                row(workload, trace, processes, quantum, tlb, new HierarchicalPageTable(4, 48, PAGE_BITS));
+            }
+        }
+    }
+
+    private static void header() {
+        System.out.println(String.format("%-10s | %-17s | %-23s | %7s | %9s | %8s | %10s | %6s | %10s",
+                "Workload", "Page table", "TLB", "Hit %", "Walk refs", "Faults", "Table KB", "EAT ns", "M trans/s"));
+        System.out.println("--------------------------------------------------------------------------------------------------------------------------");
+    }
+
+    private static void row(String workload, long[] trace, int processes, int quantum, Tlb tlb, PageTable table) {
+        AddressTranslationSim sim = new AddressTranslationSim(tlb, table, FRAMES);
+        sim.prefault(trace, processes, quantum);
+        long start = System.nanoTime();
+        sim.run(trace, processes, quantum);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.println(String.format("%-10s | %-17s | %-23s | %6.2f%% | %9.4f | %8d | %10.1f | %6.2f | %10.1f",
+                workload, table.name(), tlb.name(), 100 * tlb.hitRate(), sim.walkReferencesPerAccess(),
+                sim.getFaults(), table.sizeInBytes() / 1024.0, sim.effectiveAccessTime(),
+                trace.length / seconds / 1_000_000));
+    }
+
+    /** The notes' example: page 0x12345 in frame 0xABCDE, address 0x12345678. */
+    private static void textbookExample() {
+        System.out.println("Example from the notes: page 0x12345 -> frame 0xABCDE");
+        PageTable[] tables = { new HierarchicalPageTable(2, 32, PAGE_BITS), new HierarchicalPageTable(4, 48, PAGE_BITS),
+                new HashedPageTable(16), new InvertedPageTable(1 << 20) };
+        for (PageTable table : tables) {
+            table.map(0, 0x12345, 0xABCDE);
+            AddressTranslationSim sim = new AddressTranslationSim(new Tlb(1, 4, Tlb.Replacement.LRU, true), table, 0);
+            long pa = sim.translate(0, 0x12345678L);
+            System.out.println(String.format("  %-17s 0x12345678 -> 0x%X (%d page-walk references)",
+                    table.name(), pa, table.getReferences()));
+        }
+    }
+}
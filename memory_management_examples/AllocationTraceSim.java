@@ -0,0 +1,245 @@
+package memory_management_examples;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * AllocationTraceSim.java
+ * 
+ * Replays one allocation trace against every allocator and compares them
+ * (8_Memory_Management.md, "Allocation Strategies" and "Fragmentation
+ * Problems").
+ * 
+ * The trace (generated once, same seed for everybody) is a sequence of
+ * allocate(id, size) and free(id) events:
+ * - sizes: 60% small (16 B - 512 B), 35% medium (512 B - 16 KB), 5% large
+ * (16 KB - 1 MB), log-uniform within each range,
+ * - lifetimes: 80% short-lived, 20% long-lived (20x longer). Long-lived
+ * blocks pinned between freed ones are what fragments memory.
+ * Lifetimes are scaled so live data fills about 'occupancy' of the memory.
+ * 
+ * Reported per allocator:
+ * - external fragmentation: 1 - largest hole / total free, averaged over
+ * samples taken every 1024 events (0 = all free space in one piece),
+ * - internal fragmentation: 1 - requested live bytes / bytes in use
+ * (rounding up, slab space not yet handed out),
+ * - failed allocations (enough free memory in total but no hole large
+ * enough counts too; that is external fragmentation at work),
+ * - allocate() latency p50 / p99 / p99.9 in ns (System.nanoTime around
+ * every request, so it includes the timer's own cost of a few tens of ns;
+ * with compaction, a request that compacts and retries is timed as a whole),
+ * - for "+compaction": when an allocation fails although enough memory is
+ * free, compact and retry; the bytes moved are the price.
+ * 
+ * Usage: java memory_management_examples.AllocationTraceSim [events] [capacityMB] [occupancy] [seed]
+ */
+public class AllocationTraceSim {
+
+    /** A generated trace: size[i] > 0 allocates block id[i], size[i] == 0 frees it. */
+    static class Trace {
+        final int[] ids;
+        final long[] sizes;
+        final long[] sizeOfId;
+        final int allocations;
+
+        Trace(int[] ids, long[] sizes, long[] sizeOfId, int allocations) {
+            this.ids = ids;
+            this.sizes = sizes;
+            this.sizeOfId = sizeOfId;
+            this.allocations = allocations;
+        }
+    }
+
+    static Trace generate(int events, long capacity, double occupancy, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int allocations = events / 2;
+        int[] ids = new int[events];
+        long[] sizes = new long[events];
+        long[] sizeOfId = new long[allocations];
+
+        // Mean size of the distribution below, to scale lifetimes to the wanted occupancy
+        double meanSize = 0.60 * logUniformMean(16, 512) + 0.35 * logUniformMean(512, 16 << 10)
+                + 0.05 * logUniformMean(16 << 10, 1 << 20);
+        double meanLifetime = occupancy * capacity / meanSize; // in allocations
+        double shortMean = meanLifetime / (0.8 + 0.2 * 20), longMean = 20 * shortMean;
+
+        PriorityQueue<long[]> deaths = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        int n = 0;
+        for (int id = 0; id < allocations; id++) {
+            while (!deaths.isEmpty() && deaths.peek()[0] <= id && n < events - 1) {
+                ids[n++] = (int) deaths.poll()[1]; // free
+            }
+            if (n >= events) {
+                break;
+            }
+            double r = random.nextDouble();
+            long size = r < 0.60 ? logUniform(random, 16, 512)
+                    : r < 0.95 ? logUniform(random, 512, 16 << 10) : logUniform(random, 16 << 10, 1 << 20);
+            sizeOfId[id] = size;
+            ids[n] = id;
+            sizes[n++] = size;
+            double mean = random.nextDouble() < 0.8 ? shortMean : longMean;
+            deaths.add(new long[] { id + 1 + (long) (-mean * Math.log(1 - random.nextDouble())), id });
+        }
+        return new Trace(Arrays.copyOf(ids, n), Arrays.copyOf(sizes, n), sizeOfId, allocations);
+    }
+
+    private static long logUniform(SplittableRandom random, long min, long max) {
+        return (long) Math.exp(Math.log(min) + random.nextDouble() * (Math.log(max) - Math.log(min)));
+    }
+
+    private static double logUniformMean(double min, double max) {
+        return (max - min) / Math.log(max / min);
+    }
+
+    // --- Replay ---
+
+    static class Result {
+        long failed;
+        long compactions;
+        long bytesMoved;
+        double externalSum;
+        double internalSum;
+        int samples;
+        long[] latencies;
+        int latencyCount;
+        double seconds;
+    }
+
+    static Result replay(ContiguousAllocator allocator, Trace trace, boolean compaction) {
+        Result result = new Result();
+        long[] address = new long[trace.allocations];
+        Arrays.fill(address, -1);
+        long[] latencies = new long[trace.allocations];
+        int timed = 0;
+        long requestedLive = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < trace.ids.length; i++) {
+            int id = trace.ids[i];
+            long size = trace.sizes[i];
+            if (size > 0) {
+                long t0 = System.nanoTime();
+                long a = allocator.allocate(size);
+                if (a < 0 && compaction && allocator.freeBytes() >= FitAllocator.align(size)) {
+                    compact((FitAllocator) allocator, address, trace);
+                    result.compactions++;
+                    a = allocator.allocate(size);
+                }
+                latencies[timed++] = System.nanoTime() - t0;
+                if (a < 0) {
+                    result.failed++; // the program gets NULL; its later free is skipped
+                } else {
+                    requestedLive += size;
+                }
+                address[id] = a;
+            } else if (address[id] >= 0) {
+                allocator.free(address[id], trace.sizeOfId[id]);
+                requestedLive -= trace.sizeOfId[id];
+                address[id] = -1;
+            }
+            if ((i & 1023) == 1023) {
+                long free = allocator.freeBytes();
+                long used = allocator.capacity() - free;
+                result.externalSum += free == 0 ? 0 : 1 - (double) allocator.largestFreeBlock() / free;
+                result.internalSum += used == 0 ? 0 : 1 - (double) requestedLive / used;
+                result.samples++;
+            }
+        }
+        result.seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        if (allocator instanceof FitAllocator) {
+            result.bytesMoved = ((FitAllocator) allocator).getBytesMoved();
+        }
+        result.latencies = latencies;
+        result.latencyCount = timed;
+        return result;
+    }
+
+    /** Compacts and rewrites the addresses of live blocks that moved. */
+    private static void compact(FitAllocator allocator, long[] address, Trace trace) {
+        // Live blocks sorted by address: keys are address << 31 | id (capacity <= 4 GB)
+        int count = 0;
+        long[] keys = new long[address.length];
+        for (int id = 0; id < address.length; id++) {
+            if (address[id] >= 0) {
+                keys[count++] = address[id] << 31 | id;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        int live = count;
+        int[] cursor = { 0 };
+        allocator.compact((from, length, to) -> {
+            // Moved ranges arrive in address order; blocks in unmoved ranges are skipped
+            while (cursor[0] < live && keys[cursor[0]] >>> 31 < from + length) {
+                int id = (int) (keys[cursor[0]] & 0x7FFF_FFFFL);
+                long a = keys[cursor[0]] >>> 31;
+                if (a >= from) {
+                    address[id] = a - from + to;
+                }
+                cursor[0]++;
+            }
+        });
+    }
+
+    private static double percentile(long[] sorted, int count, double p) {
+        return count == 0 ? 0 : sorted[(int) Math.min(count - 1, (long) (count * p))];
+    }
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        long capacity = (args.length > 1 ? Long.parseLong(args[1]) : 256) << 20;
+        double occupancy = args.length > 2 ? Double.parseDouble(args[2]) : 0.8;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+        Trace trace = generate(events, capacity, occupancy, seed);
+        System.out.println("Memory: " + (capacity >> 20) + " MB, events: " + trace.ids.length
+                + ", target occupancy: " + occupancy + ", seed: " + seed);
+
+        // Warm-up on a short trace
+        Trace warm = generate(200_000, capacity, occupancy, seed + 1);
+        for (String name : names()) {
+            replay(newAllocator(name, capacity), warm, name.endsWith("compaction"));
+        }
+
+        System.out.println(String.format("%-22s | %8s | %8s | %8s | %11s | %9s | %6s | %6s | %7s | %8s",
+                "Allocator", "Ext frag", "Int frag", "Failed", "Compactions", "Moved MB", "p50 ns", "p99 ns",
+                "p99.9 ns", "M ops/s"));
+        System.out.println("-------------------------------------------------------------------------------------------------------------------------");
+        for (String name : names()) {
+            Result r = replay(newAllocator(name, capacity), trace, name.endsWith("compaction"));
+            Arrays.sort(r.latencies, 0, r.latencyCount);
+            System.out.println(String.format("%-22s | %7.1f%% | %7.1f%% | %8d | %11d | %9.1f | %6.0f | %6.0f | %8.0f | %8.2f",
+                    name, 100 * r.externalSum / r.samples, 100 * r.internalSum / r.samples, r.failed,
+                    r.compactions, r.bytesMoved / (1024.0 * 1024.0), percentile(r.latencies, r.latencyCount, 0.5),
+                    percentile(r.latencies, r.latencyCount, 0.99), percentile(r.latencies, r.latencyCount, 0.999),
+                    trace.ids.length / r.seconds / 1_000_000));
+        }
+    }
+
+    static String[] names() {
+        return new String[] { "First fit", "Next fit", "Best fit", "Worst fit", "First fit + compaction",
+                "Best fit + compaction", "Buddy", "Slab+buddy" };
+    }
+
+    static ContiguousAllocator newAllocator(String name, long capacity) {
+        switch (name) {
+            case "First fit":
+            case "First fit + compaction":
+                return new FitAllocator(capacity, FitAllocator.Strategy.FIRST);
+            case "Next fit":
+                return new FitAllocator(capacity, FitAllocator.Strategy.NEXT);
+            case "Best fit":
+            case "Best fit + compaction":
+                return new FitAllocator(capacity, FitAllocator.Strategy.BEST);
+            case "Worst fit":
+                return new FitAllocator(capacity, FitAllocator.Strategy.WORST);
+            case "Buddy":
+                return new BuddyAllocator(capacity, 64);
+            case "Slab+buddy":
+                return new SlabAllocator(capacity, 64);
+            default:
+                throw new IllegalArgumentException("Unknown allocator: " + name);
+        }
+    }
+}
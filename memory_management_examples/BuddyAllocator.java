@@ -0,0 +1,143 @@
+package memory_management_examples;
+
+import java.util.Arrays;
+
+/**
+ * BuddyAllocator.java
+ * 
+ * The buddy system: memory is a power of two, and every block is a power of
+ * two (at least minBlock) aligned to its size.
+ * - allocate: round the request up to a power of two; take a free block of
+ * that order, or split a larger one in halves ("buddies") until one fits.
+ * - free: while the block's buddy (address XOR size) is free too, merge the
+ * two into the block of the next order.
+ * Both cost O(log(capacity / minBlock)). Rounding up wastes memory inside
+ * blocks (internal fragmentation), but merging keeps holes large.
+ * 
+ * Free lists are intrusive doubly linked lists over arrays indexed by block
+ * number (address / minBlock); freeOrder[] says whether a block is the
+ * start of a free block and of which order, which is all a buddy check needs.
+ */
+public class BuddyAllocator implements ContiguousAllocator {
+
+    private final long capacity;
+    private final long minBlock;
+    private final int minShift;
+    private final int orders;
+    private final int[] heads; // per order, first free block, -1 = empty
+    private final int[] next;
+    private final int[] prev;
+    private final byte[] freeOrder; // order + 1 if a free block starts here, else 0
+    private long free;
+
+    public BuddyAllocator(long capacity, long minBlock) {
+        if (Long.bitCount(capacity) != 1 || Long.bitCount(minBlock) != 1 || capacity / minBlock > 1 << 30) {
+            throw new IllegalArgumentException("Capacity and minimum block must be powers of two");
+        }
+        this.capacity = capacity;
+        this.minBlock = minBlock;
+        this.minShift = Long.numberOfTrailingZeros(minBlock);
+        this.orders = Long.numberOfTrailingZeros(capacity / minBlock) + 1;
+        int blocks = (int) (capacity / minBlock);
+        this.heads = new int[orders];
+        this.next = new int[blocks];
+        this.prev = new int[blocks];
+        this.freeOrder = new byte[blocks];
+        Arrays.fill(heads, -1);
+        push(0, orders - 1);
+        this.free = capacity;
+    }
+
+    public String name() {
+        return "Buddy";
+    }
+
+    /** Smallest order whose blocks hold 'size' bytes. */
+    int orderOf(long size) {
+        long blocks = (Math.max(size, minBlock) + minBlock - 1) >>> minShift;
+        return 64 - Long.numberOfLeadingZeros(blocks - 1);
+    }
+
+    long blockSize(int order) {
+        return minBlock << order;
+    }
+
+    public long allocate(long size) {
+        int order = orderOf(size);
+        int o = order;
+        while (o < orders && heads[o] < 0) {
+            o++;
+        }
+        if (o >= orders) {
+            return -1;
+        }
+        int block = pop(o);
+        while (o > order) { // split: keep the lower half, free the upper buddy
+            o--;
+            push(block + (1 << o), o);
+        }
+        free -= blockSize(order);
+        return (long) block << minShift;
+    }
+
+    public void free(long address, long size) {
+        int order = orderOf(size);
+        int block = (int) (address >>> minShift);
+        free += blockSize(order);
+        while (order < orders - 1) {
+            int buddy = block ^ (1 << order);
+            if (freeOrder[buddy] != order + 1) {
+                break; // buddy in use (or split): stop merging
+            }
+            unlink(buddy, order);
+            block = Math.min(block, buddy);
+            order++;
+        }
+        push(block, order);
+    }
+
+    private void push(int block, int order) {
+        freeOrder[block] = (byte) (order + 1);
+        prev[block] = -1;
+        next[block] = heads[order];
+        if (heads[order] >= 0) {
+            prev[heads[order]] = block;
+        }
+        heads[order] = block;
+    }
+
+    private int pop(int order) {
+        int block = heads[order];
+        unlink(block, order);
+        return block;
+    }
+
+    private void unlink(int block, int order) {
+        freeOrder[block] = 0;
+        if (prev[block] >= 0) {
+            next[prev[block]] = next[block];
+        } else {
+            heads[order] = next[block];
+        }
+        if (next[block] >= 0) {
+            prev[next[block]] = prev[block];
+        }
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long freeBytes() {
+        return free;
+    }
+
+    public long largestFreeBlock() {
+        for (int o = orders - 1; o >= 0; o--) {
+            if (heads[o] >= 0) {
+                return blockSize(o);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,37 @@
+package memory_management_examples;
+
+/**
+ * ContiguousAllocator.java
+ * 
+ * Hands out contiguous ranges of a fixed-size memory (8_Memory_Management.md,
+ * "Contiguous Memory Allocation"): the same problem as fitting processes
+ * into ThrashingDemo's TOTAL_FRAMES, but with variable sizes, in bytes.
+ * 
+ * free() takes the size back (a "sized free", like munmap or
+ * kmem_cache_free), so allocators need no per-block headers and the
+ * simulation only measures their data structures.
+ * 
+ * Implementations:
+ * - FitAllocator: first / next / best / worst fit, optional compaction.
+ * - BuddyAllocator: power-of-two blocks, split and coalesced with buddies.
+ * - SlabAllocator: size-class caches of small objects on top of a buddy
+ * allocator, as in the Linux kernel.
+ */
+public interface ContiguousAllocator {
+
+    String name();
+
+    /** Start address of a free range of at least 'size' bytes, or -1 if none is large enough. */
+    long allocate(long size);
+
+    /** Returns a range obtained from allocate(size). */
+    void free(long address, long size);
+
+    long capacity();
+
+    /** Bytes not handed out to anyone (holes), the raw material of external fragmentation. */
+    long freeBytes();
+
+    /** The largest request that can succeed right now. */
+    long largestFreeBlock();
+}
@@ -0,0 +1,217 @@
+package memory_management_examples;
+
+import java.util.TreeSet;
+
+/**
+ * FitAllocator.java
+ * 
+ * The four hole-selection strategies of 8_Memory_Management.md
+ * "Allocation Strategies":
+ * - FIRST: the lowest-addressed hole that is big enough,
+ * - NEXT: like first fit, but the search starts where the last one ended,
+ * - BEST: the smallest hole that is big enough (least leftover),
+ * - WORST: the largest hole (the leftover stays usable).
+ * 
+ * Holes are kept in a FreeBlockTree (by address, with the largest hole per
+ * subtree) so first and next fit cost O(log n), and freeing merges a hole
+ * with its neighbors. Best and worst fit also index the holes by size in
+ * a TreeSet of (size, address) keys. A packed size << 32 | address would
+ * turn negative for holes of 2 GB and more.
+ * 
+ * Sizes are rounded up to ALIGNMENT, like malloc. Compaction (optional)
+ * slides every allocated range down to address 0, leaving one hole at the
+ * top; the caller is told which ranges moved so it can fix its pointers.
+ */
+public class FitAllocator implements ContiguousAllocator {
+
+    public enum Strategy {
+        FIRST, NEXT, BEST, WORST
+    }
+
+    /** Told about every range that compaction moved. */
+    public interface Relocation {
+        void moved(long from, long length, long to);
+    }
+
+    static final long ALIGNMENT = 16;
+
+    private final long capacity;
+    private final Strategy strategy;
+    private final FreeBlockTree holes = new FreeBlockTree();
+    private final TreeSet<SizeKey> bySize; // best / worst fit only
+    private long free;
+    private long rover = 0; // next fit: where the last search ended
+    private long compactions = 0;
+    private long bytesMoved = 0;
+
+    /** A hole in bySize: ordered by size, then address. */
+    private record SizeKey(long size, long address) implements Comparable<SizeKey> {
+        @Override
+        public int compareTo(SizeKey other) {
+            return size != other.size ? Long.compare(size, other.size) : Long.compare(address, other.address);
+        }
+    }
+
+    public FitAllocator(long capacity, Strategy strategy) {
+        if (capacity > 1L << 32) {
+            throw new IllegalArgumentException("Capacity above 4 GB is not supported");
+        }
+        this.capacity = capacity;
+        this.strategy = strategy;
+        this.bySize = strategy == Strategy.BEST || strategy == Strategy.WORST ? new TreeSet<>() : null;
+        this.free = capacity;
+        addHole(0, capacity);
+    }
+
+    public String name() {
+        return strategy.name().charAt(0) + strategy.name().substring(1).toLowerCase() + " fit";
+    }
+
+    static long align(long size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    public long allocate(long size) {
+        size = align(size);
+        int node = findHole(size);
+        if (node < 0) {
+            return -1;
+        }
+        long address = holes.start(node);
+        long holeSize = holes.length(node);
+        if (holeSize == size) {
+            removeHole(address, holeSize);
+        } else {
+            changeHole(address, holeSize, address + size, holeSize - size); // the leftover stays a hole
+        }
+        free -= size;
+        rover = address + size;
+        return address;
+    }
+
+    /** The hole to allocate from, or -1. */
+    private int findHole(long size) {
+        switch (strategy) {
+            case FIRST:
+                return holes.firstFit(size, 0);
+            case NEXT: {
+                int node = holes.firstFit(size, rover);
+                return node >= 0 ? node : holes.firstFit(size, 0); // wrap around
+            }
+            case BEST: {
+                SizeKey key = bySize.ceiling(new SizeKey(size, 0));
+                return key == null ? -1 : holes.floor(key.address());
+            }
+            default: {
+                if (bySize.isEmpty() || bySize.last().size() < size) {
+                    return -1;
+                }
+                return holes.floor(bySize.last().address());
+            }
+        }
+    }
+
+    public void free(long address, long size) {
+        size = align(size);
+        free += size;
+        long end = address + size;
+        int before = holes.floor(address);
+        int after = holes.ceiling(end);
+        boolean mergeBelow = before >= 0 && holes.start(before) + holes.length(before) == address;
+        boolean mergeAbove = after >= 0 && holes.start(after) == end;
+        if (mergeAbove) {
+            long afterStart = holes.start(after), afterSize = holes.length(after);
+            if (mergeBelow) { // fills the gap between two holes: they become one
+                removeHole(afterStart, afterSize);
+                end += afterSize;
+            } else { // the hole above grows down
+                changeHole(afterStart, afterSize, address, end + afterSize - address);
+                return;
+            }
+        }
+        if (mergeBelow) { // the hole below grows up
+            long beforeStart = holes.start(before);
+            changeHole(beforeStart, holes.length(before), beforeStart, end - beforeStart);
+        } else {
+            addHole(address, size);
+        }
+    }
+
+    private void addHole(long address, long size) {
+        holes.insert(address, size);
+        if (bySize != null) {
+            bySize.add(new SizeKey(size, address));
+        }
+    }
+
+    private void changeHole(long oldStart, long oldSize, long newStart, long newSize) {
+        holes.change(oldStart, newStart, newSize);
+        if (bySize != null) {
+            bySize.remove(new SizeKey(oldSize, oldStart));
+            bySize.add(new SizeKey(newSize, newStart));
+        }
+    }
+
+    private void removeHole(long address, long size) {
+        holes.remove(address);
+        if (bySize != null) {
+            bySize.remove(new SizeKey(size, address));
+        }
+    }
+
+    /** Moves every allocated range down so all free space forms one hole at the top. */
+    public void compact(Relocation relocation) {
+        long[] next = { 0, 0 }; // where the next allocated range goes, end of the last hole
+        holes.forEach((start, length) -> {
+            if (start > next[1]) { // allocated range [next[1], start)
+                move(next[1], start - next[1], next[0], relocation);
+                next[0] += start - next[1];
+            }
+            next[1] = start + length;
+        });
+        if (capacity > next[1]) {
+            move(next[1], capacity - next[1], next[0], relocation);
+            next[0] += capacity - next[1];
+        }
+        holes.clear();
+        if (bySize != null) {
+            bySize.clear();
+        }
+        if (next[0] < capacity) {
+            addHole(next[0], capacity - next[0]);
+        }
+        rover = 0;
+        compactions++;
+    }
+
+    private void move(long from, long length, long to, Relocation relocation) {
+        if (from != to) {
+            relocation.moved(from, length, to);
+            bytesMoved += length;
+        }
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long freeBytes() {
+        return free;
+    }
+
+    public long largestFreeBlock() {
+        return holes.largest();
+    }
+
+    public int holeCount() {
+        return holes.size();
+    }
+
+    public long getCompactions() {
+        return compactions;
+    }
+
+    public long getBytesMoved() {
+        return bytesMoved;
+    }
+}
@@ -0,0 +1,261 @@
+package memory_management_examples;
+
+import java.util.Arrays;
+
+/**
+ * FreeBlockTree.java
+ * 
+ * The holes of a FitAllocator, ordered by address: a treap (a binary search
+ * tree kept balanced by random priorities) in which every node also knows
+ * the largest hole in its subtree. That extra field turns first fit ("the
+ * lowest hole that is big enough") into one walk down the tree, O(log n),
+ * instead of scanning the list of holes.
+ * 
+ * Nodes live in parallel arrays and are recycled, so inserting and removing
+ * holes allocates no objects.
+ */
+class FreeBlockTree {
+
+    private long[] start = new long[64];
+    private long[] length = new long[64];
+    private long[] maxLength = new long[64]; // largest hole in the subtree
+    private int[] priority = new int[64];
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private int freeNodes = -1; // recycled nodes, linked through 'left'
+    private int used = 0;
+    private int root = -1;
+    private int count = 0;
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    int size() {
+        return count;
+    }
+
+    long largest() {
+        return root < 0 ? 0 : maxLength[root];
+    }
+
+    long start(int node) {
+        return start[node];
+    }
+
+    long length(int node) {
+        return length[node];
+    }
+
+    void clear() {
+        root = -1;
+        count = 0;
+        used = 0;
+        freeNodes = -1;
+    }
+
+    void insert(long address, long size) {
+        int node = newNode(address, size);
+        split(root, address);
+        int below = splitResult[0], above = splitResult[1];
+        root = merge(merge(below, node), above);
+        count++;
+    }
+
+    /** Removes the hole starting exactly at 'address'. */
+    void remove(long address) {
+        root = remove(root, address);
+        count--;
+    }
+
+    private int remove(int t, long address) {
+        if (start[t] == address) {
+            int merged = merge(left[t], right[t]);
+            left[t] = freeNodes;
+            freeNodes = t;
+            return merged;
+        }
+        if (address < start[t]) {
+            left[t] = remove(left[t], address);
+        } else {
+            right[t] = remove(right[t], address);
+        }
+        update(t);
+        return t;
+    }
+
+    private int[] path = new int[64];
+
+    /**
+     * Moves / resizes the hole starting at oldStart in place. The caller
+     * guarantees it stays between its neighbors, so the tree order holds and
+     * only the largest-hole fields on the path need fixing: one walk instead
+     * of a remove and an insert.
+     */
+    void change(long oldStart, long newStart, long newLength) {
+        int depth = 0;
+        int t = root;
+        while (start[t] != oldStart) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = t;
+            t = oldStart < start[t] ? left[t] : right[t];
+        }
+        start[t] = newStart;
+        length[t] = newLength;
+        update(t);
+        while (depth > 0) {
+            update(path[--depth]);
+        }
+    }
+
+    /** The hole with the greatest start <= address, or -1. */
+    int floor(long address) {
+        int t = root, best = -1;
+        while (t >= 0) {
+            if (start[t] <= address) {
+                best = t;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return best;
+    }
+
+    /** The hole with the smallest start >= address, or -1. */
+    int ceiling(long address) {
+        int t = root, best = -1;
+        while (t >= 0) {
+            if (start[t] >= address) {
+                best = t;
+                t = left[t];
+            } else {
+                t = right[t];
+            }
+        }
+        return best;
+    }
+
+    /** The lowest hole starting at or after 'from' with length >= size, or -1. */
+    int firstFit(long size, long from) {
+        return firstFit(root, size, from);
+    }
+
+    private int firstFit(int t, long size, long from) {
+        if (t < 0 || maxLength[t] < size) {
+            return -1;
+        }
+        if (start[t] >= from) {
+            int found = firstFit(left[t], size, from);
+            if (found >= 0) {
+                return found;
+            }
+            if (length[t] >= size) {
+                return t;
+            }
+        }
+        return firstFit(right[t], size, from);
+    }
+
+    /** Visits every hole in address order. */
+    void forEach(HoleVisitor visitor) {
+        forEach(root, visitor);
+    }
+
+    interface HoleVisitor {
+        void visit(long start, long length);
+    }
+
+    private void forEach(int t, HoleVisitor visitor) {
+        if (t >= 0) {
+            forEach(left[t], visitor);
+            visitor.visit(start[t], length[t]);
+            forEach(right[t], visitor);
+        }
+    }
+
+    // --- Treap plumbing ---
+
+    private int newNode(long address, long size) {
+        int node;
+        if (freeNodes >= 0) {
+            node = freeNodes;
+            freeNodes = left[node];
+        } else {
+            if (used == start.length) {
+                grow();
+            }
+            node = used++;
+        }
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        start[node] = address;
+        length[node] = size;
+        maxLength[node] = size;
+        priority[node] = (int) seed;
+        left[node] = -1;
+        right[node] = -1;
+        return node;
+    }
+
+    private void grow() {
+        int capacity = start.length * 2;
+        start = Arrays.copyOf(start, capacity);
+        length = Arrays.copyOf(length, capacity);
+        maxLength = Arrays.copyOf(maxLength, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+    }
+
+    private void update(int t) {
+        long m = length[t];
+        if (left[t] >= 0) {
+            m = Math.max(m, maxLength[left[t]]);
+        }
+        if (right[t] >= 0) {
+            m = Math.max(m, maxLength[right[t]]);
+        }
+        maxLength[t] = m;
+    }
+
+    private final int[] splitResult = new int[2];
+
+    /** Splits t into splitResult = (start < key, start >= key). */
+    private void split(int t, long key) {
+        if (t < 0) {
+            splitResult[0] = -1;
+            splitResult[1] = -1;
+            return;
+        }
+        if (start[t] < key) {
+            split(right[t], key);
+            right[t] = splitResult[0];
+            update(t);
+            splitResult[0] = t;
+        } else {
+            split(left[t], key);
+            left[t] = splitResult[1];
+            update(t);
+            splitResult[1] = t;
+        }
+    }
+
+    /** Joins a and b, every start in a below every start in b. */
+    private int merge(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+}
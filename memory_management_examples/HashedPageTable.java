@@ -0,0 +1,126 @@
+package memory_management_examples;
+
+import java.util.Arrays;
+
+/**
+ * HashedPageTable.java
+ * 
+ * Hashed page table (8_Memory_Management.md "Hashed Page Tables"): the
+ * (ASID, page number) pair is hashed to a bucket, and the bucket's chain is
+ * searched for the matching entry. One table serves all processes, and its
+ * size depends on the pages in use, not on the size of the address space.
+ * 
+ * Entries live in one long[] rather than one object per entry, two longs
+ * each: the tag (vpn << 12 | asid, as in the TLB) and frame << 32 | next.
+ * Comparing an entry and following its link is then one cache line, not
+ * one per field. The table doubles its buckets when the chains get long
+ * (load factor above 1).
+ * Cost: one memory reference for the bucket head plus one per chain entry
+ * compared, counted like InvertedPageTable's anchor so the two compare.
+ */
+public class HashedPageTable implements PageTable {
+
+    static final int MAX_ASIDS = 1 << 12;
+    static final long MAX_FRAMES = 1L << 32;
+    private static final long NEXT_MASK = 0xFFFF_FFFFL;
+
+    private int[] heads; // first entry of each bucket, -1 = empty
+    private int bucketMask;
+    private long[] entries = new long[2 * 1024]; // per entry: tag, frame << 32 | next (NEXT_MASK = end)
+    private int size = 0;
+    private long references = 0;
+
+    public HashedPageTable(int initialBuckets) {
+        int buckets = Integer.highestOneBit(Math.max(16, initialBuckets - 1) << 1);
+        heads = new int[buckets];
+        Arrays.fill(heads, -1);
+        bucketMask = buckets - 1;
+    }
+
+    @Override
+    public String name() {
+        return "hashed";
+    }
+
+    static int hash(int asid, long vpn) {
+        long h = vpn * 0x9E3779B97F4A7C15L + asid;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static long tag(int asid, long vpn) {
+        return vpn << 12 | asid;
+    }
+
+    @Override
+    public long lookup(int asid, long vpn) {
+        references++; // the bucket head
+        long tag = tag(asid, vpn);
+        for (int e = heads[hash(asid, vpn) & bucketMask]; e >= 0;) {
+            references++;
+            long link = entries[2 * e + 1];
+            if (entries[2 * e] == tag) {
+                return link >>> 32;
+            }
+            e = (int) (link & NEXT_MASK);
+        }
+        return -1;
+    }
+
+    @Override
+    public void map(int asid, long vpn, long frame) {
+        if (asid < 0 || asid >= MAX_ASIDS || frame < 0 || frame >= MAX_FRAMES || vpn >>> 52 != 0) {
+            throw new IllegalArgumentException("Cannot map ASID " + asid + ", page " + vpn + " to frame " + frame);
+        }
+        int bucket = hash(asid, vpn) & bucketMask;
+        long tag = tag(asid, vpn);
+        for (int e = heads[bucket]; e >= 0; e = next(e)) {
+            if (entries[2 * e] == tag) {
+                entries[2 * e + 1] = frame << 32 | (entries[2 * e + 1] & NEXT_MASK);
+                return;
+            }
+        }
+        if (2 * size == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        int e = size++;
+        entries[2 * e] = tag;
+        link(e, frame, heads[bucket]);
+        heads[bucket] = e;
+        if (size > heads.length) {
+            rehash(heads.length * 2);
+        }
+    }
+
+    private void rehash(int buckets) {
+        heads = new int[buckets];
+        Arrays.fill(heads, -1);
+        bucketMask = buckets - 1;
+        for (int e = 0; e < size; e++) {
+            long tag = entries[2 * e];
+            int bucket = hash((int) (tag & (MAX_ASIDS - 1)), tag >>> 12) & bucketMask;
+            link(e, entries[2 * e + 1] >>> 32, heads[bucket]);
+            heads[bucket] = e;
+        }
+    }
+
+    private int next(int e) {
+        return (int) (entries[2 * e + 1] & NEXT_MASK);
+    }
+
+    private void link(int e, long frame, int next) {
+        entries[2 * e + 1] = frame << 32 | (next & NEXT_MASK);
+    }
+
+    @Override
+    public long getReferences() {
+        return references;
+    }
+
+    /** Bucket heads plus, per entry, the tag (8) and frame + next (8). */
+    @Override
+    public long sizeInBytes() {
+        return 4L * heads.length + 16L * size;
+    }
+}
@@ -0,0 +1,126 @@
+package memory_management_examples;
+
+/**
+ * HierarchicalPageTable.java
+ * 
+ * Multi-level (hierarchical) paging, as in 8_Memory_Management.md
+ * "Hierarchical Paging": the page number is split into one index per level.
+ * - 2 levels, 32-bit addresses, 4 KB pages: 10 + 10 bits (x86 without PAE),
+ * - 3 levels, 39-bit addresses: 9 + 9 + 9 bits (RISC-V Sv39),
+ * - 4 levels, 48-bit addresses: 9 + 9 + 9 + 9 bits (x86-64).
+ * If the bits do not divide evenly, the top level gets the remainder.
+ * 
+ * Every process (ASID) has its own root (what CR3 / the PTBR points to).
+ * Inner tables are Object[] pointing to the next level, the last level is a
+ * long[] of PTEs holding frame + 1 (0 = not present). Tables are only
+ * allocated for parts of the address space that are used, which is the
+ * point of the hierarchy. A walk costs one memory reference per level it
+ * reads; a missing table stops the walk early.
+ */
+public class HierarchicalPageTable implements PageTable {
+
+    static final int MAX_ASIDS = 4096; // 12-bit ASID, like x86 PCIDs
+
+    private final int levels;
+    private final int vaBits;
+    private final int[] shift; // per level, for the index
+    private final int[] mask;
+    private final int pteBytes;
+    private final Object[] roots = new Object[MAX_ASIDS];
+
+    private long references = 0;
+    private long bytes = 0;
+
+    public HierarchicalPageTable(int levels, int vaBits, int pageBits) {
+        int vpnBits = vaBits - pageBits;
+        if (levels < 1 || vpnBits < levels) {
+            throw new IllegalArgumentException("Bad geometry: " + levels + " levels, " + vpnBits + " page-number bits");
+        }
+        this.levels = levels;
+        this.vaBits = vaBits;
+        this.shift = new int[levels];
+        this.mask = new int[levels];
+        this.pteBytes = vaBits <= 32 ? 4 : 8;
+        int perLevel = vpnBits / levels;
+        int s = 0;
+        for (int l = levels - 1; l >= 0; l--) {
+            int bits = l == 0 ? vpnBits - perLevel * (levels - 1) : perLevel;
+            shift[l] = s;
+            mask[l] = (1 << bits) - 1;
+            s += bits;
+        }
+    }
+
+    @Override
+    public String name() {
+        return levels + "-level (" + vaBits + "-bit)";
+    }
+
+    private int index(long vpn, int level) {
+        return (int) (vpn >>> shift[level]) & mask[level];
+    }
+
+    @Override
+    public long lookup(int asid, long vpn) {
+        Object node = roots[asid];
+        for (int l = 0; l < levels - 1; l++) {
+            if (node == null) {
+                return -1;
+            }
+            references++;
+            node = ((Object[]) node)[index(vpn, l)];
+        }
+        if (node == null) {
+            return -1;
+        }
+        references++;
+        return ((long[]) node)[index(vpn, levels - 1)] - 1;
+    }
+
+    @Override
+    public void map(int asid, long vpn, long frame) {
+        if (levels == 1) {
+            if (roots[asid] == null) {
+                roots[asid] = newLeaf();
+            }
+            ((long[]) roots[asid])[index(vpn, 0)] = frame + 1;
+            return;
+        }
+        if (roots[asid] == null) {
+            roots[asid] = newInner(0);
+        }
+        Object[] node = (Object[]) roots[asid];
+        for (int l = 0; l < levels - 2; l++) {
+            int i = index(vpn, l);
+            if (node[i] == null) {
+                node[i] = newInner(l + 1);
+            }
+            node = (Object[]) node[i];
+        }
+        int i = index(vpn, levels - 2);
+        if (node[i] == null) {
+            node[i] = newLeaf();
+        }
+        ((long[]) node[i])[index(vpn, levels - 1)] = frame + 1;
+    }
+
+    private Object[] newInner(int level) {
+        bytes += (long) (mask[level] + 1) * pteBytes;
+        return new Object[mask[level] + 1];
+    }
+
+    private long[] newLeaf() {
+        bytes += (long) (mask[levels - 1] + 1) * pteBytes;
+        return new long[mask[levels - 1] + 1];
+    }
+
+    @Override
+    public long getReferences() {
+        return references;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,83 @@
+package memory_management_examples;
+
+import java.util.Arrays;
+
+/**
+ * InvertedPageTable.java
+ * 
+ * Inverted page table: ONE entry per physical frame, saying which (ASID,
+ * page) lives there, instead of one table per process. Its size depends only
+ * on the amount of physical memory, however many processes there are.
+ * 
+ * Searching all frames for a page would be far too slow, so, as on PowerPC
+ * and IA-64, a hash anchor table maps hash(ASID, page) to the first frame of
+ * a chain, and each frame entry links to the next frame with the same hash.
+ * Cost: one reference for the anchor plus one per frame entry compared.
+ * A frame entry is two adjacent longs, the tag (HashedPageTable.tag) and the
+ * next frame, so comparing it and following the chain touch one cache line.
+ */
+public class InvertedPageTable implements PageTable {
+
+    private final int[] anchors; // hash -> first frame, -1 = none
+    private final int anchorMask;
+    private final int frames;
+    private final long[] entries; // per frame: tag (-1 = free), next frame (-1 = end)
+    private long references = 0;
+
+    public InvertedPageTable(int frames) {
+        int anchorCount = Integer.highestOneBit(Math.max(16, frames - 1) << 1);
+        anchors = new int[anchorCount];
+        Arrays.fill(anchors, -1);
+        anchorMask = anchorCount - 1;
+        this.frames = frames;
+        entries = new long[2 * frames];
+        Arrays.fill(entries, -1);
+    }
+
+    @Override
+    public String name() {
+        return "inverted";
+    }
+
+    @Override
+    public long lookup(int asid, long vpn) {
+        references++; // the anchor
+        long tag = HashedPageTable.tag(asid, vpn);
+        for (int f = anchors[HashedPageTable.hash(asid, vpn) & anchorMask]; f >= 0; f = (int) entries[2 * f + 1]) {
+            references++;
+            if (entries[2 * f] == tag) {
+                return f; // the entry's index IS the frame number
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void map(int asid, long vpn, long frame) {
+        if (frame < 0 || frame >= frames) {
+            throw new IllegalArgumentException("No such frame: " + frame + " (" + frames + " frames)");
+        }
+        if (asid < 0 || asid >= HashedPageTable.MAX_ASIDS || vpn >>> 52 != 0) {
+            throw new IllegalArgumentException("Cannot map ASID " + asid + ", page " + vpn);
+        }
+        int f = (int) frame;
+        if (entries[2 * f] != -1) {
+            throw new IllegalStateException("Frame " + f + " is in use; unmapping is not modeled");
+        }
+        int bucket = HashedPageTable.hash(asid, vpn) & anchorMask;
+        entries[2 * f] = HashedPageTable.tag(asid, vpn);
+        entries[2 * f + 1] = anchors[bucket];
+        anchors[bucket] = f;
+    }
+
+    @Override
+    public long getReferences() {
+        return references;
+    }
+
+    /** Anchors plus, per frame, ASID (4), VPN (8) and next (4): fixed by the physical memory size. */
+    @Override
+    public long sizeInBytes() {
+        return 4L * anchors.length + 16L * frames;
+    }
+}
@@ -0,0 +1,34 @@
+package memory_management_examples;
+
+/**
+ * PageTable.java
+ * 
+ * A page table maps (ASID, virtual page number) to a physical frame number
+ * (8_Memory_Management.md, "Paging" and "Page Table Structures"). The ASID
+ * (address-space identifier) says which process the page belongs to.
+ * 
+ * Implementations differ in how many memory references a lookup (a "page
+ * walk" after a TLB miss) costs and in how much memory the table itself
+ * takes; both are counted here so they can be compared:
+ * - HierarchicalPageTable: one reference per level (2, 3 or 4 levels).
+ * - HashedPageTable: one reference for the bucket head plus one per chain
+ * entry visited.
+ * - InvertedPageTable: one entry per physical frame, found through a hash
+ * anchor table.
+ */
+public interface PageTable {
+
+    String name();
+
+    /** Frame number mapped for (asid, vpn), or -1 if the page is not mapped (page fault). */
+    long lookup(int asid, long vpn);
+
+    /** Maps (asid, vpn) to 'frame' (the OS does this when it handles a page fault). */
+    void map(int asid, long vpn, long frame);
+
+    /** Memory references made by lookups so far (page-walk cost). */
+    long getReferences();
+
+    /** Memory the table structures occupy, in bytes. */
+    long sizeInBytes();
+}
@@ -0,0 +1,189 @@
+package memory_management_examples;
+
+import java.util.Arrays;
+
+/**
+ * SlabAllocator.java
+ * 
+ * A slab allocator (as in the Linux kernel) for small objects, on top of a
+ * BuddyAllocator:
+ * - requests up to the largest size class go to a cache of that class; a
+ * cache carves SLAB_SIZE slabs (taken from the buddy allocator) into
+ * equal objects and hands them out, tracking free objects with a bitmap,
+ * - larger requests go straight to the buddy allocator.
+ * Size classes grow by about 1.5x (16, 24, 32, 48, 64, ...), so rounding
+ * wastes less than the buddy allocator's powers of two, and objects of one
+ * size never fragment the memory of another.
+ * 
+ * Each class keeps a list of partially used slabs; a slab that becomes
+ * empty goes back to the buddy allocator, except one per class that stays
+ * cached so an alloc/free cycle at the boundary does not bounce slabs.
+ * Free objects inside slabs count as used memory (freeBytes() is what
+ * the buddy allocator has left): they only serve their own size class.
+ */
+public class SlabAllocator implements ContiguousAllocator {
+
+    static final int SLAB_SHIFT = 14;
+    static final long SLAB_SIZE = 1L << SLAB_SHIFT; // 16 KB
+
+    private final BuddyAllocator pages;
+    private final int[] classes;
+    private final int[] classOfSize; // size / 8 -> class index, for sizes <= the largest class
+    private final int[] partialHead; // per class, first partial slab, -1 = none
+    private final int[] emptyCached; // per class, a cached empty slab, -1 = none
+
+    // Per slab, indexed by address / SLAB_SIZE
+    private final byte[] slabClass; // class + 1, 0 = not a slab
+    private final int[] inUse;
+    private final int[] nextPartial;
+    private final int[] prevPartial;
+    private final long[][] bitmaps; // set bit = object in use
+
+    public SlabAllocator(long capacity, long minBlock) {
+        this.pages = new BuddyAllocator(capacity, minBlock);
+        int[] sizes = new int[64];
+        int n = 0;
+        for (int size = 16; size <= 4096; size = size < 32 ? size + 8 : (size * 3 / 2 + 7) & ~7) {
+            sizes[n++] = size;
+        }
+        this.classes = Arrays.copyOf(sizes, n);
+        this.classOfSize = new int[classes[n - 1] / 8 + 1];
+        for (int s = 0, c = 0; s < classOfSize.length; s++) {
+            while (classes[c] < s * 8) {
+                c++;
+            }
+            classOfSize[s] = c;
+        }
+        this.partialHead = new int[n];
+        this.emptyCached = new int[n];
+        Arrays.fill(partialHead, -1);
+        Arrays.fill(emptyCached, -1);
+        int slabs = (int) (capacity >>> SLAB_SHIFT);
+        this.slabClass = new byte[slabs];
+        this.inUse = new int[slabs];
+        this.nextPartial = new int[slabs];
+        this.prevPartial = new int[slabs];
+        this.bitmaps = new long[slabs][];
+    }
+
+    public String name() {
+        return "Slab+buddy";
+    }
+
+    int maxObjectSize() {
+        return classes[classes.length - 1];
+    }
+
+    public long allocate(long size) {
+        if (size > maxObjectSize()) {
+            return pages.allocate(size);
+        }
+        int c = classOfSize[(int) ((size + 7) >>> 3)];
+        int slab = partialHead[c];
+        if (slab < 0) {
+            slab = newSlab(c);
+            if (slab < 0) {
+                return -1;
+            }
+        }
+        long[] bitmap = bitmaps[slab];
+        int object = 0;
+        for (int w = 0; w < bitmap.length; w++) {
+            if (bitmap[w] != -1L) {
+                int bit = Long.numberOfTrailingZeros(~bitmap[w]);
+                bitmap[w] |= 1L << bit;
+                object = w * 64 + bit;
+                break;
+            }
+        }
+        if (++inUse[slab] == objectsPerSlab(c)) {
+            unlinkPartial(slab, c); // full
+        }
+        return ((long) slab << SLAB_SHIFT) + (long) object * classes[c];
+    }
+
+    public void free(long address, long size) {
+        if (size > maxObjectSize()) {
+            pages.free(address, size);
+            return;
+        }
+        int slab = (int) (address >>> SLAB_SHIFT);
+        int c = slabClass[slab] - 1;
+        int object = (int) ((address & (SLAB_SIZE - 1)) / classes[c]);
+        bitmaps[slab][object >>> 6] &= ~(1L << object);
+        if (inUse[slab]-- == objectsPerSlab(c)) {
+            linkPartial(slab, c); // was full, has room again
+        }
+        if (inUse[slab] == 0) {
+            unlinkPartial(slab, c);
+            if (emptyCached[c] < 0) {
+                emptyCached[c] = slab;
+            } else {
+                slabClass[slab] = 0;
+                pages.free((long) slab << SLAB_SHIFT, SLAB_SIZE);
+            }
+        }
+    }
+
+    private int objectsPerSlab(int c) {
+        return (int) (SLAB_SIZE / classes[c]);
+    }
+
+    private int newSlab(int c) {
+        int slab = emptyCached[c];
+        if (slab >= 0) {
+            emptyCached[c] = -1;
+        } else {
+            long address = pages.allocate(SLAB_SIZE);
+            if (address < 0) {
+                return -1;
+            }
+            slab = (int) (address >>> SLAB_SHIFT);
+            slabClass[slab] = (byte) (c + 1);
+            int words = (objectsPerSlab(c) + 63) >>> 6;
+            if (bitmaps[slab] == null || bitmaps[slab].length != words) {
+                bitmaps[slab] = new long[words];
+            } else {
+                Arrays.fill(bitmaps[slab], 0); // the slab held another class before
+            }
+            int tail = objectsPerSlab(c) & 63; // objects past the end are marked used
+            if (tail != 0) {
+                bitmaps[slab][words - 1] = -1L << tail;
+            }
+        }
+        linkPartial(slab, c);
+        return slab;
+    }
+
+    private void linkPartial(int slab, int c) {
+        prevPartial[slab] = -1;
+        nextPartial[slab] = partialHead[c];
+        if (partialHead[c] >= 0) {
+            prevPartial[partialHead[c]] = slab;
+        }
+        partialHead[c] = slab;
+    }
+
+    private void unlinkPartial(int slab, int c) {
+        if (prevPartial[slab] >= 0) {
+            nextPartial[prevPartial[slab]] = nextPartial[slab];
+        } else {
+            partialHead[c] = nextPartial[slab];
+        }
+        if (nextPartial[slab] >= 0) {
+            prevPartial[nextPartial[slab]] = prevPartial[slab];
+        }
+    }
+
+    public long capacity() {
+        return pages.capacity();
+    }
+
+    public long freeBytes() {
+        return pages.freeBytes();
+    }
+
+    public long largestFreeBlock() {
+        return pages.largestFreeBlock();
+    }
+}
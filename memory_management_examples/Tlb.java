@@ -0,0 +1,144 @@
+package memory_management_examples;
+
+import java.util.Arrays;
+
+/**
+ * Tlb.java
+ * 
+ * A set-associative Translation Lookaside Buffer (8_Memory_Management.md
+ * "Translation Lookaside Buffer"). The page number selects a set; the
+ * entries ('ways') of that set are compared in parallel in hardware, and
+ * here with a short loop.
+ * - sets = 1 gives a fully associative TLB, ways = 1 a direct-mapped one.
+ * - Replacement when the set is full: LRU, FIFO or random.
+ * - With ASID tagging every entry remembers the process it belongs to, and
+ * a context switch keeps the TLB. Without it, a context switch must flush
+ * the whole TLB.
+ */
+public class Tlb {
+
+    public enum Replacement {
+        LRU, FIFO, RANDOM
+    }
+
+    private final int sets;
+    private final int ways;
+    private final int setMask;
+    private final Replacement replacement;
+    private final boolean asidTagged;
+
+    private final long[] tags; // (vpn << 12) | asid, -1 = invalid: one compare per way
+    private final long[] frames;
+    private final long[] stamps; // last use (LRU) or insertion (FIFO)
+    private final int[] filled; // per set: valid entries, which are its first ways
+    private long clock = 0;
+    private long seed = 0x2545F4914F6CDD1DL;
+    private int currentAsid = -1;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long flushes = 0;
+
+    public Tlb(int sets, int ways, Replacement replacement, boolean asidTagged) {
+        if (Integer.bitCount(sets) != 1 || ways < 1) {
+            throw new IllegalArgumentException("sets must be a power of two and ways >= 1");
+        }
+        this.sets = sets;
+        this.ways = ways;
+        this.setMask = sets - 1;
+        this.replacement = replacement;
+        this.asidTagged = asidTagged;
+        this.tags = new long[sets * ways];
+        this.frames = new long[sets * ways];
+        this.stamps = new long[sets * ways];
+        this.filled = new int[sets];
+        Arrays.fill(tags, -1);
+    }
+
+    public String name() {
+        String shape = sets == 1 ? ways + " full" : sets * ways + " (" + ways + "-way)";
+        return shape + " " + replacement + (asidTagged ? " ASID" : " flush");
+    }
+
+    private long tag(int asid, long vpn) {
+        return asidTagged ? (vpn << 12) | asid : vpn << 12;
+    }
+
+    /** Frame number cached for (asid, vpn), or -1 on a miss. */
+    public long lookup(int asid, long vpn) {
+        long tag = tag(asid, vpn);
+        int set = (int) (vpn & setMask);
+        int base = set * ways;
+        for (int i = base, end = base + filled[set]; i < end; i++) {
+            if (tags[i] == tag) {
+                hits++;
+                if (replacement == Replacement.LRU) {
+                    stamps[i] = ++clock;
+                }
+                return frames[i];
+            }
+        }
+        misses++;
+        return -1;
+    }
+
+    /** Caches a translation after a page walk, replacing an entry of its set if needed. */
+    public void insert(int asid, long vpn, long frame) {
+        int set = (int) (vpn & setMask);
+        int base = set * ways;
+        int victim;
+        if (filled[set] < ways) {
+            victim = base + filled[set]++; // a free way: no need to replace
+        } else if (replacement == Replacement.RANDOM) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            victim = base + (int) Long.remainderUnsigned(seed, ways);
+        } else {
+            victim = base;
+            for (int i = base + 1; i < base + ways; i++) {
+                if (stamps[i] < stamps[victim]) {
+                    victim = i;
+                }
+            }
+        }
+        tags[victim] = tag(asid, vpn);
+        frames[victim] = frame;
+        stamps[victim] = ++clock;
+    }
+
+    /** The CPU switches to another process: without ASIDs the TLB is flushed. */
+    public void contextSwitch(int asid) {
+        if (!asidTagged && asid != currentAsid && currentAsid != -1) {
+            flush();
+        }
+        currentAsid = asid;
+    }
+
+    public void flush() {
+        Arrays.fill(tags, -1);
+        Arrays.fill(filled, 0);
+        flushes++;
+    }
+
+    public int entries() {
+        return sets * ways;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getFlushes() {
+        return flushes;
+    }
+
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.multithreading.communication;
+
+/**
+ * Measures the throughput of ProducerConsumer.offerAll() / drain() for batch
+ * sizes 1..1024. Every batch costs one lock acquisition and one notifyAll(),
+ * so larger batches amortize the monitor round-trip over more items.
+ * Usage: BatchProducerConsumerBenchmark [items] [capacity]
+ */
+public class BatchProducerConsumerBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+
+        System.out.println("Items per run: " + items + ", buffer capacity: " + capacity);
+
+        double best = 0;
+        int bestBatch = 1;
+        double[] results = new double[11];
+        for (int k = 0; k <= 10; k++) {
+            int batch = 1 << k;
+            measure(batch, items, capacity); // warm-up
+            results[k] = measure(batch, items, capacity);
+            System.out.println(String.format("Batch %4d | %8.2f M items/s", batch, results[k]));
+            if (results[k] > best) {
+                best = results[k];
+                bestBatch = batch;
+            }
+        }
+
+        // Smallest batch within 5% of the best: same throughput, lower latency
+        int pick = bestBatch;
+        for (int k = 0; k <= 10; k++) {
+            if (results[k] >= best * 0.95) {
+                pick = 1 << k;
+                break;
+            }
+        }
+        System.out.println("Best batch: " + bestBatch + ", smallest batch within 5% of best: " + pick);
+    }
+
+    private static double measure(int batch, int items, int capacity) throws InterruptedException {
+        ProducerConsumer pc = new ProducerConsumer(capacity);
+        int rounds = items / batch;
+        int total = rounds * batch;
+
+        Thread producer = new Thread(() -> {
+            int[] chunk = new int[batch];
+            try {
+                for (int r = 0; r < rounds; r++) {
+                    for (int i = 0; i < batch; i++) {
+                        chunk[i] = r * batch + i;
+                    }
+                    pc.offerAll(chunk);
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+
+        long[] sum = new long[1];
+        Thread consumer = new Thread(() -> {
+            int[] dst = new int[batch];
+            int taken = 0;
+            long s = 0;
+            try {
+                while (taken < total) {
+                    int n = pc.drain(dst, Math.min(batch, total - taken));
+                    for (int i = 0; i < n; i++) {
+                        s += dst[i];
+                    }
+                    taken += n;
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            sum[0] = s;
+        });
+
+        long start = System.nanoTime();
+        producer.start();
+        consumer.start();
+        producer.join();
+        consumer.join();
+        long elapsed = System.nanoTime() - start;
+
+        if (sum[0] != (long) total * (total - 1) / 2) {
+            System.err.println("Error: checksum mismatch (lost or duplicated items)!");
+        }
+        return total / (elapsed / 1_000.0);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.multithreading.communication;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Producer-Consumer with a ReentrantLock and two Conditions instead of one
+ * monitor with wait()/notify().
+ * - notFull: producers wait here, only consumers signal it.
+ * - notEmpty: consumers wait here, only producers signal it.
+ * So a signal always wakes a thread that can make progress (no lost wakeups
+ * when a producer's notify() wakes another producer).
+ * The "work" (sleep) happens outside the lock, so the critical section only
+ * covers the ring-buffer update. Supports M producers and N consumers:
+ * ConditionProducerConsumer [producers] [consumers]
+ */
+public class ConditionProducerConsumer {
+    private static final int CAPACITY = 5;
+    private final int[] buffer;
+    private int head = 0; // next index to take from
+    private int tail = 0; // next index to put into
+    private int count = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    public ConditionProducerConsumer() {
+        this(CAPACITY);
+    }
+
+    public ConditionProducerConsumer(int capacity) {
+        this.buffer = new int[capacity];
+    }
+
+    public void put(int value) throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == buffer.length) {
+                notFull.await();
+            }
+            buffer[tail] = value;
+            tail = (tail + 1) % buffer.length;
+            count++;
+
+            // Wake exactly one consumer: only consumers wait on notEmpty
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            int value = buffer[head];
+            head = (head + 1) % buffer.length;
+            count--;
+
+            // Wake exactly one producer: only producers wait on notFull
+            notFull.signal();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void produce(int id) throws InterruptedException {
+        int value = 0;
+        while (true) {
+            put(value);
+            System.out.println("Producer " + id + " produced: " + value);
+            value++;
+
+            Thread.sleep(500); // Simulate work (outside the lock)
+        }
+    }
+
+    public void consume(int id) throws InterruptedException {
+        while (true) {
+            int value = take();
+            System.out.println("Consumer " + id + " consumed: " + value);
+
+            Thread.sleep(800); // Simulate work (outside the lock)
+        }
+    }
+
+    public static void main(String[] args) {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        ConditionProducerConsumer pc = new ConditionProducerConsumer();
+
+        for (int i = 1; i <= producers; i++) {
+            int id = i;
+            new Thread(() -> {
+                try {
+                    pc.produce(id);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }, "Producer-" + id).start();
+        }
+
+        for (int i = 1; i <= consumers; i++) {
+            int id = i;
+            new Thread(() -> {
+                try {
+                    pc.consume(id);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }, "Consumer-" + id).start();
+        }
+
+        // Let it run for a while then exit
+        try {
+            Thread.sleep(10000);
+            System.out.println("Stopping threads...");
+            System.exit(0);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
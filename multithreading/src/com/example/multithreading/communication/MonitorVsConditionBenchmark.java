@@ -0,0 +1,160 @@
+package com.example.multithreading.communication;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Compares the original ProducerConsumer design (one monitor, notify(),
+ * work done while holding the lock) with ConditionProducerConsumer
+ * (notFull/notEmpty Conditions, work done outside the lock) for M producers
+ * and N consumers. Each item costs workNanos of busy work on both sides.
+ * If the monitor version loses a wakeup (notify() wakes a thread of the wrong
+ * kind and everyone ends up waiting), the run is reported as STALLED.
+ * Moving work out of the lock only pays off with more than one core: on a
+ * single core there is nothing to overlap it with.
+ * Usage: MonitorVsConditionBenchmark [itemsPerProducer] [workNanos]
+ */
+public class MonitorVsConditionBenchmark {
+
+    private static final int[][] CONFIGS = { { 1, 1 }, { 2, 2 }, { 4, 4 }, { 8, 2 }, { 2, 8 } };
+    private static final long STALL_TIMEOUT_MS = 10_000;
+
+    interface Buffer {
+        void put(int value, long workNanos) throws InterruptedException;
+
+        int take(long workNanos) throws InterruptedException;
+    }
+
+    /**
+     * Same structure as ProducerConsumer.produce()/consume(): the "work"
+     * runs inside synchronized (lock) and a single notify() is shared by
+     * producers and consumers.
+     */
+    static class MonitorBuffer implements Buffer {
+        private final int capacity;
+        private final Queue<Integer> buffer = new LinkedList<>();
+        private final Object lock = new Object();
+
+        MonitorBuffer(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public void put(int value, long workNanos) throws InterruptedException {
+            synchronized (lock) {
+                while (buffer.size() == capacity) {
+                    lock.wait();
+                }
+                buffer.add(value);
+                lock.notify();
+                busyWork(workNanos); // work under the lock
+            }
+        }
+
+        public int take(long workNanos) throws InterruptedException {
+            synchronized (lock) {
+                while (buffer.isEmpty()) {
+                    lock.wait();
+                }
+                int value = buffer.poll();
+                lock.notify();
+                busyWork(workNanos); // work under the lock
+                return value;
+            }
+        }
+    }
+
+    static class ConditionBuffer implements Buffer {
+        private final ConditionProducerConsumer pc;
+
+        ConditionBuffer(int capacity) {
+            this.pc = new ConditionProducerConsumer(capacity);
+        }
+
+        public void put(int value, long workNanos) throws InterruptedException {
+            busyWork(workNanos); // work outside the lock
+            pc.put(value);
+        }
+
+        public int take(long workNanos) throws InterruptedException {
+            int value = pc.take();
+            busyWork(workNanos); // work outside the lock
+            return value;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int itemsPerProducer = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long workNanos = args.length > 1 ? Long.parseLong(args[1]) : 2_000;
+
+        System.out.println("Items per producer: " + itemsPerProducer + ", work per item: " + workNanos + " ns");
+        for (int[] config : CONFIGS) {
+            int m = config[0];
+            int n = config[1];
+            String monitor = format(run(new MonitorBuffer(5), m, n, itemsPerProducer, workNanos));
+            String condition = format(run(new ConditionBuffer(5), m, n, itemsPerProducer, workNanos));
+            System.out.println(String.format("%d producers / %d consumers | monitor: %-22s | conditions: %s",
+                    m, n, monitor, condition));
+        }
+    }
+
+    private static String format(double itemsPerSec) {
+        return itemsPerSec < 0 ? "STALLED (lost wakeup)" : String.format("%10.0f items/s", itemsPerSec);
+    }
+
+    // Returns items/second, or -1 if the threads stopped making progress.
+    private static double run(Buffer buffer, int producers, int consumers, int itemsPerProducer, long workNanos)
+            throws InterruptedException {
+        int total = producers * itemsPerProducer;
+        Thread[] threads = new Thread[producers + consumers];
+
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < itemsPerProducer; i++) {
+                        buffer.put(i, workNanos);
+                    }
+                } catch (InterruptedException e) {
+                    // stalled run is being torn down
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            // Spread the items: the first (total % consumers) consumers take one extra
+            int share = total / consumers + (c < total % consumers ? 1 : 0);
+            threads[producers + c] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < share; i++) {
+                        buffer.take(workNanos);
+                    }
+                } catch (InterruptedException e) {
+                    // stalled run is being torn down
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.setDaemon(true);
+            t.start();
+        }
+        long deadline = System.currentTimeMillis() + STALL_TIMEOUT_MS;
+        for (Thread t : threads) {
+            t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (t.isAlive()) {
+                for (Thread other : threads) {
+                    other.interrupt();
+                }
+                return -1;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return total / (elapsed / 1_000_000_000.0);
+    }
+
+    private static void busyWork(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -6,17 +6,27 @@ import java.util.Queue;
 /**
  * Demonstrates Inter-thread Communication using wait() and notify().
  * Implements a Producer-Consumer pattern with a shared buffer.
+ * offerAll() and drain() move a whole batch per lock acquisition.
  */
 public class ProducerConsumer {
     private static final int CAPACITY = 5;
+    private final int capacity;
     private final Queue<Integer> buffer = new LinkedList<>();
     private final Object lock = new Object();
 
+    public ProducerConsumer() {
+        this(CAPACITY);
+    }
+
+    public ProducerConsumer(int capacity) {
+        this.capacity = capacity;
+    }
+
     public void produce() throws InterruptedException {
         int value = 0;
         while (true) {
             synchronized (lock) {
-                while (buffer.size() == CAPACITY) {
+                while (buffer.size() == capacity) {
                     System.out.println("Buffer full. Producer waiting...");
                     lock.wait();
                 }
@@ -51,6 +61,55 @@ public class ProducerConsumer {
         }
     }
 
+    /**
+     * Adds all items, filling every free slot per lock acquisition.
+     * Blocks while the buffer is full.
+     */
+    public void offerAll(int[] items) throws InterruptedException {
+        int offered = 0;
+        while (offered < items.length) {
+            synchronized (lock) {
+                while (buffer.size() == capacity) {
+                    lock.wait();
+                }
+
+                int n = Math.min(capacity - buffer.size(), items.length - offered);
+                for (int i = 0; i < n; i++) {
+                    buffer.add(items[offered + i]);
+                }
+                offered += n;
+
+                // Several consumers may be able to run now
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Removes between 1 and max items into dst and returns how many were
+     * removed. Blocks while the buffer is empty.
+     */
+    public int drain(int[] dst, int max) throws InterruptedException {
+        if (max <= 0 || max > dst.length) {
+            // Checked up front so a bad argument never loses already-polled items
+            throw new IllegalArgumentException("max must be in 1.." + dst.length + ": " + max);
+        }
+        synchronized (lock) {
+            while (buffer.isEmpty()) {
+                lock.wait();
+            }
+
+            int n = Math.min(buffer.size(), max);
+            for (int i = 0; i < n; i++) {
+                dst[i] = buffer.poll();
+            }
+
+            // Several producers may be able to run now
+            lock.notifyAll();
+            return n;
+        }
+    }
+
     public static void main(String[] args) {
         ProducerConsumer pc = new ProducerConsumer();
 
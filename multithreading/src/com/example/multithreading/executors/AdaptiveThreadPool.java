@@ -0,0 +1,313 @@
+package com.example.multithreading.executors;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread pool that picks its own size instead of hard-coding it
+ * (ExecutorServiceDemo uses a fixed 3).
+ * It wraps a ThreadPoolExecutor (core size = max size, resized at run time)
+ * in an InstrumentedExecutorService, and a controller thread looks at the
+ * metrics every interval, much like the .NET thread pool's hill climbing:
+ * - Setpoint: the mean queue wait should stay below targetQueueDelay.
+ * - Too slow: grow towards the Little's law estimate of the threads needed,
+ * threads = (arrival rate + backlog / target delay) * mean run time,
+ * at most MAX_GROWTH times the current size per step.
+ * - Hill climbing: after a grow, if the backlog is still there but neither
+ * throughput improved by MIN_GAIN nor the queue delay halved, the extra
+ * threads only compete for the CPU: undo the grow and do not go above that
+ * size for a while (the ceiling expires after CEILING_INTERVALS).
+ * - Backlogged at the ceiling: probe downwards by a quarter. If throughput
+ * and delay hold, the smaller size becomes the new ceiling; if throughput
+ * drops by more than MIN_GAIN or the delay doubles, undo it and stop
+ * probing for CEILING_INTERVALS.
+ * - When the mean run time changes by more than WORKLOAD_SHIFT, the task mix
+ * changed: the learned ceiling no longer applies and is dropped.
+ * - Too idle: only when the queue wait is far below the target (hysteresis)
+ * and the queue is empty, shrink by at most a quarter towards the estimate.
+ * - Measurement: each decision looks at a window of WINDOW_TICKS intervals
+ * (real elapsed time, not the nominal interval). After every resize one
+ * interval is thrown away, so the next window ran entirely at the new size.
+ * The controller never resets the shared histograms: it keeps the totals it
+ * saw last and works on the difference, so JMX readers see full history.
+ * Between the two watermarks the size is left alone, so it does not oscillate.
+ */
+public class AdaptiveThreadPool extends AbstractExecutorService {
+
+    private static final double MIN_GAIN = 0.05; // a grow must add 5% throughput
+    private static final double LOW_WATERMARK = 0.25; // shrink below 1/4 of the target delay
+    private static final double SHRINK_HEADROOM = 1.25;
+    private static final int MAX_GROWTH = 4;
+    private static final int WINDOW_TICKS = 2;
+    private static final int CEILING_INTERVALS = 40;
+    private static final double WORKLOAD_SHIFT = 1.5;
+
+    private final ThreadPoolExecutor pool;
+    private final InstrumentedExecutorService metrics;
+    private final ScheduledExecutorService controller;
+    private final int minThreads;
+    private final int maxThreads;
+    private final long targetQueueDelayNanos;
+    private final long intervalNanos;
+
+    // Controller state, only touched by the controller thread.
+    // The current measurement window:
+    private long windowStart = System.nanoTime();
+    private long windowSubmitted = 0;
+    private long windowCompleted = 0;
+    private long waitSum = 0;
+    private long waitCount = 0;
+    private long runSum = 0;
+    private long runCount = 0;
+    // Histogram totals seen at the previous tick
+    private long seenWaitSum = 0;
+    private long seenWaitCount = 0;
+    private long seenRunSum = 0;
+    private long seenRunCount = 0;
+    private int ticks = 0;
+    private boolean settling = false;
+    private double lastRunNanos = 0;
+    // Hill climbing:
+    private enum Move { NONE, GROW, SHRINK }
+
+    private Move lastMove = Move.NONE;
+    private double throughputBefore = 0;
+    private double delayBefore = 0;
+    private int sizeBefore = 0;
+    private int ceiling;
+    private int ceilingTtl = 0;
+    private int probeTtl = 0;
+    private double runNanosAtLimit = 0;
+    private volatile int resizes = 0;
+
+    public AdaptiveThreadPool(int minThreads, int maxThreads, long targetQueueDelay, TimeUnit unit) {
+        this(minThreads, maxThreads, targetQueueDelay, unit, 50, TimeUnit.MILLISECONDS);
+    }
+
+    public AdaptiveThreadPool(int minThreads, int maxThreads, long targetQueueDelay, TimeUnit unit,
+            long interval, TimeUnit intervalUnit) {
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("Need 1 <= minThreads <= maxThreads");
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.ceiling = maxThreads;
+        this.targetQueueDelayNanos = unit.toNanos(targetQueueDelay);
+        this.intervalNanos = intervalUnit.toNanos(interval);
+
+        AtomicInteger workerId = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(minThreads, minThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> new Thread(r, "adaptive-worker-" + workerId.incrementAndGet()));
+        this.metrics = new InstrumentedExecutorService(pool);
+        this.controller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "adaptive-controller");
+            t.setDaemon(true);
+            return t;
+        });
+        // Fixed delay: a late tick must not be followed by catch-up ticks
+        controller.scheduleWithFixedDelay(this::adjust, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        metrics.execute(task);
+    }
+
+    // --- Controller ---
+
+    private void adjust() {
+        try {
+            // Fold this interval's part of the histograms into the window
+            LatencyHistogram wait = metrics.getQueueWaitHistogram();
+            LatencyHistogram run = metrics.getRunTimeHistogram();
+            long total = wait.sum();
+            waitSum += delta(total, seenWaitSum);
+            seenWaitSum = total;
+            total = wait.count();
+            waitCount += delta(total, seenWaitCount);
+            seenWaitCount = total;
+            total = run.sum();
+            runSum += delta(total, seenRunSum);
+            seenRunSum = total;
+            total = run.count();
+            runCount += delta(total, seenRunCount);
+            seenRunCount = total;
+
+            if (ceilingTtl > 0 && --ceilingTtl == 0) {
+                ceiling = maxThreads;
+            }
+            if (probeTtl > 0) {
+                probeTtl--;
+            }
+            long now = System.nanoTime();
+            long submitted = metrics.getSubmittedCount();
+            long completed = metrics.getCompletedCount();
+            if (settling || ++ticks < WINDOW_TICKS) {
+                if (settling) {
+                    settling = false; // this interval mixed the old and the new size
+                    startWindow(now, submitted, completed);
+                }
+                return;
+            }
+
+            double seconds = (now - windowStart) / 1_000_000_000.0;
+            double arrivals = (submitted - windowSubmitted) / seconds;
+            double throughput = (completed - windowCompleted) / seconds;
+            long queued = metrics.getQueuedCount();
+            // Nothing started during the whole window but work is waiting:
+            // the delay is at least the window
+            double delay = waitCount > 0 ? (double) waitSum / waitCount : (queued > 0 ? now - windowStart : 0);
+            if (runCount > 0) {
+                lastRunNanos = (double) runSum / runCount;
+            }
+            startWindow(now, submitted, completed);
+            if (ceiling < maxThreads && (lastRunNanos > runNanosAtLimit * WORKLOAD_SHIFT
+                    || lastRunNanos * WORKLOAD_SHIFT < runNanosAtLimit)) {
+                ceiling = maxThreads; // different tasks now: forget what was learned
+                ceilingTtl = 0;
+                probeTtl = 0;
+            }
+
+            int size = pool.getMaximumPoolSize();
+            boolean backlog = delay > targetQueueDelayNanos && queued > 0;
+
+            // Judge the previous move by the throughput it produced
+            Move move = lastMove;
+            lastMove = Move.NONE;
+            if (backlog && move == Move.GROW && throughput < throughputBefore * (1 + MIN_GAIN)
+                    && delay > delayBefore / 2) {
+                // More threads did not help: go back and remember the limit
+                limitTo(sizeBefore);
+                resize(sizeBefore);
+                return;
+            }
+            if (backlog && move == Move.SHRINK) {
+                if (throughput < throughputBefore * (1 - MIN_GAIN) || delay > delayBefore * 2) {
+                    limitTo(sizeBefore); // fewer threads hurt: go back, stop probing for a while
+                    probeTtl = CEILING_INTERVALS;
+                    resize(sizeBefore);
+                    return;
+                }
+                limitTo(size); // same throughput with fewer threads: keep it
+            }
+
+            double runSeconds = lastRunNanos / 1_000_000_000.0;
+            if (backlog && size < ceiling) {
+                double needed = (arrivals + queued / (targetQueueDelayNanos / 1_000_000_000.0)) * runSeconds;
+                int target = (int) Math.min(Math.min(ceiling, (long) size * MAX_GROWTH),
+                        Math.max(size + 1, Math.ceil(needed)));
+                move(Move.GROW, size, throughput, delay, target);
+            } else if (backlog && size > minThreads && probeTtl == 0) {
+                move(Move.SHRINK, size, throughput, delay, Math.max(minThreads, size - Math.max(1, size / 4)));
+            } else if (delay < targetQueueDelayNanos * LOW_WATERMARK && queued == 0 && size > minThreads) {
+                int needed = (int) Math.ceil(arrivals * runSeconds * SHRINK_HEADROOM);
+                if (needed < size) {
+                    resize(Math.max(minThreads, Math.max(needed, size - Math.max(1, size / 4))));
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // keep the controller scheduled
+        }
+    }
+
+    // Growth of a running total; someone may have called resetStatistics() in between
+    private static long delta(long total, long seen) {
+        return total >= seen ? total - seen : total;
+    }
+
+    private void startWindow(long now, long submitted, long completed) {
+        windowStart = now;
+        windowSubmitted = submitted;
+        windowCompleted = completed;
+        waitSum = waitCount = runSum = runCount = 0;
+        ticks = 0;
+    }
+
+    private void move(Move move, int size, double throughput, double delay, int target) {
+        lastMove = move;
+        sizeBefore = size;
+        throughputBefore = throughput;
+        delayBefore = delay;
+        resize(target);
+    }
+
+    private void limitTo(int size) {
+        ceiling = size;
+        ceilingTtl = CEILING_INTERVALS;
+        runNanosAtLimit = lastRunNanos;
+    }
+
+    private void resize(int size) {
+        int current = pool.getMaximumPoolSize();
+        if (size == current) {
+            return;
+        }
+        // ThreadPoolExecutor requires core <= max at every step
+        if (size > current) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+        resizes++;
+        settling = true;
+    }
+
+    // --- Metrics ---
+
+    /** The pool size the controller has chosen. */
+    public int getPoolSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    public int getResizeCount() {
+        return resizes;
+    }
+
+    /** Live metrics; the controller only reads them, it never resets them. */
+    public InstrumentedExecutorService getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdaptiveThreadPool[size=%d (%d..%d), resizes=%d, completed=%d, queued=%d]",
+                getPoolSize(), minThreads, maxThreads, resizes, metrics.getCompletedCount(), metrics.getQueuedCount());
+    }
+
+    // --- Lifecycle ---
+
+    @Override
+    public void shutdown() {
+        controller.shutdownNow();
+        metrics.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        controller.shutdownNow();
+        return metrics.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return metrics.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return metrics.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return metrics.awaitTermination(timeout, unit);
+    }
+}
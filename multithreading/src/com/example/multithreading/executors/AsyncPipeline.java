@@ -0,0 +1,281 @@
+package com.example.multithreading.executors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A small pipeline API on top of CompletableFuture.
+ * CompletableFutureDemo chains supplyAsync / thenApply on the common
+ * ForkJoinPool; a blocking step there (Thread.sleep, I/O) holds one of its
+ * few threads and starves every other user of the common pool. Here:
+ * - every stage names the executor it runs on (e.g. virtual threads for the
+ * blocking stage, a small fixed pool for CPU work);
+ * - at most maxInFlight chains run at once: submit() blocks while all permits
+ * are taken (backpressure instead of an unbounded backlog);
+ * - every chain has a timeout: the returned future fails with a
+ * TimeoutException, stages that have not started yet are skipped, and a
+ * stage that finishes after the deadline fails the chain; the permit is
+ * returned at the deadline even if a stage hangs;
+ * - every stage records its queue wait (ready until started), run time and
+ * counts, and the pipeline records end-to-end latency and outcomes.
+ *
+ * AsyncPipeline<String, Integer> p = AsyncPipeline.<String>create(1000, 2, TimeUnit.SECONDS)
+ *         .then("fetch", ioExecutor, url -> download(url))
+ *         .then("parse", cpuExecutor, body -> body.length());
+ * CompletableFuture<Integer> length = p.submit("https://...");
+ */
+public class AsyncPipeline<I, O> {
+
+    /** Metrics of one stage. */
+    public static class StageMetrics {
+        private final String name;
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram runTime = new LatencyHistogram();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final long createdAt = System.nanoTime();
+
+        StageMetrics(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCompletedCount() {
+            return runTime.count();
+        }
+
+        public long getFailedCount() {
+            return failed.sum();
+        }
+
+        /** Chains that reached this stage after their deadline. */
+        public long getSkippedCount() {
+            return skipped.sum();
+        }
+
+        public LatencyHistogram getQueueWait() {
+            return queueWait;
+        }
+
+        public LatencyHistogram getRunTime() {
+            return runTime;
+        }
+
+        public double getThroughput() {
+            return getCompletedCount() / ((System.nanoTime() - createdAt) / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s completed=%d failed=%d skipped=%d | wait p50/p99=%.1f/%.1f us | run p50/p99=%.1f/%.1f us",
+                    name, getCompletedCount(), getFailedCount(), getSkippedCount(),
+                    queueWait.percentile(50) / 1_000.0, queueWait.percentile(99) / 1_000.0,
+                    runTime.percentile(50) / 1_000.0, runTime.percentile(99) / 1_000.0);
+        }
+    }
+
+    private static final class Stage {
+        final StageMetrics metrics;
+        final Executor executor;
+        final Function<Object, Object> fn;
+
+        Stage(String name, Executor executor, Function<Object, Object> fn) {
+            this.metrics = new StageMetrics(name);
+            this.executor = executor;
+            this.fn = fn;
+        }
+
+        Object run(Object value, Call call) {
+            long start = System.nanoTime();
+            metrics.queueWait.record(start - call.readyAt);
+            if (start > call.deadline) {
+                metrics.skipped.increment();
+                throw new CompletionException(new TimeoutException("Deadline passed before stage " + metrics.name));
+            }
+            boolean late = false;
+            try {
+                Object result = fn.apply(value);
+                long end = System.nanoTime();
+                metrics.runTime.record(end - start);
+                call.readyAt = end; // the next stage is ready now
+                if (end > call.deadline) {
+                    late = true;
+                    throw new CompletionException(new TimeoutException("Stage " + metrics.name
+                            + " finished after the deadline"));
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (!late) {
+                    metrics.failed.increment();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /** One chain going through the pipeline (handed from stage to stage). */
+    private static final class Call {
+        final long deadline;
+        long readyAt;
+
+        Call(long submittedAt, long deadline) {
+            this.readyAt = submittedAt;
+            this.deadline = deadline;
+        }
+    }
+
+    /** State shared by a pipeline and the longer pipelines built from it. */
+    private static final class Shared {
+        final Semaphore permits;
+        final int maxInFlight;
+        final long timeoutNanos;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failed = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+
+        Shared(int maxInFlight, long timeoutNanos) {
+            this.permits = new Semaphore(maxInFlight);
+            this.maxInFlight = maxInFlight;
+            this.timeoutNanos = timeoutNanos;
+        }
+    }
+
+    private final Shared shared;
+    private final List<Stage> stages;
+
+    private AsyncPipeline(Shared shared, List<Stage> stages) {
+        this.shared = shared;
+        this.stages = stages;
+    }
+
+    /** An empty pipeline (output = input) with the given limits. */
+    public static <T> AsyncPipeline<T, T> create(int maxInFlight, long timeout, TimeUnit unit) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        return new AsyncPipeline<>(new Shared(maxInFlight, unit.toNanos(timeout)), Collections.emptyList());
+    }
+
+    /** Returns a pipeline with one more stage, run on the given executor. */
+    @SuppressWarnings("unchecked")
+    public <R> AsyncPipeline<I, R> then(String name, Executor executor, Function<? super O, ? extends R> fn) {
+        List<Stage> longer = new ArrayList<>(stages);
+        longer.add(new Stage(name, executor, (Function<Object, Object>) fn));
+        return new AsyncPipeline<>(shared, Collections.unmodifiableList(longer));
+    }
+
+    /**
+     * Starts one chain. Blocks while maxInFlight chains are running (a chain
+     * holds its permit until it ends or its deadline passes).
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<O> submit(I input) throws InterruptedException {
+        shared.permits.acquire();
+        long now = System.nanoTime();
+        Call call = new Call(now, now + shared.timeoutNanos);
+
+        CompletableFuture<Object> chain = CompletableFuture.completedFuture(input);
+        for (Stage stage : stages) {
+            chain = chain.thenApplyAsync(value -> stage.run(value, call), stage.executor);
+        }
+        // The chain ends when its last stage completes or when the deadline
+        // passes, whichever comes first: only that one records the outcome
+        // and returns the permit, so a hung stage cannot keep it forever.
+        // (The copy lets the timeout fail the caller's future without
+        // completing the chain itself.)
+        AtomicBoolean ended = new AtomicBoolean();
+        BiConsumer<Object, Throwable> end = (value, error) -> {
+            if (!ended.compareAndSet(false, true)) {
+                return;
+            }
+            shared.latency.record(System.nanoTime() - now);
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof TimeoutException) {
+                    shared.timedOut.increment();
+                } else {
+                    shared.failed.increment();
+                }
+            }
+            shared.permits.release();
+        };
+        chain.whenComplete(end);
+        CompletableFuture<Object> result = chain.copy().orTimeout(shared.timeoutNanos, TimeUnit.NANOSECONDS);
+        result.whenComplete(end);
+        return (CompletableFuture<O>) result;
+    }
+
+    // --- Metrics ---
+
+    public List<StageMetrics> getStageMetrics() {
+        List<StageMetrics> metrics = new ArrayList<>();
+        for (Stage stage : stages) {
+            metrics.add(stage.metrics);
+        }
+        return metrics;
+    }
+
+    /** End-to-end latency of ended chains (from getting a permit to the end or the deadline). */
+    public LatencyHistogram getLatency() {
+        return shared.latency;
+    }
+
+    public long getFailedCount() {
+        return shared.failed.sum();
+    }
+
+    public long getTimedOutCount() {
+        return shared.timedOut.sum();
+    }
+
+    public int getInFlight() {
+        return shared.maxInFlight - shared.permits.availablePermits();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "AsyncPipeline[in flight=%d/%d, finished=%d, failed=%d, timed out=%d, latency p50/p99=%.1f/%.1f ms]",
+                getInFlight(), shared.maxInFlight, shared.latency.count(), getFailedCount(), getTimedOutCount(),
+                shared.latency.percentile(50) / 1_000_000.0, shared.latency.percentile(99) / 1_000_000.0));
+        for (Stage stage : stages) {
+            sb.append(System.lineSeparator()).append("  ").append(stage.metrics);
+        }
+        return sb.toString();
+    }
+
+    // --- Named executors for stages ---
+
+    /** A fixed pool whose threads are called name-1, name-2, ... */
+    public static ExecutorService namedExecutor(String name, int threads) {
+        AtomicInteger id = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, name + "-" + id.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** One virtual thread per task, called name-0, name-1, ...: for blocking stages. */
+    public static ExecutorService namedVirtualExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.multithreading.executors;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs many concurrent CompletableFutureDemo-style chains, a blocking
+ * "fetch" stage (sleep, standing in for I/O) followed by a short CPU
+ * "transform" stage:
+ * - defaultAsync: supplyAsync(fetch).thenApply(transform), exactly as in the
+ * demo. That is the common ForkJoinPool, except when its parallelism is 1
+ * (one or two cores): then CompletableFuture starts a new thread per task.
+ * - sharedPool: the same chains on a ForkJoinPool of max(2, cores - 1)
+ * threads, i.e. what the common pool is on a multi-core machine. The
+ * blocking stage holds its threads.
+ * - pipeline: AsyncPipeline with fetch on named virtual threads and transform
+ * on a named fixed pool, maxInFlight chains at a time.
+ * The baselines are capped at CAP_SECONDS and report how many chains finished.
+ * While each run is going, a probe submits a trivial task to the pool the
+ * baseline used every PROBE_MILLIS and records how long it waited: that is
+ * what every other user of that pool (parallel streams, other futures) sees.
+ * Usage: AsyncPipelineBenchmark [chains] [fetchMillis] [maxInFlight]
+ */
+public class AsyncPipelineBenchmark {
+
+    private static final long CAP_SECONDS = 10;
+    private static final long PROBE_MILLIS = 10;
+
+    private static final AtomicBoolean abort = new AtomicBoolean();
+
+    public static void main(String[] args) throws Exception {
+        int chains = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long fetchMillis = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        ForkJoinPool shared = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+
+        System.out.println("Chains: " + chains + ", fetch: " + fetchMillis + " ms, common pool parallelism: "
+                + ForkJoinPool.getCommonPoolParallelism() + ", shared pool: " + shared.getParallelism()
+                + ", pipeline in flight: " + maxInFlight);
+        System.out.println(String.format("%-12s | %20s | %9s | %10s | %17s | %15s",
+                "Run", "finished", "seconds", "chains/s", "latency p99 (ms)", "probe p99 (ms)"));
+        System.out.println("-----------------------------------------------------------------------------------------------------");
+
+        runBaseline("defaultAsync", null, chains, fetchMillis);
+        runBaseline("sharedPool", shared, chains, fetchMillis);
+        runPipeline(chains, fetchMillis, maxInFlight, shared);
+        shared.shutdown();
+    }
+
+    /** The demo's chain, on the default async executor (null) or the given pool. */
+    private static void runBaseline(String name, Executor executor, int chains, long fetchMillis)
+            throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        CountDownLatch done = new CountDownLatch(chains);
+        Probe probe = Probe.start(executor);
+        abort.set(false);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < chains; i++) {
+            long submitted = System.nanoTime();
+            int id = i;
+            Supplier<Integer> fetch = () -> fetch(id, fetchMillis);
+            (executor == null ? CompletableFuture.supplyAsync(fetch) : CompletableFuture.supplyAsync(fetch, executor))
+                    .thenApply(AsyncPipelineBenchmark::transform)
+                    .whenComplete((v, e) -> {
+                        latency.record(System.nanoTime() - submitted);
+                        done.countDown();
+                    });
+        }
+        boolean all = done.await(CAP_SECONDS, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long finished = chains - done.getCount();
+        double p99 = latency.percentile(99) / 1_000_000.0;
+        abort.set(true); // let the leftover chains drain without sleeping
+        probe.stop();
+
+        System.out.println(String.format("%-12s | %20s | %9.2f | %10.0f | %17.1f | %15.1f",
+                name, finished + "/" + chains + (all ? "" : " (cap)"), seconds, finished / seconds,
+                p99, probe.latency.percentile(99) / 1_000_000.0));
+        done.await(); // drain before the next run
+    }
+
+    private static void runPipeline(int chains, long fetchMillis, int maxInFlight, Executor probed)
+            throws InterruptedException {
+        abort.set(false);
+        ExecutorService io = AsyncPipeline.namedVirtualExecutor("fetch");
+        ExecutorService cpu = AsyncPipeline.namedExecutor("transform", Runtime.getRuntime().availableProcessors());
+        AsyncPipeline<Integer, Integer> pipeline = AsyncPipeline.<Integer>create(maxInFlight, 30, TimeUnit.SECONDS)
+                .then("fetch", io, id -> fetch(id, fetchMillis))
+                .then("transform", cpu, AsyncPipelineBenchmark::transform);
+        CountDownLatch done = new CountDownLatch(chains);
+        Probe probe = Probe.start(probed);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < chains; i++) {
+            pipeline.submit(i).whenComplete((v, e) -> done.countDown());
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        probe.stop();
+
+        System.out.println(String.format("%-12s | %20s | %9.2f | %10.0f | %17.1f | %15.1f",
+                "pipeline", pipeline.getLatency().count() + "/" + chains, seconds, chains / seconds,
+                pipeline.getLatency().percentile(99) / 1_000_000.0, probe.latency.percentile(99) / 1_000_000.0));
+        System.out.println(pipeline);
+        io.close();
+        cpu.shutdown();
+    }
+
+    /** Samples how long a trivial task on the pool waits before it runs. */
+    static class Probe {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final Thread thread = new Thread(this::run, "probe");
+        final Executor executor;
+
+        Probe(Executor executor) {
+            this.executor = executor;
+        }
+
+        static Probe start(Executor executor) {
+            Probe probe = new Probe(executor);
+            probe.thread.setDaemon(true);
+            probe.thread.start();
+            return probe;
+        }
+
+        private void run() {
+            while (!stop.get()) {
+                long sent = System.nanoTime();
+                CompletableFuture<Long> ran = executor == null ? CompletableFuture.supplyAsync(System::nanoTime)
+                        : CompletableFuture.supplyAsync(System::nanoTime, executor);
+                try {
+                    latency.record(ran.get(CAP_SECONDS * 2, TimeUnit.SECONDS) - sent);
+                    TimeUnit.MILLISECONDS.sleep(PROBE_MILLIS);
+                } catch (Exception e) {
+                    latency.record(System.nanoTime() - sent); // never ran in time
+                }
+            }
+        }
+
+        void stop() throws InterruptedException {
+            stop.set(true);
+            thread.join();
+        }
+    }
+
+    private static int fetch(int id, long millis) {
+        if (!abort.get()) {
+            try {
+                Thread.sleep(millis); // stands in for a remote call
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return id;
+    }
+
+    private static int transform(int value) {
+        int h = value;
+        for (int i = 0; i < 100; i++) {
+            h = h * 31 + i;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.multithreading.executors;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Chase-Lev work-stealing deque.
+ * The OWNER thread pushes and pops at the bottom (LIFO, no CAS in the common
+ * case). Other threads steal from the top (FIFO) with one CAS.
+ * Only when owner and thief race for the very last element do both CAS on top.
+ * The array grows (owner only) when full; thieves holding the old array still
+ * read valid elements because the old array is never modified after a grow.
+ * Whoever takes an element clears its slot (if it still holds that element),
+ * so the deque does not keep finished tasks reachable.
+ */
+public class ChaseLevDeque<E> {
+    private static final int INITIAL_CAPACITY = 64; // power of two
+
+    private final AtomicLong top = new AtomicLong(); // next index to steal
+    private volatile long bottom = 0; // next index to push (owner only writes)
+    private volatile AtomicReferenceArray<E> array = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    /**
+     * Owner only.
+     */
+    public void push(E item) {
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<E> a = array;
+        if (b - t >= a.length() - 1) {
+            a = grow(a, t, b);
+        }
+        a.set((int) b & (a.length() - 1), item);
+        bottom = b + 1; // volatile write publishes the element
+    }
+
+    /**
+     * Owner only. Returns null if the deque is empty.
+     */
+    public E pop() {
+        long b = bottom - 1;
+        AtomicReferenceArray<E> a = array;
+        bottom = b; // reserve the bottom element before looking at top
+        long t = top.get();
+        if (t > b) {
+            bottom = b + 1; // empty
+            return null;
+        }
+        int slot = (int) b & (a.length() - 1);
+        E item = a.get(slot);
+        if (t < b) {
+            a.set(slot, null); // more than one element left: no thief can reach this one
+            return item;
+        }
+        // Last element: race with thieves for it
+        if (top.compareAndSet(t, t + 1)) {
+            a.compareAndSet(slot, item, null);
+        } else {
+            item = null; // a thief got it
+        }
+        bottom = b + 1;
+        return item;
+    }
+
+    /**
+     * Any thread. Returns null if the deque is empty or another thread won
+     * the race for the top element.
+     */
+    public E steal() {
+        long t = top.get();
+        long b = bottom;
+        if (t >= b) {
+            return null;
+        }
+        AtomicReferenceArray<E> a = array;
+        int slot = (int) t & (a.length() - 1);
+        E item = a.get(slot);
+        if (!top.compareAndSet(t, t + 1)) {
+            return null; // lost the race (to the owner or another thief)
+        }
+        a.compareAndSet(slot, item, null); // unless the owner has already reused it
+        return item;
+    }
+
+    public int size() {
+        return (int) Math.max(0, bottom - top.get());
+    }
+
+    private AtomicReferenceArray<E> grow(AtomicReferenceArray<E> old, long t, long b) {
+        AtomicReferenceArray<E> bigger = new AtomicReferenceArray<>(old.length() * 2);
+        for (long i = t; i < b; i++) {
+            bigger.set((int) i & (bigger.length() - 1), old.get((int) i & (old.length() - 1)));
+        }
+        array = bigger;
+        return bigger;
+    }
+}
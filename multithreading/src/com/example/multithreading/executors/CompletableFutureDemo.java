@@ -2,10 +2,14 @@ package com.example.multithreading.executors;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Demonstrates asynchronous programming using CompletableFuture.
  * Allows chaining of asynchronous operations.
+ * The last part runs the same chain on an AsyncPipeline, where the blocking
+ * step gets its own executor instead of a common ForkJoinPool thread.
  */
 public class CompletableFutureDemo {
 
@@ -39,5 +43,24 @@ public class CompletableFutureDemo {
 
         CompletableFuture<Integer> combined = future1.thenCombine(future2, (num1, num2) -> num1 + num2);
         System.out.println("Combined Result: " + combined.get());
+
+        // The same chain as a pipeline: blocking stage on virtual threads,
+        // at most 100 chains in flight, 5 second timeout
+        try (ExecutorService io = AsyncPipeline.namedVirtualExecutor("io");
+                ExecutorService cpu = AsyncPipeline.namedExecutor("cpu", 2)) {
+            AsyncPipeline<String, String> pipeline = AsyncPipeline.<String>create(100, 5, TimeUnit.SECONDS)
+                    .then("supply", io, s -> {
+                        System.out.println("Stage 'supply' running on: " + Thread.currentThread());
+                        try {
+                            Thread.sleep(1000);
+                        } catch (InterruptedException e) {
+                            e.printStackTrace();
+                        }
+                        return s;
+                    })
+                    .then("apply", cpu, s -> s + " World!");
+            System.out.println("Pipeline Result: " + pipeline.submit("Hello").get());
+            System.out.println(pipeline);
+        }
     }
 }
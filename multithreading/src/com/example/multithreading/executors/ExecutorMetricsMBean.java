@@ -0,0 +1,39 @@
+package com.example.multithreading.executors;
+
+/**
+ * JMX view of an InstrumentedExecutorService (visible in JConsole / VisualVM
+ * under com.example.multithreading:type=Executor).
+ * Times are in microseconds.
+ */
+public interface ExecutorMetricsMBean {
+
+    long getSubmittedCount();
+
+    long getCompletedCount();
+
+    long getRejectedCount();
+
+    int getActiveCount();
+
+    long getQueuedCount();
+
+    double getUtilization();
+
+    double getQueueWaitMeanMicros();
+
+    double getQueueWaitP50Micros();
+
+    double getQueueWaitP99Micros();
+
+    double getQueueWaitMaxMicros();
+
+    double getRunTimeMeanMicros();
+
+    double getRunTimeP50Micros();
+
+    double getRunTimeP99Micros();
+
+    double getRunTimeMaxMicros();
+
+    void resetStatistics();
+}
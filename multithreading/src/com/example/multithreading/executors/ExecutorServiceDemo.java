@@ -1,18 +1,22 @@
 package com.example.multithreading.executors;
 
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+
 /**
  * Demonstrates using ExecutorService to manage a pool of threads.
  * This is preferred over manually creating Thread objects.
+ * The pool is wrapped in an InstrumentedExecutorService, so its queue wait,
+ * run time and utilization can be watched live in JConsole while it runs.
  */
 public class ExecutorServiceDemo {
 
-    public static void main(String[] args) {
-        // Create a fixed thread pool with 3 threads
-        ExecutorService executor = Executors.newFixedThreadPool(3);
+    public static void main(String[] args) throws JMException {
+        // Create a fixed thread pool with 3 threads, and measure it
+        InstrumentedExecutorService executor = new InstrumentedExecutorService(Executors.newFixedThreadPool(3), 3);
+        executor.registerMBean("ExecutorServiceDemo");
 
         System.out.println("Submitting tasks...");
 
@@ -42,5 +46,6 @@ public class ExecutorServiceDemo {
         }
 
         System.out.println("All tasks finished.");
+        System.out.println(executor);
     }
 }
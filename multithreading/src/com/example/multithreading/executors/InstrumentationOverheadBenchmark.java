@@ -0,0 +1,142 @@
+package com.example.multithreading.executors;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what InstrumentedExecutorService adds to every task.
+ * Both executors run tasks in the calling thread (caller-runs), so the only
+ * difference is the decorator: TimedTask allocation, three nanoTime() calls,
+ * two histogram records and the LongAdder updates.
+ * The task itself is nearly empty, so the difference per task is the overhead.
+ * Several threads record at once to include contention on the shared metrics.
+ * Time is each thread's CPU time, so threads time-sharing a core do not
+ * inflate the result.
+ * Target: under 100 ns per task. Where System.nanoTime() itself is slow
+ * (it is printed first; often 25-40 ns in a VM), timing every task can not
+ * meet it, so sampled timing (1 task in 8) is measured as well.
+ * Usage: InstrumentationOverheadBenchmark [tasksPerThread] [maxThreads]
+ */
+public class InstrumentationOverheadBenchmark {
+
+    private static final double TARGET_NANOS = 100;
+    private static final int[] SAMPLE_EVERY = { 1, 8 };
+
+    /** Runs every task immediately in the submitting thread. */
+    static class CallerRunsExecutor extends AbstractExecutorService {
+        private volatile boolean shutdown = false;
+
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+
+        System.out.println(String.format("Cores: %d, tasks per thread: %d, System.nanoTime(): %.1f ns",
+                cores, tasks, nanoTimeCost()));
+        System.out.println(String.format("%7s | %8s | %14s | %20s | %11s | %s",
+                "Threads", "Timing", "plain ns/task", "instrumented ns/task", "overhead ns", "target < 100 ns"));
+        System.out.println("------------------------------------------------------------------------------------------");
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (int sampleEvery : SAMPLE_EVERY) {
+                // Warm-up both paths, then measure
+                measure(new CallerRunsExecutor(), threads, tasks / 5);
+                measure(new InstrumentedExecutorService(new CallerRunsExecutor(), threads, sampleEvery), threads, tasks / 5);
+                double plain = measure(new CallerRunsExecutor(), threads, tasks);
+                InstrumentedExecutorService instrumented =
+                        new InstrumentedExecutorService(new CallerRunsExecutor(), threads, sampleEvery);
+                double timed = measure(instrumented, threads, tasks);
+                double overhead = timed - plain;
+
+                System.out.println(String.format("%7d | %8s | %14.1f | %20.1f | %11.1f | %s",
+                        threads, sampleEvery == 1 ? "all" : "1 in " + sampleEvery, plain, timed, overhead,
+                        overhead < TARGET_NANOS ? "OK" : "EXCEEDED"));
+                if (instrumented.getCompletedCount() != (long) threads * tasks) {
+                    System.out.println("  ERROR: completed " + instrumented.getCompletedCount() + " tasks");
+                }
+            }
+        }
+    }
+
+    private static double nanoTimeCost() {
+        long sink = 0;
+        long start = 0;
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            start = System.nanoTime();
+            for (int i = 0; i < 5_000_000; i++) {
+                sink += System.nanoTime();
+            }
+        }
+        double cost = (System.nanoTime() - start) / 5_000_000.0;
+        return sink == 42 ? -1 : cost;
+    }
+
+    /** Returns the average CPU time per task of the submitting threads. */
+    private static double measure(ExecutorService executor, int threads, int tasks) throws InterruptedException {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long[] sinks = new long[threads * 16]; // one padded slot per thread
+        long[] elapsed = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                int slot = id * 16;
+                Runnable task = () -> sinks[slot]++;
+                long start = mx.getCurrentThreadCpuTime();
+                for (int i = 0; i < tasks; i++) {
+                    executor.execute(task);
+                }
+                elapsed[id] = mx.getCurrentThreadCpuTime() - start;
+            });
+        }
+        for (Thread w : workers) {
+            w.start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        executor.shutdown();
+
+        long total = 0;
+        for (long e : elapsed) {
+            total += e;
+        }
+        return (double) total / threads / tasks;
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.multithreading.executors;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Wraps any ExecutorService (e.g. Executors.newFixedThreadPool(3) as in
+ * ExecutorServiceDemo) and measures every task that goes through it:
+ * - queue wait: from execute() until a worker starts the task
+ * - run time: how long the task itself ran
+ * - submitted / completed / rejected counts, active and queued tasks
+ * - utilization: busy time / (elapsed time * pool threads)
+ * Recording is lock-free (LongAdder and LatencyHistogram), so the decorator
+ * does not serialize the pool it measures.
+ * Most of the cost per task is the three System.nanoTime() calls. With
+ * sampleEvery = N only about one task in N is timed (chosen at random); the
+ * counts stay exact and the histograms become a sample.
+ * registerMBean() publishes the numbers over JMX (JConsole, VisualVM).
+ */
+public class InstrumentedExecutorService extends AbstractExecutorService implements ExecutorMetricsMBean {
+
+    private final ExecutorService delegate;
+    private final int threads;
+    private final int sampleMask;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long windowStart = System.nanoTime();
+    private volatile long completedBeforeWindow = 0;
+
+    private ObjectName objectName;
+
+    /** The task handed to the delegate when it is not sampled: counts only. */
+    private class CountedTask implements Runnable {
+        final Runnable task;
+
+        CountedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            started.increment();
+            try {
+                task.run();
+            } finally {
+                completed.increment();
+            }
+        }
+    }
+
+    /** A sampled task: also carries its submit time and records both latencies. */
+    private final class TimedTask extends CountedTask {
+        private final long submittedAt;
+
+        TimedTask(Runnable task, long submittedAt) {
+            super(task);
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            queueWait.record(start - submittedAt);
+            started.increment();
+            try {
+                task.run();
+            } finally {
+                runTime.record(System.nanoTime() - start);
+                completed.increment();
+            }
+        }
+    }
+
+    /**
+     * @param delegate the pool that really runs the tasks
+     * @param threads  its number of threads (used for utilization; ignored for
+     *                 a ThreadPoolExecutor, whose current maximum size is read instead)
+     */
+    public InstrumentedExecutorService(ExecutorService delegate, int threads) {
+        this(delegate, threads, 1);
+    }
+
+    public InstrumentedExecutorService(ThreadPoolExecutor delegate) {
+        this(delegate, delegate.getMaximumPoolSize(), 1);
+    }
+
+    /**
+     * @param sampleEvery time about one task in sampleEvery (a power of two;
+     *                    1 times every task)
+     */
+    public InstrumentedExecutorService(ExecutorService delegate, int threads, int sampleEvery) {
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("sampleEvery must be a power of two: " + sampleEvery);
+        }
+        this.delegate = delegate;
+        this.threads = threads;
+        this.sampleMask = sampleEvery - 1;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submitted.increment();
+        try {
+            if (sampleMask == 0 || (ThreadLocalRandom.current().nextInt() & sampleMask) == 0) {
+                delegate.execute(new TimedTask(task, System.nanoTime()));
+            } else {
+                delegate.execute(new CountedTask(task));
+            }
+        } catch (RejectedExecutionException e) {
+            submitted.decrement();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    // --- Metrics ---
+
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getRunTimeHistogram() {
+        return runTime;
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public int getActiveCount() {
+        // Read completed first: started can only have grown since
+        long done = completed.sum();
+        return (int) Math.max(0, started.sum() - done);
+    }
+
+    @Override
+    public long getQueuedCount() {
+        long began = started.sum();
+        return Math.max(0, submitted.sum() - began);
+    }
+
+    @Override
+    public double getUtilization() {
+        long elapsed = System.nanoTime() - windowStart;
+        int poolThreads = delegate instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) delegate).getMaximumPoolSize()
+                : threads;
+        // Busy time = tasks completed in the window * mean sampled run time
+        double busy = (completed.sum() - completedBeforeWindow) * runTime.mean();
+        return elapsed <= 0 ? 0 : Math.min(1.0, busy / ((double) elapsed * poolThreads));
+    }
+
+    @Override
+    public double getQueueWaitMeanMicros() {
+        return queueWait.mean() / 1_000.0;
+    }
+
+    @Override
+    public double getQueueWaitP50Micros() {
+        return queueWait.percentile(50) / 1_000.0;
+    }
+
+    @Override
+    public double getQueueWaitP99Micros() {
+        return queueWait.percentile(99) / 1_000.0;
+    }
+
+    @Override
+    public double getQueueWaitMaxMicros() {
+        return queueWait.max() / 1_000.0;
+    }
+
+    @Override
+    public double getRunTimeMeanMicros() {
+        return runTime.mean() / 1_000.0;
+    }
+
+    @Override
+    public double getRunTimeP50Micros() {
+        return runTime.percentile(50) / 1_000.0;
+    }
+
+    @Override
+    public double getRunTimeP99Micros() {
+        return runTime.percentile(99) / 1_000.0;
+    }
+
+    @Override
+    public double getRunTimeMaxMicros() {
+        return runTime.max() / 1_000.0;
+    }
+
+    /** Clears the histograms and restarts the utilization window (counts are kept). */
+    @Override
+    public void resetStatistics() {
+        completedBeforeWindow = completed.sum();
+        queueWait.reset();
+        runTime.reset();
+        windowStart = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InstrumentedExecutorService[completed=%d, active=%d, queued=%d, rejected=%d, "
+                + "utilization=%.0f%%, wait p50/p99=%.1f/%.1f us, run p50/p99=%.1f/%.1f us]",
+                getCompletedCount(), getActiveCount(), getQueuedCount(), getRejectedCount(), getUtilization() * 100,
+                getQueueWaitP50Micros(), getQueueWaitP99Micros(), getRunTimeP50Micros(), getRunTimeP99Micros());
+    }
+
+    // --- JMX ---
+
+    /** Registers the metrics as com.example.multithreading:type=Executor,name=<name>. */
+    public synchronized void registerMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName on = new ObjectName("com.example.multithreading:type=Executor,name=" + ObjectName.quote(name));
+        server.registerMBean(new StandardMBean(this, ExecutorMetricsMBean.class), on);
+        objectName = on;
+    }
+
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    // --- Lifecycle (delegated) ---
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.multithreading.executors;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.example.multithreading.sync.Stripes;
+
+/**
+ * A lock-free latency histogram in the spirit of HdrHistogram.
+ * Buckets are log-linear: every power of two is split into SUB_BUCKETS equal
+ * parts, so the relative error is below 1 / SUB_BUCKETS (about 3%) from 1 ns
+ * up to Long.MAX_VALUE, using a fixed array of counters.
+ * Like StripedCounter, the counters are split into stripes picked by thread id:
+ * threads recording similar values (the common case) do not fight over one
+ * cache line. record() is two atomic adds on the thread's own stripe, plus a
+ * CAS only when a new maximum is seen. Reads sum all stripes.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // 32 buckets per power of two
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+    private static final int SUM = BUCKETS; // per-stripe slot holding the sum of values
+    private static final int ROW = BUCKETS + 16; // sum slot + padding before the next stripe
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(Stripes.forCores(1));
+    }
+
+    public LatencyHistogram(int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * ROW);
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0; // clock went backwards (should not happen with nanoTime)
+        }
+        int base = Stripes.ofCurrentThread(stripes) * ROW;
+        cells.getAndIncrement(base + bucketOf(value));
+        cells.getAndAdd(base + SUM, value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // another thread raised max concurrently: re-check
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value; // exact for small values
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS
+        int shift = magnitude - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Smallest value that falls into the bucket
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS | sub) << shift;
+    }
+
+    private long bucketCount(int bucket) {
+        long n = 0;
+        for (int s = 0; s < stripes; s++) {
+            n += cells.get(s * ROW + bucket);
+        }
+        return n;
+    }
+
+    public long count() {
+        long n = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            n += bucketCount(b);
+        }
+        return n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /** Sum of all recorded values. */
+    public long sum() {
+        return bucketCount(SUM);
+    }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum() / n;
+    }
+
+    /**
+     * Value at the given percentile (0..100), accurate to the bucket width.
+     */
+    public long percentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = bucketCount(b);
+            n += counts[b];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(lowestValueOf(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+        max.set(0);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.multithreading.executors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fine-grained tasks (1-10 us of CPU work each) on three pools of the same size:
+ * Executors.newFixedThreadPool (one shared queue, as in ExecutorServiceDemo),
+ * ForkJoinPool and WorkStealingExecutor.
+ * Scenarios:
+ * - external: the main thread submits every task with execute().
+ * - batch: the main thread submits all tasks at once (executeAll() where supported).
+ * - fan-out: a few root tasks each submit their children from inside the pool.
+ * Usage: WorkStealingBenchmark [threads] [tasks]
+ */
+public class WorkStealingBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int tasks = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+
+        System.out.println("Threads: " + threads + ", tasks: " + tasks + " (1-10 us each)");
+        for (String scenario : new String[] { "external", "batch", "fan-out" }) {
+            for (String pool : new String[] { "FixedThreadPool", "ForkJoinPool", "WorkStealing" }) {
+                run(pool, scenario, threads, tasks / 5, false); // warm-up
+                run(pool, scenario, threads, tasks, true);
+            }
+        }
+    }
+
+    private static ExecutorService newPool(String name, int threads) {
+        switch (name) {
+            case "FixedThreadPool":
+                return Executors.newFixedThreadPool(threads);
+            case "ForkJoinPool":
+                return new ForkJoinPool(threads);
+            default:
+                return new WorkStealingExecutor(threads);
+        }
+    }
+
+    private static void run(String name, String scenario, int threads, int tasks, boolean report)
+            throws InterruptedException {
+        ExecutorService pool = newPool(name, threads);
+        CountDownLatch done = new CountDownLatch(tasks);
+        Runnable leaf = () -> {
+            busyWork(1_000 + ThreadLocalRandom.current().nextInt(9_000));
+            done.countDown();
+        };
+
+        long start = System.nanoTime();
+        switch (scenario) {
+            case "external":
+                for (int i = 0; i < tasks; i++) {
+                    pool.execute(leaf);
+                }
+                break;
+            case "batch":
+                List<Runnable> all = new ArrayList<>(tasks);
+                for (int i = 0; i < tasks; i++) {
+                    all.add(leaf);
+                }
+                if (pool instanceof WorkStealingExecutor) {
+                    ((WorkStealingExecutor) pool).executeAll(all);
+                } else if (pool instanceof ForkJoinPool) {
+                    ForkJoinPool fj = (ForkJoinPool) pool;
+                    pool.execute(() -> all.forEach(fj::execute)); // submitted from inside: lands in one worker's queue
+                } else {
+                    all.forEach(pool::execute); // no batch API
+                }
+                break;
+            default: // fan-out
+                int roots = threads;
+                for (int r = 0; r < roots; r++) {
+                    int children = tasks / roots + (r < tasks % roots ? 1 : 0);
+                    pool.execute(() -> {
+                        for (int c = 0; c < children; c++) {
+                            pool.execute(leaf);
+                        }
+                    });
+                }
+                break;
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        if (report) {
+            String metrics = pool instanceof WorkStealingExecutor ? "  " + pool : "";
+            System.out.println(String.format("%-9s | %-15s | %10.0f tasks/s%s",
+                    scenario, name, tasks / (elapsed / 1_000_000_000.0), metrics));
+        }
+    }
+
+    private static void busyWork(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
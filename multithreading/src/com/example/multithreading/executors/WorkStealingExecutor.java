@@ -0,0 +1,289 @@
+package com.example.multithreading.executors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An ExecutorService where every worker has its own ChaseLevDeque instead of
+ * all workers sharing one LinkedBlockingQueue (as newFixedThreadPool does).
+ * - Tasks submitted by a worker go to the bottom of its own deque (no contention).
+ * - Tasks submitted from outside go to a worker's inbox, round-robin;
+ * executeAll() hands each worker one chunk with a single enqueue.
+ * - A worker out of work steals from the top of other workers' deques, and
+ * parks only after a full scan found nothing.
+ * Metrics: completed tasks, steals, parks and current queue depth.
+ */
+public class WorkStealingExecutor extends AbstractExecutorService {
+
+    private static final int SPINS_BEFORE_PARK = 64;
+
+    private final Worker[] workers;
+    private final AtomicInteger nextInbox = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder steals = new LongAdder();
+    private final LongAdder parks = new LongAdder();
+
+    private final class Worker extends Thread {
+        final ChaseLevDeque<Runnable> deque = new ChaseLevDeque<>();
+        final ConcurrentLinkedQueue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+        volatile boolean parked = false;
+
+        Worker(int id) {
+            super("ws-worker-" + id);
+        }
+
+        WorkStealingExecutor owner() {
+            return WorkStealingExecutor.this;
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                Runnable task = findTask();
+                if (task != null) {
+                    idle = 0;
+                    runTask(task);
+                } else if (shutdown && !hasVisibleWork()) {
+                    return; // nothing left anywhere, looked for after seeing the flag
+                } else if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    idle = 0;
+                    parked = true;
+                    // Re-check after announcing: a submitter that missed our
+                    // flag must have enqueued before we look again
+                    if (!hasVisibleWork() && !shutdown) {
+                        parks.increment();
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                }
+            }
+        }
+
+        private Runnable findTask() {
+            Runnable task = deque.pop();
+            if (task != null) {
+                return task;
+            }
+            // Move external submissions into our own deque, then take one
+            task = inbox.poll();
+            if (task != null) {
+                Runnable extra;
+                for (int i = 0; i < 32 && (extra = inbox.poll()) != null; i++) {
+                    deque.push(extra);
+                }
+                return task;
+            }
+            return steal();
+        }
+
+        private Runnable steal() {
+            int n = workers.length;
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int i = 0; i < n; i++) {
+                Worker victim = workers[(start + i) % n];
+                if (victim == this) {
+                    continue;
+                }
+                Runnable task = victim.deque.steal();
+                if (task == null) {
+                    task = victim.inbox.poll();
+                }
+                if (task != null) {
+                    steals.increment();
+                    return task;
+                }
+            }
+            return null;
+        }
+    }
+
+    public WorkStealingExecutor(int threads) {
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker w : workers) {
+            w.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        Thread current = Thread.currentThread();
+        if (current instanceof Worker && ((Worker) current).owner() == this) {
+            ((Worker) current).deque.push(task); // local, uncontended; this worker pops it before it exits
+        } else {
+            Worker w = workers[Math.floorMod(nextInbox.getAndIncrement(), workers.length)];
+            w.inbox.offer(task);
+            // Shut down meanwhile: the workers may have exited without seeing the task
+            if (shutdown && w.inbox.remove(task)) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+        }
+        signalWork(1);
+    }
+
+    /**
+     * Batch submission: splits the tasks into one chunk per worker and
+     * enqueues each chunk with a single operation.
+     */
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        List<Runnable> all = new ArrayList<>(tasks);
+        int n = workers.length;
+        int chunk = (all.size() + n - 1) / n;
+        for (int w = 0; w < n && w * chunk < all.size(); w++) {
+            List<Runnable> part = all.subList(w * chunk, Math.min(all.size(), (w + 1) * chunk));
+            workers[w].inbox.addAll(part); // one CAS splices the whole chunk in
+        }
+        if (shutdown) { // as in execute(): take back what no worker will run
+            int rejected = 0;
+            for (int w = 0; w < n && w * chunk < all.size(); w++) {
+                for (Runnable task : all.subList(w * chunk, Math.min(all.size(), (w + 1) * chunk))) {
+                    if (workers[w].inbox.remove(task)) {
+                        rejected++;
+                    }
+                }
+            }
+            if (rejected > 0) {
+                throw new RejectedExecutionException("Executor was shut down: " + rejected + " of " + all.size()
+                        + " tasks rejected");
+            }
+        }
+        signalWork(n);
+    }
+
+    private void signalWork(int wanted) {
+        for (Worker w : workers) {
+            if (wanted == 0) {
+                return;
+            }
+            if (w.parked) {
+                LockSupport.unpark(w);
+                wanted--;
+            }
+        }
+    }
+
+    private boolean hasVisibleWork() {
+        for (Worker w : workers) {
+            if (w.deque.size() > 0 || !w.inbox.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            t.printStackTrace(); // keep the worker alive
+        } finally {
+            completed.increment();
+        }
+    }
+
+    // --- Metrics ---
+
+    public long getCompletedTaskCount() {
+        return completed.sum();
+    }
+
+    public long getStealCount() {
+        return steals.sum();
+    }
+
+    public long getParkCount() {
+        return parks.sum();
+    }
+
+    /** Tasks waiting in all deques and inboxes right now. */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Worker w : workers) {
+            depth += w.deque.size() + w.inbox.size();
+        }
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WorkStealingExecutor[threads=%d, completed=%d, steals=%d, parks=%d, queued=%d]",
+                workers.length, getCompletedTaskCount(), getStealCount(), getParkCount(), getQueueDepth());
+    }
+
+    // --- Lifecycle ---
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker w : workers) {
+            LockSupport.unpark(w); // let parked workers notice
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> pending = new ArrayList<>();
+        for (Worker w : workers) {
+            Runnable task;
+            while ((task = w.deque.steal()) != null || (task = w.inbox.poll()) != null) {
+                pending.add(task);
+            }
+            w.interrupt();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        if (!shutdown) {
+            return false;
+        }
+        for (Worker w : workers) {
+            if (w.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Worker w : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return isTerminated();
+            }
+            TimeUnit.NANOSECONDS.timedJoin(w, remaining);
+        }
+        return isTerminated();
+    }
+}
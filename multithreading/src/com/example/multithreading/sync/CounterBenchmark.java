@@ -0,0 +1,237 @@
+package com.example.multithreading.sync;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares ways to count from many threads (the fix for CounterRaceCondition):
+ * synchronized (SynchronizedCounter), ReentrantLock (the lock/try/finally
+ * pattern of synchronization_examples.MutexSolution, which lives outside this
+ * source tree), AtomicInteger CAS, LongAdder, StripedCounter and
+ * thread-local-then-merge.
+ * Reports increments per second for 1..64 threads and the cost of one sum().
+ * Usage: CounterBenchmark [maxThreads] [millisPerRun]
+ */
+public class CounterBenchmark {
+
+    interface Counter {
+        void increment();
+
+        long sum();
+
+        // Called by each thread after its last increment
+        default void flush() {
+        }
+    }
+
+    static class SynchronizedImpl implements Counter {
+        private final SynchronizedCounter counter = new SynchronizedCounter();
+
+        public void increment() {
+            counter.increment();
+        }
+
+        public long sum() {
+            return counter.getCount();
+        }
+    }
+
+    static class LockImpl implements Counter {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long count = 0;
+
+        public void increment() {
+            lock.lock();
+            try {
+                count++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long sum() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    static class CasImpl implements Counter {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public void increment() {
+            int current;
+            do {
+                current = count.get();
+            } while (!count.compareAndSet(current, current + 1)); // retry if another thread won
+        }
+
+        public long sum() {
+            return count.get();
+        }
+    }
+
+    static class LongAdderImpl implements Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public long sum() {
+            return adder.sum();
+        }
+    }
+
+    static class StripedImpl implements Counter {
+        private final StripedCounter counter = new StripedCounter();
+
+        public void increment() {
+            counter.increment();
+        }
+
+        public long sum() {
+            return counter.sum();
+        }
+    }
+
+    // Each thread counts privately and adds its total once at the end.
+    // sum() only sees flushed counts.
+    static class ThreadLocalImpl implements Counter {
+        private final AtomicLong total = new AtomicLong();
+        private final ThreadLocal<long[]> local = ThreadLocal.withInitial(() -> new long[1]);
+
+        public void increment() {
+            local.get()[0]++;
+        }
+
+        public long sum() {
+            return total.get();
+        }
+
+        public void flush() {
+            long[] mine = local.get();
+            total.addAndGet(mine[0]);
+            mine[0] = 0;
+        }
+    }
+
+    static final String[] NAMES = { "synchronized", "ReentrantLock", "AtomicInteger CAS", "LongAdder",
+            "StripedCounter", "ThreadLocal+merge" };
+
+    static Counter newCounter(String name) {
+        switch (name) {
+            case "synchronized":
+                return new SynchronizedImpl();
+            case "ReentrantLock":
+                return new LockImpl();
+            case "AtomicInteger CAS":
+                return new CasImpl();
+            case "LongAdder":
+                return new LongAdderImpl();
+            case "StripedCounter":
+                return new StripedImpl();
+            case "ThreadLocal+merge":
+                return new ThreadLocalImpl();
+            default:
+                throw new IllegalArgumentException("Unknown counter: " + name);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", " + millis + " ms per run");
+        System.out.print(String.format("%-18s", "Counter \\ threads"));
+        for (int t = 1; t <= maxThreads; t *= 2) {
+            System.out.print(String.format(" | %9d", t));
+        }
+        System.out.println(" | sum() ns");
+
+        // Run every counter once first: the increment() call site becomes
+        // megamorphic, so the JIT cannot inline it and merge (coarsen) the
+        // locks of many increments into one, which would flatter the
+        // lock-based counters.
+        for (String name : NAMES) {
+            run(newCounter(name), 1, 50);
+        }
+
+        for (String name : NAMES) {
+            System.out.print(String.format("%-18s", name));
+            Counter last = null;
+            for (int t = 1; t <= maxThreads; t *= 2) {
+                run(newCounter(name), t, millis / 4); // warm-up
+                last = newCounter(name);
+                double mops = run(last, t, millis);
+                System.out.print(String.format(" | %7.1f M", mops));
+            }
+            System.out.println(String.format(" | %8.1f", sumCost(last)));
+        }
+        System.out.println("(M = million increments per second, all threads together)");
+    }
+
+    // Returns million increments per second.
+    private static double run(Counter counter, int threads, long millis) throws InterruptedException {
+        long[] done = new long[threads];
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + millis * 1_000_000;
+
+        for (int i = 0; i < threads; i++) {
+            int id = i;
+            workers[i] = new Thread(() -> {
+                long n = 0;
+                // Check the clock only every 1024 increments
+                while (System.nanoTime() < deadline) {
+                    for (int k = 0; k < 1024; k++) {
+                        counter.increment();
+                    }
+                    n += 1024;
+                }
+                counter.flush();
+                done[id] = n;
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread w : workers) {
+            w.start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long expected = 0;
+        for (long n : done) {
+            expected += n;
+        }
+        if (counter.sum() != expected) {
+            System.err.println("Error: lost updates (" + counter.sum() + " != " + expected + ")");
+        }
+        return expected / seconds / 1_000_000;
+    }
+
+    // Nanoseconds per sum() on a counter that many threads have touched.
+    private static double sumCost(Counter counter) {
+        long sink = 0;
+        int calls = 1_000_000;
+        for (int i = 0; i < calls; i++) { // warm-up
+            sink += counter.sum();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += counter.sum();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print(""); // keep 'sink' alive
+        }
+        return (double) elapsed / calls;
+    }
+}
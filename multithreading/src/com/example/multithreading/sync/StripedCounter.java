@@ -0,0 +1,37 @@
+package com.example.multithreading.sync;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter split into padded stripes (a simplified LongAdder).
+ * Each thread increments the stripe picked by its thread id, so threads on
+ * different cores rarely write the same cache line. sum() adds up all
+ * stripes, so reading is O(stripes) and only exact when nobody increments.
+ */
+public class StripedCounter {
+    private static final int PADDING = 16; // 16 longs = 128 bytes between stripes
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    public StripedCounter() {
+        this(Stripes.forCores(4));
+    }
+
+    public StripedCounter(int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+    }
+
+    public void increment() {
+        cells.getAndIncrement(Stripes.ofCurrentThread(stripes) * PADDING);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+}
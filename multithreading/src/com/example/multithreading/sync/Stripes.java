@@ -0,0 +1,25 @@
+package com.example.multithreading.sync;
+
+/**
+ * Stripe sizing and selection shared by the striped structures
+ * (StripedCounter, LatencyHistogram).
+ * A thread always lands on the same stripe: its id is spread with a
+ * Fibonacci hash, so consecutive ids end up on different stripes.
+ */
+public final class Stripes {
+
+    private Stripes() {
+    }
+
+    /** Smallest power of two with at least perCore stripes per available core. */
+    public static int forCores(int perCore) {
+        int wanted = Math.max(1, Runtime.getRuntime().availableProcessors()) * perCore;
+        return wanted <= 1 ? 1 : Integer.highestOneBit(wanted - 1) << 1;
+    }
+
+    /** Stripe of the calling thread, in 0..stripes-1. */
+    public static int ofCurrentThread(int stripes) {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) % stripes;
+    }
+}
@@ -13,6 +13,10 @@ public class SynchronizedCounter {
         count++;
     }
 
+    public synchronized int getCount() {
+        return count;
+    }
+
     public static void main(String[] args) throws InterruptedException {
         SynchronizedCounter counter = new SynchronizedCounter();
 
@@ -0,0 +1,106 @@
+package synchronization_examples;
+
+/**
+ * BatchTransferBenchmark.java
+ * 
+ * Measures how batching changes the throughput of the semaphore-based
+ * bounded buffer (ProducerConsumerSemaphore.offerAll / drain).
+ * 
+ * One producer pushes ITEMS items in batches of size B, one consumer drains
+ * up to B items per call. B goes from 1 to 1024.
+ * 
+ * Note: the buffer only has BUFFER_SIZE (5) slots, so a batch can never
+ * claim more than 5 slots per synchronization step. Larger batches still
+ * save the per-call overhead, but the curve flattens at the buffer size.
+ * A larger buffer moves that knee to the right.
+ * 
+ * The monitor-based buffer (ProducerConsumer in the multithreading tree)
+ * has the same sweep in BatchProducerConsumerBenchmark. The two trees are
+ * compiled separately, so each buffer is measured next to its own code.
+ * 
+ * Usage: java synchronization_examples.BatchTransferBenchmark [items]
+ */
+public class BatchTransferBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        System.out.println("Items per run: " + items);
+        System.out.println("--------------------------------------------------");
+
+        double best = 0;
+        int bestBatch = 1;
+        double[] results = new double[11];
+        for (int k = 0; k <= 10; k++) {
+            int batch = 1 << k;
+            measure(batch, items); // warm-up
+            results[k] = measure(batch, items);
+            System.out.println(String.format("Batch %4d | %8.2f M items/s", batch, results[k]));
+            if (results[k] > best) {
+                best = results[k];
+                bestBatch = batch;
+            }
+        }
+
+        // Smallest batch within 5% of the best: same throughput, lower latency
+        int pick = bestBatch;
+        for (int k = 0; k <= 10; k++) {
+            if (results[k] >= best * 0.95) {
+                pick = 1 << k;
+                break;
+            }
+        }
+        System.out.println("--------------------------------------------------");
+        System.out.println("Best batch: " + bestBatch + ", smallest batch within 5% of best: " + pick);
+    }
+
+    private static double measure(int batch, int items) throws InterruptedException {
+        int rounds = items / batch;
+        int total = rounds * batch;
+
+        Thread producer = new Thread(() -> {
+            int[] chunk = new int[batch];
+            try {
+                for (int r = 0; r < rounds; r++) {
+                    for (int i = 0; i < batch; i++) {
+                        chunk[i] = r * batch + i;
+                    }
+                    ProducerConsumerSemaphore.offerAll(chunk);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long[] sum = new long[1];
+        Thread consumer = new Thread(() -> {
+            int[] dst = new int[batch];
+            int taken = 0;
+            long s = 0;
+            try {
+                while (taken < total) {
+                    int n = ProducerConsumerSemaphore.drain(dst, Math.min(batch, total - taken));
+                    for (int i = 0; i < n; i++) {
+                        s += dst[i];
+                    }
+                    taken += n;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sum[0] = s;
+        });
+
+        long start = System.nanoTime();
+        producer.start();
+        consumer.start();
+        producer.join();
+        consumer.join();
+        long elapsed = System.nanoTime() - start;
+
+        if (sum[0] != (long) total * (total - 1) / 2) {
+            System.err.println("Error: checksum mismatch (lost or duplicated items)!");
+        }
+        return total / (elapsed / 1_000.0);
+    }
+}
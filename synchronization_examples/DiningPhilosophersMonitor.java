@@ -1,5 +1,6 @@
 package synchronization_examples;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -87,7 +88,7 @@ public class DiningPhilosophersMonitor {
         }
     }
 
-    static class Philosopher extends Thread {
+    static class Philosopher implements Runnable {
         private int id;
 
         public Philosopher(int id) {
@@ -114,8 +115,14 @@ public class DiningPhilosophersMonitor {
     }
 
     public static void main(String[] args) {
-        for (int i = 0; i < N; i++) {
-            new Philosopher(i).start();
-        }
+        // "virtual" as first argument runs the philosophers on virtual threads
+        ThreadMode mode = ThreadMode.fromArgs(args);
+        mode.printBanner();
+
+        try (ExecutorService philosophers = mode.newExecutor()) {
+            for (int i = 0; i < N; i++) {
+                philosophers.submit(new Philosopher(i));
+            }
+        } // close() waits for the philosophers (they run forever)
     }
 }
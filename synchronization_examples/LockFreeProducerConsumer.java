@@ -0,0 +1,173 @@
+package synchronization_examples;
+
+import synchronization_examples.MpmcRingBuffer.WaitStrategy;
+
+/**
+ * LockFreeProducerConsumer.java
+ * 
+ * The Bounded-Buffer Problem again, this time on top of the lock-free
+ * MpmcRingBuffer instead of three semaphores.
+ * 
+ * Same roles as ProducerConsumerSemaphore:
+ * - Producers: Generate data and put into buffer.
+ * - Consumers: Remove data from buffer.
+ * 
+ * Differences:
+ * - No semaphores and no mutex: one CAS per put/take.
+ * - Any number of producers and consumers may run at once.
+ * - The wait strategy (SPIN, YIELD, PARK) decides what a thread does while
+ * the buffer is full/empty.
+ * 
+ * Usage:
+ * java synchronization_examples.LockFreeProducerConsumer [SPIN|YIELD|PARK] [demo|bench] [items]
+ * - demo (default): 2 producers / 2 consumers printing every item.
+ * - bench: moves 'items' (default 10M) through the buffer with 1..4
+ * producer/consumer pairs for every wait strategy and prints throughput.
+ * SPIN is skipped when there are more threads than cores: a spinning
+ * thread would only burn the time slice of the thread it waits for.
+ */
+public class LockFreeProducerConsumer {
+
+    private static final int BUFFER_SIZE = 8; // power of two
+
+    static class Producer extends Thread {
+        private final MpmcRingBuffer buffer;
+        private final int id;
+
+        public Producer(MpmcRingBuffer buffer, int id) {
+            this.buffer = buffer;
+            this.id = id;
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    int item = (int) (Math.random() * 100); // Produce item
+
+                    buffer.put(item); // Waits (spin/yield/park) while full
+                    System.out.println("Producer " + id + " produced: " + item);
+
+                    Thread.sleep((long) (Math.random() * 1000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static class Consumer extends Thread {
+        private final MpmcRingBuffer buffer;
+        private final int id;
+
+        public Consumer(MpmcRingBuffer buffer, int id) {
+            this.buffer = buffer;
+            this.id = id;
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    int item = buffer.take(); // Waits (spin/yield/park) while empty
+                    System.out.println("Consumer " + id + " consumed: " + item);
+
+                    Thread.sleep((long) (Math.random() * 1000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        WaitStrategy strategy = args.length > 0 ? WaitStrategy.valueOf(args[0].toUpperCase()) : WaitStrategy.PARK;
+        boolean bench = args.length > 1 && args[1].equalsIgnoreCase("bench");
+
+        if (bench) {
+            int items = args.length > 2 ? Integer.parseInt(args[2]) : 10_000_000;
+            runBenchmark(items);
+            return;
+        }
+
+        MpmcRingBuffer buffer = new MpmcRingBuffer(BUFFER_SIZE, strategy);
+        System.out.println("Wait strategy: " + strategy + ", capacity: " + buffer.capacity());
+        for (int i = 1; i <= 2; i++) {
+            new Producer(buffer, i).start();
+            new Consumer(buffer, i).start();
+        }
+    }
+
+    // --- Throughput benchmark (no printing, no sleeping) ---
+
+    private static final int BENCH_CAPACITY = 1024;
+
+    private static void runBenchmark(int items) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Items per run: " + items + ", capacity: " + BENCH_CAPACITY + ", cores: " + cores);
+        System.out.println("--------------------------------------------------");
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            for (int pairs = 1; pairs <= 4; pairs *= 2) {
+                if (strategy == WaitStrategy.SPIN && pairs * 2 > cores) {
+                    System.out.println(String.format("%-5s | %d producer(s) / %d consumer(s) | skipped (threads > cores)",
+                            strategy, pairs, pairs));
+                    continue;
+                }
+                measure(strategy, pairs, items); // warm-up
+                double mops = measure(strategy, pairs, items);
+                System.out.println(String.format("%-5s | %d producer(s) / %d consumer(s) | %8.2f M items/s",
+                        strategy, pairs, pairs, mops));
+            }
+        }
+    }
+
+    private static double measure(WaitStrategy strategy, int pairs, int items) throws InterruptedException {
+        MpmcRingBuffer buffer = new MpmcRingBuffer(BENCH_CAPACITY, strategy);
+        int perThread = items / pairs;
+        Thread[] threads = new Thread[pairs * 2];
+        long[] checksums = new long[pairs];
+
+        for (int p = 0; p < pairs; p++) {
+            threads[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        buffer.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        for (int c = 0; c < pairs; c++) {
+            int id = c;
+            threads[pairs + c] = new Thread(() -> {
+                long sum = 0;
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        sum += buffer.take();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                checksums[id] = sum;
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long expected = (long) pairs * perThread * (perThread - 1L) / 2;
+        long actual = 0;
+        for (long sum : checksums) {
+            actual += sum;
+        }
+        if (actual != expected) {
+            System.err.println("Error: checksum mismatch (lost or duplicated items)!");
+        }
+        return (double) pairs * perThread / (elapsed / 1_000.0);
+    }
+}
@@ -0,0 +1,224 @@
+package synchronization_examples;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MpmcRingBuffer.java
+ * 
+ * A lock-free Multi-Producer / Multi-Consumer bounded buffer (Vyukov style).
+ * 
+ * Compared to ProducerConsumerSemaphore:
+ * - No 'empty' / 'full' / 'mutex' semaphores. Each slot carries its own
+ * sequence number that tells producers and consumers whose turn it is.
+ * - Producers race on 'tail' with a single CAS, consumers race on 'head'.
+ * A producer and a consumer never touch the same index variable.
+ * - Capacity is rounded up to a power of two, so (index % N) becomes
+ * (index & mask).
+ * - 'head' and 'tail' sit on separate cache lines (padding fields), so
+ * producers and consumers do not invalidate each other's line.
+ * 
+ * Slot protocol (for slot i = pos & mask):
+ * - sequence == pos : slot is EMPTY and ready for the producer claiming pos.
+ * - sequence == pos + 1 : slot is FULL and ready for the consumer claiming pos.
+ * - After consuming, the consumer sets sequence = pos + capacity, i.e. the
+ * slot is empty again for the producer one lap later.
+ */
+public class MpmcRingBuffer {
+
+    /**
+     * What a producer (consumer) does while the buffer is full (empty).
+     */
+    public enum WaitStrategy {
+        SPIN, // busy-wait: lowest latency, burns a core
+        YIELD, // give the core to another runnable thread
+        PARK; // sleep briefly: cheapest on CPU, highest latency
+
+        void idle(int attempt) {
+            switch (this) {
+                case SPIN:
+                    Thread.onSpinWait();
+                    break;
+                case YIELD:
+                    Thread.yield();
+                    break;
+                case PARK:
+                    // Spin a little first: most waits are short
+                    if (attempt < 100) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(1_000);
+                    }
+                    break;
+            }
+        }
+    }
+
+    // --- Padding: keep head and tail on their own cache lines ---
+    // Field layout follows the class hierarchy, so padding fields declared in
+    // super/sub classes surround the hot field.
+    abstract static class Pad0 {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    abstract static class TailField extends Pad0 {
+        volatile long tail; // next position to produce into
+    }
+
+    abstract static class Pad1 extends TailField {
+        long p11, p12, p13, p14, p15, p16, p17;
+    }
+
+    abstract static class HeadField extends Pad1 {
+        volatile long head; // next position to consume from
+    }
+
+    abstract static class Pad2 extends HeadField {
+        long p21, p22, p23, p24, p25, p26, p27;
+    }
+
+    static final class Indices extends Pad2 {
+    }
+
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(TailField.class, "tail", long.class);
+            HEAD = lookup.findVarHandle(HeadField.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final int mask;
+    private final int[] buffer;
+    private final AtomicLongArray sequence;
+    private final Indices indices = new Indices();
+    private final WaitStrategy waitStrategy;
+
+    public MpmcRingBuffer(int requestedCapacity, WaitStrategy waitStrategy) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("capacity must be >= 2");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1; // next power of two
+        this.mask = capacity - 1;
+        this.buffer = new int[capacity];
+        this.sequence = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequence.set(i, i); // every slot starts EMPTY for lap 0
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Non-blocking insert. Returns false if the buffer is full.
+     */
+    public boolean offer(int item) {
+        long pos = indices.tail;
+        while (true) {
+            int slot = (int) pos & mask;
+            long seq = sequence.get(slot);
+            long diff = seq - pos;
+            if (diff == 0) {
+                // Slot is empty for this lap: try to claim it
+                if (TAIL.compareAndSet(indices, pos, pos + 1)) {
+                    buffer[slot] = item;
+                    sequence.lazySet(slot, pos + 1); // publish: slot is FULL
+                    return true;
+                }
+                pos = indices.tail; // lost the race, retry with fresh tail
+            } else if (diff < 0) {
+                return false; // consumer has not freed this slot yet: full
+            } else {
+                pos = indices.tail; // another producer moved ahead
+            }
+        }
+    }
+
+    /**
+     * Non-blocking remove into dst[0]. Returns false if the buffer is empty.
+     */
+    public boolean poll(int[] dst) {
+        long item = tryTake();
+        if (item == NONE) {
+            return false;
+        }
+        dst[0] = (int) item;
+        return true;
+    }
+
+    // Returns the item widened to long, or NONE if the buffer is empty.
+    // (Avoids allocating an out-parameter on the hot path of take().)
+    private long tryTake() {
+        long pos = indices.head;
+        while (true) {
+            int slot = (int) pos & mask;
+            long seq = sequence.get(slot);
+            long diff = seq - (pos + 1);
+            if (diff == 0) {
+                if (HEAD.compareAndSet(indices, pos, pos + 1)) {
+                    int item = buffer[slot];
+                    sequence.lazySet(slot, pos + capacity); // slot is EMPTY for next lap
+                    return item;
+                }
+                pos = indices.head;
+            } else if (diff < 0) {
+                return NONE; // producer has not filled this slot yet: empty
+            } else {
+                pos = indices.head;
+            }
+        }
+    }
+
+    /**
+     * Blocking insert: waits (using the wait strategy) while the buffer is full.
+     */
+    public void put(int item) throws InterruptedException {
+        int attempt = 0;
+        while (!offer(item)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt++);
+        }
+    }
+
+    /**
+     * Blocking remove: waits (using the wait strategy) while the buffer is empty.
+     */
+    public int take() throws InterruptedException {
+        int attempt = 0;
+        long item;
+        while ((item = tryTake()) == NONE) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt++);
+        }
+        return (int) item;
+    }
+
+    /**
+     * Approximate number of items (exact only when no thread is active).
+     */
+    public int size() {
+        long size = indices.tail - indices.head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+}
@@ -0,0 +1,85 @@
+package synchronization_examples;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PhaseFairRwLock.java
+ * 
+ * A phase-fair ticket readers-writers lock (Brandenburg & Anderson).
+ * 
+ * Readers and writers take turns in PHASES:
+ * - a writer waits for at most one read phase (the readers already inside);
+ * - a reader waits for at most one write phase (the writer inside or next).
+ * So neither readers nor writers can starve.
+ * 
+ * State (four counters, no semaphores):
+ * - win / wout: ticket lock among writers (take a ticket, wait your turn).
+ * - rin / rout: readers that entered / left, counted in steps of RINC.
+ * The two low bits of rin are the writer bits:
+ * PRES = a writer is present, PHID = which write phase (alternates).
+ * 
+ * Reader: add RINC to rin. If writer bits were set, wait until they change
+ * (that writer's phase is over).
+ * Writer: take a ticket, wait for the previous writer, then set the writer
+ * bits in rin (stops new readers) and wait until rout catches up with the
+ * readers that entered before.
+ * 
+ * Waiting is a short spin followed by Thread.yield().
+ */
+public class PhaseFairRwLock implements RwLock {
+
+    private static final int RINC = 0x100; // reader increment
+    private static final int WBITS = 0x3; // writer bits in rin
+    private static final int PRES = 0x2; // writer present
+    private static final int PHID = 0x1; // phase id
+
+    private final AtomicInteger rin = new AtomicInteger();
+    private final AtomicInteger rout = new AtomicInteger();
+    private final AtomicInteger win = new AtomicInteger();
+    private final AtomicInteger wout = new AtomicInteger();
+
+    public void readLock() {
+        int w = rin.getAndAdd(RINC) & WBITS;
+        if (w != 0) {
+            int spins = 0;
+            while (w == (rin.get() & WBITS)) { // wait for this write phase to end
+                spins = backoff(spins);
+            }
+        }
+    }
+
+    public void readUnlock() {
+        rout.getAndAdd(RINC);
+    }
+
+    public void writeLock() {
+        int ticket = win.getAndIncrement();
+        int spins = 0;
+        while (ticket != wout.get()) { // wait for earlier writers
+            spins = backoff(spins);
+        }
+        int w = PRES | (ticket & PHID);
+        int readers = rin.getAndAdd(w); // block new readers
+        while (readers != rout.get()) { // wait for readers already inside
+            spins = backoff(spins);
+        }
+    }
+
+    public void writeUnlock() {
+        // Clear the writer bits: readers waiting on this phase may go
+        int current;
+        do {
+            current = rin.get();
+        } while (!rin.compareAndSet(current, current & ~WBITS));
+        wout.incrementAndGet(); // next writer's turn
+    }
+
+    private static int backoff(int spins) {
+        if (spins < 64) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+        return spins + 1;
+    }
+}
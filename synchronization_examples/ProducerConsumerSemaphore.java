@@ -1,5 +1,6 @@
 package synchronization_examples;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 
 /**
@@ -16,6 +17,11 @@ import java.util.concurrent.Semaphore;
  * - Semaphore empty (initialized to N): Counts empty slots.
  * - Semaphore full (initialized to 0): Counts filled slots.
  * - Semaphore mutex (initialized to 1): Protects index manipulation.
+ * 
+ * Batch operations (offerAll / drain):
+ * - Claim a whole run of slots with one acquire + drainPermits() on
+ * 'empty' (or 'full') and copy the run under a single 'mutex' round-trip,
+ * instead of paying ~4 semaphore operations per item.
  */
 public class ProducerConsumerSemaphore {
 
@@ -29,7 +35,7 @@ public class ProducerConsumerSemaphore {
     private static final Semaphore full = new Semaphore(0);
     private static final Semaphore mutex = new Semaphore(1);
 
-    static class Producer extends Thread {
+    static class Producer implements Runnable {
         public void run() {
             try {
                 while (true) {
@@ -53,7 +59,7 @@ public class ProducerConsumerSemaphore {
         }
     }
 
-    static class Consumer extends Thread {
+    static class Consumer implements Runnable {
         public void run() {
             try {
                 while (true) {
@@ -75,9 +81,68 @@ public class ProducerConsumerSemaphore {
         }
     }
 
+    /**
+     * Puts all items into the buffer, claiming as many free slots as are
+     * available per synchronization step. Blocks while the buffer is full.
+     */
+    static void offerAll(int[] items) throws InterruptedException {
+        int offered = 0;
+        while (offered < items.length) {
+            empty.acquire(); // Wait for at least one empty slot
+            int claimed = 1 + empty.drainPermits(); // ...and take every other free slot too
+            int n = Math.min(claimed, items.length - offered);
+            if (claimed > n) {
+                empty.release(claimed - n); // Give back what we do not need
+            }
+
+            mutex.acquire(); // One critical section for the whole run
+            for (int i = 0; i < n; i++) {
+                buffer[tail] = items[offered + i];
+                tail = (tail + 1) % BUFFER_SIZE;
+            }
+            mutex.release();
+
+            full.release(n); // Signal n full slots at once
+            offered += n;
+        }
+    }
+
+    /**
+     * Takes between 1 and max items into dst (starting at dst[0]) and returns
+     * how many were taken. Blocks while the buffer is empty.
+     */
+    static int drain(int[] dst, int max) throws InterruptedException {
+        if (max <= 0 || max > dst.length) {
+            // Checked before any permit is taken: failing later would leave mutex held
+            throw new IllegalArgumentException("max must be in 1.." + dst.length + ": " + max);
+        }
+        full.acquire(); // Wait for at least one full slot
+        int claimed = 1 + full.drainPermits();
+        int n = Math.min(claimed, max);
+        if (claimed > n) {
+            full.release(claimed - n);
+        }
+
+        mutex.acquire();
+        for (int i = 0; i < n; i++) {
+            dst[i] = buffer[head];
+            head = (head + 1) % BUFFER_SIZE;
+        }
+        mutex.release();
+
+        empty.release(n); // Signal n empty slots at once
+        return n;
+    }
+
     public static void main(String[] args) {
-        new Producer().start();
-        new Consumer().start();
-        // You can add more producers/consumers here
+        // "virtual" as first argument runs the workers on virtual threads
+        ThreadMode mode = ThreadMode.fromArgs(args);
+        mode.printBanner();
+
+        try (ExecutorService workers = mode.newExecutor()) {
+            workers.submit(new Producer());
+            workers.submit(new Consumer());
+            // You can add more producers/consumers here
+        } // close() waits for the workers (they run forever)
     }
 }
@@ -0,0 +1,197 @@
+package synchronization_examples;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RaceStressHarness.java
+ * 
+ * RaceConditionDemo and CounterRaceCondition run ONE race and print whether
+ * it happened. This harness (in the style of OpenJDK's jcstress) runs the
+ * same unsynchronized interleavings MILLIONS of times and counts how often
+ * each outcome shows up.
+ * 
+ * Tests:
+ * - inc/inc: both actors do counter++ (CounterRaceCondition). Expected 2k.
+ * - inc/dec: one actor does counter++, the other counter-- (RaceConditionDemo).
+ * Expected 0.
+ * 
+ * One TRIAL = a fresh counter, actor 1 applies its operation k times, actor 2
+ * applies its operation k times, both at the same moment. Trials run in
+ * batches: both actors wait at a spin barrier, then sweep over BATCH fresh
+ * counters, so the two threads really hit the same counter at nearly the
+ * same time. Several actor pairs can run side by side (on different cores).
+ * 
+ * Reported per configuration (test, k, pairs):
+ * - race rate: fraction of trials whose outcome != expected
+ * - lost-update rate: |actual - expected| summed over trials, divided by the
+ * number of operations (for inc/dec a lost ++ and a lost -- can cancel,
+ * so this is a lower bound)
+ * - histogram of outcomes (most frequent first)
+ * 
+ * Note: the JIT may merge k plain increments into one "+= k", which changes
+ * (usually shrinks) the race window. That is what this code really does on
+ * this JVM, so it is measured as-is.
+ * 
+ * Usage: java synchronization_examples.RaceStressHarness [trialsPerConfig] [maxPairs]
+ */
+public class RaceStressHarness {
+
+    private static final int BATCH = 1024;
+    private static final int[] OPS_PER_TRIAL = { 1, 10, 100 };
+
+    /** One trial's shared state (a separate object, like the demos' counter). */
+    static class State {
+        int counter;
+    }
+
+    enum Test {
+        INC_INC("inc/inc"), INC_DEC("inc/dec");
+
+        final String label;
+
+        Test(String label) {
+            this.label = label;
+        }
+
+        int expected(int k) {
+            return this == INC_INC ? 2 * k : 0;
+        }
+    }
+
+    /** Barrier for exactly two threads, busy-waiting (briefly) like jcstress. */
+    static class SpinBarrier {
+        private final AtomicInteger arrived = new AtomicInteger();
+        private volatile int generation = 0;
+
+        void await() {
+            int gen = generation;
+            if (arrived.incrementAndGet() == 2) {
+                arrived.set(0);
+                generation = gen + 1; // release the partner
+                return;
+            }
+            int spins = 0;
+            while (generation == gen) {
+                if (++spins < 1000) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxPairs = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(1, cores / 2);
+
+        System.out.println("Cores: " + cores + ", trials per configuration: " + trials);
+        System.out.println("--------------------------------------------------------------------------");
+        for (Test test : Test.values()) {
+            for (int k : OPS_PER_TRIAL) {
+                for (int pairs = 1; pairs <= maxPairs; pairs *= 2) {
+                    run(test, k, pairs, trials);
+                }
+            }
+        }
+    }
+
+    private static void run(Test test, int k, int pairs, int trials) throws InterruptedException {
+        int batchesPerPair = Math.max(1, trials / pairs / BATCH);
+        List<Map<Integer, Long>> histograms = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < pairs; p++) {
+            State[] states = new State[BATCH];
+            SpinBarrier barrier = new SpinBarrier();
+            Map<Integer, Long> histogram = new HashMap<>();
+            histograms.add(histogram);
+
+            // Actor 1: always counter++, and tallies the outcomes of each batch
+            threads.add(new Thread(() -> {
+                for (int b = 0; b < batchesPerPair; b++) {
+                    for (int i = 0; i < BATCH; i++) {
+                        states[i] = new State();
+                    }
+                    barrier.await(); // fresh states ready: go
+                    for (int i = 0; i < BATCH; i++) {
+                        State s = states[i];
+                        for (int j = 0; j < k; j++) {
+                            s.counter++;
+                        }
+                    }
+                    barrier.await(); // both actors done with this batch
+                    for (int i = 0; i < BATCH; i++) {
+                        histogram.merge(states[i].counter, 1L, Long::sum);
+                    }
+                }
+            }));
+
+            // Actor 2: counter++ or counter-- depending on the test
+            threads.add(new Thread(() -> {
+                for (int b = 0; b < batchesPerPair; b++) {
+                    barrier.await();
+                    for (int i = 0; i < BATCH; i++) {
+                        State s = states[i];
+                        for (int j = 0; j < k; j++) {
+                            if (test == Test.INC_INC) {
+                                s.counter++;
+                            } else {
+                                s.counter--;
+                            }
+                        }
+                    }
+                    barrier.await();
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        // Merge the per-pair histograms
+        Map<Integer, Long> outcomes = new HashMap<>();
+        for (Map<Integer, Long> h : histograms) {
+            h.forEach((value, count) -> outcomes.merge(value, count, Long::sum));
+        }
+
+        int expected = test.expected(k);
+        long total = 0, raced = 0, lost = 0;
+        for (Map.Entry<Integer, Long> e : outcomes.entrySet()) {
+            total += e.getValue();
+            if (e.getKey() != expected) {
+                raced += e.getValue();
+                lost += (long) Math.abs(e.getKey() - expected) * e.getValue();
+            }
+        }
+
+        System.out.println(String.format("%s k=%-3d pairs=%-2d | %9d trials in %5.2f s | race rate %8.4f%% | lost-update rate %8.4f%%",
+                test.label, k, pairs, total, seconds, 100.0 * raced / total, 100.0 * lost / (2.0 * k * total)));
+        printHistogram(outcomes, expected, total);
+    }
+
+    private static void printHistogram(Map<Integer, Long> outcomes, int expected, long total) {
+        List<Map.Entry<Integer, Long>> entries = new ArrayList<>(outcomes.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        int shown = 0;
+        for (Map.Entry<Integer, Long> e : entries) {
+            if (shown++ == 6) {
+                System.out.println(String.format("      ... %d more outcomes", entries.size() - 6));
+                break;
+            }
+            System.out.println(String.format("      counter = %-5d %12d  (%8.4f%%)%s", e.getKey(), e.getValue(),
+                    100.0 * e.getValue() / total, e.getKey() == expected ? "  expected" : ""));
+        }
+    }
+}
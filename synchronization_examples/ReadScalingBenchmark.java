@@ -0,0 +1,251 @@
+package synchronization_examples;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ReadScalingBenchmark.java
+ * 
+ * Read-mostly workload (a config store): R reader threads read a small
+ * record as fast as they can while ONE writer updates it every
+ * writeIntervalMicros.
+ * 
+ * Compares how total read throughput grows with the number of readers:
+ * - ReaderPreference: ReadersWriters' protocol. Every read does 2 semaphore
+ * operations on 'mutex' and updates 'read_count': that cache line bounces
+ * between all reader cores, so throughput flattens out.
+ * - ReentrantRW: ReentrantReadWriteLock, readers still CAS a shared state word.
+ * - Striped: StripedRwLock, each reader updates only its own padded counter.
+ * - StampedLock optimistic: tryOptimisticRead() / validate(), falls back to a
+ * read lock only if a writer interfered.
+ * - SeqLock: readers only read the sequence number and retry on conflict.
+ * 
+ * The record keeps the invariant a == b == c == d; every reader checks it.
+ * "Torn" counts reads that were accepted although the invariant did not hold
+ * (it must stay 0).
+ * 
+ * Readers go 1, 2, 4, ... up to maxReaders (default 64). Beyond the number of
+ * cores the extra readers only time-share, so look for where each curve
+ * stops growing.
+ * 
+ * Usage: java synchronization_examples.ReadScalingBenchmark [maxReaders] [writeIntervalMicros] [seconds]
+ */
+public class ReadScalingBenchmark {
+
+    /** The shared data (a small config record). */
+    static class Config {
+        long a, b, c, d;
+    }
+
+    /** One way of protecting Config. */
+    abstract static class Contender {
+        final Config config = new Config();
+        final String name;
+
+        Contender(String name) {
+            this.name = name;
+        }
+
+        /** Returns a consistent snapshot's 'a', or -1 if the snapshot was torn. */
+        abstract long read() throws InterruptedException;
+
+        abstract void write(long value) throws InterruptedException;
+
+        long check(long a, long b, long c, long d) {
+            return (a == b && b == c && c == d) ? a : -1;
+        }
+
+        void set(long value) {
+            config.a = value;
+            config.b = value;
+            config.c = value;
+            config.d = value;
+        }
+    }
+
+    static class RwLockContender extends Contender {
+        private final RwLock lock;
+
+        RwLockContender(String name, RwLock lock) {
+            super(name);
+            this.lock = lock;
+        }
+
+        long read() throws InterruptedException {
+            lock.readLock();
+            try {
+                return check(config.a, config.b, config.c, config.d);
+            } finally {
+                lock.readUnlock();
+            }
+        }
+
+        void write(long value) throws InterruptedException {
+            lock.writeLock();
+            try {
+                set(value);
+            } finally {
+                lock.writeUnlock();
+            }
+        }
+    }
+
+    static class StampedOptimisticContender extends Contender {
+        private final StampedLock lock = new StampedLock();
+
+        StampedOptimisticContender() {
+            super("StampedLock optimistic");
+        }
+
+        long read() {
+            long stamp = lock.tryOptimisticRead(); // no write to shared memory
+            long a = config.a, b = config.b, c = config.c, d = config.d;
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock(); // a writer ran: fall back to a real read lock
+                try {
+                    a = config.a;
+                    b = config.b;
+                    c = config.c;
+                    d = config.d;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return check(a, b, c, d);
+        }
+
+        void write(long value) {
+            long stamp = lock.writeLock();
+            try {
+                set(value);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    static class SeqLockContender extends Contender {
+        private final SeqLock lock = new SeqLock();
+
+        SeqLockContender() {
+            super("SeqLock");
+        }
+
+        long read() {
+            long a, b, c, d, s;
+            do {
+                s = lock.readBegin();
+                a = config.a;
+                b = config.b;
+                c = config.c;
+                d = config.d;
+            } while (lock.readRetry(s));
+            return check(a, b, c, d);
+        }
+
+        void write(long value) {
+            lock.writeLock();
+            try {
+                set(value);
+            } finally {
+                lock.writeUnlock();
+            }
+        }
+    }
+
+    static Contender[] contenders() {
+        return new Contender[] {
+                new RwLockContender("ReaderPreference", new ReaderPreferenceRwLock()),
+                new RwLockContender("ReentrantRW", new ReadersWritersBenchmark.JucRwLock(new ReentrantReadWriteLock())),
+                new RwLockContender("Striped", new StripedRwLock()),
+                new StampedOptimisticContender(),
+                new SeqLockContender()
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxReaders = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        long writeIntervalMicros = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+
+        System.out.println("Cores: " + cores + ", one writer every " + writeIntervalMicros + " us, "
+                + seconds + " s per point");
+        System.out.println(String.format("%-24s | %7s | %14s | %14s | %5s",
+                "Lock", "Readers", "reads/s", "per reader", "Torn"));
+        System.out.println("--------------------------------------------------------------------------");
+
+        for (int c = 0; c < contenders().length; c++) {
+            for (int readers = 1; readers <= maxReaders; readers *= 2) {
+                run(contenders()[c], readers, writeIntervalMicros, 0.3, false); // warm-up
+                run(contenders()[c], readers, writeIntervalMicros, seconds, true);
+            }
+        }
+    }
+
+    private static void run(Contender contender, int readers, long writeIntervalMicros, double seconds,
+            boolean report) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        long[] reads = new long[readers];
+        long[] torn = new long[readers];
+
+        Thread writer = new Thread(() -> {
+            long value = 0;
+            try {
+                while (!stop.get()) {
+                    contender.write(++value);
+                    LockSupport.parkNanos(writeIntervalMicros * 1_000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread[] threads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            int id = r;
+            threads[r] = new Thread(() -> {
+                long count = 0, bad = 0;
+                try {
+                    while (!stop.get()) {
+                        if (contender.read() < 0) {
+                            bad++;
+                        }
+                        count++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                reads[id] = count;
+                torn[id] = bad;
+            });
+        }
+
+        writer.start();
+        long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        Thread.sleep((long) (seconds * 1000));
+        stop.set(true);
+        for (Thread t : threads) {
+            t.join();
+        }
+        writer.join();
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        if (!report) {
+            return; // warm-up round
+        }
+
+        long total = 0, totalTorn = 0;
+        for (int r = 0; r < readers; r++) {
+            total += reads[r];
+            totalTorn += torn[r];
+        }
+        System.out.println(String.format("%-24s | %7d | %14.0f | %14.0f | %5d",
+                contender.name, readers, total / elapsed, total / elapsed / readers, totalTorn));
+    }
+}
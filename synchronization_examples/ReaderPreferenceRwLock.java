@@ -0,0 +1,47 @@
+package synchronization_examples;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * ReaderPreferenceRwLock.java
+ * 
+ * The protocol of ReadersWriters packaged as an RwLock.
+ * 
+ * - The FIRST reader locks 'rw_mutex', the LAST reader unlocks it.
+ * - While at least one reader is inside, new readers walk right in.
+ * 
+ * Problem: if reads never stop, read_count never drops to 0 and writers
+ * STARVE.
+ */
+public class ReaderPreferenceRwLock implements RwLock {
+
+    private final Semaphore mutex = new Semaphore(1); // protects read_count
+    private final Semaphore rw_mutex = new Semaphore(1); // exclusive for writers
+    private int read_count = 0;
+
+    public void readLock() throws InterruptedException {
+        mutex.acquire();
+        read_count++;
+        if (read_count == 1) {
+            rw_mutex.acquire(); // First reader locks out writers
+        }
+        mutex.release();
+    }
+
+    public void readUnlock() {
+        mutex.acquireUninterruptibly();
+        read_count--;
+        if (read_count == 0) {
+            rw_mutex.release(); // Last reader releases writers
+        }
+        mutex.release();
+    }
+
+    public void writeLock() throws InterruptedException {
+        rw_mutex.acquire();
+    }
+
+    public void writeUnlock() {
+        rw_mutex.release();
+    }
+}
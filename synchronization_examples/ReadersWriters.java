@@ -1,5 +1,6 @@
 package synchronization_examples;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 
 /**
@@ -28,7 +29,7 @@ public class ReadersWriters {
     static int read_count = 0;
     static int sharedData = 0;
 
-    static class Reader extends Thread {
+    static class Reader implements Runnable {
         int id;
 
         public Reader(int id) {
@@ -67,7 +68,7 @@ public class ReadersWriters {
         }
     }
 
-    static class Writer extends Thread {
+    static class Writer implements Runnable {
         int id;
 
         public Writer(int id) {
@@ -97,10 +98,16 @@ public class ReadersWriters {
     }
 
     public static void main(String[] args) {
-        // Create Readers and Writers
-        for (int i = 1; i <= 3; i++)
-            new Reader(i).start();
-        for (int i = 1; i <= 2; i++)
-            new Writer(i).start();
+        // "virtual" as first argument runs the workers on virtual threads
+        ThreadMode mode = ThreadMode.fromArgs(args);
+        mode.printBanner();
+
+        try (ExecutorService workers = mode.newExecutor()) {
+            // Create Readers and Writers
+            for (int i = 1; i <= 3; i++)
+                workers.submit(new Reader(i));
+            for (int i = 1; i <= 2; i++)
+                workers.submit(new Writer(i));
+        } // close() waits for the workers (they run forever)
     }
 }
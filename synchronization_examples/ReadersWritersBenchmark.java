@@ -0,0 +1,250 @@
+package synchronization_examples;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ReadersWritersBenchmark.java
+ * 
+ * Compares readers-writers solutions under a tunable workload:
+ * - ReaderPreferenceRwLock (ReadersWriters' protocol)
+ * - WriterPreferenceRwLock
+ * - PhaseFairRwLock
+ * - StripedRwLock
+ * - ReentrantReadWriteLock (non-fair and fair)
+ * - StampedLock (through asReadWriteLock())
+ * 
+ * Every thread loops for the given seconds: with probability readPercent it reads,
+ * otherwise it writes. Inside the critical section it busy-works for
+ * csNanos (readers read the shared array, writers update it).
+ * 
+ * Reported per lock:
+ * - reads/s and writes/s
+ * - p99 and max writer wait: time from "want to write" to "got the lock".
+ * A starving writer shows up as very few writes and a huge wait.
+ * 
+ * Writer waits go into a per-thread log-linear histogram (32 buckets per
+ * power of two, so p99 is within about 3%), which keeps the memory per
+ * thread at a few KB however long the run is.
+ * 
+ * Usage:
+ * java synchronization_examples.ReadersWritersBenchmark [threads] [readPercent] [csNanos] [seconds]
+ */
+public class ReadersWritersBenchmark {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    // Shared data protected by the lock under test
+    private static final long[] sharedData = new long[8];
+
+    /** java.util.concurrent locks seen through the RwLock interface. */
+    static class JucRwLock implements RwLock {
+        private final ReadWriteLock lock;
+
+        JucRwLock(ReadWriteLock lock) {
+            this.lock = lock;
+        }
+
+        public void readLock() {
+            lock.readLock().lock();
+        }
+
+        public void readUnlock() {
+            lock.readLock().unlock();
+        }
+
+        public void writeLock() {
+            lock.writeLock().lock();
+        }
+
+        public void writeUnlock() {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static class Result {
+        long reads;
+        long writes;
+        long[] writerWaits = new long[BUCKETS]; // histogram of writer waits (ns)
+        long maxWait;
+
+        void recordWait(long nanos) {
+            writerWaits[bucketOf(nanos)]++;
+            maxWait = Math.max(maxWait, nanos);
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value); // exact for small values
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Smallest value that falls into the bucket
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS | sub) << shift;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int readPercent = args.length > 1 ? Integer.parseInt(args[1]) : 90;
+        long csNanos = args.length > 2 ? Long.parseLong(args[2]) : 1_000;
+        double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 2;
+
+        System.out.println("Threads: " + threads + ", reads: " + readPercent + "%, critical section: "
+                + csNanos + " ns, duration: " + seconds + " s");
+        System.out.println(String.format("%-26s | %12s | %12s | %14s | %14s",
+                "Lock", "reads/s", "writes/s", "p99 wait (us)", "max wait (us)"));
+        System.out.println("--------------------------------------------------------------------------------------");
+
+        String[] names = lockNames();
+        for (String name : names) {
+            run(name, newLock(name), threads, readPercent, csNanos, 0.5, false); // warm-up
+            run(name, newLock(name), threads, readPercent, csNanos, seconds, true);
+        }
+    }
+
+    static String[] lockNames() {
+        return new String[] { "ReaderPreference", "WriterPreference", "PhaseFair", "Striped",
+                "ReentrantRW (non-fair)", "ReentrantRW (fair)", "StampedLock" };
+    }
+
+    static RwLock newLock(String name) {
+        switch (name) {
+            case "ReaderPreference":
+                return new ReaderPreferenceRwLock();
+            case "WriterPreference":
+                return new WriterPreferenceRwLock();
+            case "PhaseFair":
+                return new PhaseFairRwLock();
+            case "Striped":
+                return new StripedRwLock();
+            case "ReentrantRW (non-fair)":
+                return new JucRwLock(new ReentrantReadWriteLock(false));
+            case "ReentrantRW (fair)":
+                return new JucRwLock(new ReentrantReadWriteLock(true));
+            case "StampedLock":
+                return new JucRwLock(new StampedLock().asReadWriteLock());
+            default:
+                throw new IllegalArgumentException("Unknown lock: " + name);
+        }
+    }
+
+    private static void run(String name, RwLock lock, int threads, int readPercent, long csNanos, double seconds,
+            boolean report) throws InterruptedException {
+        Result[] results = new Result[threads];
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + (long) (seconds * 1_000_000_000L);
+
+        for (int t = 0; t < threads; t++) {
+            Result r = results[t] = new Result();
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        if (random.nextInt(100) < readPercent) {
+                            lock.readLock();
+                            try {
+                                readShared(csNanos);
+                            } finally {
+                                lock.readUnlock();
+                            }
+                            r.reads++;
+                        } else {
+                            long requested = System.nanoTime();
+                            lock.writeLock();
+                            long acquired = System.nanoTime();
+                            try {
+                                writeShared(csNanos);
+                            } finally {
+                                lock.writeUnlock();
+                            }
+                            r.writes++;
+                            r.recordWait(acquired - requested);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread w : workers) {
+            w.start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        if (!report) {
+            return; // warm-up round
+        }
+
+        long reads = 0, writes = 0;
+        long maxWait = 0;
+        long[] waits = new long[BUCKETS];
+        for (Result r : results) {
+            reads += r.reads;
+            writes += r.writes;
+            maxWait = Math.max(maxWait, r.maxWait);
+            for (int b = 0; b < BUCKETS; b++) {
+                waits[b] += r.writerWaits[b];
+            }
+        }
+        double p99 = percentile(waits, writes, 99, maxWait) / 1_000.0;
+        double max = maxWait / 1_000.0;
+
+        System.out.println(String.format("%-26s | %12.0f | %12.0f | %14.1f | %14.1f",
+                name, reads / elapsed, writes / elapsed, p99, max));
+    }
+
+    private static long percentile(long[] counts, long n, double percentile, long max) {
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int b = 0; b < counts.length; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(lowestValueOf(b), max);
+            }
+        }
+        return max;
+    }
+
+    private static long readShared(long csNanos) {
+        long sum = 0;
+        long end = System.nanoTime() + csNanos;
+        do {
+            for (long v : sharedData) {
+                sum += v;
+            }
+        } while (System.nanoTime() < end);
+        return sum;
+    }
+
+    private static void writeShared(long csNanos) {
+        long end = System.nanoTime() + csNanos;
+        do {
+            for (int i = 0; i < sharedData.length; i++) {
+                sharedData[i]++;
+            }
+        } while (System.nanoTime() < end);
+    }
+}
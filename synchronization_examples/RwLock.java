@@ -0,0 +1,22 @@
+package synchronization_examples;
+
+/**
+ * RwLock.java
+ * 
+ * Common entry/exit sections of a readers-writers solution, so that the
+ * variants can be swapped in the same benchmark:
+ * - ReaderPreferenceRwLock: the first readers-writers solution (ReadersWriters).
+ * - WriterPreferenceRwLock: the second readers-writers solution.
+ * - PhaseFairRwLock: readers and writers take turns (phase-fair ticket lock).
+ * - StripedRwLock: per-stripe reader counters instead of one read_count.
+ */
+public interface RwLock {
+
+    void readLock() throws InterruptedException;
+
+    void readUnlock();
+
+    void writeLock() throws InterruptedException;
+
+    void writeUnlock();
+}
@@ -0,0 +1,88 @@
+package synchronization_examples;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * SeqLock.java
+ * 
+ * A sequence lock for read-mostly data (as used by the Linux kernel for the
+ * system time).
+ * 
+ * - The sequence number is EVEN when no writer is active, ODD while a writer
+ * is changing the data.
+ * - Writers serialize among themselves (CAS even -> odd), write the data,
+ * then bump the sequence to the next even number.
+ * - Readers never write shared memory: they remember the sequence, read the
+ * data, and RETRY if the sequence changed (a writer ran in between).
+ * 
+ * Compared to ReadersWriters, readers do not touch 'mutex' or 'read_count',
+ * so the cache line holding the lock is only read by readers and stays
+ * shared between all cores. The price: readers may read torn data and must
+ * throw it away, and writers can starve readers that keep retrying.
+ * 
+ * Reader pattern:
+ * long s;
+ * do {
+ * s = lock.readBegin();
+ * ... copy the shared fields into locals ...
+ * } while (lock.readRetry(s));
+ * 
+ * Writer pattern:
+ * lock.writeLock();
+ * try { ... update the shared fields ... } finally { lock.writeUnlock(); }
+ */
+public class SeqLock {
+
+    private static final VarHandle SEQ;
+
+    static {
+        try {
+            SEQ = MethodHandles.lookup().findVarHandle(SeqLock.class, "seq", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long seq = 0;
+
+    /**
+     * Waits until no writer is active and returns the (even) sequence.
+     */
+    public long readBegin() {
+        long s;
+        int spins = 0;
+        while (((s = (long) SEQ.getAcquire(this)) & 1) != 0) {
+            // Writer active: spin briefly, then let it run (it may share our core)
+            if (++spins < 64) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return s;
+    }
+
+    /**
+     * True if a writer ran since readBegin() returned s: the data read in
+     * between may be inconsistent and must be read again.
+     */
+    public boolean readRetry(long s) {
+        VarHandle.acquireFence(); // data reads above may not move below this point
+        return (long) SEQ.getOpaque(this) != s;
+    }
+
+    public void writeLock() {
+        while (true) {
+            long s = seq;
+            if ((s & 1) == 0 && SEQ.compareAndSet(this, s, s + 1)) {
+                return; // sequence is now odd: readers will retry
+            }
+            Thread.yield();
+        }
+    }
+
+    public void writeUnlock() {
+        SEQ.setRelease(this, seq + 1); // even again, data writes are published
+    }
+}
@@ -0,0 +1,132 @@
+package synchronization_examples;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * SpscQueue.java
+ * 
+ * A Single-Producer / Single-Consumer bounded queue (Lamport / FastFlow style).
+ * 
+ * With exactly one producer and one consumer no locks and no CAS are needed:
+ * - Only the producer writes 'tail', only the consumer writes 'head'.
+ * - The producer writes the element, then publishes it with a release store
+ * of tail (lazySet). The consumer reads tail with an acquire load, so it is
+ * guaranteed to see the element.
+ * - The consumer frees a slot the same way by release-storing head.
+ * 
+ * Cached indices:
+ * The producer keeps a private copy of head ('headCache') and only re-reads
+ * the real head when the cached value says the queue is full. The consumer
+ * does the same with 'tailCache'. Most operations therefore touch only the
+ * thread's own cache line.
+ * 
+ * NOT safe with more than one producer or more than one consumer.
+ */
+public class SpscQueue<E> {
+
+    // --- Padding: producer fields and consumer fields on separate cache lines ---
+    abstract static class Pad0 {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    abstract static class ProducerFields extends Pad0 {
+        long tail; // written by producer only (release), read by consumer (acquire)
+        long headCache; // producer's private copy of head
+    }
+
+    abstract static class Pad1 extends ProducerFields {
+        long p11, p12, p13, p14, p15, p16, p17;
+    }
+
+    abstract static class ConsumerFields extends Pad1 {
+        long head; // written by consumer only (release), read by producer (acquire)
+        long tailCache; // consumer's private copy of tail
+    }
+
+    abstract static class Pad2 extends ConsumerFields {
+        long p21, p22, p23, p24, p25, p26, p27;
+    }
+
+    static final class Indices extends Pad2 {
+    }
+
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(ProducerFields.class, "tail", long.class);
+            HEAD = lookup.findVarHandle(ConsumerFields.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final E[] buffer;
+    private final Indices indices = new Indices();
+
+    @SuppressWarnings("unchecked")
+    public SpscQueue(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("capacity must be >= 2");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1; // next power of two
+        this.mask = capacity - 1;
+        this.buffer = (E[]) new Object[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Producer only. Returns false if the queue is full.
+     */
+    public boolean offer(E item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        Indices ix = indices;
+        long t = ix.tail; // own field: plain read
+        if (t - ix.headCache >= capacity) {
+            ix.headCache = (long) HEAD.getAcquire(ix); // refresh only when looking full
+            if (t - ix.headCache >= capacity) {
+                return false;
+            }
+        }
+        buffer[(int) t & mask] = item;
+        TAIL.setRelease(ix, t + 1); // publish (lazySet)
+        return true;
+    }
+
+    /**
+     * Consumer only. Returns null if the queue is empty.
+     */
+    public E poll() {
+        Indices ix = indices;
+        long h = ix.head; // own field: plain read
+        if (h >= ix.tailCache) {
+            ix.tailCache = (long) TAIL.getAcquire(ix); // refresh only when looking empty
+            if (h >= ix.tailCache) {
+                return null;
+            }
+        }
+        int slot = (int) h & mask;
+        E item = buffer[slot];
+        buffer[slot] = null; // let the element be garbage collected
+        HEAD.setRelease(ix, h + 1); // hand the slot back to the producer
+        return item;
+    }
+
+    /**
+     * Approximate number of items (exact only when no thread is active).
+     */
+    public int size() {
+        long size = (long) TAIL.getAcquire(indices) - (long) HEAD.getAcquire(indices);
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+}
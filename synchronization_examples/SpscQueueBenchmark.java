@@ -0,0 +1,155 @@
+package synchronization_examples;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * SpscQueueBenchmark.java
+ * 
+ * One producer, one consumer: the setup of ProducerConsumer.main and
+ * ProducerConsumerSemaphore.main. Compares
+ * - SpscQueue (no locks, no CAS)
+ * - ArrayBlockingQueue (one lock, two conditions)
+ * - LinkedBlockingQueue (two locks, allocates a node per item)
+ * - ProducerConsumerSemaphore (three semaphores, 5 slots, via offerAll/drain
+ * with batch size 1)
+ * 
+ * Reported per configuration:
+ * - ns/op: wall time per transferred item.
+ * - B/op: bytes allocated by producer + consumer per item (thread allocation
+ * counters of the HotSpot ThreadMXBean).
+ * 
+ * Every configuration runs WARMUP_ROUNDS unmeasured rounds first so that the
+ * JIT has compiled the hot loops, then MEASURED_ROUNDS rounds whose results
+ * are averaged.
+ * 
+ * Usage: java synchronization_examples.SpscQueueBenchmark [items]
+ */
+public class SpscQueueBenchmark {
+
+    private static final int CAPACITY = 1024;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    // Pre-boxed item so the object queues measure their own allocations,
+    // not Integer boxing.
+    private static final Integer ITEM = 42;
+
+    interface Transfer {
+        void send() throws InterruptedException;
+
+        void receive() throws InterruptedException;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        System.out.println("Items per round: " + items + ", capacity: " + CAPACITY
+                + " (semaphore buffer: 5 slots)");
+        System.out.println("--------------------------------------------------");
+
+        SpscQueue<Integer> spsc = new SpscQueue<>(CAPACITY);
+        report("SpscQueue", items, new Transfer() {
+            public void send() {
+                while (!spsc.offer(ITEM)) {
+                    Thread.yield();
+                }
+            }
+
+            public void receive() {
+                while (spsc.poll() == null) {
+                    Thread.yield();
+                }
+            }
+        });
+
+        report("ArrayBlockingQueue", items, blocking(new ArrayBlockingQueue<>(CAPACITY)));
+        report("LinkedBlockingQueue", items, blocking(new LinkedBlockingQueue<>(CAPACITY)));
+
+        int[] one = new int[] { 42 };
+        int[] dst = new int[1];
+        report("ProducerConsumerSemaphore", items, new Transfer() {
+            public void send() throws InterruptedException {
+                ProducerConsumerSemaphore.offerAll(one);
+            }
+
+            public void receive() throws InterruptedException {
+                ProducerConsumerSemaphore.drain(dst, 1);
+            }
+        });
+    }
+
+    private static Transfer blocking(BlockingQueue<Integer> queue) {
+        return new Transfer() {
+            public void send() throws InterruptedException {
+                queue.put(ITEM);
+            }
+
+            public void receive() throws InterruptedException {
+                queue.take();
+            }
+        };
+    }
+
+    private static void report(String name, int items, Transfer transfer) throws InterruptedException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(items, transfer);
+        }
+        double nsPerOp = 0;
+        double bytesPerOp = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            double[] result = round(items, transfer);
+            nsPerOp += result[0] / MEASURED_ROUNDS;
+            bytesPerOp += result[1] / MEASURED_ROUNDS;
+        }
+        System.out.println(String.format("%-26s | %8.1f ns/op | %8.2f B/op", name, nsPerOp, bytesPerOp));
+    }
+
+    // Returns { ns per item, allocated bytes per item }.
+    private static double[] round(int items, Transfer transfer) throws InterruptedException {
+        long[] allocated = new long[2];
+
+        Thread producer = new Thread(() -> {
+            long before = allocatedBytes();
+            try {
+                for (int i = 0; i < items; i++) {
+                    transfer.send();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            allocated[0] = allocatedBytes() - before;
+        });
+
+        Thread consumer = new Thread(() -> {
+            long before = allocatedBytes();
+            try {
+                for (int i = 0; i < items; i++) {
+                    transfer.receive();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            allocated[1] = allocatedBytes() - before;
+        });
+
+        long start = System.nanoTime();
+        producer.start();
+        consumer.start();
+        producer.join();
+        consumer.join();
+        long elapsed = System.nanoTime() - start;
+
+        return new double[] { (double) elapsed / items, (double) (allocated[0] + allocated[1]) / items };
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return 0; // not supported on this JVM
+    }
+}
@@ -0,0 +1,93 @@
+package synchronization_examples;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * StripedRwLock.java
+ * 
+ * A readers-writers lock with a DISTRIBUTED reader indicator.
+ * 
+ * In ReadersWriters every reader updates the same 'read_count' (under the
+ * same 'mutex'), so all reader cores fight over one cache line. Here:
+ * - There are many reader counters ("stripes"), each on its own cache line.
+ * - A reader only increments/decrements the stripe chosen by its thread id,
+ * so readers on different cores rarely touch the same line.
+ * - A writer raises 'writerActive' and then SCANS all stripes until every
+ * one of them is 0 (all readers have left).
+ * 
+ * Handshake (like Dekker's algorithm):
+ * - Reader: increment stripe, THEN check writerActive. If set, undo the
+ * increment, wait for the writer to finish and try again.
+ * - Writer: set writerActive, THEN scan the stripes.
+ * All accesses are volatile, so at least one side always sees the other.
+ * 
+ * Reads are cheap and scale with cores; writes cost O(stripes) and readers
+ * back off while a writer is waiting (writer preference).
+ */
+public class StripedRwLock implements RwLock {
+
+    private static final int PADDING = 16; // 16 longs = 128 bytes between counters
+
+    private final int stripes;
+    private final AtomicLongArray readers; // stripe i lives at index i * PADDING
+    private final ReentrantLock writerMutex = new ReentrantLock(); // one writer at a time
+    private volatile boolean writerActive = false;
+
+    public StripedRwLock() {
+        this(Stripes.forCores(4));
+    }
+
+    public StripedRwLock(int stripes) {
+        this.stripes = stripes;
+        this.readers = new AtomicLongArray(stripes * PADDING);
+    }
+
+    private int myStripe() {
+        return Stripes.ofCurrentThread(stripes) * PADDING;
+    }
+
+    public void readLock() {
+        int slot = myStripe();
+        while (true) {
+            readers.getAndIncrement(slot); // announce myself
+            if (!writerActive) {
+                return; // no writer: we are in
+            }
+            readers.getAndDecrement(slot); // writer wants in: step back
+            int spins = 0;
+            while (writerActive) {
+                spins = backoff(spins);
+            }
+        }
+    }
+
+    public void readUnlock() {
+        readers.getAndDecrement(myStripe());
+    }
+
+    public void writeLock() {
+        writerMutex.lock();
+        writerActive = true; // stop new readers
+        int spins = 0;
+        for (int i = 0; i < stripes; i++) {
+            while (readers.get(i * PADDING) != 0) { // wait for readers already inside
+                spins = backoff(spins);
+            }
+        }
+    }
+
+    public void writeUnlock() {
+        writerActive = false;
+        writerMutex.unlock();
+    }
+
+    private static int backoff(int spins) {
+        if (spins < 64) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+        return spins + 1;
+    }
+}
@@ -0,0 +1,27 @@
+package synchronization_examples;
+
+/**
+ * Stripes.java
+ * 
+ * Stripe sizing and selection for the striped structures in this package
+ * (StripedRwLock's reader indicator).
+ * A thread always lands on the same stripe: its id is spread with a
+ * Fibonacci hash, so consecutive ids end up on different stripes.
+ */
+final class Stripes {
+
+    private Stripes() {
+    }
+
+    /** Smallest power of two with at least perCore stripes per available core. */
+    static int forCores(int perCore) {
+        int wanted = Math.max(1, Runtime.getRuntime().availableProcessors()) * perCore;
+        return wanted <= 1 ? 1 : Integer.highestOneBit(wanted - 1) << 1;
+    }
+
+    /** Stripe of the calling thread, in 0..stripes-1. */
+    static int ofCurrentThread(int stripes) {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) % stripes;
+    }
+}
@@ -0,0 +1,52 @@
+package synchronization_examples;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ThreadMode.java
+ * 
+ * Chooses whether the workers of the synchronization examples run on
+ * platform (OS) threads or on virtual threads.
+ * 
+ * - PLATFORM: one OS thread per worker (the classic model; ~1 MB stack each).
+ * - VIRTUAL: one virtual thread per worker, multiplexed by the JVM onto a few
+ * carrier threads. Blocking on a Semaphore or Lock unmounts the virtual
+ * thread, so 100k blocked workers are cheap.
+ * 
+ * Pinning:
+ * A virtual thread that blocks inside 'synchronized' or in Object.wait()
+ * cannot unmount and keeps its carrier thread busy ("pinned"). Run with
+ * -Djdk.tracePinnedThreads=short (or =full) to print a stack trace every
+ * time that happens.
+ * 
+ * Usage: pass "virtual" as the first argument of an example's main, e.g.
+ * java synchronization_examples.ReadersWriters virtual
+ */
+public enum ThreadMode {
+    PLATFORM, VIRTUAL;
+
+    /**
+     * One new thread per submitted task, of the selected kind.
+     */
+    public ExecutorService newExecutor() {
+        if (this == VIRTUAL) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+    }
+
+    public static ThreadMode fromArgs(String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("virtual")) {
+            return VIRTUAL;
+        }
+        return PLATFORM;
+    }
+
+    public void printBanner() {
+        System.out.println("Running workers on " + this + " threads.");
+        if (this == VIRTUAL && System.getProperty("jdk.tracePinnedThreads") == null) {
+            System.out.println("(Add -Djdk.tracePinnedThreads=short to report pinned virtual threads.)");
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package synchronization_examples;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * VirtualThreadBenchmark.java
+ * 
+ * Runs the producer/consumer and dining-philosophers workloads with 1k, 10k
+ * and 100k actors, once on platform threads and once on virtual threads
+ * (see ThreadMode).
+ * 
+ * The actors do the same steps as the examples, but on their own small
+ * instances (a buffer per producer/consumer pair, a table of 5 per group of
+ * philosophers), a fixed number of rounds, and without printing:
+ * - buffer: ProducerConsumerSemaphore protocol (empty / full / mutex).
+ * - philosophers: DiningPhilosophersMonitor protocol (Lock + Semaphore[]).
+ * - monitor: ProducerConsumer's design, a synchronized / wait() / notifyAll()
+ * buffer that sleeps while holding the lock. Sleeping inside 'synchronized'
+ * PINS a virtual thread to its carrier, and so does Object.wait() (JDK 21
+ * temporarily adds carriers to compensate). This workload shows what
+ * pinning costs; if too many carriers are pinned, the run STALLS.
+ * 
+ * For every run:
+ * - all actors are started and parked on a start gate, then memory is
+ * sampled (heap used after GC, process RSS from /proc/self/status);
+ * - the gate opens and the time until every actor finished gives the
+ * throughput (operations per second);
+ * - pinned events are counted with a JFR stream on jdk.VirtualThreadPinned
+ * (for a per-event stack trace, run with -Djdk.tracePinnedThreads=full).
+ * 
+ * Creating 100k platform threads may fail (OS thread limits, memory); that
+ * run is then reported as FAILED.
+ * 
+ * Usage: java synchronization_examples.VirtualThreadBenchmark [actors,...] [workload,...]
+ * e.g. java synchronization_examples.VirtualThreadBenchmark 1000,10000,100000 buffer,philosophers,monitor
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int ROUNDS = 10; // items per producer / meals per philosopher
+    private static final int BUFFER_SIZE = 2;
+    private static final long RUN_TIMEOUT_SECONDS = 120;
+
+    interface Workload {
+        /** Creates the actors; each one waits on the gate before it starts. */
+        Runnable[] actors(int count, CountDownLatch ready, CountDownLatch gate);
+
+        /** Operations done by 'count' actors (items moved or meals eaten). */
+        long operations(int count);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] counts = (args.length > 0 ? args[0] : "1000,10000,100000").split(",");
+        String[] workloads = (args.length > 1 ? args[1] : "buffer,philosophers,monitor").split(",");
+
+        System.out.println(String.format("%-12s | %-8s | %7s | %12s | %9s | %9s | %6s",
+                "Workload", "Mode", "Actors", "ops/s", "Heap MB", "RSS MB", "Pinned"));
+        System.out.println("-----------------------------------------------------------------------------------");
+        for (String name : workloads) {
+            for (String c : counts) {
+                int actors = Integer.parseInt(c.trim());
+                for (ThreadMode mode : ThreadMode.values()) {
+                    run(name.trim(), workload(name.trim()), mode, actors);
+                }
+            }
+        }
+    }
+
+    private static Workload workload(String name) {
+        switch (name) {
+            case "buffer":
+                return new SemaphoreBufferWorkload();
+            case "philosophers":
+                return new PhilosophersWorkload();
+            case "monitor":
+                return new MonitorBufferWorkload();
+            default:
+                throw new IllegalArgumentException("Unknown workload: " + name);
+        }
+    }
+
+    private static void run(String name, Workload workload, ThreadMode mode, int count) throws Exception {
+        System.gc();
+        CountDownLatch ready = new CountDownLatch(count);
+        CountDownLatch gate = new CountDownLatch(1);
+        Runnable[] actors = workload.actors(count, ready, gate);
+
+        LongAdder pinned = new LongAdder();
+        RecordingStream pinnedEvents = new RecordingStream();
+        pinnedEvents.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+        pinnedEvents.onEvent("jdk.VirtualThreadPinned", e -> pinned.increment());
+        pinnedEvents.startAsync();
+
+        ExecutorService executor = mode.newExecutor();
+        String status = null;
+        double heapMb = 0;
+        double rssMb = 0;
+        long elapsed = 0;
+        try {
+            for (Runnable actor : actors) {
+                executor.submit(actor);
+            }
+            ready.await(); // every actor exists and is blocked on the gate
+            heapMb = usedHeapMb();
+            rssMb = rssMb();
+
+            long start = System.nanoTime();
+            gate.countDown();
+            executor.shutdown();
+            if (!executor.awaitTermination(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                status = "STALLED";
+            }
+            elapsed = System.nanoTime() - start;
+        } catch (OutOfMemoryError e) {
+            status = "FAILED (" + e.getMessage() + ")";
+        } finally {
+            gate.countDown();
+            executor.shutdownNow(); // interrupts stalled or orphaned actors
+            pinnedEvents.stop(); // flushes pending events
+            pinnedEvents.close();
+        }
+
+        String throughput = status != null ? status
+                : String.format("%12.0f", workload.operations(count) / (elapsed / 1_000_000_000.0));
+        System.out.println(String.format("%-12s | %-8s | %7d | %12s | %9.1f | %9.1f | %6d",
+                name, mode, count, throughput, heapMb, rssMb, pinned.sum()));
+    }
+
+    // --- Workloads ---
+
+    /** ProducerConsumerSemaphore's protocol, one small buffer per pair. */
+    static class SemaphoreBufferWorkload implements Workload {
+        public Runnable[] actors(int count, CountDownLatch ready, CountDownLatch gate) {
+            Runnable[] actors = new Runnable[count];
+            for (int i = 0; i + 1 < count; i += 2) {
+                int[] buffer = new int[BUFFER_SIZE];
+                int[] indices = new int[2]; // head, tail
+                Semaphore empty = new Semaphore(BUFFER_SIZE);
+                Semaphore full = new Semaphore(0);
+                Semaphore mutex = new Semaphore(1);
+
+                actors[i] = actor(ready, gate, () -> {
+                    for (int r = 0; r < ROUNDS; r++) {
+                        empty.acquire();
+                        mutex.acquire();
+                        buffer[indices[1]] = r;
+                        indices[1] = (indices[1] + 1) % BUFFER_SIZE;
+                        mutex.release();
+                        full.release();
+                        Thread.sleep(1);
+                    }
+                });
+                actors[i + 1] = actor(ready, gate, () -> {
+                    for (int r = 0; r < ROUNDS; r++) {
+                        full.acquire();
+                        mutex.acquire();
+                        indices[0] = (indices[0] + 1) % BUFFER_SIZE;
+                        mutex.release();
+                        empty.release();
+                        Thread.sleep(1);
+                    }
+                });
+            }
+            fillOdd(actors, ready, gate);
+            return actors;
+        }
+
+        public long operations(int count) {
+            return (long) (count / 2) * ROUNDS;
+        }
+    }
+
+    /** Same buffer guarded by a monitor, as in ProducerConsumer: pins virtual threads. */
+    static class MonitorBufferWorkload implements Workload {
+        public Runnable[] actors(int count, CountDownLatch ready, CountDownLatch gate) {
+            Runnable[] actors = new Runnable[count];
+            for (int i = 0; i + 1 < count; i += 2) {
+                Object lock = new Object();
+                int[] size = new int[1];
+
+                actors[i] = actor(ready, gate, () -> {
+                    for (int r = 0; r < ROUNDS; r++) {
+                        synchronized (lock) {
+                            while (size[0] == BUFFER_SIZE) {
+                                lock.wait(); // pinned while waiting
+                            }
+                            size[0]++;
+                            lock.notifyAll();
+                            Thread.sleep(1); // work under the lock: pinned
+                        }
+                    }
+                });
+                actors[i + 1] = actor(ready, gate, () -> {
+                    for (int r = 0; r < ROUNDS; r++) {
+                        synchronized (lock) {
+                            while (size[0] == 0) {
+                                lock.wait(); // pinned while waiting
+                            }
+                            size[0]--;
+                            lock.notifyAll();
+                            Thread.sleep(1); // work under the lock: pinned
+                        }
+                    }
+                });
+            }
+            fillOdd(actors, ready, gate);
+            return actors;
+        }
+
+        public long operations(int count) {
+            return (long) (count / 2) * ROUNDS;
+        }
+    }
+
+    /** DiningPhilosophersMonitor's protocol, one table per 5 actors. */
+    static class PhilosophersWorkload implements Workload {
+        private static final int N = 5;
+        private static final int THINKING = 0, HUNGRY = 1, EATING = 2;
+
+        static class Table {
+            final int[] state = new int[N];
+            final Semaphore[] self = new Semaphore[N];
+            final Lock mutex = new ReentrantLock();
+
+            Table() {
+                for (int i = 0; i < N; i++) {
+                    self[i] = new Semaphore(0);
+                }
+            }
+
+            void test(int i) {
+                if (state[i] == HUNGRY && state[(i + N - 1) % N] != EATING && state[(i + 1) % N] != EATING) {
+                    state[i] = EATING;
+                    self[i].release();
+                }
+            }
+
+            void pickup(int i) throws InterruptedException {
+                mutex.lock();
+                try {
+                    state[i] = HUNGRY;
+                    test(i);
+                } finally {
+                    mutex.unlock();
+                }
+                self[i].acquire();
+            }
+
+            void putdown(int i) {
+                mutex.lock();
+                try {
+                    state[i] = THINKING;
+                    test((i + N - 1) % N);
+                    test((i + 1) % N);
+                } finally {
+                    mutex.unlock();
+                }
+            }
+        }
+
+        public Runnable[] actors(int count, CountDownLatch ready, CountDownLatch gate) {
+            Runnable[] actors = new Runnable[count];
+            Table table = null;
+            for (int i = 0; i < count; i++) {
+                if (i % N == 0) {
+                    table = new Table();
+                }
+                Table t = table;
+                int seat = i % N;
+                actors[i] = actor(ready, gate, () -> {
+                    for (int r = 0; r < ROUNDS; r++) {
+                        Thread.sleep(1); // think
+                        t.pickup(seat);
+                        Thread.sleep(1); // eat
+                        t.putdown(seat);
+                    }
+                });
+            }
+            return actors;
+        }
+
+        public long operations(int count) {
+            return (long) count * ROUNDS;
+        }
+    }
+
+    // --- Helpers ---
+
+    interface Body {
+        void run() throws InterruptedException;
+    }
+
+    private static Runnable actor(CountDownLatch ready, CountDownLatch gate, Body body) {
+        return () -> {
+            ready.countDown();
+            try {
+                gate.await();
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    // An odd actor count leaves one slot without a partner: give it an idle actor
+    private static void fillOdd(Runnable[] actors, CountDownLatch ready, CountDownLatch gate) {
+        if (actors.length % 2 == 1) {
+            actors[actors.length - 1] = actor(ready, gate, () -> {
+            });
+        }
+    }
+
+    private static double usedHeapMb() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+    }
+
+    private static double rssMb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    String kb = line.substring(6).trim().split("\\s+")[0];
+                    return Long.parseLong(kb) / 1024.0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux: RSS not available
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,68 @@
+package synchronization_examples;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * WriterPreferenceRwLock.java
+ * 
+ * The second readers-writers solution: once a writer is waiting, no NEW
+ * reader may start.
+ * 
+ * Extra tools compared to ReaderPreferenceRwLock:
+ * - write_count: number of writers waiting or writing.
+ * - read_try: the FIRST waiting writer locks it, the LAST writer unlocks it.
+ * Every reader must pass through read_try, so readers queue up behind writers.
+ * - wmutex: protects write_count (like rmutex protects read_count).
+ * 
+ * Now writers cannot starve, but readers can (if writes never stop).
+ */
+public class WriterPreferenceRwLock implements RwLock {
+
+    private final Semaphore rmutex = new Semaphore(1); // protects read_count
+    private final Semaphore wmutex = new Semaphore(1); // protects write_count
+    private final Semaphore read_try = new Semaphore(1); // held while writers are waiting
+    private final Semaphore resource = new Semaphore(1); // the shared data
+
+    private int read_count = 0;
+    private int write_count = 0;
+
+    public void readLock() throws InterruptedException {
+        read_try.acquire(); // Blocked while any writer is waiting
+        rmutex.acquire();
+        read_count++;
+        if (read_count == 1) {
+            resource.acquire(); // First reader locks out writers
+        }
+        rmutex.release();
+        read_try.release();
+    }
+
+    public void readUnlock() {
+        rmutex.acquireUninterruptibly();
+        read_count--;
+        if (read_count == 0) {
+            resource.release(); // Last reader releases writers
+        }
+        rmutex.release();
+    }
+
+    public void writeLock() throws InterruptedException {
+        wmutex.acquire();
+        write_count++;
+        if (write_count == 1) {
+            read_try.acquire(); // First writer stops new readers
+        }
+        wmutex.release();
+        resource.acquire(); // Wait for current readers to leave
+    }
+
+    public void writeUnlock() {
+        resource.release();
+        wmutex.acquireUninterruptibly();
+        write_count--;
+        if (write_count == 0) {
+            read_try.release(); // Last writer lets readers in again
+        }
+        wmutex.release();
+    }
+}
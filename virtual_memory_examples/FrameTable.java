@@ -0,0 +1,36 @@
+package virtual_memory_examples;
+
+/**
+ * FrameTable.java
+ * 
+ * Physical memory as a page-replacement simulation sees it: a fixed number
+ * of frames, each holding one (process, page), an index from (process, page)
+ * to frame, and CLOCK (second chance) replacement, the usual approximation
+ * of PageReplacementSim's LRU.
+ * 
+ * Two representations of the same thing:
+ * - HeapFrameTable: Java objects and collections, like PageReplacementSim
+ * (a HashMap with boxed keys, a Frame object per resident page),
+ * - OffHeapFrameTable: fixed-size records in an OffHeapArena.
+ * OffHeapGcBenchmark compares what they cost the garbage collector.
+ */
+public interface FrameTable {
+
+    /** Key of a (process, page) pair. */
+    static long key(int pid, int page) {
+        return (long) pid << 32 | (page & 0xFFFF_FFFFL);
+    }
+
+    int frames();
+
+    /**
+     * References (pid, page): marks it recently used, or, on a page fault,
+     * loads it into a free frame or the CLOCK victim. Returns true on a fault.
+     */
+    boolean reference(int pid, int page, boolean write);
+
+    /** Faults so far, and how many of them evicted a dirty page. */
+    long faults();
+
+    long dirtyEvictions();
+}
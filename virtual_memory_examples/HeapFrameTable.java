@@ -0,0 +1,80 @@
+package virtual_memory_examples;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HeapFrameTable.java
+ * 
+ * FrameTable in plain Java objects, the way PageReplacementSim keeps its
+ * frames: a HashMap from a boxed (process, page) key to a Frame object, and
+ * a new Frame for every page that is loaded. With millions of frames the
+ * map, its entries and the frames are millions of heap objects that every
+ * full garbage collection has to trace.
+ */
+public class HeapFrameTable implements FrameTable {
+
+    static final class Frame {
+        final long key;
+        boolean referenced = true;
+        boolean dirty;
+
+        Frame(long key, boolean dirty) {
+            this.key = key;
+            this.dirty = dirty;
+        }
+    }
+
+    private final Frame[] frames;
+    private final Map<Long, Frame> index;
+    private int used = 0;
+    private int hand = 0;
+    private long faults = 0;
+    private long dirtyEvictions = 0;
+
+    public HeapFrameTable(int frames) {
+        this.frames = new Frame[frames];
+        this.index = new HashMap<>(frames * 2);
+    }
+
+    public int frames() {
+        return frames.length;
+    }
+
+    public boolean reference(int pid, int page, boolean write) {
+        long key = FrameTable.key(pid, page);
+        Frame frame = index.get(key);
+        if (frame != null) {
+            frame.referenced = true;
+            frame.dirty |= write;
+            return false;
+        }
+        faults++;
+        int slot;
+        if (used < frames.length) {
+            slot = used++;
+        } else {
+            while (frames[hand].referenced) { // second chance
+                frames[hand].referenced = false;
+                hand = hand + 1 == frames.length ? 0 : hand + 1;
+            }
+            slot = hand;
+            hand = hand + 1 == frames.length ? 0 : hand + 1;
+            if (frames[slot].dirty) {
+                dirtyEvictions++;
+            }
+            index.remove(frames[slot].key);
+        }
+        frames[slot] = new Frame(key, write);
+        index.put(key, frames[slot]);
+        return true;
+    }
+
+    public long faults() {
+        return faults;
+    }
+
+    public long dirtyEvictions() {
+        return dirtyEvictions;
+    }
+}
@@ -0,0 +1,29 @@
+package virtual_memory_examples;
+
+/**
+ * Monitors.java
+ * 
+ * Waiting on an object's monitor for I/O-like events (a swap write-back,
+ * a buffer being loaded), shared by SwapFile and
+ * file_system_examples.BufferCache. Their callers (page faults, block
+ * reads) cannot throw InterruptedException, so an interrupt aborts the
+ * wait with an unchecked exception and keeps the interrupt flag set.
+ */
+public final class Monitors {
+
+    private Monitors() {
+    }
+
+    /**
+     * monitor.wait() for a caller holding the monitor. An interrupt ends the
+     * wait with an IllegalStateException naming what was awaited.
+     */
+    public static void waitInterruptibly(Object monitor, String awaited) {
+        try {
+            monitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + awaited, e);
+        }
+    }
+}
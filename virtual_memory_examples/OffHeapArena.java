@@ -0,0 +1,158 @@
+package virtual_memory_examples;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OffHeapArena.java
+ * 
+ * A bump-pointer arena in native memory (direct ByteBuffers), outside the
+ * Java heap: the garbage collector never scans or copies what is stored
+ * here, however many millions of records there are.
+ * 
+ * - Memory is split into chunks of 2^chunkBits bytes (a ByteBuffer holds at
+ * most 2 GB), created lazily. An address is chunk << chunkBits | offset.
+ * - allocate() only moves the "top" pointer forward (one CAS, so several
+ * threads can allocate); an allocation never straddles two chunks.
+ * allocateTable() reserves whole chunks for tables larger than one.
+ * - There is no per-object free: reset() frees EVERYTHING at once (bulk
+ * free), which is what a simulation round or a trace buffer needs.
+ * Objects that come and go individually belong in an OffHeapSlab.
+ * 
+ * Records are read and written with getLong / putInt / ... at an address,
+ * in native byte order.
+ */
+public class OffHeapArena {
+
+    static final long ALIGNMENT = 8;
+
+    private final int chunkBits;
+    private final long chunkMask;
+    private final ByteBuffer[] chunks;
+    private final AtomicLong top = new AtomicLong();
+
+    public OffHeapArena(long capacity, int chunkBits) {
+        if (chunkBits < 12 || chunkBits > 30) {
+            throw new IllegalArgumentException("chunkBits must be in [12, 30]");
+        }
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1L << chunkBits) - 1;
+        this.chunks = new ByteBuffer[(int) ((capacity + chunkMask) >>> chunkBits)];
+    }
+
+    /** Reserves 'size' bytes (8-byte aligned) and returns their address. */
+    public long allocate(long size) {
+        if (size > chunkMask + 1) {
+            throw new IllegalArgumentException("Allocation of " + size + " bytes exceeds the chunk size " + (chunkMask + 1));
+        }
+        while (true) {
+            long current = top.get();
+            long start = (current + ALIGNMENT - 1) & -ALIGNMENT;
+            if ((start & chunkMask) + size > chunkMask + 1) {
+                start = (start | chunkMask) + 1; // does not fit: start of the next chunk
+            }
+            long end = start + size;
+            if ((start >>> chunkBits) >= chunks.length) {
+                throw new IllegalStateException("Arena exhausted: " + capacity() + " bytes");
+            }
+            if (top.compareAndSet(current, end)) {
+                ensureChunk((int) (start >>> chunkBits));
+                return start;
+            }
+        }
+    }
+
+    /**
+     * Reserves a large table that may span several chunks: it starts at a
+     * chunk boundary, so records whose size is a power of two (up to the
+     * chunk size) never straddle two chunks and address + i * recordSize
+     * works across the whole table.
+     */
+    public long allocateTable(long size) {
+        while (true) {
+            long current = top.get();
+            long start = (current + chunkMask) & ~chunkMask;
+            long end = start + size;
+            if (((end - 1) >>> chunkBits) >= chunks.length) {
+                throw new IllegalStateException("Arena exhausted: " + capacity() + " bytes");
+            }
+            if (top.compareAndSet(current, end)) {
+                for (long c = start >>> chunkBits; c <= (end - 1) >>> chunkBits; c++) {
+                    ensureChunk((int) c);
+                }
+                return start;
+            }
+        }
+    }
+
+    private void ensureChunk(int chunk) {
+        if (chunks[chunk] == null) {
+            synchronized (chunks) {
+                if (chunks[chunk] == null) {
+                    chunks[chunk] = ByteBuffer.allocateDirect((int) (chunkMask + 1)).order(ByteOrder.nativeOrder());
+                }
+            }
+        }
+    }
+
+    /**
+     * Frees every allocation at once. The chunks stay reserved for reuse.
+     * No thread may still use addresses from before the reset.
+     */
+    public void reset() {
+        top.set(0);
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks[(int) (address >>> chunkBits)];
+    }
+
+    public long getLong(long address) {
+        return chunk(address).getLong((int) (address & chunkMask));
+    }
+
+    public void putLong(long address, long value) {
+        chunk(address).putLong((int) (address & chunkMask), value);
+    }
+
+    public int getInt(long address) {
+        return chunk(address).getInt((int) (address & chunkMask));
+    }
+
+    public void putInt(long address, int value) {
+        chunk(address).putInt((int) (address & chunkMask), value);
+    }
+
+    /** Fills [address, address + size) with zeros (within one allocation). */
+    public void clear(long address, long size) {
+        ByteBuffer chunk = chunk(address);
+        int offset = (int) (address & chunkMask);
+        for (int i = 0; i + 8 <= size; i += 8) {
+            chunk.putLong(offset + i, 0);
+        }
+        for (long i = size & ~7L; i < size; i++) {
+            chunk.put(offset + (int) i, (byte) 0);
+        }
+    }
+
+    /** Bytes handed out since the last reset (including alignment). */
+    public long used() {
+        return top.get();
+    }
+
+    public long capacity() {
+        return (long) chunks.length << chunkBits;
+    }
+
+    /** Native memory actually reserved (chunks created so far). */
+    public long reservedBytes() {
+        long reserved = 0;
+        for (ByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                reserved += chunk.capacity();
+            }
+        }
+        return reserved;
+    }
+}
@@ -0,0 +1,143 @@
+package virtual_memory_examples;
+
+/**
+ * OffHeapFrameTable.java
+ * 
+ * FrameTable stored in an OffHeapArena: no Java object per frame or per
+ * mapping, so the heap holds only this object and the arena's chunks.
+ * 
+ * - Frame records, FRAME_BYTES each: key (8 bytes), flags (4: referenced,
+ * dirty), padding (4).
+ * - Index: an open-addressing hash table with linear probing, 2 slots per
+ * frame, SLOT_BYTES each: key (8), frame number (4), padding (4); key -1
+ * marks an empty slot. Removal shifts the following entries back instead
+ * of leaving tombstones, so lookups stay short however many pages have
+ * been evicted.
+ */
+public class OffHeapFrameTable implements FrameTable {
+
+    static final int FRAME_BYTES = 16;
+    static final int SLOT_BYTES = 16;
+    private static final int REFERENCED = 1, DIRTY = 2;
+    private static final long EMPTY = -1;
+
+    private final OffHeapArena arena;
+    private final int frameCount;
+    private final long frameBase;
+    private final long indexBase;
+    private final long slotMask;
+    private int used = 0;
+    private int hand = 0;
+    private long faults = 0;
+    private long dirtyEvictions = 0;
+
+    public OffHeapFrameTable(OffHeapArena arena, int frames) {
+        this.arena = arena;
+        this.frameCount = frames;
+        long slots = Long.highestOneBit(Math.max(2, frames) * 2L - 1) << 1;
+        this.slotMask = slots - 1;
+        this.frameBase = arena.allocateTable((long) frames * FRAME_BYTES);
+        this.indexBase = arena.allocateTable(slots * SLOT_BYTES);
+        for (long s = 0; s < slots; s++) {
+            arena.putLong(slot(s), EMPTY);
+        }
+    }
+
+    public int frames() {
+        return frameCount;
+    }
+
+    private long frame(int f) {
+        return frameBase + (long) f * FRAME_BYTES;
+    }
+
+    private long slot(long s) {
+        return indexBase + s * SLOT_BYTES;
+    }
+
+    private static long hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 31);
+    }
+
+    public boolean reference(int pid, int page, boolean write) {
+        long key = FrameTable.key(pid, page);
+        for (long s = hash(key) & slotMask;; s = (s + 1) & slotMask) {
+            long k = arena.getLong(slot(s));
+            if (k == key) {
+                long f = frame(arena.getInt(slot(s) + 8));
+                arena.putInt(f + 8, arena.getInt(f + 8) | REFERENCED | (write ? DIRTY : 0));
+                return false;
+            }
+            if (k == EMPTY) {
+                break;
+            }
+        }
+        faults++;
+        int victim;
+        if (used < frameCount) {
+            victim = used++;
+        } else {
+            while (true) { // second chance
+                long f = frame(hand);
+                int flags = arena.getInt(f + 8);
+                if ((flags & REFERENCED) == 0) {
+                    break;
+                }
+                arena.putInt(f + 8, flags & ~REFERENCED);
+                hand = hand + 1 == frameCount ? 0 : hand + 1;
+            }
+            victim = hand;
+            hand = hand + 1 == frameCount ? 0 : hand + 1;
+            if ((arena.getInt(frame(victim) + 8) & DIRTY) != 0) {
+                dirtyEvictions++;
+            }
+            remove(arena.getLong(frame(victim)));
+        }
+        long f = frame(victim);
+        arena.putLong(f, key);
+        arena.putInt(f + 8, REFERENCED | (write ? DIRTY : 0));
+        insert(key, victim);
+        return true;
+    }
+
+    private void insert(long key, int frame) {
+        long s = hash(key) & slotMask;
+        while (arena.getLong(slot(s)) != EMPTY) {
+            s = (s + 1) & slotMask;
+        }
+        arena.putLong(slot(s), key);
+        arena.putInt(slot(s) + 8, frame);
+    }
+
+    private void remove(long key) {
+        long i = hash(key) & slotMask;
+        while (arena.getLong(slot(i)) != key) {
+            i = (i + 1) & slotMask;
+        }
+        // Backward shift: pull later entries of the probe run into the gap
+        long j = i;
+        while (true) {
+            j = (j + 1) & slotMask;
+            long k = arena.getLong(slot(j));
+            if (k == EMPTY) {
+                break;
+            }
+            long home = hash(k) & slotMask;
+            if (((j - home) & slotMask) >= ((j - i) & slotMask)) {
+                arena.putLong(slot(i), k);
+                arena.putInt(slot(i) + 8, arena.getInt(slot(j) + 8));
+                i = j;
+            }
+        }
+        arena.putLong(slot(i), EMPTY);
+    }
+
+    public long faults() {
+        return faults;
+    }
+
+    public long dirtyEvictions() {
+        return dirtyEvictions;
+    }
+}
@@ -0,0 +1,249 @@
+package virtual_memory_examples;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * OffHeapGcBenchmark.java
+ * 
+ * The same paging simulation twice, once with its data on the Java heap
+ * and once off-heap, to see what millions of simulated frames cost the
+ * garbage collector.
+ * 
+ * Simulation, per round:
+ * - process churn: 10% of the processes exit and new ones start (their
+ * PCBs are freed and allocated),
+ * - a trace buffer of 'refs' page references is generated (each process
+ * uses mostly its own hot pages, sometimes any of its pages; 30% writes),
+ * - the trace is replayed against a FrameTable with CLOCK replacement, and
+ * the PCBs count references, faults and writes.
+ * 
+ * heap: HeapFrameTable (HashMap with boxed keys, a Frame object per loaded
+ * page), Pcb objects in a HashMap, a new long[] trace buffer every round.
+ * off-heap: OffHeapFrameTable in an arena, PCBs from an OffHeapSlab
+ * (freed and reused individually), the trace buffer in a round arena that
+ * is bulk-freed (reset) after every round.
+ * 
+ * Reported: references per second, faults, GC count, total and longest GC
+ * pause (from the JVM's GC notifications), heap still used after a full GC,
+ * native memory reserved. For the GC logs themselves, run one mode per JVM:
+ * java -Xlog:gc -Xmx1g virtual_memory_examples.OffHeapGcBenchmark heap
+ * java -Xlog:gc -Xmx1g virtual_memory_examples.OffHeapGcBenchmark offheap
+ * 
+ * Usage: java virtual_memory_examples.OffHeapGcBenchmark [heap|offheap|both] [frames] [rounds] [refsPerRound]
+ */
+public class OffHeapGcBenchmark {
+
+    static final int PROCESSES = 4096;
+    static final int PAGES_PER_PROCESS = 4096;
+    static final int HOT_PAGES = 512;
+    static final int PCB_BYTES = 64;
+
+    // PCB layout (off-heap)
+    static final int PCB_PID = 0, PCB_REFS = 8, PCB_FAULTS = 16, PCB_WRITES = 24;
+
+    /** PCB as a heap object. */
+    static final class Pcb {
+        final int pid;
+        long refs, faults, writes;
+
+        Pcb(int pid) {
+            this.pid = pid;
+        }
+    }
+
+    /** GC pauses seen through the JVM's notifications. */
+    static final class GcMonitor {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalMillis = new AtomicLong();
+        final AtomicLong maxMillis = new AtomicLong();
+
+        GcMonitor() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        return;
+                    }
+                    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                            .from((CompositeData) notification.getUserData());
+                    long millis = info.getGcInfo().getDuration();
+                    count.incrementAndGet();
+                    totalMillis.addAndGet(millis);
+                    maxMillis.accumulateAndGet(millis, Math::max);
+                }, null, null);
+            }
+        }
+
+        void reset() {
+            count.set(0);
+            totalMillis.set(0);
+            maxMillis.set(0);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "both";
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int refs = args.length > 3 ? Integer.parseInt(args[3]) : 4_000_000;
+
+        GcMonitor gc = new GcMonitor();
+        System.out.println("Frames: " + frames + ", processes: " + PROCESSES + ", rounds: " + rounds
+                + ", references per round: " + refs + ", heap max: "
+                + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB");
+        System.out.println(String.format("%-9s | %10s | %10s | %8s | %8s | %9s | %9s | %9s | %10s",
+                "Mode", "M refs/s", "Faults", "Dirty ev", "GCs", "GC ms", "Max pause", "Heap MB", "Native MB"));
+        System.out.println("------------------------------------------------------------------------------------------------------");
+
+        if (!mode.equals("offheap")) {
+            run("heap", frames, rounds, refs, gc);
+        }
+        if (!mode.equals("heap")) {
+            run("off-heap", frames, rounds, refs, gc);
+        }
+    }
+
+    private static void run(String mode, int frames, int rounds, int refs, GcMonitor gc) throws InterruptedException {
+        System.gc();
+        Thread.sleep(200); // let the notifications of that GC arrive before resetting
+        gc.reset();
+        long start = System.nanoTime();
+        long[] result = mode.equals("heap") ? heap(frames, rounds, refs) : offHeap(frames, rounds, refs);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        Thread.sleep(200);
+        long gcs = gc.count.get(), gcMillis = gc.totalMillis.get(), maxPause = gc.maxMillis.get();
+
+        System.out.println(String.format("%-9s | %10.2f | %10d | %8d | %8d | %9d | %6d ms | %9.1f | %10.1f",
+                mode, (double) rounds * refs / seconds / 1_000_000, result[0], result[1], gcs, gcMillis, maxPause,
+                result[2] / (1024.0 * 1024.0), result[3] / (1024.0 * 1024.0)));
+    }
+
+    /** One reference of the trace: pid << 33 | page << 1 | write. */
+    private static long nextReference(SplittableRandom random, int[] pids, int activeStart) {
+        int slot = (activeStart + random.nextInt(PROCESSES / 16)) % PROCESSES; // a running subset
+        int page = random.nextInt(10) < 9 ? random.nextInt(HOT_PAGES) : random.nextInt(PAGES_PER_PROCESS);
+        boolean write = random.nextInt(10) < 3;
+        return (long) pids[slot] << 33 | (long) page << 1 | (write ? 1 : 0);
+    }
+
+    // --- On the heap ---
+
+    /** Returns faults, dirty evictions, retained heap, native bytes. */
+    private static long[] heap(int frameCount, int rounds, int refs) {
+        SplittableRandom random = new SplittableRandom(42);
+        FrameTable frames = new HeapFrameTable(frameCount);
+        Map<Integer, Pcb> pcbs = new HashMap<>();
+        int[] pids = new int[PROCESSES];
+        int nextPid = 0;
+        for (int slot = 0; slot < PROCESSES; slot++) {
+            pids[slot] = nextPid;
+            pcbs.put(nextPid, new Pcb(nextPid++));
+        }
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < PROCESSES / 10; i++) { // churn
+                int slot = random.nextInt(PROCESSES);
+                pcbs.remove(pids[slot]);
+                pids[slot] = nextPid;
+                pcbs.put(nextPid, new Pcb(nextPid++));
+            }
+            long[] trace = new long[refs]; // a new buffer every round
+            int activeStart = random.nextInt(PROCESSES);
+            for (int i = 0; i < refs; i++) {
+                trace[i] = nextReference(random, pids, activeStart);
+            }
+            for (long r : trace) {
+                int pid = (int) (r >>> 33);
+                boolean write = (r & 1) != 0;
+                Pcb pcb = pcbs.get(pid);
+                pcb.refs++;
+                if (write) {
+                    pcb.writes++;
+                }
+                if (frames.reference(pid, (int) (r >>> 1) & 0xFFFF_FFFF, write)) {
+                    pcb.faults++;
+                }
+            }
+        }
+        long retained = retainedHeap();
+        if (pcbs.size() != PROCESSES) {
+            throw new IllegalStateException("Lost a PCB");
+        }
+        return new long[] { frames.faults(), frames.dirtyEvictions(), retained, 0 };
+    }
+
+    // --- Off the heap ---
+
+    private static long[] offHeap(int frameCount, int rounds, int refs) {
+        SplittableRandom random = new SplittableRandom(42);
+        OffHeapArena tables = new OffHeapArena(((long) frameCount * 64) + (64L << 20), 26);
+        OffHeapSlab slab = new OffHeapSlab(new OffHeapArena(64L << 20, 24));
+        OffHeapArena roundArena = new OffHeapArena((long) refs * 8 + (16L << 20), 26);
+        FrameTable frames = new OffHeapFrameTable(tables, frameCount);
+
+        // pid -> process slot: pids are handed out in order, so a ring indexed by pid works
+        // as long as a process lives for fewer than 2^20 process starts
+        int[] pids = new int[PROCESSES];
+        long[] pcbOf = new long[PROCESSES];
+        int[] slotOfPid = new int[1 << 20];
+        int nextPid = 0;
+        for (int slot = 0; slot < PROCESSES; slot++) {
+            pids[slot] = nextPid;
+            slotOfPid[nextPid & (slotOfPid.length - 1)] = slot;
+            pcbOf[slot] = newPcb(slab, nextPid++);
+        }
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < PROCESSES / 10; i++) {
+                int slot = random.nextInt(PROCESSES);
+                slab.free(pcbOf[slot], PCB_BYTES);
+                pids[slot] = nextPid;
+                slotOfPid[nextPid & (slotOfPid.length - 1)] = slot;
+                pcbOf[slot] = newPcb(slab, nextPid++);
+            }
+            roundArena.reset(); // bulk free of last round's buffers
+            long trace = roundArena.allocateTable((long) refs * 8);
+            int activeStart = random.nextInt(PROCESSES);
+            for (int i = 0; i < refs; i++) {
+                roundArena.putLong(trace + 8L * i, nextReference(random, pids, activeStart));
+            }
+            OffHeapArena memory = slab.arena();
+            for (int i = 0; i < refs; i++) {
+                long r = roundArena.getLong(trace + 8L * i);
+                int pid = (int) (r >>> 33);
+                boolean write = (r & 1) != 0;
+                long pcb = pcbOf[slotOfPid[pid & (slotOfPid.length - 1)]];
+                memory.putLong(pcb + PCB_REFS, memory.getLong(pcb + PCB_REFS) + 1);
+                if (write) {
+                    memory.putLong(pcb + PCB_WRITES, memory.getLong(pcb + PCB_WRITES) + 1);
+                }
+                if (frames.reference(pid, (int) (r >>> 1) & 0xFFFF_FFFF, write)) {
+                    memory.putLong(pcb + PCB_FAULTS, memory.getLong(pcb + PCB_FAULTS) + 1);
+                }
+            }
+        }
+        long retained = retainedHeap();
+        long nativeBytes = tables.reservedBytes() + slab.arena().reservedBytes() + roundArena.reservedBytes();
+        return new long[] { frames.faults(), frames.dirtyEvictions(), retained, nativeBytes };
+    }
+
+    private static long newPcb(OffHeapSlab slab, int pid) {
+        long pcb = slab.allocate(PCB_BYTES);
+        slab.arena().clear(pcb, PCB_BYTES);
+        slab.arena().putInt(pcb + PCB_PID, pid);
+        return pcb;
+    }
+
+    private static long retainedHeap() {
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
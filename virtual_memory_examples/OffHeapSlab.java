@@ -0,0 +1,140 @@
+package virtual_memory_examples;
+
+import java.util.Arrays;
+
+/**
+ * OffHeapSlab.java
+ * 
+ * A slab allocator for small fixed-size records (PCBs, page-table nodes) in
+ * an OffHeapArena:
+ * - Size classes 16 B .. 4 KB. A request is rounded up to its class.
+ * - Each class carves SLAB_SIZE slabs from the arena into equal slots.
+ * - Freed slots go on the class's free list, which is stored IN the freed
+ * slots themselves (the first 8 bytes hold the next free address), so the
+ * allocator needs no Java objects per record.
+ * - Thread-local caches ("magazines", as in tcmalloc or the Solaris
+ * slab allocator): each thread keeps up to MAGAZINE free slots per class
+ * and only takes the class lock to refill or flush half a magazine, so
+ * most allocate / free calls touch no shared state.
+ * - reset() is a bulk free: every slot of every class is released at once
+ * (thread caches notice through an epoch number and drop their slots).
+ * It resets the arena too, so the arena must belong to this slab alone.
+ */
+public class OffHeapSlab {
+
+    static final int[] CLASSES = { 16, 32, 48, 64, 96, 128, 192, 256, 384, 512, 768, 1024, 1536, 2048, 3072, 4096 };
+    static final int SLAB_SIZE = 64 << 10;
+    static final int MAGAZINE = 64;
+    private static final long NONE = -1;
+
+    private final OffHeapArena arena;
+    private final long[] freeHead = new long[CLASSES.length]; // central free lists
+    private final long[] carveNext = new long[CLASSES.length]; // current slab: next unused slot
+    private final long[] carveEnd = new long[CLASSES.length];
+    private final Object[] locks = new Object[CLASSES.length];
+    private volatile int epoch = 0;
+
+    /** One thread's magazines. */
+    private static final class Cache {
+        int epoch;
+        final long[][] slots = new long[CLASSES.length][MAGAZINE];
+        final int[] counts = new int[CLASSES.length];
+    }
+
+    private final ThreadLocal<Cache> caches = ThreadLocal.withInitial(Cache::new);
+
+    public OffHeapSlab(OffHeapArena arena) {
+        this.arena = arena;
+        Arrays.fill(freeHead, NONE);
+        for (int c = 0; c < CLASSES.length; c++) {
+            locks[c] = new Object();
+        }
+    }
+
+    static int classOf(int size) {
+        for (int c = 0; c < CLASSES.length; c++) {
+            if (CLASSES[c] >= size) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("Record too large for the slab: " + size + " bytes");
+    }
+
+    public OffHeapArena arena() {
+        return arena;
+    }
+
+    /** Address of a free slot of at least 'size' bytes (contents undefined). */
+    public long allocate(int size) {
+        int c = classOf(size);
+        Cache cache = cache();
+        if (cache.counts[c] == 0) {
+            refill(cache, c);
+        }
+        return cache.slots[c][--cache.counts[c]];
+    }
+
+    /** Returns a slot obtained from allocate(size). */
+    public void free(long address, int size) {
+        int c = classOf(size);
+        Cache cache = cache();
+        if (cache.counts[c] == MAGAZINE) {
+            flush(cache, c, MAGAZINE / 2);
+        }
+        cache.slots[c][cache.counts[c]++] = address;
+    }
+
+    private Cache cache() {
+        Cache cache = caches.get();
+        if (cache.epoch != epoch) { // a reset freed everything: cached slots are gone
+            Arrays.fill(cache.counts, 0);
+            cache.epoch = epoch;
+        }
+        return cache;
+    }
+
+    private void refill(Cache cache, int c) {
+        long[] slots = cache.slots[c];
+        int n = 0;
+        synchronized (locks[c]) {
+            while (n < MAGAZINE / 2 && freeHead[c] != NONE) {
+                long slot = freeHead[c];
+                freeHead[c] = arena.getLong(slot);
+                slots[n++] = slot;
+            }
+            while (n < MAGAZINE / 2) {
+                if (carveNext[c] + CLASSES[c] > carveEnd[c]) {
+                    carveNext[c] = arena.allocate(SLAB_SIZE); // a new slab for this class
+                    carveEnd[c] = carveNext[c] + SLAB_SIZE;
+                }
+                slots[n++] = carveNext[c];
+                carveNext[c] += CLASSES[c];
+            }
+        }
+        cache.counts[c] = n;
+    }
+
+    private void flush(Cache cache, int c, int count) {
+        long[] slots = cache.slots[c];
+        synchronized (locks[c]) {
+            for (int i = 0; i < count; i++) {
+                long slot = slots[--cache.counts[c]];
+                arena.putLong(slot, freeHead[c]);
+                freeHead[c] = slot;
+            }
+        }
+    }
+
+    /** Bulk free: every record is released. No thread may use old records afterwards. */
+    public void reset() {
+        for (int c = 0; c < CLASSES.length; c++) {
+            synchronized (locks[c]) {
+                freeHead[c] = NONE;
+                carveNext[c] = 0;
+                carveEnd[c] = 0;
+            }
+        }
+        epoch++;
+        arena.reset();
+    }
+}
@@ -9,6 +9,9 @@ import java.util.*;
  * 1. FIFO (First-In-First-Out)
  * 2. LRU (Least Recently Used)
  * 3. OPT (Optimal - requires knowing future)
+ * 
+ * FIFO and LRU come from ReplacementPolicies, which SwappingPager and
+ * file_system_examples.BufferCache use as well.
  */
 public class PageReplacementSim {
 
@@ -34,29 +37,16 @@ public class PageReplacementSim {
 
     // --- FIFO Algorithm ---
     private static int runFIFO(int[] references, int frameCount) {
-        Queue<Integer> queue = new LinkedList<>();
-        Set<Integer> frames = new HashSet<>();
-        int faults = 0;
-
-        for (int page : references) {
-            if (!frames.contains(page)) {
-                faults++;
-                if (frames.size() == frameCount) {
-                    int victim = queue.poll();
-                    frames.remove(victim);
-                }
-                frames.add(page);
-                queue.offer(page);
-            }
-        }
-        return faults;
+        return run(ReplacementPolicies.fifo(), references, frameCount);
     }
 
     // --- LRU Algorithm ---
     private static int runLRU(int[] references, int frameCount) {
-        // LinkedHashMap with accessOrder=true acts as LRU cache
-        // However, here we just need to track the order manually or use a list
-        LinkedList<Integer> lruList = new LinkedList<>();
+        return run(ReplacementPolicies.lru(), references, frameCount);
+    }
+
+    // The policy decides the victim; this loop only tracks which pages are in frames
+    private static int run(ReplacementPolicy policy, int[] references, int frameCount) {
         Set<Integer> frames = new HashSet<>();
         int faults = 0;
 
@@ -64,16 +54,13 @@ public class PageReplacementSim {
             if (!frames.contains(page)) {
                 faults++;
                 if (frames.size() == frameCount) {
-                    // Remove Least Recently Used (head of list)
-                    int victim = lruList.removeFirst();
+                    int victim = (int) policy.victim();
                     frames.remove(victim);
                 }
                 frames.add(page);
-                lruList.addLast(page); // Recently used -> end of list
+                policy.inserted(page);
             } else {
-                // Page exists, update its position (make it most recently used)
-                lruList.remove((Integer) page);
-                lruList.addLast(page);
+                policy.accessed(page); // LRU: now the most recently used
             }
         }
         return faults;
@@ -0,0 +1,236 @@
+package virtual_memory_examples;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ReplacementPolicies.java
+ * 
+ * PageReplacementSim's algorithms as ReplacementPolicy implementations,
+ * with O(1) or O(log n) steps so they can drive millions of references:
+ * - FIFO: evicts the key loaded longest ago (insertion-ordered set).
+ * - LRU: evicts the key used longest ago (access-ordered map).
+ * - CLOCK: second chance, the usual hardware-friendly LRU approximation:
+ * the hand skips (and clears) keys used since it last passed them.
+ * - OPT: evicts the key whose next use is furthest away. It needs the
+ * whole reference string in advance and must see every reference, in
+ * order, through inserted() / accessed().
+ */
+public final class ReplacementPolicies {
+
+    private ReplacementPolicies() {
+    }
+
+    public static ReplacementPolicy fifo() {
+        return new Fifo();
+    }
+
+    public static ReplacementPolicy lru() {
+        return new Lru();
+    }
+
+    public static ReplacementPolicy clock(int capacity) {
+        return new Clock(capacity);
+    }
+
+    public static ReplacementPolicy optimal(long[] references) {
+        return new Optimal(references);
+    }
+
+    static class Fifo implements ReplacementPolicy {
+        private final LinkedHashSet<Long> queue = new LinkedHashSet<>();
+
+        public String name() {
+            return "FIFO";
+        }
+
+        public void inserted(long key) {
+            queue.add(key);
+        }
+
+        public void accessed(long key) {
+            // a hit does not change the loading order
+        }
+
+        public void removed(long key) {
+            queue.remove(key);
+        }
+
+        public long victim() {
+            Iterator<Long> oldest = queue.iterator();
+            long key = oldest.next();
+            oldest.remove();
+            return key;
+        }
+
+        public int size() {
+            return queue.size();
+        }
+    }
+
+    static class Lru implements ReplacementPolicy {
+        // accessOrder = true: get() moves a key to the most recently used end
+        private final LinkedHashMap<Long, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+
+        public String name() {
+            return "LRU";
+        }
+
+        public void inserted(long key) {
+            order.put(key, Boolean.TRUE);
+        }
+
+        public void accessed(long key) {
+            order.get(key);
+        }
+
+        public void removed(long key) {
+            order.remove(key);
+        }
+
+        public long victim() {
+            Iterator<Long> leastRecent = order.keySet().iterator();
+            long key = leastRecent.next();
+            leastRecent.remove();
+            return key;
+        }
+
+        public int size() {
+            return order.size();
+        }
+    }
+
+    static class Clock implements ReplacementPolicy {
+        private final long[] keys;
+        private final boolean[] occupied;
+        private final boolean[] referenced;
+        private final HashMap<Long, Integer> slotOf = new HashMap<>();
+        private final int[] freeSlots;
+        private int freeCount;
+        private int hand = 0;
+
+        Clock(int capacity) {
+            keys = new long[capacity];
+            occupied = new boolean[capacity];
+            referenced = new boolean[capacity];
+            freeSlots = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                freeSlots[i] = capacity - 1 - i;
+            }
+            freeCount = capacity;
+        }
+
+        public String name() {
+            return "CLOCK";
+        }
+
+        public void inserted(long key) {
+            if (freeCount == 0) {
+                throw new IllegalStateException("CLOCK is full (" + keys.length + " keys)");
+            }
+            int slot = freeSlots[--freeCount];
+            keys[slot] = key;
+            occupied[slot] = true;
+            referenced[slot] = true;
+            slotOf.put(key, slot);
+        }
+
+        public void accessed(long key) {
+            Integer slot = slotOf.get(key);
+            if (slot != null) { // a concurrent cache may report a hit on a key it is about to insert or drop
+                referenced[slot] = true;
+            }
+        }
+
+        public void removed(long key) {
+            Integer slot = slotOf.remove(key);
+            if (slot != null) {
+                occupied[slot] = false;
+                freeSlots[freeCount++] = slot;
+            }
+        }
+
+        public long victim() {
+            while (true) {
+                int slot = hand;
+                hand = (hand + 1) % keys.length;
+                if (!occupied[slot]) {
+                    continue;
+                }
+                if (referenced[slot]) {
+                    referenced[slot] = false; // second chance
+                } else {
+                    long key = keys[slot];
+                    removed(key);
+                    return key;
+                }
+            }
+        }
+
+        public int size() {
+            return slotOf.size();
+        }
+    }
+
+    static class Optimal implements ReplacementPolicy {
+        private final long[] references;
+        private final int[] nextUse; // index of the next reference to the same key
+        private final TreeMap<Integer, Long> byNextUse = new TreeMap<>();
+        private final HashMap<Long, Integer> nextUseOf = new HashMap<>();
+        private int position = 0;
+
+        Optimal(long[] references) {
+            this.references = references;
+            this.nextUse = new int[references.length];
+            Map<Long, Integer> later = new HashMap<>();
+            for (int i = references.length - 1; i >= 0; i--) {
+                // never used again: beyond the end, distinct per reference so the TreeMap keys stay unique
+                nextUse[i] = later.getOrDefault(references[i], references.length + i);
+                later.put(references[i], i);
+            }
+        }
+
+        public String name() {
+            return "OPT";
+        }
+
+        private void use(long key) {
+            if (position >= references.length || references[position] != key) {
+                throw new IllegalStateException("OPT saw key " + key + " out of step with its reference string");
+            }
+            removed(key);
+            int next = nextUse[position++];
+            byNextUse.put(next, key);
+            nextUseOf.put(key, next);
+        }
+
+        public void inserted(long key) {
+            use(key);
+        }
+
+        public void accessed(long key) {
+            use(key);
+        }
+
+        public void removed(long key) {
+            Integer next = nextUseOf.remove(key);
+            if (next != null) {
+                byNextUse.remove(next);
+            }
+        }
+
+        public long victim() {
+            long key = byNextUse.pollLastEntry().getValue();
+            nextUseOf.remove(key);
+            return key;
+        }
+
+        public int size() {
+            return nextUseOf.size();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package virtual_memory_examples;
+
+/**
+ * ReplacementPolicy.java
+ * 
+ * The "which page goes" decision of page replacement, separated from what
+ * is being cached: PageReplacementSim and SwappingPager use it for pages in
+ * frames, file_system_examples.BufferCache for blocks in buffers. The cache
+ * tells the policy what happens:
+ * - inserted() when a key is loaded (a miss), after victim() made room,
+ * - accessed() when a resident key is used again (a hit),
+ * - removed() when a key leaves without being chosen as the victim,
+ * and asks victim() for the key to evict when memory is full.
+ * 
+ * Implementations are in ReplacementPolicies.
+ */
+public interface ReplacementPolicy {
+
+    String name();
+
+    void inserted(long key);
+
+    void accessed(long key);
+
+    void removed(long key);
+
+    /** Chooses a resident key to evict and forgets it. */
+    long victim();
+
+    /** Number of resident keys. */
+    int size();
+}
@@ -0,0 +1,150 @@
+package virtual_memory_examples;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * SwapBenchmark.java
+ * 
+ * ThrashingDemo charges a made-up Thread.sleep(1) per "paging" instruction.
+ * Here every replacement decision has its real cost: SwappingPager writes
+ * evicted dirty pages to a SwapFile and reads them back on the next fault,
+ * so policies are compared by the bytes they move and the time they wait,
+ * not only by their fault counts.
+ * 
+ * Trace (footprint pages, 30% writes), in phases of PHASE references that
+ * rotate through a fixed pattern of 20:
+ * - working set (13 of 20 phases): uniform references to a region of
+ * 3/4 of the frames,
+ * - loop (5 of 20): sequential passes over a region of 5/4 of the frames, 4
+ * references per page, the first one a write half of the time (the case
+ * LRU and FIFO handle worst),
+ * - random (2 of 20): uniform over the whole footprint.
+ * 
+ * Every policy (FIFO, LRU, CLOCK, OPT) runs with:
+ * - sync: every dirty eviction writes its page before the fault continues,
+ * - async: write-back in batches of BATCH pages (one write per run of
+ * consecutive slots),
+ * - async + RA: plus swap read-ahead of READ_AHEAD slots per major fault.
+ * 
+ * Columns: faults and major faults (faults that read the file), read-ahead
+ * hits, MB read / written and the number of read / write calls, p99 read
+ * latency, time spent inside faults ("Stall") and wall time.
+ * 
+ * BUFFERED I/O mostly measures the OS page cache (the swap file fits in it);
+ * DIRECT (O_DIRECT) sends every page to the device, DSYNC waits for every write.
+ * 
+ * Usage: java virtual_memory_examples.SwapBenchmark [frames] [footprintPages] [references] [buffered|dsync|direct] [dir]
+ */
+public class SwapBenchmark {
+
+    private static final int PHASE = 100_000;
+    private static final int BATCH = 64;
+    private static final int MAX_PENDING = 1024;
+    private static final long MAX_DELAY_MILLIS = 5;
+    private static final int READ_AHEAD = 8;
+    private static final int SWAP_CACHE_PAGES = 256;
+
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 32768;
+        int references = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+        SwapFile.IoMode mode = SwapFile.IoMode.valueOf((args.length > 3 ? args[3] : "buffered").toUpperCase());
+        Path dir = Paths.get(args.length > 4 ? args[4] : System.getProperty("java.io.tmpdir"));
+
+        long[] trace = trace(frames, pages, references, new SplittableRandom(42));
+        long[] keys = new long[trace.length];
+        for (int i = 0; i < trace.length; i++) {
+            keys[i] = trace[i] >>> 1;
+        }
+
+        System.out.println("Frames: " + frames + " (" + frames * (long) SwapFile.PAGE_SIZE / (1024 * 1024)
+                + " MB), footprint: " + pages + " pages (" + pages * (long) SwapFile.PAGE_SIZE / (1024 * 1024)
+                + " MB), references: " + references + ", I/O: " + mode + ", swap file in " + dir);
+        System.out.println(String.format("%-6s | %-10s | %8s | %8s | %8s | %8s | %8s | %8s | %8s | %9s | %8s | %8s",
+                "Policy", "Writes", "Faults", "Major", "RA hits", "MB read", "MB write", "Reads", "Writes",
+                "p99 rd us", "Stall ms", "Wall ms"));
+        System.out.println("---------------------------------------------------------------------------------------------------------------------------");
+
+        long[] prefix = Arrays.copyOf(trace, Math.min(trace.length, 500_000));
+        for (int config = 0; config < 3; config++) { // warm-up
+            run(frames, pages, prefix, ReplacementPolicies.fifo(), mode, dir, config == 0 ? 0 : BATCH,
+                    config == 2 ? READ_AHEAD : 1, false);
+        }
+        for (String policy : new String[] { "FIFO", "LRU", "CLOCK", "OPT" }) {
+            for (int config = 0; config < 3; config++) {
+                ReplacementPolicy p = policy.equals("FIFO") ? ReplacementPolicies.fifo()
+                        : policy.equals("LRU") ? ReplacementPolicies.lru()
+                        : policy.equals("CLOCK") ? ReplacementPolicies.clock(frames)
+                        : ReplacementPolicies.optimal(keys);
+                run(frames, pages, trace, p, mode, dir, config == 0 ? 0 : BATCH, config == 2 ? READ_AHEAD : 1, true);
+            }
+        }
+    }
+
+    private static void run(int frames, int pages, long[] trace, ReplacementPolicy policy, SwapFile.IoMode mode,
+            Path dir, int batch, int readAhead, boolean report) throws IOException {
+        Path file = Files.createTempFile(dir, "swap", ".img");
+        long start = System.nanoTime();
+        SwappingPager pager;
+        SwapFile swap = new SwapFile(file, 2 * pages, mode, batch, MAX_PENDING, MAX_DELAY_MILLIS);
+        try {
+            pager = new SwappingPager(frames, pages, policy, swap, readAhead, SWAP_CACHE_PAGES);
+            for (long r : trace) {
+                pager.access((int) (r >>> 1), (r & 1) != 0);
+            }
+            swap.flush();
+        } finally {
+            swap.close();
+        }
+        double wallMillis = (System.nanoTime() - start) / 1_000_000.0;
+        if (!report) {
+            return;
+        }
+        String writes = batch == 0 ? "sync" : readAhead > 1 ? "async+RA" + readAhead : "async";
+        System.out.println(String.format("%-6s | %-10s | %8d | %8d | %8d | %8.1f | %8.1f | %8d | %8d | %9.1f | %8.0f | %8.0f",
+                pager.policyName(), writes, pager.getFaults(), pager.getMajorFaults(), pager.getReadAheadHits(),
+                swap.bytesRead() / (1024.0 * 1024.0), swap.bytesWritten() / (1024.0 * 1024.0),
+                swap.readLatency().calls(), swap.writeLatency().calls(),
+                swap.readLatency().percentileNanos(0.99) / 1_000.0, pager.getFaultNanos() / 1_000_000.0, wallMillis));
+    }
+
+    /** page << 1 | write, see the class comment. */
+    static long[] trace(int frames, int pages, int references, SplittableRandom random) {
+        long[] trace = new long[references];
+        int i = 0;
+        for (int phase = 0; i < references; phase++) {
+            int end = Math.min(references, i + PHASE);
+            int kind = phase * 7 % 20; // visits 0..19 in a scattered order
+            if (kind < 13) {
+                int size = Math.min(pages, frames * 3 / 4);
+                int base = random.nextInt(pages - size + 1);
+                for (; i < end; i++) {
+                    trace[i] = reference(base + random.nextInt(size), random.nextInt(10) < 3);
+                }
+            } else if (kind < 18) {
+                int size = Math.min(pages, frames * 5 / 4);
+                int base = random.nextInt(pages - size + 1);
+                for (int page = 0; i < end; page = (page + 1) % size) {
+                    boolean write = random.nextBoolean();
+                    for (int k = 0; k < 4 && i < end; k++, i++) {
+                        trace[i] = reference(base + page, write && k == 0);
+                    }
+                }
+            } else {
+                for (; i < end; i++) {
+                    trace[i] = reference(random.nextInt(pages), random.nextInt(10) < 3);
+                }
+            }
+        }
+        return trace;
+    }
+
+    private static long reference(int page, boolean write) {
+        return (long) page << 1 | (write ? 1 : 0);
+    }
+}
@@ -0,0 +1,471 @@
+package virtual_memory_examples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SwapFile.java
+ * 
+ * A swap area in a real file: slot s holds one page at offset s * PAGE_SIZE
+ * and is read and written with FileChannel positional I/O.
+ * 
+ * Writes are either
+ * - synchronous (batch = 0): write() returns when the page is in the file,
+ * - asynchronous write-back: write() copies the page into a pending buffer
+ * and returns; a writer thread takes up to 'batch' pending pages at a time
+ * (after at most maxDelayMillis), sorted by slot, and writes each run of
+ * consecutive slots with ONE call. When maxPending pages are waiting,
+ * write() blocks (dirty-page throttling).
+ * A page that is still pending or being written is read from its buffer,
+ * not from the file, so a fault right after an eviction never sees stale data.
+ * 
+ * readCluster() reads several consecutive slots with one call (swap
+ * read-ahead).
+ * 
+ * IoMode:
+ * - BUFFERED: ordinary I/O, served by the OS page cache when it can,
+ * - DSYNC: every write waits until the data is on the device (O_DSYNC),
+ * - DIRECT: bypasses the page cache (O_DIRECT), every read and write
+ * reaches the device. Buffers must be aligned: use alignedPages().
+ * O_DIRECT has no standard OpenOption; the JDK's ExtendedOpenOption.DIRECT
+ * (module jdk.unsupported) is looked up at run time, so this file compiles
+ * without internal API and DIRECT fails cleanly where it is missing.
+ * 
+ * If the writer thread's I/O fails, the pages it held go back to 'pending'
+ * (reads still see them), the writer stops, and every write(), flush() and
+ * close() from then on throws the failure.
+ * 
+ * Counted: bytes and calls for reads and writes, their latencies, reads
+ * served from pending buffers, and time write() spent throttled.
+ */
+public class SwapFile implements AutoCloseable {
+
+    public static final int PAGE_SIZE = 4096;
+
+    public enum IoMode {
+        BUFFERED, DSYNC, DIRECT
+    }
+
+    /** Latency samples of one kind of I/O call. */
+    public static final class Latency {
+        private static final int MAX_SAMPLES = 1 << 21;
+        private long[] samples = new long[1024];
+        private int count = 0;
+        private long calls = 0, totalNanos = 0, maxNanos = 0;
+
+        void record(long nanos) {
+            calls++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            if (count < MAX_SAMPLES) {
+                if (count == samples.length) {
+                    samples = Arrays.copyOf(samples, samples.length * 2);
+                }
+                samples[count++] = nanos;
+            }
+        }
+
+        public long calls() {
+            return calls;
+        }
+
+        public long totalNanos() {
+            return totalNanos;
+        }
+
+        public long maxNanos() {
+            return maxNanos;
+        }
+
+        /** p in [0, 1], from the first MAX_SAMPLES calls. */
+        public long percentileNanos(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, count * p)];
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int slots;
+    private final int batch;
+    private final long maxDelayNanos;
+    private final int maxPending;
+
+    // Write-back state, guarded by 'this'
+    private final TreeMap<Integer, ByteBuffer> pending = new TreeMap<>();
+    private final Map<Integer, ByteBuffer> inFlight = new HashMap<>();
+    private final ArrayDeque<ByteBuffer> spareBuffers = new ArrayDeque<>();
+    private long oldestPendingNanos;
+    private boolean flushing = false;
+    private boolean closing = false;
+    private UncheckedIOException failure; // set when the writer thread's I/O failed
+    private final Thread writer;
+    private final ByteBuffer writeScratch;
+
+    private long bytesRead = 0, bytesWritten = 0;
+    private long pendingHits = 0;
+    private long throttleNanos = 0;
+    private final Latency readLatency = new Latency();
+    private final Latency writeLatency = new Latency();
+
+    /** Synchronous writes. */
+    public SwapFile(Path path, int slots, IoMode mode) throws IOException {
+        this(path, slots, mode, 0, 0, 0);
+    }
+
+    /** batch 0 = synchronous writes; otherwise write-back in batches of up to 'batch' pages. */
+    public SwapFile(Path path, int slots, IoMode mode, int batch, int maxPending, long maxDelayMillis)
+            throws IOException {
+        this.path = path;
+        this.slots = slots;
+        this.batch = batch;
+        this.maxPending = Math.max(batch, maxPending);
+        this.maxDelayNanos = maxDelayMillis * 1_000_000L;
+        List<OpenOption> options = new ArrayList<>(List.of(StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        if (mode == IoMode.DSYNC) {
+            options.add(StandardOpenOption.DSYNC);
+        } else if (mode == IoMode.DIRECT) {
+            options.add(directOption());
+        }
+        this.channel = FileChannel.open(path, options.toArray(new OpenOption[0]));
+        if (batch > 0) {
+            writeScratch = alignedPages(batch);
+            writer = new Thread(this::writeBack, "swap-writer");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writeScratch = null;
+            writer = null;
+        }
+    }
+
+    /**
+     * ExtendedOpenOption.DIRECT, looked up by name. Naming it in the source
+     * makes javac warn that it is internal proprietary API, and that
+     * warning ignores @SuppressWarnings. jdk.unsupported may also be left
+     * out of a jlinked runtime: then only DIRECT mode fails, not SwapFile.
+     */
+    private static OpenOption directOption() {
+        try {
+            return (OpenOption) Class.forName("com.sun.nio.file.ExtendedOpenOption").getField("DIRECT").get(null);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new UnsupportedOperationException("O_DIRECT is not available on this JDK", e);
+        }
+    }
+
+    /** A direct buffer of 'pages' pages, aligned to PAGE_SIZE (as DIRECT mode needs). */
+    public static ByteBuffer alignedPages(int pages) {
+        return ByteBuffer.allocateDirect((pages + 1) * PAGE_SIZE).alignedSlice(PAGE_SIZE)
+                .limit(pages * PAGE_SIZE).slice();
+    }
+
+    public int slots() {
+        return slots;
+    }
+
+    public boolean isAsync() {
+        return batch > 0;
+    }
+
+    // --- Writes ---
+
+    /** Writes the PAGE_SIZE bytes of 'page' (from index 0) to the slot. */
+    public void write(int slot, ByteBuffer page) {
+        checkSlot(slot, 1);
+        if (batch == 0) {
+            synchronized (this) {
+                long start = System.nanoTime();
+                writeFully(page.duplicate().clear(), (long) slot * PAGE_SIZE);
+                writeLatency.record(System.nanoTime() - start);
+                bytesWritten += PAGE_SIZE;
+            }
+            return;
+        }
+        synchronized (this) {
+            checkWriter();
+            ByteBuffer buffer = pending.get(slot);
+            if (buffer == null) {
+                if (pending.size() + inFlight.size() >= maxPending) {
+                    long start = System.nanoTime();
+                    while (pending.size() + inFlight.size() >= maxPending) {
+                        notifyAll(); // make sure the writer is not waiting for a full batch
+                        Monitors.waitInterruptibly(this, "swap write-back");
+                        checkWriter();
+                    }
+                    throttleNanos += System.nanoTime() - start;
+                }
+                buffer = spareBuffers.isEmpty() ? alignedPages(1) : spareBuffers.poll();
+                if (pending.isEmpty()) {
+                    oldestPendingNanos = System.nanoTime();
+                }
+                pending.put(slot, buffer);
+            }
+            buffer.clear().put(page.duplicate().clear()).clear(); // a newer copy replaces a pending one
+            if (pending.size() >= batch) {
+                notifyAll();
+            }
+        }
+    }
+
+    /** Waits until every pending page is in the file. */
+    public synchronized void flush() {
+        flushing = true;
+        notifyAll();
+        try {
+            while (!pending.isEmpty() || !inFlight.isEmpty()) {
+                checkWriter();
+                Monitors.waitInterruptibly(this, "swap write-back");
+            }
+        } finally {
+            flushing = false;
+        }
+    }
+
+    /** Rethrows the writer thread's failure in the calling thread. */
+    private void checkWriter() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure.getMessage(), failure.getCause());
+        }
+    }
+
+    private void writeBack() {
+        List<Integer> slotsTaken = new ArrayList<>();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                while (!readyToWrite()) {
+                    if (closing && pending.isEmpty()) {
+                        return;
+                    }
+                    long waitNanos = pending.isEmpty() ? 0 : oldestPendingNanos + maxDelayNanos - System.nanoTime();
+                    try {
+                        if (pending.isEmpty()) {
+                            wait();
+                        } else {
+                            wait(Math.max(1, waitNanos / 1_000_000));
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                while (slotsTaken.size() < batch && !pending.isEmpty()) { // in slot order
+                    Map.Entry<Integer, ByteBuffer> e = pending.pollFirstEntry();
+                    slotsTaken.add(e.getKey());
+                    buffers.add(e.getValue());
+                    inFlight.put(e.getKey(), e.getValue());
+                }
+                oldestPendingNanos = System.nanoTime();
+            }
+
+            // One write per run of consecutive slots
+            try {
+                int runStart = 0;
+                for (int i = 1; i <= slotsTaken.size(); i++) {
+                    if (i == slotsTaken.size() || slotsTaken.get(i) != slotsTaken.get(i - 1) + 1) {
+                        writeRun(slotsTaken, buffers, runStart, i);
+                        runStart = i;
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                synchronized (this) {
+                    // Not known to be in the file: keep them readable unless a newer copy is pending
+                    for (Map.Entry<Integer, ByteBuffer> entry : inFlight.entrySet()) {
+                        if (pending.putIfAbsent(entry.getKey(), entry.getValue()) != null) {
+                            spareBuffers.add(entry.getValue());
+                        }
+                    }
+                    inFlight.clear();
+                    failure = e;
+                    notifyAll(); // waiters rethrow it
+                }
+                return;
+            }
+
+            synchronized (this) {
+                for (int i = 0; i < slotsTaken.size(); i++) {
+                    inFlight.remove(slotsTaken.get(i));
+                    spareBuffers.add(buffers.get(i));
+                }
+                notifyAll();
+            }
+            slotsTaken.clear();
+            buffers.clear();
+        }
+    }
+
+    private boolean readyToWrite() {
+        return !pending.isEmpty() && (pending.size() >= batch || flushing || closing
+                || pending.size() + inFlight.size() >= maxPending
+                || System.nanoTime() - oldestPendingNanos >= maxDelayNanos);
+    }
+
+    private void writeRun(List<Integer> slotsTaken, List<ByteBuffer> buffers, int from, int to) {
+        writeScratch.clear();
+        for (int i = from; i < to; i++) {
+            writeScratch.put(buffers.get(i).duplicate().clear());
+        }
+        writeScratch.flip();
+        long start = System.nanoTime();
+        writeFully(writeScratch, (long) slotsTaken.get(from) * PAGE_SIZE);
+        long nanos = System.nanoTime() - start;
+        synchronized (this) {
+            writeLatency.record(nanos);
+            bytesWritten += (long) (to - from) * PAGE_SIZE;
+        }
+    }
+
+    private void writeFully(ByteBuffer source, long position) {
+        try {
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Swap write failed at " + position, e);
+        }
+    }
+
+    // --- Reads ---
+
+    /**
+     * Reads the slot into 'page' (PAGE_SIZE bytes from index 0). Returns true
+     * if it needed I/O, false if the page was still waiting to be written.
+     */
+    public synchronized boolean read(int slot, ByteBuffer page) {
+        checkSlot(slot, 1);
+        ByteBuffer buffer = unwritten(slot);
+        if (buffer != null) {
+            page.duplicate().clear().put(buffer.duplicate().clear());
+            pendingHits++;
+            return false;
+        }
+        readFully(page.duplicate().clear(), (long) slot * PAGE_SIZE);
+        return true;
+    }
+
+    /**
+     * Reads 'count' consecutive slots from 'first' into 'pages' with one call,
+     * then replaces the slots still waiting to be written with their newer copies.
+     */
+    public synchronized void readCluster(int first, int count, ByteBuffer pages) {
+        checkSlot(first, count);
+        // Holding the lock: the writer cannot retire an in-flight page between
+        // this read and the overlay below, so no slot can come back stale
+        readFully(pages.duplicate().clear().limit(count * PAGE_SIZE), (long) first * PAGE_SIZE);
+        if (!pending.isEmpty() || !inFlight.isEmpty()) {
+            for (int s = first; s < first + count; s++) {
+                ByteBuffer buffer = unwritten(s);
+                if (buffer != null) {
+                    pages.duplicate().position((s - first) * PAGE_SIZE).put(buffer.duplicate().clear());
+                }
+            }
+        }
+    }
+
+    private ByteBuffer unwritten(int slot) {
+        if (pending.isEmpty() && inFlight.isEmpty()) {
+            return null;
+        }
+        ByteBuffer buffer = pending.get(slot);
+        return buffer != null ? buffer : inFlight.get(slot);
+    }
+
+    private void readFully(ByteBuffer target, long position) {
+        long start = System.nanoTime();
+        int bytes = target.remaining();
+        try {
+            while (target.hasRemaining()) {
+                int n = channel.read(target, position);
+                if (n < 0) { // beyond the end of the file: never written, reads as zeros
+                    while (target.hasRemaining()) {
+                        target.put((byte) 0);
+                    }
+                    break;
+                }
+                position += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Swap read failed at " + position, e);
+        }
+        readLatency.record(System.nanoTime() - start);
+        bytesRead += bytes;
+    }
+
+    private void checkSlot(int slot, int count) {
+        if (slot < 0 || count < 1 || slot + count > slots) {
+            throw new IllegalArgumentException("Slots " + slot + ".." + (slot + count - 1)
+                    + " outside the swap area (" + slots + " slots)");
+        }
+    }
+
+    // --- Metrics (read them after flush() or close()) ---
+
+    public synchronized long bytesRead() {
+        return bytesRead;
+    }
+
+    public synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized long pendingHits() {
+        return pendingHits;
+    }
+
+    public synchronized long throttleNanos() {
+        return throttleNanos;
+    }
+
+    public synchronized Latency readLatency() {
+        return readLatency;
+    }
+
+    public synchronized Latency writeLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * Writes what is pending, stops the writer and deletes the file. The file
+     * is closed and deleted even if the write-back failed; the failure is
+     * thrown afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writer != null) {
+                flush();
+            }
+        } finally {
+            if (writer != null) {
+                synchronized (this) {
+                    closing = true;
+                    notifyAll();
+                }
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package virtual_memory_examples;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SwappingPager.java
+ * 
+ * Demand paging with real page contents and a real backing store: the
+ * frames are PAGE_SIZE bytes each (one direct buffer), evicted dirty pages
+ * go to a SwapFile and come back from it on the next fault.
+ * 
+ * On a fault for page p:
+ * - a free frame is used, or the ReplacementPolicy picks a victim; a dirty
+ * victim is written to a newly allocated swap slot, a clean one is just
+ * dropped (its swap copy, or the zero page, is still valid),
+ * - p is filled: with zeros if it was never written out, from the swap
+ * cache if read-ahead already brought it in, otherwise from its slot.
+ * With readAhead > 1 the whole aligned cluster of readAhead slots around
+ * p's slot is read with one call, and the other non-resident pages in it
+ * go to the swap cache (at most swapCachePages, oldest dropped first;
+ * they hold copies of what is on disk, so dropping them costs nothing).
+ * 
+ * Slots are allocated like Linux swap clusters: the next free slot after
+ * the previous allocation, so pages evicted together get consecutive slots
+ * (batched write-back can write them with one call, read-ahead finds them
+ * again together). Writing to a page that has a swap copy frees its slot,
+ * as the copy is stale from then on.
+ * 
+ * Every write stores (version, page number) at the start of the page and
+ * every page that comes back from swap is checked against them, so lost
+ * or stale swap I/O shows up as an IllegalStateException.
+ * 
+ * Counted: faults, major faults (needed a read), zero fills, read-ahead
+ * hits, clean / dirty evictions, and the time spent inside faults.
+ */
+public class SwappingPager {
+
+    private static final int PAGE_SIZE = SwapFile.PAGE_SIZE;
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(PAGE_SIZE);
+
+    private final ReplacementPolicy policy;
+    private final SwapFile swap;
+    private final int readAhead;
+    private final int swapCachePages;
+
+    private final ByteBuffer[] frames;
+    private final int[] pageOf; // frame -> page
+    private final boolean[] dirty;
+    private int framesUsed = 0;
+
+    private final int[] frameOf; // page -> frame, -1 if not resident
+    private final int[] slotOf; // page -> swap slot, -1 if never written out
+    private final long[] version;
+    private final int[] pageOfSlot;
+    private final BitSet usedSlots = new BitSet();
+    private int slotCursor = 0;
+
+    private final ByteBuffer cluster;
+    private final LinkedHashMap<Integer, ByteBuffer> swapCache = new LinkedHashMap<>();
+    private final ArrayDeque<ByteBuffer> spareCacheBuffers = new ArrayDeque<>();
+
+    private long references = 0, faults = 0, majorFaults = 0, zeroFills = 0, readAheadHits = 0;
+    private long readAheadPages = 0, cleanEvictions = 0, dirtyEvictions = 0;
+    private long faultNanos = 0;
+    private long checksum = 0;
+
+    public SwappingPager(int frameCount, int pages, ReplacementPolicy policy, SwapFile swap, int readAhead,
+            int swapCachePages) {
+        if (swap.slots() < pages) { // each page holds at most one slot
+            throw new IllegalArgumentException("Swap area too small: " + swap.slots() + " slots for " + pages + " pages");
+        }
+        this.policy = policy;
+        this.swap = swap;
+        this.readAhead = Math.max(1, readAhead);
+        this.swapCachePages = swapCachePages;
+
+        ByteBuffer memory = SwapFile.alignedPages(frameCount);
+        frames = new ByteBuffer[frameCount];
+        for (int f = 0; f < frameCount; f++) {
+            frames[f] = memory.slice(f * PAGE_SIZE, PAGE_SIZE);
+        }
+        pageOf = new int[frameCount];
+        dirty = new boolean[frameCount];
+        frameOf = new int[pages];
+        slotOf = new int[pages];
+        Arrays.fill(frameOf, -1);
+        Arrays.fill(slotOf, -1);
+        version = new long[pages];
+        pageOfSlot = new int[swap.slots()];
+        cluster = this.readAhead > 1 ? SwapFile.alignedPages(this.readAhead) : null;
+    }
+
+    /** One reference: reads or writes the page, faulting it in if needed. */
+    public void access(int page, boolean write) {
+        references++;
+        int f = frameOf[page];
+        if (f >= 0) {
+            policy.accessed(page);
+        } else {
+            f = fault(page);
+        }
+        ByteBuffer frame = frames[f];
+        if (write) {
+            if (!dirty[f] && slotOf[page] >= 0) {
+                freeSlot(page); // the swap copy is stale now
+            }
+            frame.putLong(0, ++version[page]);
+            frame.putLong(8, page);
+            dirty[f] = true;
+        } else {
+            checksum += frame.getLong(0);
+        }
+    }
+
+    private int fault(int page) {
+        long start = System.nanoTime();
+        faults++;
+        int f;
+        if (framesUsed < frames.length) {
+            f = framesUsed++;
+        } else {
+            int victim = (int) policy.victim();
+            f = frameOf[victim];
+            evict(victim, f);
+        }
+        load(page, frames[f]);
+        policy.inserted(page);
+        frameOf[page] = f;
+        pageOf[f] = page;
+        dirty[f] = false;
+        faultNanos += System.nanoTime() - start;
+        return f;
+    }
+
+    private void evict(int page, int f) {
+        frameOf[page] = -1;
+        if (!dirty[f]) {
+            cleanEvictions++; // its swap copy (or the zero page) is still valid
+            return;
+        }
+        dirtyEvictions++;
+        int slot = usedSlots.nextClearBit(slotCursor);
+        if (slot >= swap.slots()) {
+            slot = usedSlots.nextClearBit(0);
+        }
+        usedSlots.set(slot);
+        slotCursor = slot + 1;
+        slotOf[page] = slot;
+        pageOfSlot[slot] = page;
+        swap.write(slot, frames[f]);
+    }
+
+    private void freeSlot(int page) {
+        usedSlots.clear(slotOf[page]);
+        slotOf[page] = -1;
+    }
+
+    private void load(int page, ByteBuffer frame) {
+        ByteBuffer cached = swapCache.remove(page);
+        if (cached != null) {
+            readAheadHits++;
+            frame.clear().put(cached.clear()).clear();
+            spareCacheBuffers.add(cached);
+        } else if (slotOf[page] < 0) {
+            zeroFills++;
+            frame.clear().put(ZEROS.duplicate().clear()).clear();
+        } else if (readAhead == 1) {
+            if (swap.read(slotOf[page], frame)) {
+                majorFaults++;
+            }
+        } else {
+            majorFaults++;
+            readCluster(page, frame);
+        }
+        verify(page, frame);
+    }
+
+    private void readCluster(int page, ByteBuffer frame) {
+        int slot = slotOf[page];
+        int first = slot - slot % readAhead;
+        int count = Math.min(readAhead, swap.slots() - first);
+        swap.readCluster(first, count, cluster);
+        for (int s = first; s < first + count; s++) {
+            if (!usedSlots.get(s)) {
+                continue;
+            }
+            ByteBuffer copy = cluster.slice((s - first) * PAGE_SIZE, PAGE_SIZE);
+            int other = pageOfSlot[s];
+            if (other == page) {
+                frame.clear().put(copy).clear();
+            } else if (frameOf[other] < 0 && swapCachePages > 0 && !swapCache.containsKey(other)) {
+                cache(other, copy);
+            }
+        }
+    }
+
+    private void cache(int page, ByteBuffer copy) {
+        if (swapCache.size() == swapCachePages) {
+            Iterator<Map.Entry<Integer, ByteBuffer>> oldest = swapCache.entrySet().iterator();
+            spareCacheBuffers.add(oldest.next().getValue());
+            oldest.remove();
+        }
+        ByteBuffer buffer = spareCacheBuffers.isEmpty() ? ByteBuffer.allocate(PAGE_SIZE) : spareCacheBuffers.poll();
+        buffer.clear().put(copy).clear();
+        swapCache.put(page, buffer);
+        readAheadPages++;
+    }
+
+    private void verify(int page, ByteBuffer frame) {
+        if (version[page] != 0 && (frame.getLong(0) != version[page] || frame.getLong(8) != page)) {
+            throw new IllegalStateException("Page " + page + " came back from swap with stale contents (version "
+                    + frame.getLong(0) + ", expected " + version[page] + ")");
+        }
+    }
+
+    // --- Metrics ---
+
+    public String policyName() {
+        return policy.name();
+    }
+
+    public long getReferences() {
+        return references;
+    }
+
+    public long getFaults() {
+        return faults;
+    }
+
+    /** Faults that read the swap file. */
+    public long getMajorFaults() {
+        return majorFaults;
+    }
+
+    public long getZeroFills() {
+        return zeroFills;
+    }
+
+    /** Faults served by pages that read-ahead had already brought in. */
+    public long getReadAheadHits() {
+        return readAheadHits;
+    }
+
+    /** Pages read ahead into the swap cache (used or not). */
+    public long getReadAheadPages() {
+        return readAheadPages;
+    }
+
+    public long getCleanEvictions() {
+        return cleanEvictions;
+    }
+
+    public long getDirtyEvictions() {
+        return dirtyEvictions;
+    }
+
+    /** Total time spent handling faults, including the I/O waits. */
+    public long getFaultNanos() {
+        return faultNanos;
+    }
+
+    /** Sum of the words read, so the reads cannot be optimized away. */
+    public long getChecksum() {
+        return checksum;
+    }
+}